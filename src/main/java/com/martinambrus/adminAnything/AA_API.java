@@ -106,6 +106,27 @@ public final class AA_API {
         return aa.getExternalConf().getString(key, def);
     } // end method
 
+    /**
+     * Returns a list of strings from AA's configuration.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * for (final String command : AA_API.getConfigStringList("banIpCommands")) {
+     *     // do something with the command name here
+     * }
+     * }
+     * </pre>
+     *
+     * @param key The config key we want to return a list of strings for.
+     *
+     * @return Returns the list of strings from AA's configuration, or an empty list if there is none.
+     */
+    public static List<String> getConfigStringList(final String key) {
+        final List<String> list = aa.getExternalConf().getStringList(key);
+        return null == list ? new ArrayList<String>() : list;
+    } // end method
+
     /**
      * Returns keys of a configuration section from AA's configuration.
      *
@@ -504,6 +525,70 @@ public final class AA_API {
         return aa.getPermissionUtils().checkPerms(sender, permsQuery, showResultToSender);
     } //end method
 
+    /***
+     * Retrieves all virtual permissions (added via /aa_addperm) which guard the given command line.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final String[] perms = AA_API.getVirtualPermissionsForCommand("kit vip");
+     * if (null != perms) {
+     *  // this command line requires a virtual permission
+     * }}
+     * </pre>
+     *
+     * @param commandLine The command line (without slash) to get virtual permissions for.
+     *
+     * @return Returns all virtual permissions for this command line or null if there are none.
+     */
+    public static String[] getVirtualPermissionsForCommand(final String commandLine) {
+        return aa.getPermissionUtils().getVirtualPermissionsForCommand(commandLine);
+    } //end method
+
+    /***
+     * Checks whether the given CommandSender has the requested virtual permission (added via /aa_addperm).
+     * When virtual permissions are registered as native Bukkit permission nodes (see the
+     * <i>virtualPermissionsAsNodes</i> config option), this is a direct lookup into the sender's
+     * effective permissions, otherwise {@link #checkPerms(CommandSender, String, boolean)} is used.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * if (AA_API.hasVirtualPermission(sender, "vip.kit")) {
+     *  // do your stuff
+     * }}
+     * </pre>
+     *
+     * @param sender The org.bukkit.command.CommandSender CommandSender who we're checking the permission for.
+     * @param perm   Name of the virtual permission to check.
+     *
+     * @return Returns true if the sender has the requested virtual permission, false otherwise.
+     */
+    public static boolean hasVirtualPermission(final CommandSender sender, final String perm) {
+        return aa.getPermissionUtils().hasVirtualPermission(sender, perm);
+    } //end method
+
+    /***
+     * Rebuilds the map of commands guarded by virtual permissions (added via /aa_addperm)
+     * from the virtual permissions config and, when the <i>virtualPermissionsAsNodes</i> config option
+     * is enabled, registers all of these permissions as native Bukkit permission nodes.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * AA_API.reloadVirtualPermissions();
+     * }
+     * </pre>
+     */
+    public static void reloadVirtualPermissions() {
+        // permissions handler is not yet initialized when we're still enabling
+        if (null != aa.getPermissionUtils()) {
+            //noinspection HardCodedStringLiteral
+            aa.getPermissionUtils().loadVirtualPermissions(getCommandsConfigurationValues("virtualperms"),
+                getConfigBoolean("virtualPermissionsAsNodes"));
+        }
+    } //end method
+
     /***
      * Checks whether the given CommandSender's primary group has the requested permission assigned.
      *
@@ -1040,6 +1125,84 @@ public final class AA_API {
         return aa.getCommandListenersUtils().getMutesMap();
     } // end method
 
+    /**
+     * Applies many changes to AdminAnything's rules (ignores, overrides, removals, mutes,
+     * redirects and virtual permissions) as a single transaction. All changes are validated
+     * together first and nothing is changed if any of them is invalid. Otherwise, each affected
+     * config file is saved once and all caches depending on these rules are reloaded once.
+     * Only plugins with full access to AA's API can use this method.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final List<String> errors = AA_API.applyRuleBatch(null, new RuleBatch().disable("pl").mute("lag"));
+     * if (!errors.isEmpty()) {
+     *     Bukkit.getLogger().warning("Rules not applied: " + String.join(", ", errors));
+     * }
+     * }
+     * </pre>
+     *
+     * @param sender The player or console who requested these changes, used in the audit log.
+     *               Can be null, in which case the calling plugin is recorded instead.
+     * @param batch The batch of changes to apply.
+     *
+     * @return Returns a list of errors, which is empty if the whole batch was applied.
+     * @throws AccessException When we don't have the permission to access the server's command map.
+     * @throws IllegalAccessException When access is denied to the server's command map.
+     * @throws InvalidClassException When a class for any of the server plugins cannot be found within the current classLoader.
+     * @throws NoSuchMethodException When there is a get() method missing from the server's command map.
+     * @throws InvocationTargetException When we try to invoke get() on the server's command map with invalid parameters.
+     */
+    public static List<String> applyRuleBatch(final CommandSender sender, final RuleBatch batch)
+        throws AccessException, IllegalAccessException, InvalidClassException, NoSuchMethodException,
+        InvocationTargetException {
+        return aa.getCommandListenersUtils().applyRuleBatch(
+            batch, sender, new com.martinambrus.adminAnything.instrumentation.MySecurityManager().getCallerClass(2));
+    } // end method
+
+    /**
+     * Copies all of AdminAnything's current rules into a new snapshot,
+     * which can then be written into a single compact file. Must be called on the main thread.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * AA_API.captureRuleSnapshot().write(new File(folder, "lobby" + RuleSnapshot.FILE_EXTENSION));
+     * }
+     * </pre>
+     *
+     * @return Returns a new snapshot with all the current rules.
+     */
+    public static RuleSnapshot captureRuleSnapshot() {
+        return RuleSnapshot.capture(aa.getCommandListenersUtils());
+    } // end method
+
+    /**
+     * Replaces all of AdminAnything's rules by the ones from the given snapshot at once,
+     * saves them into their config files and reloads all caches depending on them once.
+     * Only plugins with full access to AA's API can use this method. Must be called on the main thread.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final List<String> errors = AA_API.applyRuleSnapshot(null, RuleSnapshot.read(file), file.getName());
+     * }
+     * </pre>
+     *
+     * @param sender The player or console who requested this import, used in the audit log.
+     *               Can be null, in which case the calling plugin is recorded instead.
+     * @param snapshot The snapshot to import.
+     * @param source Name of the snapshot file, as recorded into the audit log.
+     *
+     * @return Returns a list of errors, which is empty if the whole snapshot was imported.
+     * @throws InvalidClassException When the caller's class file is not found in the current classLoader.
+     */
+    public static List<String> applyRuleSnapshot(final CommandSender sender, final RuleSnapshot snapshot,
+        final String source) throws InvalidClassException {
+        return aa.getCommandListenersUtils().applyRuleSnapshot(snapshot, sender,
+            new com.martinambrus.adminAnything.instrumentation.MySecurityManager().getCallerClass(2), source);
+    } // end method
+
     /***
      * Returns plugin name from the cache of lowercased plugins
      * as opposed to the Bukkit.getPluginManager().getPlugin() case-sensitive getting.
@@ -1204,6 +1367,130 @@ public final class AA_API {
         return aa.getCommandsUtils().getManualPermDescConfig();
     }
 
+    /**
+     * Returns the compiled form of manual permissions and commands for plugins that don't provide these
+     * in their plugin.yml file. Much faster to query than {@link #getManualPermDescriptionsConfig()}.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final ManualPermDescriptions descriptions = AA_API.getManualPermDescriptions();
+     * final int cmd = descriptions.findCommand("essentials", "afk");
+     * if (0 < descriptions.getPermissionCount(cmd)) {
+     *     Bukkit.getLogger().info("Permission for /afk is " + descriptions.getPermission(cmd, 0));
+     * }
+     * }
+     * </pre>
+     *
+     * @return Returns the compiled form of manual permissions and commands for plugins.
+     */
+    public static ManualPermDescriptions getManualPermDescriptions() {
+        return aa.getCommandsUtils().getManualPermDescriptions();
+    } // end method
+
+    /**
+     * Finds permission nodes of the given plugin containing the given search string.
+     * Permission nodes are taken from the plugin's plugin.yml, permissions it registered on its own,
+     * its commands and our permdescriptions.yml file, and are indexed once per plugin.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // all permission nodes of Essentials with "home" in them
+     * List<String> perms = AA_API.findPluginPermissions(AA_API.getPluginIgnoreCase("essentials"), "home");
+     * }
+     * </pre>
+     *
+     * @param plugin The plugin to find permissions for.
+     * @param search The string which found permission nodes must contain. Can be empty to return all nodes.
+     *
+     * @return Returns alphabetically sorted permission nodes of the plugin containing the search string.
+     *
+     * @throws IllegalAccessException When access is denied to the {@link org.bukkit.command.CommandMap commandMap} or {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field.
+     * @throws NoSuchMethodException When there is a get() method missing from the {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field.
+     * @throws InvocationTargetException When we try to invoke get() on {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} with invalid {@link org.bukkit.command.CommandMap commandMap} parameter.
+     * @throws AccessException When we don't have the permission to access the {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field of {@link org.bukkit.command.CommandMap commandMap}.
+     */
+    @SuppressWarnings("JavadocReference")
+    public static List<String> findPluginPermissions(final Plugin plugin, final String search)
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        return aa.getPermissionIndex().findPluginPermissions(plugin, search);
+    } // end method
+
+    /**
+     * Gets description of a permission node of the given plugin.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * String desc = AA_API.getPermissionDescription(AA_API.getPluginIgnoreCase("essentials"), "essentials.home");
+     * }
+     * </pre>
+     *
+     * @param plugin The plugin this permission node belongs to.
+     * @param perm The permission node to get description for.
+     *
+     * @return Returns description of the permission node or null if the plugin doesn't have such node.
+     *
+     * @throws IllegalAccessException When access is denied to the {@link org.bukkit.command.CommandMap commandMap} or {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field.
+     * @throws NoSuchMethodException When there is a get() method missing from the {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field.
+     * @throws InvocationTargetException When we try to invoke get() on {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} with invalid {@link org.bukkit.command.CommandMap commandMap} parameter.
+     * @throws AccessException When we don't have the permission to access the {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field of {@link org.bukkit.command.CommandMap commandMap}.
+     */
+    @SuppressWarnings("JavadocReference")
+    public static String getPermissionDescription(final Plugin plugin, final String perm)
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        return aa.getPermissionIndex().getPermissionDescription(plugin, perm);
+    } // end method
+
+    /**
+     * Gets commands of the given plugin which the given permission node gives access to.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // will contain "home"
+     * Collection<String> commands = AA_API.getPermissionCommands(AA_API.getPluginIgnoreCase("essentials"), "essentials.home");
+     * }
+     * </pre>
+     *
+     * @param plugin The plugin this permission node belongs to.
+     * @param perm The permission node to get commands for.
+     *
+     * @return Returns alphabetically sorted command names (without leading slashes), empty if there are none.
+     *
+     * @throws IllegalAccessException When access is denied to the {@link org.bukkit.command.CommandMap commandMap} or {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field.
+     * @throws NoSuchMethodException When there is a get() method missing from the {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field.
+     * @throws InvocationTargetException When we try to invoke get() on {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} with invalid {@link org.bukkit.command.CommandMap commandMap} parameter.
+     * @throws AccessException When we don't have the permission to access the {@link org.bukkit.command.SimpleCommandMap.knownCommands knownCommands} field of {@link org.bukkit.command.CommandMap commandMap}.
+     */
+    @SuppressWarnings("JavadocReference")
+    public static Collection<String> getPermissionCommands(final Plugin plugin, final String perm)
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        return aa.getPermissionIndex().getPermissionCommands(plugin, perm);
+    } // end method
+
+    /**
+     * Gets all permissions of the given player, double-checked via Vault if present.
+     * These are cached until the player's effective permissions change.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * for (String perm : AA_API.getPlayerPermissions(player)) {
+     *     Bukkit.getLogger().info(player.getName() + " has " + perm);
+     * }
+     * }
+     * </pre>
+     *
+     * @param p The player to get permissions for.
+     *
+     * @return Returns all permissions of the player, sorted alphabetically ignoring case.
+     */
+    public static List<String> getPlayerPermissions(final Player p) {
+        return aa.getPermissionIndex().getPlayerPermissions(p);
+    } // end method
+
     /**
      * Returns TRUE if the initial warmup of AdminAnything is not yet passed,
      * FALSE otherwise. This is because we need to wait for all plugins before
@@ -1237,6 +1524,194 @@ public final class AA_API {
        return aa.getInventoryManager().createGUIPlayerInventory( player, playerNameForCommands );
     }
 
+    /**
+     * Records time spent in one of AdminAnything's subsystems, to be shown in /aa_stats.
+     * Recording is lock-free and can be called from any thread.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final long start = System.nanoTime();
+     * try {
+     *     // do your stuff
+     * } finally {
+     *     AA_API.recordLatency(StatsSubsystem.PREPROCESSOR, start);
+     * }
+     * }
+     * </pre>
+     *
+     * @param subsystem The subsystem the time was spent in.
+     * @param startNanos Start time, as returned by {@link System#nanoTime()}.
+     */
+    public static void recordLatency(final StatsSubsystem subsystem, final long startNanos) {
+        aa.getStats().record(subsystem, startNanos);
+    } // end method
+
+    /**
+     * Records a cache hit or miss for one of AdminAnything's subsystems, to be shown in /aa_stats.
+     *
+     * @param subsystem The subsystem the cache belongs to.
+     * @param hit Whether the requested value was found in the cache.
+     */
+    public static void recordCacheLookup(final StatsSubsystem subsystem, final boolean hit) {
+        aa.getStats().recordCacheLookup(subsystem, hit);
+    } // end method
+
+    /**
+     * Gets latencies collected for one of AdminAnything's subsystems since the last reset.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * long p99 = AA_API.getStatsLatencies(StatsSubsystem.PERMISSIONS).getPercentileNanos(99);
+     * </pre>
+     *
+     * @param subsystem The subsystem to get latencies for.
+     *
+     * @return Returns the latency histogram for the given subsystem.
+     */
+    public static LatencyHistogram getStatsLatencies(final StatsSubsystem subsystem) {
+        return aa.getStats().getLatencies(subsystem);
+    } // end method
+
+    /**
+     * Gets the number of cache hits for one of AdminAnything's subsystems since the last reset.
+     *
+     * @param subsystem The subsystem to get cache hits for.
+     *
+     * @return Returns the number of cache hits for the given subsystem.
+     */
+    public static long getStatsCacheHits(final StatsSubsystem subsystem) {
+        return aa.getStats().getCacheHits(subsystem);
+    } // end method
+
+    /**
+     * Gets the number of cache misses for one of AdminAnything's subsystems since the last reset.
+     *
+     * @param subsystem The subsystem to get cache misses for.
+     *
+     * @return Returns the number of cache misses for the given subsystem.
+     */
+    public static long getStatsCacheMisses(final StatsSubsystem subsystem) {
+        return aa.getStats().getCacheMisses(subsystem);
+    } // end method
+
+    /**
+     * Gets the time when statistics for /aa_stats started being collected.
+     *
+     * @return Returns the time (in milliseconds) when statistics were last reset.
+     */
+    public static long getStatsCollectingSince() {
+        return aa.getStats().getCollectingSince();
+    } // end method
+
+    /**
+     * Throws away all statistics collected for /aa_stats and starts collecting from scratch.
+     */
+    public static void resetStats() {
+        aa.getStats().reset();
+    } // end method
+
+    /**
+     * Records an intervention or a rule change into AdminAnything's audit log, shown via /aa_audit.
+     * Recording never blocks and can be called from any thread.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * AA_API.audit(AuditAction.BLOCKED, player, "home", "removals");
+     * }
+     * </pre>
+     *
+     * @param action What happened.
+     * @param sender The player or console who caused this record.
+     * @param command The command (or command line) this record is about.
+     * @param detail Additional details, such as redirect target or rule type. Can be null.
+     */
+    public static void audit(final AuditAction action, final CommandSender sender, final String command,
+        final String detail) {
+        audit(action, sender.getName(), command, detail);
+    } // end method
+
+    /**
+     * Records an intervention or a rule change into AdminAnything's audit log, shown via /aa_audit.
+     * Recording never blocks and can be called from any thread.
+     *
+     * @param action What happened.
+     * @param actor Name of the player, console or plugin who caused this record.
+     * @param command The command (or command line) this record is about.
+     * @param detail Additional details, such as redirect target or rule type. Can be null.
+     */
+    public static void audit(final AuditAction action, final String actor, final String command, final String detail) {
+        final AuditLog log = aa.getAuditLog();
+        if (null != log) {
+            log.record(action, actor, command, detail);
+        }
+    } // end method
+
+    /**
+     * Captures a command line into the command trace file for offline replay, if capturing is enabled.
+     * Senders are recorded as anonymous permission profiles, never by name.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * AA_API.traceCommand(player, "home bed");
+     * }
+     * </pre>
+     *
+     * @param sender The player, console or other sender who's running this command.
+     * @param commandLine The command line, without a leading slash.
+     */
+    public static void traceCommand(final CommandSender sender, final String commandLine) {
+        final CommandTrace trace = aa.getCommandTrace();
+        if (null != trace) {
+            trace.record(sender, commandLine);
+        }
+    } // end method
+
+    /**
+     * Gets all audit log records still held in memory, newest first.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * for (final AuditRecord record : AA_API.getAuditRecords()) {
+     *     if (AuditAction.BLOCKED == record.getAction()) {
+     *         // do something with the blocked command
+     *     }
+     * }
+     * }
+     * </pre>
+     *
+     * @return Returns recent audit log records, or an empty list if the audit feature is disabled.
+     */
+    public static List<AuditRecord> getAuditRecords() {
+        final AuditLog log = aa.getAuditLog();
+        return null == log ? Collections.<AuditRecord>emptyList() : log.getRecent();
+    } // end method
+
+    /**
+     * Gets the number of audit log records which were overwritten in memory
+     * before they could be written into the audit log file.
+     *
+     * @return Returns the number of dropped audit log records.
+     */
+    public static long getAuditDropped() {
+        final AuditLog log = aa.getAuditLog();
+        return null == log ? 0 : log.getDropped();
+    } // end method
+
+    /**
+     * Formats nanoseconds into a short human-readable string.
+     *
+     * @param nanos The nanoseconds value to format.
+     *
+     * @return Returns the formatted value, for example "250us" or "12.5ms".
+     */
+    public static String formatNanos(final long nanos) {
+        return Stats.formatNanos(nanos);
+    } // end method
+
     /**
      * Returns translation for the given identifier, and optionally
      * a set of parameters. If this identifier is not found, the same
@@ -1,11 +1,16 @@
 package com.martinambrus.adminAnything;
 
+import com.martinambrus.adminAnything.commands.Aa_mutecommand;
 import com.martinambrus.adminAnything.events.AAReloadEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
 
 /**
  * AdminAnything - the conflict-resolving tool for administrators
@@ -22,7 +27,7 @@ public final class AdminAnything extends JavaPlugin implements Listener {
      * to load, so it can adjust all required listener priorities), or it's
      * already loaded and all commands can now start working as intended.
      */
-    private boolean warmingUp = true;
+    private volatile boolean warmingUp = true;
 
     /**
      * Instance of {@link com.martinambrus.adminAnything.ConfigAbstractAdapter}.
@@ -64,6 +69,11 @@ public final class AdminAnything extends JavaPlugin implements Listener {
      */
     private TabComplete tabComplete = null;
 
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.PermissionIndex}
+     */
+    private PermissionIndex permissionIndex = null;
+
     /**
      * Instance of {@link com.martinambrus.adminAnything.InventoryManager}
      */
@@ -74,6 +84,30 @@ public final class AdminAnything extends JavaPlugin implements Listener {
      */
     private Updater updater = null;
 
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.Stats}.
+     * Kept across reloads, so /aa_stats still show numbers collected before the reload.
+     */
+    private final Stats stats = new Stats(this);
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AuditLog}.
+     * Null when the audit feature is disabled.
+     */
+    private AuditLog auditLog = null;
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.ConfigFileWatcher}.
+     * Null when live reload is disabled or we're using the DB config backend.
+     */
+    private ConfigFileWatcher configFileWatcher = null;
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.CommandTrace}.
+     * Null unless command trace capturing is enabled.
+     */
+    private CommandTrace commandTrace = null;
+
     /***
      * Determines whether custom metrics have already been started.
      * This is present, so even if AA is reloaded (disabled and re-enabled
@@ -81,6 +115,27 @@ public final class AdminAnything extends JavaPlugin implements Listener {
      */
     private boolean metricsStarted = false;
 
+    /***
+     * Constructor used by the server's plugin class loader.
+     */
+    public AdminAnything() {
+        super();
+    } // end method
+
+    /***
+     * Constructor used by the in-process server harness in tests,
+     * which loads AdminAnything outside of the server's plugin class loader.
+     *
+     * @param loader The plugin loader to associate this plugin with.
+     * @param description Description file for this plugin, usually parsed from our plugin.yml.
+     * @param dataFolder Folder in which this plugin will keep its configuration files.
+     * @param file Location of the plugin's JAR file.
+     */
+    protected AdminAnything(final JavaPluginLoader loader, final PluginDescriptionFile description,
+                            final File dataFolder, final File file) {
+        super(loader, description, dataFolder, file);
+    } // end method
+
     /***
      * Called by the server when a plugin is loaded
      * and ready for some action.
@@ -101,15 +156,70 @@ public final class AdminAnything extends JavaPlugin implements Listener {
             return;
         }
 
+        // resolve all reflectively-accessed server internals once, reporting any missing ones right away
+        ReflectionRegistry.init();
+
+        // start recording AA interventions and rule changes
+        //noinspection HardCodedStringLiteral
+        if (AA_API.isFeatureEnabled("audit")) {
+            auditLog = new AuditLog(this);
+            auditLog.start();
+        }
+
+        // compile patterns of plugin output lines to mute in console and player chat
+        //noinspection HardCodedStringLiteral
+        if (AA_API.isFeatureEnabled("outputmute")) {
+            OutputMutes.load(getExternalConf().getStringList("mutedOutput"));
+
+            // without /aa_mutecommand, we can only mute console lines
+            //noinspection HardCodedStringLiteral
+            if (OutputMutes.isActive() && !AA_API.isFeatureEnabled("mutecommand")) {
+                Bukkit.getScheduler().scheduleSyncDelayedTask(this, new Runnable() {
+
+                    @Override
+                    public void run() {
+                        Aa_mutecommand.setFilters();
+                    }
+
+                }, 0); // 0 = will be run as soon as the server finished loading, so all loggers are present
+            }
+        }
+
+        // keep suppressed output of selected muted commands for /aa_mutelog
+        //noinspection HardCodedStringLiteral
+        if (AA_API.isFeatureEnabled("mutelog")) {
+            int maxLines;
+            try {
+                maxLines = Integer.parseInt(AA_API.getConfigString("muteLog.maxLines", "100"));
+            } catch (final NumberFormatException ex) {
+                maxLines = 100;
+            }
+
+            MutedOutputLog.load(getExternalConf().getStringList("muteLog.commands"), maxLines);
+        }
+
         // initialize the listeners registrator and utils class
         listeners = new Listeners(this);
         listeners.init();
 
+        // start capturing anonymized commands for offline replay
+        //noinspection HardCodedStringLiteral
+        if (AA_API.isFeatureEnabled("commandtrace")) {
+            commandTrace = new CommandTrace(this);
+            commandTrace.start();
+            listeners.startRequiredListener("commandTrace", commandTrace); //NON-NLS
+        }
+
         // initialize permissions handler (Vault or native)
         perms = new Permissions(this);
 
         // initialize Plugin-related utilities
         pluginUtils = new Plugins(this);
+        listeners.startRequiredListener("pluginUtils", pluginUtils); //NON-NLS
+
+        // initialize the permission index used by /aa_pluginperms and /aa_playerperms
+        permissionIndex = new PermissionIndex();
+        listeners.startRequiredListener("permissionIndex", permissionIndex); //NON-NLS
 
         // initialize Inventory-related utilities
         inventoryManager = new InventoryManager(this);
@@ -119,6 +229,17 @@ public final class AdminAnything extends JavaPlugin implements Listener {
         commandListeners = new CommandListeners();
         listeners.startRequiredListener("coreCommandListeners", commandListeners); //NON-NLS
 
+        // load virtual permissions right away, so permission plugins can see their nodes
+        commandListeners.loadCommandsListFromConfig("virtualperms"); //NON-NLS
+
+        // pick up changes to commands config files made outside of the game without a full reload,
+        // the DB backend reloads on its own when it syncs changes into these files
+        //noinspection HardCodedStringLiteral
+        if (AA_API.isFeatureEnabled("configwatch") && "file".equals(configBootstrap.getBackend())) {
+            configFileWatcher = new ConfigFileWatcher(this, commandListeners);
+            configFileWatcher.start();
+        }
+
         // register executors for commands
         commands = new Commands(this);
         if (commands.registerCommandExecutors(config)) {
@@ -164,48 +285,13 @@ public final class AdminAnything extends JavaPlugin implements Listener {
               .info(config.getPluginName() + " v" + config.getInternalConf().getVersion() + ' ' + AA_API
                   .__("general.enabled"));
 
-        // make sure to reload our caches after the server is loaded and then some time after that
+        // build our caches and become fully active as soon as the server finishes loading
         // ... otherwise, we could load ourselves before plugins that we strive to adjust
         //     listeners for and furthermore, we could hit-and-miss some plugins for commands
         //     on the server when we already have some commands fixed / muted / disabled etc.
         // ... this is due to the fact that on startup, every config is checked against all commands
         //     on the server and if some plugins are not loaded at that point yet, we'll miss their commands
-        Bukkit.getScheduler().scheduleSyncDelayedTask(this, new Runnable() {
-
-            @Override
-            public void run() {
-                if (AdminAnything.this.warmingUp) {
-                    Bukkit.getLogger()
-                          .info("[" + config.getPluginName() + "] " + AA_API.__("startup.will-start-in-10-seconds"));
-                }
-
-                Bukkit.getScheduler().scheduleSyncDelayedTask(AdminAnything.this, new Runnable() {
-
-                    @Override
-                    public void run() {
-                        AdminAnything.this.commands.clearCommandToPluginMap();
-                        AdminAnything.this.commands.clearContainingPluginsCache();
-                        Bukkit.getScheduler().runTaskAsynchronously( AdminAnything.this, new Runnable() {
-                            @Override
-                            public void run() {
-                                AdminAnything.this.tabComplete.init(null);
-                            }
-                        });
-
-                        if (AdminAnything.this.warmingUp) {
-                            AdminAnything.this.warmingUp = false;
-                            Bukkit.getLogger().info( "[" + config.getPluginName() + "] " + AA_API
-                                .__("startup.now-active", AA_API.getAaName()));
-
-                            // activate the ASM method injector - used to silence commands
-                            //CustomMethodInjector.main( AdminAnything.this );
-                        }
-                    }
-
-                }, 20 * 10); // wait a couple of seconds before we load...
-            }
-
-        }, 0); // 0 = will be run as soon as the server finished loading
+        new StartupPipeline(this);
     } // end method
 
     /***
@@ -228,8 +314,9 @@ public final class AdminAnything extends JavaPlugin implements Listener {
             commands.clearCommandToPluginMap();
         }
 
-        // unregister the Vault connection
+        // unregister the Vault connection and our virtual permission nodes
         if (null != perms) {
+            perms.unregisterVirtualPermissionNodes();
             perms.unregisterVaultServiceProvider();
         }
 
@@ -243,6 +330,26 @@ public final class AdminAnything extends JavaPlugin implements Listener {
             updater.unregister();
         }
 
+        // stop watching commands config files
+        if (null != configFileWatcher) {
+            configFileWatcher.stop();
+        }
+
+        // write out and close the command trace file
+        if (null != commandTrace) {
+            commandTrace.stop();
+        }
+
+        // write out any audit records we still have in memory
+        if (null != auditLog) {
+            auditLog.stop();
+        }
+
+        // stop muting anything, as our instrumented code can no longer reach us
+        MuteSessions.clear();
+        OutputMutes.clear();
+        MutedOutputLog.clear();
+
         // terminate configuration DB connection, if any
         config.onClose();
 
@@ -255,6 +362,9 @@ public final class AdminAnything extends JavaPlugin implements Listener {
         perms = null;
         listeners = null;
         updater = null;
+        auditLog = null;
+        configFileWatcher = null;
+        commandTrace = null;
         tabComplete = null;
         inventoryManager = null;
 
@@ -377,6 +487,42 @@ public final class AdminAnything extends JavaPlugin implements Listener {
         return updater;
     } // end method
 
+    /**
+     * Gets instance of the latency and cache statistics collector.
+     *
+     * @return Returns instance of the latency and cache statistics collector.
+     */
+    Stats getStats() {
+        return stats;
+    } // end method
+
+    /**
+     * Gets instance of the audit log.
+     *
+     * @return Returns instance of the audit log or null if the audit feature is disabled.
+     */
+    AuditLog getAuditLog() {
+        return auditLog;
+    } // end method
+
+    /**
+     * Gets instance of the permission index.
+     *
+     * @return Returns instance of the permission index.
+     */
+    PermissionIndex getPermissionIndex() {
+        return permissionIndex;
+    } // end method
+
+    /**
+     * Gets instance of the command trace.
+     *
+     * @return Returns instance of the command trace or null if capturing is disabled.
+     */
+    CommandTrace getCommandTrace() {
+        return commandTrace;
+    } // end method
+
     /**
      * Reacts to the reload event and clears all available caches.
      */
@@ -411,4 +557,19 @@ public final class AdminAnything extends JavaPlugin implements Listener {
         return this.warmingUp;
     }
 
+    /**
+     * Ends the initial warmup of AdminAnything, so all of its features become fully active.
+     * Called by the {@link com.martinambrus.adminAnything.StartupPipeline} once all of its stages are done.
+     *
+     * @return Returns TRUE if AdminAnything was warming up until now, FALSE if it was already active.
+     */
+    boolean finishWarmingUp() {
+        if (!this.warmingUp) {
+            return false;
+        }
+
+        this.warmingUp = false;
+        return true;
+    } // end method
+
 } // end class
\ No newline at end of file
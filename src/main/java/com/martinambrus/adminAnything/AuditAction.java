@@ -0,0 +1,78 @@
+package com.martinambrus.adminAnything;
+
+/**
+ * Types of interventions and rule changes recorded
+ * into AdminAnything's audit log, displayed via /aa_audit.
+ *
+ * @author Martin Ambrus
+ */
+public enum AuditAction {
+
+    /**
+     * A disabled command was blocked.
+     */
+    BLOCKED("blocked"), //NON-NLS
+
+    /**
+     * A command was denied, since the sender doesn't have its virtual permission.
+     */
+    DENIED("denied"), //NON-NLS
+
+    /**
+     * A command was cancelled, since the player exceeded its rate limit.
+     */
+    THROTTLED("throttled"), //NON-NLS
+
+    /**
+     * A command was redirected to another command.
+     */
+    REDIRECTED("redirected"), //NON-NLS
+
+    /**
+     * A command was called from the plugin it was fixed to.
+     */
+    OVERRIDDEN("overridden"), //NON-NLS
+
+    /**
+     * A command was run with its output muted.
+     */
+    MUTED("muted"), //NON-NLS
+
+    /**
+     * A rule (disabled, muted, redirected... command) was added.
+     */
+    RULE_ADDED("rule-added"), //NON-NLS
+
+    /**
+     * A rule (disabled, muted, redirected... command) was removed.
+     */
+    RULE_REMOVED("rule-removed"), //NON-NLS
+
+    /**
+     * All rules were replaced by rules imported from a snapshot file.
+     */
+    RULES_IMPORTED("rules-imported"); //NON-NLS
+
+    /**
+     * Name of this action, as shown in /aa_audit and written into the audit log files.
+     */
+    private final String actionName;
+
+    /**
+     * Constructor.
+     *
+     * @param name Name of this action, as shown in /aa_audit and written into the audit log files.
+     */
+    AuditAction(final String name) {
+        this.actionName = name;
+    } //end method
+
+    /* (non-Javadoc)
+     * @see java.lang.Enum#toString()
+     */
+    @Override
+    public String toString() {
+        return this.actionName;
+    } //end method
+
+} // end class
@@ -0,0 +1,312 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Audit log of everything AdminAnything blocks, redirects, overrides or mutes,
+ * as well as of all changes to its rules.
+ *
+ * Records are put into a fixed-size lock-free ring buffer, so recording never blocks
+ * and only ever allocates the record itself. A background task periodically appends
+ * all new records to the audit log file in batches, rotating it once it grows too large.
+ * Recent records are served directly from the ring buffer for /aa_audit.
+ *
+ * Should the writer fall behind by more than the size of the ring buffer,
+ * the oldest records are overwritten and counted as dropped instead of blocking.
+ *
+ * @author Martin Ambrus
+ */
+final class AuditLog {
+
+    /**
+     * Name of the folder (within AA's data folder) with audit log files.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final String FOLDER_NAME = "audit";
+
+    /**
+     * Name of the current audit log file. Rotated files get a numeric suffix.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final String FILE_NAME = "audit.log";
+
+    /**
+     * Interval (in ticks) in which new records are written into the audit log file.
+     */
+    private static final long WRITE_INTERVAL_TICKS = 20;
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    private final AdminAnything plugin;
+
+    /**
+     * The ring buffer itself.
+     */
+    private final AtomicReferenceArray<AuditRecord> ring;
+
+    /**
+     * Mask to get a ring buffer index from a sequence number, as the ring size is always a power of 2.
+     */
+    private final int mask;
+
+    /**
+     * Sequence number of the next record to be recorded.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Sequence number of the next record to be written into the audit log file.
+     * Only ever accessed by the writer, while holding this object's lock.
+     */
+    private long written = 0;
+
+    /**
+     * Number of records overwritten before they could be written into the audit log file.
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Size (in bytes) after which the audit log file is rotated.
+     */
+    private final long maxFileBytes;
+
+    /**
+     * Number of rotated audit log files to keep.
+     */
+    private final int maxFiles;
+
+    /**
+     * Date format for records in the audit log file. Only ever used by the writer.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * The periodic task writing new records into the audit log file.
+     */
+    private BukkitTask writerTask = null;
+
+    /**
+     * Constructor, creates the ring buffer with size taken from the config.
+     *
+     * @param aa Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    AuditLog(final AdminAnything aa) {
+        plugin = aa;
+
+        // round the buffer size up to the nearest power of 2, so we can use a mask instead of modulo
+        final int bufferSize = Math.max(64, readIntConfig("auditLog.bufferSize", 4096));
+        final int capacity = Integer.highestOneBit(bufferSize - 1) << 1;
+
+        ring = new AtomicReferenceArray<AuditRecord>(capacity);
+        mask = capacity - 1;
+        maxFileBytes = Math.max(1, readIntConfig("auditLog.maxFileSizeKb", 1024)) * 1024L;
+        maxFiles = Math.max(1, readIntConfig("auditLog.maxFiles", 5));
+    } // end method
+
+    /**
+     * Reads a numeric value from the config.
+     *
+     * @param key The config key to read.
+     * @param def Default value, used when the key is missing or invalid.
+     *
+     * @return Returns the configured value or the default one.
+     */
+    private static int readIntConfig(final String key, final int def) {
+        try {
+            return Integer.parseInt(AA_API.getConfigString(key, String.valueOf(def)));
+        } catch (final NumberFormatException ex) {
+            return def;
+        }
+    } // end method
+
+    /**
+     * Starts the periodic task writing new records into the audit log file.
+     */
+    void start() {
+        writerTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                flush();
+            }
+
+        }, WRITE_INTERVAL_TICKS, WRITE_INTERVAL_TICKS);
+    } // end method
+
+    /**
+     * Stops the writer task and writes out all remaining records.
+     */
+    void stop() {
+        if (null != writerTask) {
+            writerTask.cancel();
+            writerTask = null;
+        }
+
+        flush();
+    } // end method
+
+    /**
+     * Records a new audit log entry. Lock-free and safe to be called from any thread.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * aa_plugin_instance.getAuditLog().record(AuditAction.BLOCKED, player.getName(), "home", "removals");
+     * }
+     * </pre>
+     *
+     * @param action What happened.
+     * @param actor Name of the player, console or plugin who caused this record.
+     * @param command The command this record is about.
+     * @param detail Additional details, such as redirect target or rule type. Can be null.
+     */
+    void record(final AuditAction action, final String actor, final String command, final String detail) {
+        final long seq = head.getAndIncrement();
+        ring.set((int) (seq & mask), new AuditRecord(seq, System.currentTimeMillis(), action, actor, command, detail));
+    } // end method
+
+    /**
+     * Gets all records still present in the ring buffer, newest first.
+     *
+     * @return Returns all records still present in the ring buffer, newest first.
+     */
+    List<AuditRecord> getRecent() {
+        final long end = head.get();
+        final long start = Math.max(0, end - ring.length());
+        final List<AuditRecord> records = new ArrayList<AuditRecord>((int) (end - start));
+
+        for (long seq = end - 1; seq >= start; seq--) {
+            final AuditRecord record = ring.get((int) (seq & mask));
+
+            // skip records not published yet and ones that were already overwritten
+            if (null != record && seq == record.sequence) {
+                records.add(record);
+            }
+        }
+
+        return records;
+    } // end method
+
+    /**
+     * Gets the number of records overwritten before they could be written into the audit log file.
+     *
+     * @return Returns the number of dropped records.
+     */
+    long getDropped() {
+        return dropped.sum();
+    } // end method
+
+    /**
+     * Appends all new records to the audit log file in a single batch, rotating the file if needed.
+     * Called periodically from the async writer task.
+     */
+    synchronized void flush() {
+        final long end = head.get();
+
+        // the writer fell behind by more than the whole ring, the oldest records are gone
+        if (end - written > ring.length()) {
+            dropped.add(end - ring.length() - written);
+            written = end - ring.length();
+        }
+
+        if (written == end) {
+            return;
+        }
+
+        final StringBuilder batch = new StringBuilder();
+        while (written < end) {
+            final AuditRecord record = ring.get((int) (written & mask));
+
+            if (null == record || record.sequence < written) {
+                // this record was claimed, but not yet published, we'll write it next time
+                break;
+            }
+
+            if (record.sequence == written) {
+                appendRecord(batch, record);
+            } else {
+                dropped.increment();
+            }
+
+            written++;
+        }
+
+        if (0 == batch.length()) {
+            return;
+        }
+
+        final File folder = new File(AA_API.getAaDataDir(), FOLDER_NAME);
+        final File logFile = new File(folder, FILE_NAME);
+
+        try {
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw new IOException("Could not create " + folder); //NON-NLS
+            }
+
+            final byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+            if (logFile.exists() && logFile.length() + bytes.length > maxFileBytes) {
+                rotate(folder);
+            }
+
+            try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(logFile, true))) {
+                out.write(bytes);
+            }
+        } catch (final IOException ex) {
+            Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API.__("audit.write-failed"));
+            ex.printStackTrace();
+        }
+    } // end method
+
+    /**
+     * Appends a single record as a tab-separated line.
+     *
+     * @param batch The batch to append the record to.
+     * @param record The record to append.
+     */
+    private void appendRecord(final StringBuilder batch, final AuditRecord record) {
+        batch
+            .append(dateFormat.format(new Date(record.getTime()))).append('\t')
+            .append(record.getAction()).append('\t')
+            .append(record.getActor()).append('\t')
+            .append(record.getCommand()).append('\t')
+            .append(null == record.getDetail() ? "" : record.getDetail())
+            .append('\n');
+    } // end method
+
+    /**
+     * Rotates audit log files, so audit.log becomes audit.log.1, audit.log.1 becomes audit.log.2 etc.
+     * Files beyond the configured number of files to keep are deleted.
+     *
+     * @param folder The folder with audit log files.
+     *
+     * @throws IOException When a file cannot be renamed.
+     */
+    private void rotate(final File folder) throws IOException {
+        final File oldest = new File(folder, FILE_NAME + '.' + maxFiles);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Could not delete " + oldest); //NON-NLS
+        }
+
+        for (int i = maxFiles - 1; i >= 0; i--) {
+            final File from = new File(folder, 0 == i ? FILE_NAME : FILE_NAME + '.' + i);
+            if (from.exists() && !from.renameTo(new File(folder, FILE_NAME + '.' + (i + 1)))) {
+                throw new IOException("Could not rotate " + from); //NON-NLS
+            }
+        }
+    } // end method
+
+} // end class
@@ -0,0 +1,105 @@
+package com.martinambrus.adminAnything;
+
+/**
+ * A single immutable entry of AdminAnything's audit log.
+ *
+ * @author Martin Ambrus
+ */
+public final class AuditRecord {
+
+    /**
+     * Sequence number of this record, used to detect records overwritten in the ring buffer.
+     */
+    final long sequence;
+
+    /**
+     * Time (in milliseconds) when this record was created.
+     */
+    private final long time;
+
+    /**
+     * What happened.
+     */
+    private final AuditAction action;
+
+    /**
+     * Name of the player, console or plugin who caused this record.
+     */
+    private final String actor;
+
+    /**
+     * The command (or command line) this record is about.
+     */
+    private final String command;
+
+    /**
+     * Additional details, such as redirect target or the rule type of changed rules. Can be null.
+     */
+    private final String detail;
+
+    /**
+     * Constructor, stores all values of this record.
+     *
+     * @param seq Sequence number of this record.
+     * @param recordTime Time (in milliseconds) when this record was created.
+     * @param recordAction What happened.
+     * @param recordActor Name of the player, console or plugin who caused this record.
+     * @param recordCommand The command this record is about.
+     * @param recordDetail Additional details, can be null.
+     */
+    AuditRecord(final long seq, final long recordTime, final AuditAction recordAction, final String recordActor,
+        final String recordCommand, final String recordDetail) {
+        sequence = seq;
+        time = recordTime;
+        action = recordAction;
+        actor = recordActor;
+        command = recordCommand;
+        detail = recordDetail;
+    } // end method
+
+    /**
+     * Gets the time when this record was created.
+     *
+     * @return Returns the time (in milliseconds) when this record was created.
+     */
+    public long getTime() {
+        return time;
+    } // end method
+
+    /**
+     * Gets what happened.
+     *
+     * @return Returns the action of this record.
+     */
+    public AuditAction getAction() {
+        return action;
+    } // end method
+
+    /**
+     * Gets who caused this record.
+     *
+     * @return Returns name of the player, console or plugin who caused this record.
+     */
+    public String getActor() {
+        return actor;
+    } // end method
+
+    /**
+     * Gets the command this record is about.
+     *
+     * @return Returns the command (or command line) this record is about.
+     */
+    public String getCommand() {
+        return command;
+    } // end method
+
+    /**
+     * Gets additional details of this record.
+     *
+     * @return Returns additional details, such as redirect target or the rule type of changed rules, or null.
+     */
+    public String getDetail() {
+        return detail;
+    } // end method
+
+} // end class
@@ -3,6 +3,7 @@ package com.martinambrus.adminAnything;
 import com.martinambrus.adminAnything.events.*;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -13,6 +14,8 @@ import org.bukkit.event.Listener;
 import java.io.File;
 import java.io.IOException;
 import java.io.InvalidClassException;
+import java.lang.reflect.InvocationTargetException;
+import java.rmi.AccessException;
 import java.security.InvalidParameterException;
 import java.util.*;
 
@@ -149,6 +152,14 @@ final class CommandListeners implements Listener {
      */
     private FileConfiguration commandHelpDisables;
 
+    /**
+     * Types of all commands lists we keep, as used in {@link #getListReference(String)} and similar methods.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    static final String[] LIST_TYPES = {
+        "ignores", "overrides", "virtualperms", "removals", "mutes", "redirects", "helpDisables"
+    };
+
     /**
      * Gets a list reference, so we can use it in other methods.
      *
@@ -211,6 +222,63 @@ final class CommandListeners implements Listener {
         }
     } // end method
 
+    /**
+     * Gets the name of the config file holding the requested commands list.
+     *
+     * @param which Says which list (for which feature) we want the config file name for.
+     *
+     * @return Returns the name of the config file within AdminAnything's data folder.
+     * @throws InvalidParameterException When the given which parameter does not conform to any known list of commands.
+     */
+    String getConfigFileName(final String which) throws InvalidParameterException {
+        switch (which) {
+            case "ignores": //NON-NLS
+                return commandIgnoresConfigFileName;
+            case "overrides": //NON-NLS
+                return commandOverridesConfigFileName;
+            case "virtualperms": //NON-NLS
+                return virtualPermsConfigFileName;
+            case "removals": //NON-NLS
+                return commandRemovalsConfigFileName;
+            case "mutes": //NON-NLS
+                return commandMutesConfigFileName;
+            case "redirects": //NON-NLS
+                return commandRedirectsConfigFileName;
+            case "helpDisables": //NON-NLS
+                return commandHelpDisablesConfigFileName;
+            default:
+                // unknown list type requested
+                throw new InvalidParameterException("Config file for commands list of the type \"" + which + "\" does not exist within " + AA_API
+                    .getAaName() + '.');
+        }
+    } // end method
+
+    /**
+     * Gets the type of commands list which is stored in the given config file.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // returns "removals"
+     * commandListeners.getListTypeByFileName("command_removals.yml");
+     * }
+     * </pre>
+     *
+     * @param fileName Name of the config file within AdminAnything's data folder.
+     *
+     * @return Returns type of the commands list (i.e. removals, mutes...)
+     *         or null if the file doesn't hold any of our commands lists.
+     */
+    String getListTypeByFileName(final String fileName) {
+        for (final String which : LIST_TYPES) {
+            if (getConfigFileName(which).equals(fileName)) {
+                return which;
+            }
+        }
+
+        return null;
+    } // end method
+
     /**
      * Loads the requested commands list which will then
      * be used in various parts of this plugin.
@@ -218,65 +286,100 @@ final class CommandListeners implements Listener {
      * @param which Says which list (for which feature) we want to load.
      * @throws InvalidParameterException When the given which parameter does not conform to any known list of commands.
      */
-    @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
     void loadCommandsListFromConfig(final String which) throws InvalidParameterException {
-        String            configFileName;
-        FileConfiguration configHandle;
+        applyCommandsConfig(which, YamlConfiguration.loadConfiguration(
+            new File(AA_API.getAaDataDir(), getConfigFileName(which))));
+    } // end method
+
+    /**
+     * Checks whether a configuration loaded for the requested commands list
+     * has the structure we expect, so we don't replace valid rules by broken ones.
+     *
+     * @param which Says which list (for which feature) the configuration is for.
+     * @param configHandle The loaded configuration to check.
+     *
+     * @return Returns true if the configuration can be used for the requested list, false otherwise.
+     * @throws InvalidParameterException When the given which parameter does not conform to any known list of commands.
+     */
+    static boolean isValidCommandsConfig(final String which, final ConfigurationSection configHandle)
+        throws InvalidParameterException {
+        switch (which) {
+            case "ignores": //NON-NLS
+            case "removals": //NON-NLS
+            case "mutes": //NON-NLS
+            case "helpDisables": //NON-NLS
+                // plain lists of commands
+                return !configHandle.isSet("commands") || configHandle.isList("commands"); //NON-NLS
+
+            case "overrides": //NON-NLS
+            case "redirects": //NON-NLS
+            case "virtualperms": //NON-NLS
+                // commands mapped to plugins, redirect targets or permissions
+                for (final String key : configHandle.getKeys(true)) {
+                    if (!configHandle.isString(key) && !configHandle.isConfigurationSection(key)) {
+                        return false;
+                    }
+                }
+
+                return true;
+
+            default:
+                // unknown list type requested
+                throw new InvalidParameterException("Could not validate commands list of the type \"" + which + "\", as it does not exist within " + AA_API
+                    .getAaName() + '.');
+        }
+    } // end method
+
+    /**
+     * Replaces the requested commands list by the one from the given configuration
+     * and rebuilds all lookup maps derived from that list.
+     *
+     * @param which Says which list (for which feature) we want to replace.
+     * @param configHandle The configuration to take the new list from.
+     * @throws InvalidParameterException When the given which parameter does not conform to any known list of commands.
+     */
+    @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
+    void applyCommandsConfig(final String which, final FileConfiguration configHandle)
+        throws InvalidParameterException {
         final String      configSectionName = "commands"; //NON-NLS
 
         switch (which) {
             case "ignores": //NON-NLS
-                configFileName = commandIgnoresConfigFileName;
-            configHandle = YamlConfiguration.loadConfiguration(
-                    new File(AA_API.getAaDataDir(), configFileName));
                 commandIgnoresList = configHandle.getStringList(configSectionName);
                 commandIgnores = configHandle;
             break;
 
             case "overrides": //NON-NLS
-                configFileName = commandOverridesConfigFileName;
-            configHandle = YamlConfiguration.loadConfiguration(
-                    new File(AA_API.getAaDataDir(), configFileName));
                 commandOverridesList = new ArrayList<String>(configHandle.getKeys(false));
                 commandOverrides = configHandle;
             break;
 
             case "virtualperms": //NON-NLS
-                configFileName = virtualPermsConfigFileName;
-            configHandle = YamlConfiguration.loadConfiguration(
-                    new File(AA_API.getAaDataDir(), configFileName));
                 virtualPermsList = new ArrayList<String>(configHandle.getKeys(false));
                 virtualPerms = configHandle;
             break;
 
             case "removals": //NON-NLS
-                configFileName = commandRemovalsConfigFileName;
-            configHandle = YamlConfiguration.loadConfiguration(
-                    new File(AA_API.getAaDataDir(), configFileName));
                 commandRemovalsList = configHandle.getStringList(configSectionName);
                 commandRemovals = configHandle;
             break;
 
             case "mutes": //NON-NLS
-                configFileName = commandMutesConfigFileName;
-            configHandle = YamlConfiguration.loadConfiguration(
-                    new File(AA_API.getAaDataDir(), configFileName));
                 commandMutesList = configHandle.getStringList(configSectionName);
                 commandMutes = configHandle;
+
+                // keep the mutes map in sync, if it's already been built
+                if (null != commandMutesMap) {
+                    reloadCommandMutesMap();
+                }
             break;
 
             case "redirects": //NON-NLS
-                configFileName = commandRedirectsConfigFileName;
-            configHandle = YamlConfiguration.loadConfiguration(
-                    new File(AA_API.getAaDataDir(), configFileName));
                 commandRedirectsList = new ArrayList<String>(configHandle.getKeys(false));
                 commandRedirects = configHandle;
             break;
 
             case "helpDisables": //NON-NLS
-                configFileName = commandHelpDisablesConfigFileName;
-                configHandle = YamlConfiguration.loadConfiguration(
-                    new File(AA_API.getAaDataDir(), configFileName));
                 commandHelpDisablesList = configHandle.getStringList(configSectionName);
                 commandHelpDisables = configHandle;
                 break;
@@ -289,13 +392,12 @@ final class CommandListeners implements Listener {
         // if we've requested to load virtual permissions,
         // we'll also need to load a config setting saying
         // whether they should be case sensitive or not
-        if (configFileName.equals(virtualPermsConfigFileName)) {
+        if ("virtualperms".equals(which)) { //NON-NLS
             virtualPermsCaseInsensitive = AA_API.isFeatureEnabled("playerpermscaseinsensitive"); //NON-NLS
-        }
 
-        Collection<Object> l = new ArrayList<Object>();
-        l.add(getListReference(which));
-        l.add(configHandle);
+            // rebuild the command to virtual permissions map and their Bukkit permission nodes
+            AA_API.reloadVirtualPermissions();
+        }
 
     } // end method
 
@@ -400,6 +502,24 @@ final class CommandListeners implements Listener {
         return Collections.unmodifiableMap(commandMutesMap);
     } // end method
 
+    /***
+     * Saves one of the commands configuration files into AdminAnything's data folder
+     * and records how long this took for /aa_stats.
+     *
+     * @param conf The configuration to save.
+     * @param fileName Name of the file to save the configuration into.
+     *
+     * @throws IOException When the configuration file cannot be written.
+     */
+    private void saveConfigFile(final FileConfiguration conf, final String fileName) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            conf.save(new File(AA_API.getAaDataDir(), fileName));
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.CONFIG, start);
+        }
+    } // end method
+
     /***
      * React to the custom AddIgnoredCommandEvent which is used when we need to add
      * a new command to the list of ignored commands via /aa_ignorecommand.
@@ -411,13 +531,14 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_ignorecommand".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 // no AdjustListenerPriorities call, we need to update the list here manually
                 commandIgnoresList.add(e.getCommandName());
+                auditRuleChange(AuditAction.RULE_ADDED, e.getCallerClass(), e.getCommandName(), "ignores"); //NON-NLS
                 commandIgnores.set("commands", commandIgnoresList); //NON-NLS
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -433,15 +554,16 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_unignorecommand".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 if (commandIgnoresList.contains(e.getCommandName())) {
                     commandIgnoresList.remove(e.getCommandName());
+                    auditRuleChange(AuditAction.RULE_REMOVED, e.getCallerClass(), e.getCommandName(), "ignores"); //NON-NLS
                     // reload commands in the actual config
                     commandIgnores.set("commands", commandIgnoresList); //NON-NLS
                 }
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -455,7 +577,7 @@ final class CommandListeners implements Listener {
     @EventHandler(priority = EventPriority.LOWEST)
     public void saveIgnoreCommands(final AASaveCommandIgnoresEvent e) {
         try {
-            commandIgnores.save(new File(AA_API.getAaDataDir(), commandIgnoresConfigFileName));
+            saveConfigFile(commandIgnores, commandIgnoresConfigFileName);
 
             // clear command caches
             Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
@@ -481,12 +603,12 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_addperm_runnable".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 virtualPerms.set(e.getPermName(), e.getCommandLine());
                 // NOTE: the actual permissions list gets updated via AdjustListenerPriorities
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -502,15 +624,16 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_delperm".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 if (virtualPerms.contains(e.getPermName())) {
                     try {
                         virtualPerms.set(e.getPermName(), null);
+                        auditRuleChange(AuditAction.RULE_REMOVED, e.getCallerClass(), e.getPermName(), "virtualperms"); //NON-NLS
                         // reload custom permissions list
                         virtualPermsList = new ArrayList<String>(virtualPerms.getKeys(false));
                         // save list of virtual permissions
-                        virtualPerms.save(new File(AA_API.getAaDataDir(), virtualPermsConfigFileName));
+                        saveConfigFile(virtualPerms, virtualPermsConfigFileName);
                     } catch (final IOException ex) {
                         Bukkit.getLogger().severe('[' + AA_API.getAaName()
                             + "] " + AA_API.__("config.error-cannot-save-config", "virtual permissions")); //NON-NLS
@@ -518,7 +641,7 @@ final class CommandListeners implements Listener {
                     }
                 }
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -532,7 +655,7 @@ final class CommandListeners implements Listener {
     @EventHandler(priority = EventPriority.LOWEST)
     public void saveVirtualPerms(final AASaveVirtualPermsEvent e) {
         try {
-            virtualPerms.save(new File(AA_API.getAaDataDir(), virtualPermsConfigFileName));
+            saveConfigFile(virtualPerms, virtualPermsConfigFileName);
             // clear command caches
             Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
             // reload commandPreprocessor internal variables
@@ -557,12 +680,12 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_addredirect".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 commandRedirects.set(e.getCommandName(), e.getCommandRedirect());
                 // NOTE: the actual redirects list gets updated via AdjustListenerPriorities
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -578,15 +701,16 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_delredirect".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 if (commandRedirects.contains(e.getCommandLine())) {
                     commandRedirects.set(e.getCommandLine(), null);
+                    auditRuleChange(AuditAction.RULE_REMOVED, e.getCallerClass(), e.getCommandLine(), "redirects"); //NON-NLS
                     // reload list of command redirects
                     commandRedirectsList = new ArrayList<String>(commandRedirects.getKeys(false));
                 }
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -600,7 +724,7 @@ final class CommandListeners implements Listener {
     @EventHandler(priority = EventPriority.LOWEST)
     public void saveCommandRedirects(final AASaveCommandRedirectsEvent e) {
         try {
-            commandRedirects.save(new File(AA_API.getAaDataDir(), commandRedirectsConfigFileName));
+            saveConfigFile(commandRedirects, commandRedirectsConfigFileName);
             // clear command caches
             Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
             // reload commandPreprocessor internal variables
@@ -625,16 +749,17 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_enablecommand".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 if (commandRemovalsList.contains(e.getCommandName())) {
                     commandRemovalsList.remove(e.getCommandName());
+                    auditRuleChange(AuditAction.RULE_REMOVED, e.getCallerClass(), e.getCommandName(), "removals"); //NON-NLS
                     // no AdjustListenerPriorities is called for this one, so we need to
                     // update the configuration manually
                     commandRemovals.set("commands", commandRemovalsList); //NON-NLS
                 }
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -651,7 +776,7 @@ final class CommandListeners implements Listener {
             // update commands in the removals config
             commandRemovals.set("commands", commandRemovalsList); //NON-NLS
             // save config into its respective file
-            commandRemovals.save(new File(AA_API.getAaDataDir(), commandRemovalsConfigFileName));
+            saveConfigFile(commandRemovals, commandRemovalsConfigFileName);
             // clear command caches
             Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
             // reload commandPreprocessor internal variables
@@ -677,12 +802,12 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_fixcommand_runnable".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 commandOverrides.set(e.getCommandName(), e.getCommandOverride());
                 commandOverridesList = new ArrayList<String>(commandOverrides.getKeys(false));
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -698,15 +823,16 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_unfixcommand".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 if (commandOverrides.contains(e.getCommandName())) {
                     commandOverrides.set(e.getCommandName(), null);
+                    auditRuleChange(AuditAction.RULE_REMOVED, e.getCallerClass(), e.getCommandName(), "overrides"); //NON-NLS
                     // reload list of command overrides
                     commandOverridesList = new ArrayList<String>(commandOverrides.getKeys(false));
                 }
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -720,7 +846,7 @@ final class CommandListeners implements Listener {
     @EventHandler(priority = EventPriority.LOWEST)
     public void saveCommandOverrides(final AASaveCommandOverridesEvent e) {
         try {
-            commandOverrides.save(new File(AA_API.getAaDataDir(), commandOverridesConfigFileName));
+            saveConfigFile(commandOverrides, commandOverridesConfigFileName);
             // clear command caches
             Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
             // reload commandPreprocessor internal variables
@@ -745,14 +871,15 @@ final class CommandListeners implements Listener {
         try {
             if (
                     "com.martinambrus.adminAnything.commands.Aa_unmutecommand".equals(e.getCallerName()) ||
-                AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                callerHasFullApiAccess(e.getCallerClass())
             ) {
                 if (commandMutesList.contains(e.getCommandLine())) {
                     commandMutesList.remove(e.getCommandLine());
+                    auditRuleChange(AuditAction.RULE_REMOVED, e.getCallerClass(), e.getCommandLine(), "mutes"); //NON-NLS
                     commandMutes.set("commands", commandMutesList); //NON-NLS
                 }
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -780,7 +907,7 @@ final class CommandListeners implements Listener {
         try {
             // set and save mutes into the config file
             commandMutes.set("commands", commandMutesList); //NON-NLS
-            commandMutes.save(new File(AA_API.getAaDataDir(), commandMutesConfigFileName));
+            saveConfigFile(commandMutes, commandMutesConfigFileName);
 
             // reload the mutes map
             reloadCommandMutesMap();
@@ -809,14 +936,15 @@ final class CommandListeners implements Listener {
         try {
             if (
                 "com.martinambrus.adminAnything.commands.Aa_disablehelpcommand".equals(e.getCallerName()) ||
-                    AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                    callerHasFullApiAccess(e.getCallerClass())
             ) {
                 commandHelpDisablesList.add(e.getCommandName());
+                auditRuleChange(AuditAction.RULE_ADDED, e.getCallerClass(), e.getCommandName(), "helpDisables"); //NON-NLS
                 // no AdjustListenerPriorities is called for this one, so we need to
                 // update the configuration manually
                 commandHelpDisables.set("commands", commandHelpDisablesList); //NON-NLS
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -832,16 +960,17 @@ final class CommandListeners implements Listener {
         try {
             if (
                 "com.martinambrus.adminAnything.commands.Aa_enablehelpcommand".equals(e.getCallerName()) ||
-                    AA_API.pluginHasFullApiAccess(AA_API.guessPluginFromClass(Class.forName(e.getCallerName())))
+                    callerHasFullApiAccess(e.getCallerClass())
             ) {
                 if (commandHelpDisablesList.contains(e.getCommandName())) {
                     commandHelpDisablesList.remove(e.getCommandName());
+                    auditRuleChange(AuditAction.RULE_REMOVED, e.getCallerClass(), e.getCommandName(), "helpDisables"); //NON-NLS
                     // no AdjustListenerPriorities is called for this one, so we need to
                     // update the configuration manually
                     commandHelpDisables.set("commands", commandHelpDisablesList); //NON-NLS
                 }
             }
-        } catch (ClassNotFoundException | InvalidClassException e1) {
+        } catch (InvalidClassException e1) {
             e1.printStackTrace();
         }
     } // end method
@@ -859,7 +988,7 @@ final class CommandListeners implements Listener {
             // update commands in the help disables config
             commandHelpDisables.set("commands", commandHelpDisablesList); //NON-NLS
             // save config into its respective file
-            commandHelpDisables.save(new File(AA_API.getAaDataDir(), commandHelpDisablesConfigFileName));
+            saveConfigFile(commandHelpDisables, commandHelpDisablesConfigFileName);
         } catch (final IOException ex) {
             e.getCommandSender().sendMessage(
                 ChatColor.RED + AA_API.__("error.general-for-chat"));
@@ -869,6 +998,435 @@ final class CommandListeners implements Listener {
         }
     } // end method
 
+    /**
+     * Validates all changes of the given batch together and, if all of them are valid,
+     * applies them to our rules, saves each affected config file once and reloads
+     * everything that depends on these rules once. Nothing is changed if any
+     * of the changes is invalid.
+     *
+     * @param batch The batch of rule changes to apply.
+     * @param sender The player or console who requested this batch, or null if it was requested by a plugin.
+     * @param callerClass The class which requested this batch, as securely calculated by AA_API.
+     *
+     * @return Returns a list of errors, which is empty if the whole batch was applied.
+     * @throws AccessException When we don't have the permission to access the server's command map.
+     * @throws IllegalAccessException When access is denied to the server's command map.
+     * @throws InvalidClassException When a class for any of the server plugins cannot be found within the current classLoader.
+     * @throws NoSuchMethodException When there is a get() method missing from the server's command map.
+     * @throws InvocationTargetException When we try to invoke get() on the server's command map with invalid parameters.
+     */
+    List<String> applyRuleBatch(final RuleBatch batch, final CommandSender sender, final Class<?> callerClass)
+        throws AccessException, IllegalAccessException, InvalidClassException, NoSuchMethodException,
+        InvocationTargetException {
+        final List<String> errors = new ArrayList<String>();
+
+        if (
+            null == callerClass ||
+            (
+                !"com.martinambrus.adminAnything.commands.Aa_batch".equals(callerClass.getName()) &&
+                !callerHasFullApiAccess(callerClass)
+            )
+        ) {
+            errors.add(AA_API.__("batch.error-no-access"));
+            return errors;
+        }
+
+        // validate everything first, so we never end up with only a part of the batch applied
+        final List<RuleBatch.Change> changes = new ArrayList<RuleBatch.Change>();
+        for (final RuleBatch.Change change : batch.getChanges()) {
+            final RuleBatch.Change normalized = normalizeBatchChange(change);
+            final String error = validateBatchChange(normalized);
+
+            if (null != error) {
+                errors.add(AA_API.__("batch.error-rule", change.listType, change.key, error));
+            } else {
+                changes.add(normalized);
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            return errors;
+        }
+
+        // apply all changes to our in-memory rules
+        final Set<String> changedLists = new LinkedHashSet<String>();
+        final Set<String> addedCommands = new LinkedHashSet<String>();
+
+        for (final RuleBatch.Change change : changes) {
+            // make sure both, the list and its config are loaded
+            getCommandsList(change.listType);
+
+            final List<String> list = getListReference(change.listType);
+            final ConfigurationSection configHandle = getFileConfigHandleReference(change.listType);
+            boolean changed;
+
+            if ("ignores".equals(change.listType) || "removals".equals(change.listType) || "mutes".equals(change.listType)) { //NON-NLS
+                changed = change.add ? !list.contains(change.key) && list.add(change.key) : list.remove(change.key);
+            } else {
+                changed = change.add ? !change.value.equals(configHandle.getString(change.key)) : configHandle.contains(change.key);
+                if (changed) {
+                    configHandle.set(change.key, change.add ? change.value : null);
+                }
+            }
+
+            if (changed) {
+                changedLists.add(change.listType);
+
+                if (null != sender) {
+                    AA_API.audit(change.add ? AuditAction.RULE_ADDED : AuditAction.RULE_REMOVED, sender, change.key, change.listType);
+                } else {
+                    auditRuleChange(change.add ? AuditAction.RULE_ADDED : AuditAction.RULE_REMOVED, callerClass, change.key, change.listType);
+                }
+            }
+
+            // ignored commands are never pre-processed, so there are no listeners to adjust for them
+            if (change.add && !"ignores".equals(change.listType)) { //NON-NLS
+                addedCommands.add(batchChangeCommand(change));
+            }
+        }
+
+        // rebuild lists derived from configuration keys, update plain lists in their configs
+        // and save each of the changed configuration files exactly once
+        for (final String listType : changedLists) {
+            final FileConfiguration configHandle = (FileConfiguration) getFileConfigHandleReference(listType);
+
+            switch (listType) {
+                case "overrides": //NON-NLS
+                    commandOverridesList = new ArrayList<String>(commandOverrides.getKeys(false));
+                    break;
+
+                case "redirects": //NON-NLS
+                    commandRedirectsList = new ArrayList<String>(commandRedirects.getKeys(false));
+                    break;
+
+                case "virtualperms": //NON-NLS
+                    virtualPermsList = new ArrayList<String>(virtualPerms.getKeys(false));
+                    AA_API.reloadVirtualPermissions();
+                    break;
+
+                case "mutes": //NON-NLS
+                    commandMutes.set("commands", commandMutesList); //NON-NLS
+                    reloadCommandMutesMap();
+                    break;
+
+                default:
+                    configHandle.set("commands", getListReference(listType)); //NON-NLS
+            }
+
+            try {
+                saveConfigFile(configHandle, getConfigFileName(listType));
+            } catch (final IOException ex) {
+                final String error = AA_API.__("config.error-cannot-save-config", getConfigFileName(listType));
+                errors.add(error);
+                Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + error);
+                ex.printStackTrace();
+            }
+        }
+
+        // make sure all plugins containing newly added commands let us pre-process them,
+        // which also reloads the commandPreprocessor's internal variables
+        if (!addedCommands.isEmpty()) {
+            Bukkit.getPluginManager().callEvent( new AAAdjustListenerPrioritiesEvent(
+                null,
+                null,
+                addedCommands.toArray(new String[0]),
+                null,
+                false,
+                null,
+                null
+                )
+            );
+        }
+
+        if (!changedLists.isEmpty()) {
+            // clear command caches
+            Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
+
+            // reload commandPreprocessor internal variables, if not done while adjusting listeners above
+            if (addedCommands.isEmpty()) {
+                Bukkit.getPluginManager().callEvent(new AAReloadEvent("commandPreprocessor")); //NON-NLS
+            }
+        }
+
+        return errors;
+    } // end method
+
+    /**
+     * Replaces all of our rules by the ones from the given snapshot. All new rules are prepared
+     * first and then swapped in together, saved into their config files and all caches depending
+     * on them are reloaded once. Must be called on the main thread.
+     *
+     * @param snapshot The snapshot to import.
+     * @param sender The player or console who requested this import, or null if it was requested by a plugin.
+     * @param callerClass The class which requested this import, as securely calculated by AA_API.
+     * @param source Name of the snapshot file, as recorded into the audit log.
+     *
+     * @return Returns a list of errors, which is empty if the whole snapshot was imported.
+     * @throws InvalidClassException When the caller's class file is not found in the current classLoader.
+     */
+    List<String> applyRuleSnapshot(final RuleSnapshot snapshot, final CommandSender sender, final Class<?> callerClass,
+        final String source) throws InvalidClassException {
+        final List<String> errors = new ArrayList<String>();
+
+        if (
+            null == callerClass ||
+            (
+                !"com.martinambrus.adminAnything.commands.Aa_import".equals(callerClass.getName()) &&
+                !callerHasFullApiAccess(callerClass)
+            )
+        ) {
+            errors.add(AA_API.__("batch.error-no-access"));
+            return errors;
+        }
+
+        // prepare and validate all new configurations before we touch any of the live rules
+        final Map<String, FileConfiguration> configs = snapshot.toConfigs();
+        for (final Map.Entry<String, FileConfiguration> config : configs.entrySet()) {
+            if (!isValidCommandsConfig(config.getKey(), config.getValue())) {
+                errors.add(AA_API.__("config.watcher-invalid-file", getConfigFileName(config.getKey()),
+                    AA_API.__("config.watcher-invalid-structure")));
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            return errors;
+        }
+
+        // swap all rules in at once
+        for (final Map.Entry<String, FileConfiguration> config : configs.entrySet()) {
+            applyCommandsConfig(config.getKey(), config.getValue());
+        }
+
+        if (null != sender) {
+            AA_API.audit(AuditAction.RULES_IMPORTED, sender, source, String.valueOf(snapshot.size()));
+        } else {
+            auditRuleChange(AuditAction.RULES_IMPORTED, callerClass, source, String.valueOf(snapshot.size()));
+        }
+
+        // persist the imported rules, so they survive a restart
+        for (final Map.Entry<String, FileConfiguration> config : configs.entrySet()) {
+            try {
+                saveConfigFile(config.getValue(), getConfigFileName(config.getKey()));
+            } catch (final IOException ex) {
+                final String error = AA_API.__("config.error-cannot-save-config", getConfigFileName(config.getKey()));
+                errors.add(error);
+                Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + error);
+                ex.printStackTrace();
+            }
+        }
+
+        // make sure all plugins containing the imported commands let us pre-process them
+        final List<String> commands = snapshot.getPreprocessedCommands();
+        if (!commands.isEmpty()) {
+            Bukkit.getPluginManager().callEvent( new AAAdjustListenerPrioritiesEvent(
+                null,
+                null,
+                commands.toArray(new String[0]),
+                null,
+                true,
+                null,
+                null
+                )
+            );
+        }
+
+        // clear command caches
+        Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
+        // reload commandPreprocessor internal variables
+        Bukkit.getPluginManager().callEvent(new AAReloadEvent("commandPreprocessor")); //NON-NLS
+
+        return errors;
+    } // end method
+
+    /**
+     * Normalizes a change of a rule batch, so its commands are stored the same way
+     * as when they're added via AA's own commands, i.e. lowercased and without a leading slash.
+     *
+     * @param change The change to normalize.
+     *
+     * @return Returns a new, normalized change.
+     */
+    private static RuleBatch.Change normalizeBatchChange(final RuleBatch.Change change) {
+        String key = null == change.key ? "" : change.key.trim();
+        String value = null == change.value ? null : change.value.trim();
+
+        if ("virtualperms".equals(change.listType)) { //NON-NLS
+            // permission names are kept as they are, only their command line is normalized
+            if (null != value) {
+                value = normalizeBatchCommandLine(value);
+            }
+        } else {
+            if (key.startsWith("/")) {
+                key = key.substring(1);
+            }
+
+            key = key.toLowerCase();
+
+            if (null != value) {
+                value = "overrides".equals(change.listType) ? value.toLowerCase() : normalizeBatchCommandLine(value); //NON-NLS
+            }
+        }
+
+        return new RuleBatch.Change(change.listType, change.add, key, value);
+    } // end method
+
+    /**
+     * Removes a leading slash from the given command line and lowercases
+     * its command, leaving any of its parameters intact.
+     *
+     * @param commandLine The command line to normalize.
+     *
+     * @return Returns the normalized command line.
+     */
+    private static String normalizeBatchCommandLine(String commandLine) {
+        if (commandLine.startsWith("/")) {
+            commandLine = commandLine.substring(1);
+        }
+
+        final int space = commandLine.indexOf(' ');
+        return -1 == space ? commandLine.toLowerCase() :
+               commandLine.substring(0, space).toLowerCase() + commandLine.substring(space);
+    } // end method
+
+    /**
+     * Gets name of the command a change of a rule batch is for, without any parameters.
+     *
+     * @param change The change to get the command for.
+     *
+     * @return Returns name of the command this change is for.
+     */
+    private static String batchChangeCommand(final RuleBatch.Change change) {
+        // virtual permissions are keyed by their name, with the command line as their value
+        final String commandLine = "virtualperms".equals(change.listType) ? change.value : change.key; //NON-NLS
+        final int space = commandLine.indexOf(' ');
+
+        return -1 == space ? commandLine : commandLine.substring(0, space);
+    } // end method
+
+    /**
+     * Checks whether a single normalized change of a rule batch can be applied.
+     * Rules can only be added for commands which exist on the server
+     * and never for AdminAnything's own commands.
+     *
+     * @param change The normalized change to check.
+     *
+     * @return Returns a description of the problem if the change is invalid, null otherwise.
+     * @throws AccessException When we don't have the permission to access the server's command map.
+     * @throws IllegalAccessException When access is denied to the server's command map.
+     * @throws InvalidClassException When a class for any of the server plugins cannot be found within the current classLoader.
+     * @throws NoSuchMethodException When there is a get() method missing from the server's command map.
+     * @throws InvocationTargetException When we try to invoke get() on the server's command map with invalid parameters.
+     */
+    private static String validateBatchChange(final RuleBatch.Change change)
+        throws AccessException, IllegalAccessException, InvalidClassException, NoSuchMethodException,
+        InvocationTargetException {
+        if (!Arrays.asList(RuleBatch.LIST_TYPES).contains(change.listType)) {
+            return AA_API.__("batch.error-unknown-type");
+        }
+
+        if (change.key.isEmpty()) {
+            return AA_API.__("batch.error-empty");
+        }
+
+        // removing a rule which doesn't exist is simply a no-op
+        if (!change.add) {
+            return null;
+        }
+
+        final boolean needsValue = "overrides".equals(change.listType) || "redirects".equals(change.listType) //NON-NLS
+            || "virtualperms".equals(change.listType); //NON-NLS
+
+        if (needsValue && (null == change.value || change.value.isEmpty())) {
+            return AA_API.__("batch.error-empty");
+        }
+
+        final String command = batchChangeCommand(change);
+
+        // never allow manipulation of AA's own commands
+        if (AA_API.isAaCoreCommand(AA_API.getClearCommand(command))) {
+            return AA_API.__("commands.no-core-manipulation");
+        }
+
+        if (AA_API.getCommandContainingPlugins(command, true).isEmpty()) {
+            return AA_API.__("commands.command-not-found-on-server", command);
+        }
+
+        if ("overrides".equals(change.listType)) { //NON-NLS
+            // the override must point to a plugin which actually contains the command
+            final int colon = change.value.indexOf(':');
+            if (1 > colon || colon == change.value.length() - 1) {
+                return AA_API.__("batch.error-invalid-override", change.value);
+            }
+
+            final String overrideCommand = change.value.substring(colon + 1);
+            final String overridePlugin = change.value.substring(0, colon);
+            boolean found = false;
+
+            for (final String plugName : AA_API.getCommandContainingPlugins(overrideCommand)) {
+                if (AA_API.getCleanPluginName(plugName, false).toLowerCase().equals(overridePlugin)) {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) {
+                return AA_API.__("batch.error-invalid-override", change.value);
+            }
+        } else if ("redirects".equals(change.listType)) { //NON-NLS
+            final int space = change.value.indexOf(' ');
+            final String target = -1 == space ? change.value : change.value.substring(0, space);
+
+            if (AA_API.getCommandContainingPlugins(target, true).isEmpty()) {
+                return AA_API.__("commands.command-not-found-on-server", target);
+            }
+        }
+
+        return null;
+    } // end method
+
+    /**
+     * Checks whether the class which requested a rule change belongs to a plugin
+     * with full access to AdminAnything's API.
+     *
+     * @param callerClass The class which requested this change, as securely calculated by the event.
+     *
+     * @return Returns true if the caller's plugin has full API access, false otherwise.
+     * @throws InvalidClassException When the caller's class file is not found in the current classLoader.
+     */
+    private static boolean callerHasFullApiAccess(final Class<?> callerClass) throws InvalidClassException {
+        if (null == callerClass) {
+            return false;
+        }
+
+        final String pluginName = AA_API.guessPluginFromClass(callerClass);
+        return null != pluginName && AA_API.pluginHasFullApiAccess(pluginName);
+    } // end method
+
+    /**
+     * Records a change of one of our rules into the audit log. Rules added via AA's own commands
+     * are recorded with the player who added them when listener priorities are adjusted for them,
+     * so here we only know the class which requested this change.
+     *
+     * @param action Whether the rule was added or removed.
+     * @param callerClass The class which requested this change.
+     * @param command The command (or permission) this rule is for.
+     * @param ruleType Type of the rule, i.e. name of the list it belongs to.
+     */
+    private void auditRuleChange(final AuditAction action, final Class<?> callerClass, final String command,
+        final String ruleType) {
+        String actor = null == callerClass ? AA_API.__("general.core") : callerClass.getSimpleName();
+        try {
+            final String pluginName = null == callerClass ? null : AA_API.guessPluginFromClass(callerClass);
+            if (null != pluginName) {
+                actor = pluginName;
+            }
+        } catch (InvalidClassException ex) {
+            // we'll just use the class name then
+        }
+
+        AA_API.audit(action, actor, command, ruleType);
+    } // end method
+
     /***
      * React to the custom ReloadEvent with a parameter set to "virtualperms",
      * which reloads the list of virtual permissions when they change.
@@ -0,0 +1,387 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.BlockCommandSender;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Captures anonymized command lines as they pass through AdminAnything's command preprocessor
+ * into a gzipped trace file, so they can later be replayed against a snapshot of our rules
+ * (see the replayTrace Gradle task) to measure how AA behaves on real traffic.
+ *
+ * Each trace file starts with a header line and then contains two types of tab-separated lines:
+ * <ul>
+ *     <li><b>P</b> [profile id] [op: 1 or 0] [comma-separated permissions] - a permission profile,
+ *     written once before the first command that uses it</li>
+ *     <li><b>C</b> [milliseconds since capture start] [sender type] [profile id] [world] [command line] -
+ *     a single command</li>
+ * </ul>
+ *
+ * Senders are never recorded by name. Players are replaced by a permission profile shared by all players
+ * with the same permissions, and arguments which are names of online players or IP addresses are masked.
+ *
+ * @author Martin Ambrus
+ */
+final class CommandTrace implements Listener {
+
+    /**
+     * First line of every trace file, so the replay tool can check it's reading the right thing.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    static final String HEADER = "# AdminAnything command trace v1";
+
+    /**
+     * Sender type of players.
+     */
+    static final char SENDER_PLAYER = 'p';
+
+    /**
+     * Sender type of the server console.
+     */
+    static final char SENDER_CONSOLE = 'c';
+
+    /**
+     * Sender type of command blocks.
+     */
+    static final char SENDER_BLOCK = 'b';
+
+    /**
+     * Sender type of anything else, such as RCON.
+     */
+    static final char SENDER_OTHER = 'o';
+
+    /**
+     * Placeholder for values we don't record, such as profile and world of the console.
+     */
+    static final String NONE = "-";
+
+    /**
+     * Replacement for command arguments which are names of online players.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    static final String MASKED_PLAYER = "@player";
+
+    /**
+     * Replacement for command arguments which are IP addresses.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    static final String MASKED_IP = "@ip";
+
+    /**
+     * Pattern to recognize IPv4 addresses in command arguments.
+     */
+    private static final Pattern IP_ADDRESS = Pattern.compile("^\\d{1,3}(\\.\\d{1,3}){3}$");
+
+    /**
+     * Interval (in ticks) in which captured commands are written into the trace file.
+     */
+    private static final long WRITE_INTERVAL_TICKS = 20;
+
+    /**
+     * Name of the folder (within AA's data folder) with trace files.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final String FOLDER_NAME = "traces";
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    private final AdminAnything plugin;
+
+    /**
+     * Maximum number of commands to capture, after which capturing stops.
+     */
+    private final int maxRecords;
+
+    /**
+     * Number of commands captured so far.
+     */
+    private final AtomicInteger recorded = new AtomicInteger();
+
+    /**
+     * Time (in milliseconds) when capturing started.
+     */
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * Lines waiting to be written into the trace file.
+     */
+    private final Queue<String> pendingLines = new ConcurrentLinkedQueue<String>();
+
+    /**
+     * Profile IDs of online players who already ran a command, keyed by their UUID.
+     */
+    private final Map<UUID, String> playerProfiles = new ConcurrentHashMap<UUID, String>();
+
+    /**
+     * IDs of all distinct permission profiles, keyed by the profile itself (op flag and sorted permissions).
+     */
+    private final Map<String, String> profileIds = new ConcurrentHashMap<String, String>();
+
+    /**
+     * The trace file we're writing into.
+     */
+    private File traceFile = null;
+
+    /**
+     * Output stream of the trace file. Only ever accessed by the writer, while holding this object's lock.
+     */
+    private Writer out = null;
+
+    /**
+     * The periodic task writing captured commands into the trace file.
+     */
+    private BukkitTask writerTask = null;
+
+    /**
+     * Constructor, reads capture limits from the config.
+     *
+     * @param aa Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    CommandTrace(final AdminAnything aa) {
+        plugin = aa;
+
+        int max;
+        try {
+            max = Integer.parseInt(AA_API.getConfigString("commandTrace.maxRecords", "100000")); //NON-NLS
+        } catch (final NumberFormatException ex) {
+            max = 100000;
+        }
+
+        maxRecords = max;
+    } // end method
+
+    /**
+     * Creates a new trace file and starts the periodic task writing captured commands into it.
+     */
+    void start() {
+        final File folder = new File(AA_API.getAaDataDir(), FOLDER_NAME);
+        //noinspection HardCodedStringLiteral
+        traceFile = new File(folder, "commands-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+            + ".trace.gz");
+
+        try {
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw new IOException("Could not create " + folder); //NON-NLS
+            }
+
+            out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(traceFile), true),
+                StandardCharsets.UTF_8);
+            out.write(HEADER + '\n');
+        } catch (final IOException ex) {
+            Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API.__("trace.write-failed"));
+            ex.printStackTrace();
+            out = null;
+            return;
+        }
+
+        writerTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                flush();
+            }
+
+        }, WRITE_INTERVAL_TICKS, WRITE_INTERVAL_TICKS);
+
+        Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("trace.started", traceFile));
+    } // end method
+
+    /**
+     * Stops the writer task, writes out all remaining commands and closes the trace file.
+     */
+    void stop() {
+        if (null != writerTask) {
+            writerTask.cancel();
+            writerTask = null;
+        }
+
+        flush();
+
+        synchronized (this) {
+            if (null != out) {
+                try {
+                    out.close();
+                } catch (final IOException ex) {
+                    // nothing more we can do here
+                }
+
+                out = null;
+            }
+        }
+    } // end method
+
+    /**
+     * Captures a single command line. Cheap enough to be called for every command,
+     * as the only work done here is masking its arguments and queueing it for the writer.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * aa_plugin_instance.getCommandTrace().record(player, "home bed");
+     * }
+     * </pre>
+     *
+     * @param sender The player, console or other sender who's running this command.
+     * @param commandLine The command line, without a leading slash.
+     */
+    void record(final CommandSender sender, final String commandLine) {
+        if (null == out || maxRecords <= recorded.get()) {
+            return;
+        }
+
+        if (maxRecords == recorded.incrementAndGet()) {
+            Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("trace.limit-reached", maxRecords));
+        }
+
+        final char senderType;
+        String profile = NONE;
+        String world = NONE;
+
+        if (sender instanceof Player) {
+            senderType = SENDER_PLAYER;
+            profile = getProfileId((Player) sender);
+            world = ((Player) sender).getWorld().getName();
+        } else if (sender instanceof ConsoleCommandSender) {
+            senderType = SENDER_CONSOLE;
+        } else if (sender instanceof BlockCommandSender) {
+            senderType = SENDER_BLOCK;
+            world = ((BlockCommandSender) sender).getBlock().getWorld().getName();
+        } else {
+            senderType = SENDER_OTHER;
+        }
+
+        pendingLines.add("C\t" + (System.currentTimeMillis() - startTime) + '\t' + senderType + '\t' + profile //NON-NLS
+            + '\t' + world + '\t' + anonymize(sender, commandLine) + '\n');
+    } // end method
+
+    /**
+     * Masks arguments of a command line which could identify a player.
+     *
+     * @param sender The sender who's running this command.
+     * @param commandLine The command line to mask.
+     *
+     * @return Returns the command line with names of online players and IP addresses masked.
+     */
+    private static String anonymize(final CommandSender sender, final String commandLine) {
+        final String[] parts = commandLine.replace('\t', ' ').replace('\n', ' ').split(" ", -1);
+
+        // the first part is the command itself, which we keep as it is
+        for (int i = 1; i < parts.length; i++) {
+            final String part = parts[i];
+
+            if (part.isEmpty()) {
+                continue;
+            }
+
+            if (part.equalsIgnoreCase(sender.getName()) || null != Bukkit.getPlayerExact(part)) {
+                parts[i] = MASKED_PLAYER;
+            } else if (IP_ADDRESS.matcher(part).matches()) {
+                parts[i] = MASKED_IP;
+            }
+        }
+
+        return String.join(" ", parts);
+    } // end method
+
+    /**
+     * Gets ID of the permission profile of the given player, queueing the profile itself
+     * to be written into the trace file if we see it for the first time.
+     *
+     * A profile is computed once per player session, so permission changes
+     * made while the player is online are not reflected in the trace.
+     *
+     * @param player The player to get a permission profile ID for.
+     *
+     * @return Returns ID of the player's permission profile.
+     */
+    private String getProfileId(final Player player) {
+        String id = playerProfiles.get(player.getUniqueId());
+        if (null != id) {
+            return id;
+        }
+
+        final SortedSet<String> perms = new TreeSet<String>();
+        for (final PermissionAttachmentInfo info : player.getEffectivePermissions()) {
+            if (info.getValue()) {
+                perms.add(info.getPermission());
+            }
+        }
+
+        final String profile = (player.isOp() ? '1' : '0') + "\t" + String.join(",", perms);
+
+        synchronized (profileIds) {
+            id = profileIds.get(profile);
+            if (null == id) {
+                id = String.valueOf(profileIds.size() + 1);
+                profileIds.put(profile, id);
+                pendingLines.add("P\t" + id + '\t' + profile + '\n'); //NON-NLS
+            }
+        }
+
+        playerProfiles.put(player.getUniqueId(), id);
+        return id;
+    } // end method
+
+    /**
+     * Writes all queued lines into the trace file.
+     * Called periodically from the async writer task.
+     */
+    synchronized void flush() {
+        if (null == out || pendingLines.isEmpty()) {
+            return;
+        }
+
+        try {
+            String line;
+            while (null != (line = pendingLines.poll())) {
+                out.write(line);
+            }
+
+            // sync-flush the compressor, so the file can be read while we're still capturing
+            out.flush();
+        } catch (final IOException ex) {
+            Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API.__("trace.write-failed"));
+            ex.printStackTrace();
+        }
+    } // end method
+
+    /**
+     * Gets the trace file we're writing into.
+     *
+     * @return Returns the trace file we're writing into or null if it could not be created.
+     */
+    File getTraceFile() {
+        return traceFile;
+    } // end method
+
+    /**
+     * Forgets the permission profile of a player when they leave the server,
+     * so we compute it anew once they're back with possibly different permissions.
+     *
+     * @param e The actual player quit event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final PlayerQuitEvent e) {
+        playerProfiles.remove(e.getPlayer().getUniqueId());
+    } // end method
+
+} // end class
@@ -12,7 +12,10 @@ import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.RegisteredListener;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.InvalidClassException;
@@ -21,6 +24,7 @@ import java.nio.charset.StandardCharsets;
 import java.rmi.AccessException;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -50,10 +54,14 @@ final class Commands {
     private FileConfiguration manualPermDescriptionsConf = null;
 
     /**
-     * {@link org.bukkit.command.CommandMap CommandMap} of the underlying
-     * Spigot/CraftBukkit server. Contains all commands currently usable on the server.
+     * Name of the binary cache file for the compiled permdescriptions.yml file.
      */
-    private static Field commandMap;
+    private final String manualPermDescriptionsCacheFileName = "permdescriptions.cache";
+
+    /**
+     * Compiled form of the permdescriptions.yml file.
+     */
+    private ManualPermDescriptions manualPermDescriptions = null;
 
     /**
      * Augmented {@link org.bukkit.command.CommandMap CommandMap} of the underlying
@@ -62,22 +70,13 @@ final class Commands {
      */
     private Map<String, Command> augmentedCommandMap = null;
 
-    /**
-     * {@link org.bukkit.command.SimpleCommandMap.knownCommands Map} of all known server and plugin commands.
-     *
-     * <b>NOTE:</b> this map may not include server core commands, since at least
-     * MC <= 1.7 did not register them in any standard way. In such situations,
-     * core commands will be spoon-fed back to this list manually via AdminAnything
-     * on the first `knownCommands` init.
-     */
-    @SuppressWarnings("JavadocReference")
-    private static Field knownCommands;
-
     /**
      * Cache for all plugins that contain the given command.
      * Command name is the `key`, plugin names is the list in `value`.
+     *
+     * Concurrent, since the {@link StartupPipeline} fills it up from an async thread.
      */
-    private static Map<String, List<String>> containingPluginsCache;
+    private static volatile Map<String, List<String>> containingPluginsCache;
 
     /**
      * Cache for all commands for a plugin. This should be quicker
@@ -92,8 +91,10 @@ final class Commands {
      * This is a temporary (60s) cache to prevent many lookups
      * for same commands, should the same AA command which does this
      * kind of lookups be executed multiple times in succession.
+     *
+     * Concurrent, since the {@link StartupPipeline} fills it up from an async thread.
      */
-    static Map<String, String> commandToPluginMap;
+    static volatile Map<String, String> commandToPluginMap;
 
     /**
      * Caches cleanup timeout in minutes.
@@ -114,6 +115,13 @@ final class Commands {
      */
     static int cleanupTask = -1;
 
+    /**
+     * Reference to the cleanup task that clears up the commands to plugins cache.
+     * We only ever keep a single one of these around instead of scheduling
+     * a new task for each cache miss.
+     */
+    private static int commandToPluginCleanupTask = -1;
+
     /**
      * Constructor, creates a new instance of the Commands class
      * and registers command executors for all AA commands found.
@@ -138,29 +146,21 @@ final class Commands {
     } //end method
 
     /**
-     * Makes the private commandMap and knownCommands server's fields
-     * accessible to our plugin, so we can work with what commands
-     * are currently registered and known.
+     * Makes sure the private commandMap and knownCommands server's fields
+     * are accessible to our plugin via the {@link com.martinambrus.adminAnything.ReflectionRegistry},
+     * so we can work with what commands are currently registered and known.
+     *
+     * <b>NOTE:</b> the knownCommands map may not include server core commands, since at least
+     * MC <= 1.7 did not register them in any standard way. In such situations,
+     * core commands will be spoon-fed back to this list manually via AdminAnything.
      *
      * @throws AccessException When commandMap or knownCommands fields cannot be
      *         made accessible via Reflection.
      */
     private void initCommandsMap() throws AccessException {
-        if (null != commandMap) {
-            return;
-        }
-
-        // initialize our fields
-        try {
-            commandMap = Bukkit.getServer().getClass().getDeclaredField("commandMap");
-            commandMap.setAccessible(true);
-
-            knownCommands = SimpleCommandMap.class.getDeclaredField("knownCommands");
-            knownCommands.setAccessible(true);
-        } catch (final Exception e) {
-            // something very wrong happened here, we need the stack trace,
-            // so the user can send it to us
-            e.printStackTrace();
+        if (!ReflectionRegistry.isAvailable(ReflectionRegistry.SERVER_COMMAND_MAP)
+            || !ReflectionRegistry.isAvailable(ReflectionRegistry.KNOWN_COMMANDS)) {
+            // the registry has already reported what's missing in console
             throw new AccessException("Something unexpected happened and " + AA_API.getAaName()
             + " was unable to work out all of the enabled commands. Please send the above error to the plugin author,"
             + "so this can be promptly fixed for you. Thanks :)");
@@ -183,12 +183,11 @@ final class Commands {
 
         // the say commands will be missing if we're not registering core commands via commandMap (MC < 1.8)
         if (null == knownCommands.get("say")) { //NON-NLS
-            final Object commandMapAccess = commandMap.get(Bukkit.getServer());
-            final Method getCommand       = commandMapAccess.getClass().getMethod("getCommand", String.class);
+            final CommandMap commandMapAccess = getServerCommandMap();
 
             // iterate over all basic commands and try to put them in
             for (final String coreCommand : Constants.BUILTIN_COMMANDS) {
-                final Object commandMapCommand = getCommand.invoke(commandMapAccess, coreCommand);
+                final Object commandMapCommand = commandMapAccess.getCommand(coreCommand);
                 if (null != commandMapCommand) {
                     knownCommands.put(coreCommand, (Command) commandMapCommand);
                 }
@@ -300,12 +299,9 @@ final class Commands {
         CommandMap cmap = null;
 
         try {
-            // if not initialized yet, we cannot unregister our commands
-            if (null == commandMap) {
-                this.initCommandsMap();
-            }
-
-            cmap = (CommandMap) commandMap.get(Bukkit.getServer());
+            // if not accessible, we cannot unregister our commands
+            this.initCommandsMap();
+            cmap = getServerCommandMap();
         } catch (IllegalArgumentException | IllegalAccessException | NullPointerException | AccessException e) {
             if (AA_API.getDebug()) {
                 Bukkit.getLogger()
@@ -323,8 +319,8 @@ final class Commands {
                 if (!config.isDisabled(cmd.replaceAll("aa_", ""))) { //NON-NLS
                     try {
                         ((JavaPlugin) plugin).getCommand(cmd)
-                                             .unregister((CommandMap) commandMap.get(Bukkit.getServer()));
-                    } catch (IllegalArgumentException | IllegalAccessException e) {
+                                             .unregister(cmap);
+                    } catch (IllegalArgumentException e) {
                         Bukkit.getLogger()
                               .severe('[' + config.getPluginName() + "] " + AA_API
                                   .__("error.command-cannot-unregister", cmd));
@@ -394,8 +390,8 @@ final class Commands {
     SecurityException, InvocationTargetException, AccessException {
         try {
             initCommandsMap();
-            return forceRegisterServerCommands(
-                    (Map<String, Command>) knownCommands.get(commandMap.get(Bukkit.getServer())));
+            return forceRegisterServerCommands((Map<String, Command>) ReflectionRegistry
+                .getKnownCommands((SimpleCommandMap) getServerCommandMap()));
         } catch (final IllegalArgumentException e) {
             throw new IllegalArgumentException(e);
         } catch (final IllegalAccessException e) {
@@ -425,8 +421,7 @@ final class Commands {
 
         // load custom permission descriptions for permissions of those plugins
         // which do not include their description in their plugin.yml
-        //noinspection HardCodedStringLiteral
-        FileConfiguration permsFromConfig = AA_API.getManualPermDescriptionsConfig();
+        final ManualPermDescriptions permsFromConfig = AA_API.getManualPermDescriptions();
 
         // create a temporary copy of the commandMap
         final Map<String, Command> commandMapCopy = AA_API.getCommandMapCopy();
@@ -435,7 +430,7 @@ final class Commands {
         // which aren't registered in the commandMap and of which plugin actually runs on this server
         // into the commandMap copy, so we can simply use the for loop to display all commands - even
         // custom ones - in one go
-        for (String manualPluginName : permsFromConfig.getConfigurationSection("manualPermissions").getKeys(false)) {
+        for (String manualPluginName : permsFromConfig.getPluginNames()) {
             // check if we actually have this plugin on our server
             Plugin owningPlugin = AA_API.getPluginIgnoreCase(manualPluginName);
             if (null == owningPlugin) {
@@ -444,32 +439,23 @@ final class Commands {
             }
 
             // go command by command and check if we're missing any of them in the command map
-            for (String manualCommandName : permsFromConfig.getConfigurationSection("manualPermissions." + manualPluginName).getKeys(false)) {
+            for (String manualCommandName : permsFromConfig.getCommandNames(manualPluginName)) {
                 // we use prefixed command names here or otherwise we'll fail to determine the correct plugin
                 // for these pseudo-commands below
                 String mapManualCommandName = manualPluginName + ":" + manualCommandName;
                 if (null == commandMapCopy.get(mapManualCommandName)) {
                     // found a command we need to add, let's prepare its internals
-                    List<String> manualPerms = permsFromConfig.getStringList("manualPermissions." + manualPluginName + "." + manualCommandName);
-
-                    // load the first line for this command and check if it's actually a command description
-                    Iterator<String> permsIterator = manualPerms.iterator();
-                    String manualDescription = permsIterator.next();
+                    final int manualCommand = permsFromConfig.findCommand(manualPluginName, manualCommandName);
 
-                    if (!manualDescription.startsWith("$")) {
-                        // not an actual command description but a permission
+                    // load the custom description for this command, if any
+                    String manualDescription = permsFromConfig.getCommandDescription(manualCommand);
+                    if (null == manualDescription) {
                         manualDescription = "";
-                    } else {
-                        // remove the $ sign from this command's description
-                        manualDescription = manualDescription.substring(1);
                     }
 
                     // load the topmost permission, as commands can only have a single permission on the server
-                    String manualPerm = "";
-                    if (permsIterator.hasNext()) {
-                        manualPerm = permsIterator.next();
-                        manualPerm = (manualPerm.indexOf('=') > -1 ? manualPerm.substring(0, manualPerm.indexOf('=')) : manualPerm);
-                    }
+                    final String manualPerm = (0 < permsFromConfig.getPermissionCount(manualCommand) ?
+                                               permsFromConfig.getPermission(manualCommand, 0) : "");
 
                     commandMapCopy.put(mapManualCommandName, new AASymbolicCommand(manualCommandName, owningPlugin, manualDescription, manualPerm));
                 }
@@ -486,11 +472,21 @@ final class Commands {
      */
     @SuppressWarnings("JavadocReference")
     private void clearCommandMap() {
-        commandMap = null;
         this.augmentedCommandMap = null;
-        knownCommands = null;
     } //end method
 
+    /**
+     * Gets the {@link org.bukkit.command.CommandMap CommandMap} of the underlying
+     * Spigot/CraftBukkit server, which contains all commands currently usable on the server.
+     *
+     * @return Returns the server's command map.
+     *
+     * @throws IllegalAccessException When the server's commandMap field is not accessible.
+     */
+    private static CommandMap getServerCommandMap() throws IllegalAccessException {
+        return ReflectionRegistry.getServerCommandMap(Bukkit.getServer());
+    } // end method
+
     /**
      * Returns the plugin name from the given class,
      * which should be one of the command is was
@@ -502,6 +498,13 @@ final class Commands {
      * @throws InvalidClassException When this plugin's class file is not found in the current classLoader.
      */
     String guessPluginFromClass(final Class<?> clazz) throws InvalidClassException {
+        // classes loaded by a plugin's own class loader are resolved by a single lookup
+        final Plugin owner = ((AdminAnything) plugin).getPluginUtils().getPluginByClassLoader(clazz);
+        if (null != owner) {
+            return owner.getName();
+        }
+
+        // otherwise we need to find out where this class' JAR is
         final String commandLocationParsed = ((AdminAnything) plugin).getPluginUtils().parsePluginJARLocation(clazz);
 
         return ((AdminAnything) plugin).getPluginUtils().getPluginNameViaClassPathsMap(commandLocationParsed);
@@ -528,14 +531,23 @@ final class Commands {
      * @throws InvalidClassException When this plugin's class file is not found in the current classLoader.
      */
     String getPluginForCommand(String key, final Command value) throws InvalidClassException {
-        if (null == commandToPluginMap) {
-            commandToPluginMap = new HashMap<String, String>();
+        // work with a local reference, as the cache can be cleared by a cleanup task at any time
+        Map<String, String> cache = commandToPluginMap;
+        if (null == cache) {
+            cache = new ConcurrentHashMap<String, String>();
+            commandToPluginMap = cache;
         }
 
-        if (commandToPluginMap.containsKey(key) && !((AdminAnything) plugin).getDebug()) {
-            return commandToPluginMap.get(key);
+        if (!((AdminAnything) plugin).getDebug()) {
+            final String cachedPluginName = cache.get(key);
+            if (null != cachedPluginName) {
+                AA_API.recordCacheLookup(StatsSubsystem.COMMANDS, true);
+                return cachedPluginName;
+            }
         }
 
+        AA_API.recordCacheLookup(StatsSubsystem.COMMANDS, false);
+
         // strip out the initial colon from commands that start on one (like :ping)
         if (key.startsWith(":")) {
             key = key.substring(1);
@@ -578,18 +590,23 @@ final class Commands {
             }
         }
 
-        // cache the result
-        commandToPluginMap.put(key, pluginName);
+        // cache the result (concurrent maps cannot hold nulls, and we'd want to re-check those anyway)
+        if (null != pluginName) {
+            cache.put(key, pluginName);
+        }
 
         // make sure we clean up after ourselves
-        Bukkit.getScheduler().scheduleSyncDelayedTask(plugin, new Runnable() {
+        if (-1 == commandToPluginCleanupTask) {
+            commandToPluginCleanupTask = Bukkit.getScheduler().scheduleSyncDelayedTask(plugin, new Runnable() {
 
-            @Override
-            public void run() {
-                commandToPluginMap = null;
-            }
+                @Override
+                public void run() {
+                    commandToPluginMap = null;
+                    commandToPluginCleanupTask = -1;
+                }
 
-        }, cleanupTimeout * (20 * 60));
+            }, cleanupTimeout * (20 * 60));
+        }
 
         return pluginName;
     } //end method
@@ -622,19 +639,122 @@ final class Commands {
             throws AccessException, IllegalAccessException, InvalidClassException, NoSuchMethodException,
             SecurityException, InvocationTargetException {
 
-        if (null == containingPluginsCache) {
-            containingPluginsCache = new HashMap<String, List<String>>();
+        // work with a local reference, as the cache can be cleared by a cleanup task at any time
+        Map<String, List<String>> cache = containingPluginsCache;
+        if (null == cache) {
+            cache = new ConcurrentHashMap<String, List<String>>();
+            containingPluginsCache = cache;
         }
 
-        if (containingPluginsCache.containsKey(command)) {
-            return containingPluginsCache.get(command);
+        final List<String> cachedPlugins = cache.get(command);
+        if (null != cachedPlugins) {
+            AA_API.recordCacheLookup(StatsSubsystem.COMMANDS, true);
+            return cachedPlugins;
         }
 
+        AA_API.recordCacheLookup(StatsSubsystem.COMMANDS, false);
+        final long start = System.nanoTime();
         final List<String> containingPlugins = new ArrayList<String>();
-        String             pluginName;
 
         // iterate over all plugins to find which of them contain our searched-for command
         for (final Entry<String, Command> pair : getCommandMap().entrySet()) {
+            addContainingPlugin(command, pair, containingPlugins, extendCorePluginNames);
+        }
+
+        AA_API.recordLatency(StatsSubsystem.COMMANDS, start);
+
+        // cache the result
+        cache.put(command, containingPlugins);
+
+        // make sure we clean up after ourselves
+        scheduleContainingPluginsCacheCleanup();
+
+        return containingPlugins;
+    } //end method
+
+    /**
+     * Checks whether the given command map entry provides the given command and if it does,
+     * adds the plugin this entry belongs to into the list of containing plugins.
+     *
+     * @param command The actual command we're checking plugins for.
+     * @param pair The command map entry to check.
+     * @param containingPlugins List of plugins containing the command, which will be extended by this method.
+     * @param extendCorePluginNames If true, an extended name with a "Core -> " prefix is added into the list,
+     *                              otherwise only the clear command name will be added.
+     *
+     * @throws AccessException When a plugin for the command in this entry could not be determined.
+     * @throws InvalidClassException When a class for any of the server plugins cannot be found within the current classLoader.
+     */
+    private void addContainingPlugin(final String command, final Entry<String, Command> pair,
+        final List<String> containingPlugins, final boolean... extendCorePluginNames)
+        throws AccessException, InvalidClassException {
+        String key = pair.getKey();
+
+        // strip out the initial colon from commands that start on one (like :ping)
+        if (key.startsWith(":")) {
+            key = key.substring(1);
+        }
+
+        // let's not care about commands other than the one we're looking for
+        if (
+                // when this is not the command we're looking for
+                !key.equals(command) &&
+                // or it is a command we're looking for but from a different plugin
+                !(
+                    key.contains(":") && key.substring(key.indexOf(':') + 1).equals(command)
+                ) &&
+                // or actually an alias
+                !pair.getValue().getAliases().contains(command)
+                ) {
+            // sometimes, the actual key can be registered as alias
+            // for example, Essentials:heal registers itself as command eheal
+            // but still contains the key "name" set to the original "heal" command
+            if (pair.getValue().getName().equals(command)) {
+                key = pair.getValue().getName();
+            } else {
+                return;
+            }
+        }
+
+        final String pluginName = getPluginForCommand(key, pair.getValue());
+
+        if (null == pluginName) {
+            throw new AccessException('[' + AA_API.getAaName()
+            + "] Plugin for the following command was not found: " + key);
+        } else {
+            //noinspection HardCodedStringLiteral
+            if ("minecraft".equals(pluginName) || "spigot".equals(pluginName) || "bukkit"
+                .equals(pluginName)
+                || pluginName.isEmpty()) {
+                containingPlugins
+                    .add(AA_API.__("general.core") + (0 < extendCorePluginNames.length ? " -> " + key :
+                                                      ""));
+            } else {
+                if (!containingPlugins.contains(pluginName)) {
+                    containingPlugins.add(pluginName);
+                }
+            }
+        }
+    } //end method
+
+    /**
+     * Pre-fills the cache of plugins containing each command on the server.
+     *
+     * Instead of scanning the whole command map for every single command
+     * (as {@link #getCommandContainingPlugins(String, boolean...)} does on a cache miss),
+     * all command map entries are indexed by every name they can be called by first,
+     * so the whole conflict model is built in a single pass. Safe to be called
+     * from an async thread, as it only works with the given command map snapshot.
+     *
+     * @param commandMapSnapshot A copy of the server's command map taken on the main thread.
+     *
+     * @return Returns the number of commands the cache was filled for.
+     * @throws InvalidClassException When a class for any of the server plugins cannot be found within the current classLoader.
+     */
+    int primeContainingPluginsCache(final Map<String, Command> commandMapSnapshot) throws InvalidClassException {
+        // index all command map entries by all of the names they can be called by
+        final Map<String, List<Entry<String, Command>>> entriesByName = new HashMap<String, List<Entry<String, Command>>>();
+        for (final Entry<String, Command> pair : commandMapSnapshot.entrySet()) {
             String key = pair.getKey();
 
             // strip out the initial colon from commands that start on one (like :ping)
@@ -642,52 +762,55 @@ final class Commands {
                 key = key.substring(1);
             }
 
-            // let's not care about commands other than the one we're looking for
-            if (
-                    // when this is not the command we're looking for
-                    !key.equals(command) &&
-                    // or it is a command we're looking for but from a different plugin
-                    !(
-                        key.contains(":") && key.substring(key.indexOf(':') + 1).equals(command)
-                    ) &&
-                    // or actually an alias
-                    !pair.getValue().getAliases().contains(command)
-                    ) {
-                // sometimes, the actual key can be registered as alias
-                // for example, Essentials:heal registers itself as command eheal
-                // but still contains the key "name" set to the original "heal" command
-                if (pair.getValue().getName().equals(command)) {
-                    key = pair.getValue().getName();
-                } else {
-                    continue;
-                }
+            final Set<String> names = new HashSet<String>();
+            names.add(key);
+            if (key.contains(":")) {
+                names.add(key.substring(key.indexOf(':') + 1));
             }
 
-            pluginName = getPluginForCommand(key, pair.getValue());
+            names.addAll(pair.getValue().getAliases());
+            if (null != pair.getValue().getName()) {
+                names.add(pair.getValue().getName());
+            }
 
-            if (null == pluginName) {
-                throw new AccessException('[' + AA_API.getAaName()
-                + "] Plugin for the following command was not found: " + key);
-            } else {
-                //noinspection ConstantConditions,HardCodedStringLiteral
-                if ("minecraft".equals(pluginName) || "spigot".equals(pluginName) || "bukkit"
-                    .equals(pluginName)
-                    || null != pluginName && pluginName.isEmpty()) {
-                    containingPlugins
-                        .add(AA_API.__("general.core") + (0 < extendCorePluginNames.length ? " -> " + key :
-                                                          ""));
-                } else {
-                    if (!containingPlugins.contains(pluginName)) {
-                        containingPlugins.add(pluginName);
-                    }
+            for (final String name : names) {
+                List<Entry<String, Command>> entries = entriesByName.get(name);
+                if (null == entries) {
+                    entries = new ArrayList<Entry<String, Command>>();
+                    entriesByName.put(name, entries);
                 }
+
+                entries.add(pair);
             }
         }
 
-        // cache the result
-        containingPluginsCache.put(command, containingPlugins);
+        // resolve containing plugins for each of the names, using only entries relevant to them
+        final Map<String, List<String>> cache = new ConcurrentHashMap<String, List<String>>();
+        for (final Entry<String, List<Entry<String, Command>>> named : entriesByName.entrySet()) {
+            final List<String> containingPlugins = new ArrayList<String>();
+            try {
+                for (final Entry<String, Command> pair : named.getValue()) {
+                    addContainingPlugin(named.getKey(), pair, containingPlugins);
+                }
+            } catch (final AccessException ex) {
+                // don't cache commands we couldn't resolve, a lazy lookup will report them when needed
+                continue;
+            }
 
-        // make sure we clean up after ourselves
+            cache.put(named.getKey(), containingPlugins);
+        }
+
+        containingPluginsCache = cache;
+        scheduleContainingPluginsCacheCleanup();
+
+        return cache.size();
+    } //end method
+
+    /**
+     * Schedules a task to clear the plugins which contain commands cache,
+     * replacing any such task scheduled previously.
+     */
+    private void scheduleContainingPluginsCacheCleanup() {
         if (-1 != cleanupTask) {
             // cancel the old cleanup task, so we can create a new one
             // and we don't end up setting cached values and cleaning them up
@@ -706,8 +829,6 @@ final class Commands {
             }
 
         }, cleanupTimeout * (20 * 60));
-
-        return containingPlugins;
     } //end method
 
     /**
@@ -878,16 +999,16 @@ final class Commands {
                                         r = (RegisteredListener) hpwp_get_delegate.invoke( r );
                                     }
 
-                                    Field fPriority;
-                                    Field fIgnoreCancelled;
+                                    // Bukkit API changed?
+                                    if ( !ReflectionRegistry.isAvailable( ReflectionRegistry.LISTENER_PRIORITY_SET )
+                                        || !ReflectionRegistry.isAvailable( ReflectionRegistry.LISTENER_IGNORE_CANCELLED_SET ) ) {
+                                        throw new NoSuchFieldException( "RegisteredListener.priority / RegisteredListener.ignoreCancelled" ); //NON-NLS
+                                    }
 
                                     // set priority to low if it's on lowest, as AA needs to be
                                     // able to catch commands coming out from this plugin and cancel them
-                                    fPriority = r.getClass().getDeclaredField("priority");
-                                    fPriority.setAccessible(true);
-
-                                    if ( fPriority.get(r) == EventPriority.LOWEST ) {
-                                        fPriority.set(r, EventPriority.LOW);
+                                    if ( r.getPriority() == EventPriority.LOWEST ) {
+                                        ReflectionRegistry.setListenerPriority( r, EventPriority.LOW );
                                     }
 
                                     // Essentials' PowerTools will fail to work if we tamper with Essentials' ignoreCancelled flag in command events
@@ -896,11 +1017,8 @@ final class Commands {
                                         // set ignoreCancelled to true if this plugin did not set
                                         // ignoreCancelled for its command listeners - command events need to be ignored when cancelled
                                         // on event bubbling, so we can actually redirect / fix commands in AA
-                                        fIgnoreCancelled = r.getClass().getDeclaredField( "ignoreCancelled" );
-                                        fIgnoreCancelled.setAccessible( true );
-
-                                        if ( !fIgnoreCancelled.getBoolean(r) ) {
-                                            fIgnoreCancelled.setBoolean( r, true );
+                                        if ( !r.isIgnoringCancelled() ) {
+                                            ReflectionRegistry.setListenerIgnoreCancelled( r, true );
                                         }
                                     }
                                 } catch (final NoSuchFieldException e) {
@@ -1095,6 +1213,79 @@ final class Commands {
                Collections.unmodifiableSet(new HashSet<String>(pluginCommandsCache.get(plugin))) : null;
     } // end method
 
+    /**
+     * Loads and returns the compiled form of the configuration file for manual commands and their permissions
+     * for plugins that don't have these in their plugin.yml file.
+     *
+     * The compiled form is loaded from a binary cache file if neither the configuration file
+     * nor its default version in our JAR changed since the cache was written. Otherwise, the configuration
+     * file is parsed, compiled and the cache file is written anew.
+     *
+     * @return Returns the compiled permdescriptions.yml file.
+     */
+    synchronized ManualPermDescriptions getManualPermDescriptions() {
+        if (null != this.manualPermDescriptions) {
+            return this.manualPermDescriptions;
+        }
+
+        final File yamlFile = new File(AA_API.getAaDataDir(), this.manualPermDescriptionsFileName);
+        final File cacheFile = new File(AA_API.getAaDataDir(), this.manualPermDescriptionsCacheFileName);
+        byte[] defaults = null;
+        ManualPermDescriptions descriptions = null;
+
+        try {
+            defaults = readManualPermDescriptionsSource(this.plugin.getResource(this.manualPermDescriptionsFileName));
+            descriptions = ManualPermDescriptions.readCache(cacheFile, ManualPermDescriptions.hashSources(
+                readManualPermDescriptionsSource(yamlFile.isFile() ? new FileInputStream(yamlFile) : null), defaults));
+        } catch (final IOException ex) {
+            // cannot read the YAML file, it will be re-created below
+        }
+
+        if (null == descriptions) {
+            //noinspection HardCodedStringLiteral
+            descriptions = ManualPermDescriptions.compile(getManualPermDescConfig().getConfigurationSection("manualPermissions"));
+
+            // the YAML file was updated with new defaults from our JAR when parsed, so it needs to be hashed again
+            try {
+                descriptions.writeCache(cacheFile, ManualPermDescriptions.hashSources(
+                    readManualPermDescriptionsSource(yamlFile.isFile() ? new FileInputStream(yamlFile) : null), defaults));
+            } catch (final IOException ex) {
+                // we still have the compiled version in memory, so we can continue without the cache
+                Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API.__("config.error-cannot-save-config",
+                    this.manualPermDescriptionsCacheFileName));
+                ex.printStackTrace();
+            }
+        }
+
+        this.manualPermDescriptions = descriptions;
+        return this.manualPermDescriptions;
+    } // end method
+
+    /**
+     * Reads the whole content of one of the permdescriptions.yml sources.
+     *
+     * @param source The stream to read. Will be closed after reading. Can be null.
+     *
+     * @return Returns the whole content of the stream, null if the stream was null.
+     * @throws IOException When the stream cannot be read.
+     */
+    private byte[] readManualPermDescriptionsSource(final InputStream source) throws IOException {
+        if (null == source) {
+            return null;
+        }
+
+        try (InputStream in = source) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while (-1 != (read = in.read(buffer))) {
+                out.write(buffer, 0, read);
+            }
+
+            return out.toByteArray();
+        }
+    } // end method
+
     /**
      * Loads and returns configuration file for manual commands and their permissions for plugins that don't have these
      * in their plugin.yml file.
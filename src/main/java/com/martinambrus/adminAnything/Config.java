@@ -25,6 +25,11 @@ final class Config {
      */
     private ConfigAbstractAdapter config = null;
 
+    /**
+     * The configuration backend in use, i.e. file or db.
+     */
+    private String backend = null;
+
     /**
      * Constructor, checks plugin configuration and updates it as necessary.
      * This will check for upgraded plugin with old configuration as well as
@@ -50,6 +55,8 @@ final class Config {
             backend = "file";
         }
 
+        this.backend = backend;
+
         switch (backend) {
             case "file": this.config = new ConfigFileAdapter(this.plugin);
                 break;
@@ -99,4 +106,13 @@ final class Config {
         return this.config;
     }
 
+    /**
+     * Returns the configuration backend in use, so features specific to one backend can check for it.
+     *
+     * @return Returns the configuration backend in use, i.e. file or db.
+     */
+    String getBackend() {
+        return this.backend;
+    }
+
 } // end class
\ No newline at end of file
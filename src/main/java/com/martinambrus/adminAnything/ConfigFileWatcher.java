@@ -0,0 +1,268 @@
+package com.martinambrus.adminAnything;
+
+import com.martinambrus.adminAnything.events.AAReloadEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches AdminAnything's data folder for changes to commands config files
+ * (command_removals.yml, command_mutes.yml etc.) made outside of the game,
+ * i.e. by deployment tooling, and swaps changed rules in without a full /aa_reload.
+ *
+ * Changes are debounced, so an editor or a deployment tool writing a file
+ * in several steps only causes a single reload. Only the changed file is re-parsed
+ * and validated, on the watcher thread. Valid rules then replace the live ones
+ * on the main thread, while invalid files are reported and ignored, so the current rules stay in place.
+ *
+ * @author Martin Ambrus
+ */
+final class ConfigFileWatcher implements Runnable {
+
+    /**
+     * Time (in milliseconds) a file needs to stay unchanged before we reload it.
+     */
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    private final AdminAnything plugin;
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.CommandListeners} holding the live rules.
+     */
+    private final CommandListeners commandListeners;
+
+    /**
+     * Changed files waiting for their debounce period to pass, mapped to the time
+     * (in milliseconds) of their last change. Only ever accessed by the watcher thread.
+     */
+    private final Map<String, Long> pendingChanges = new HashMap<String, Long>();
+
+    /**
+     * The watch service registered for AdminAnything's data folder.
+     */
+    private WatchService watchService = null;
+
+    /**
+     * The thread waiting for file changes.
+     */
+    private Thread watcherThread = null;
+
+    /**
+     * Constructor, stores the instances we need to reload rules.
+     *
+     * @param aa Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     * @param listeners Instance of {@link com.martinambrus.adminAnything.CommandListeners} holding the live rules.
+     */
+    ConfigFileWatcher(final AdminAnything aa, final CommandListeners listeners) {
+        plugin = aa;
+        commandListeners = listeners;
+    } // end method
+
+    /**
+     * Starts watching AdminAnything's data folder on a separate daemon thread.
+     */
+    void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            AA_API.getAaDataDir().toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (final IOException ex) {
+            Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API.__("config.watcher-failed"));
+            ex.printStackTrace();
+            return;
+        }
+
+        watcherThread = new Thread(this, AA_API.getAaName() + " config watcher"); //NON-NLS
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    } // end method
+
+    /**
+     * Stops watching AdminAnything's data folder.
+     */
+    void stop() {
+        if (null != watchService) {
+            try {
+                watchService.close();
+            } catch (final IOException ex) {
+                // we're shutting down, nothing more to do here
+            }
+
+            watchService = null;
+        }
+
+        if (null != watcherThread) {
+            watcherThread.interrupt();
+            watcherThread = null;
+        }
+    } // end method
+
+    /**
+     * Waits for file changes and reloads changed files once their debounce period passes.
+     */
+    @Override
+    public void run() {
+        final WatchService service = watchService;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // with no changes pending, we can wait for the next change indefinitely
+                final WatchKey key = pendingChanges.isEmpty() ? service.take() :
+                                     service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (null != key) {
+                    collectChanges(key);
+
+                    if (!key.reset()) {
+                        // our data folder is gone
+                        return;
+                    }
+                }
+
+                final long now = System.currentTimeMillis();
+                final Iterator<Map.Entry<String, Long>> it = pendingChanges.entrySet().iterator();
+                while (it.hasNext()) {
+                    final Map.Entry<String, Long> change = it.next();
+                    if (now - change.getValue() >= DEBOUNCE_MILLIS) {
+                        it.remove();
+                        reloadFile(change.getKey());
+                    }
+                }
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException ex) {
+            // we're being stopped
+        }
+    } // end method
+
+    /**
+     * Marks all commands config files changed in the given watch key as pending a reload.
+     *
+     * @param key The watch key with new events.
+     */
+    private void collectChanges(final WatchKey key) {
+        final long now = System.currentTimeMillis();
+
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (StandardWatchEventKinds.OVERFLOW == event.kind()) {
+                // we've lost track of what exactly changed, so reload all files that exist
+                for (final String which : CommandListeners.LIST_TYPES) {
+                    pendingChanges.put(commandListeners.getConfigFileName(which), now);
+                }
+
+                continue;
+            }
+
+            final String fileName = ((Path) event.context()).getFileName().toString();
+            if (null != commandListeners.getListTypeByFileName(fileName)) {
+                pendingChanges.put(fileName, now);
+            }
+        }
+    } // end method
+
+    /**
+     * Re-parses and validates a single changed commands config file on the calling thread
+     * and, if valid, swaps its rules into the live ones on the main thread.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * watcher.reloadFile("command_removals.yml");
+     * }
+     * </pre>
+     *
+     * @param fileName Name of the changed file within AdminAnything's data folder.
+     */
+    void reloadFile(final String fileName) {
+        final String which = commandListeners.getListTypeByFileName(fileName);
+        final File file = new File(AA_API.getAaDataDir(), fileName);
+
+        // a deleted file is most likely just being replaced, its new version will trigger another reload
+        if (null == which || !file.isFile()) {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final YamlConfiguration configHandle = new YamlConfiguration();
+
+        try {
+            configHandle.load(file);
+        } catch (final IOException | InvalidConfigurationException ex) {
+            Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+                .__("config.watcher-invalid-file", fileName, ex.getMessage()));
+            return;
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.CONFIG, start);
+        }
+
+        if (!CommandListeners.isValidCommandsConfig(which, configHandle)) {
+            Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+                .__("config.watcher-invalid-file", fileName, AA_API.__("config.watcher-invalid-structure")));
+            return;
+        }
+
+        // we could have been disabled while the file was being loaded
+        if (!plugin.isEnabled()) {
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                applyChanges(which, fileName, configHandle);
+            }
+
+        });
+    } // end method
+
+    /**
+     * Swaps newly loaded rules into the live ones and lets all listeners rebuild their caches.
+     * Must be called on the main thread.
+     *
+     * @param which Type of the commands list that changed.
+     * @param fileName Name of the changed file within AdminAnything's data folder.
+     * @param configHandle The newly loaded and validated configuration.
+     */
+    private void applyChanges(final String which, final String fileName, final FileConfiguration configHandle) {
+        // we could have been disabled while this task was waiting to run
+        if (!plugin.isEnabled()) {
+            return;
+        }
+
+        // files we've just saved ourselves come back here as well, there's nothing to reload for them
+        final ConfigurationSection current = commandListeners.getFileConfigHandleReference(which);
+        if (current instanceof FileConfiguration && ((FileConfiguration) current).saveToString()
+                                                                                  .equals(configHandle.saveToString())) {
+            return;
+        }
+
+        commandListeners.applyCommandsConfig(which, configHandle);
+
+        // clear command caches
+        Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
+        // reload commandPreprocessor internal variables
+        Bukkit.getPluginManager().callEvent(new AAReloadEvent("commandPreprocessor")); //NON-NLS
+
+        Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("config.watcher-reloaded", fileName));
+    } // end method
+
+} // end class
@@ -339,6 +339,7 @@ final class ConfigMySQLAdapter extends ConfigAbstractAdapter implements Runnable
         if (null != this.configs.get( configType )) {
             File existingConfigFile = new File( AA_API.getAaDataDir(), this.configs.get( configType ) );
             if (existingConfigFile.exists() && this.sql.getDbConfig().getBoolean( "sync_" + configType ) ) {
+                final long start = System.nanoTime();
                 try {
                     this.sql.query(
                         "REPLACE INTO " + this.sql.getPrefix() + "config SET config = ?, config_type = ?",
@@ -357,6 +358,8 @@ final class ConfigMySQLAdapter extends ConfigAbstractAdapter implements Runnable
                     if (AA_API.getDebug()) {
                         ex.printStackTrace();
                     }
+                } finally {
+                    AA_API.recordLatency(StatsSubsystem.CONFIG, start);
                 }
             }
 
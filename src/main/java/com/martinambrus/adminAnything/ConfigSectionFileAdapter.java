@@ -154,12 +154,15 @@ class ConfigSectionFileAdapter extends ConfigSectionAbstractAdapter {
      * Saves the file-based configuration.
      */
     void saveConfig() {
+        final long start = System.nanoTime();
         try {
             this.yml.save(configFile);
         } catch (Throwable ex) {
             Bukkit.getLogger().severe('[' + AA_API.getAaName()
                 + "] " + AA_API.__("config.error-cannot-save-config", AA_API.getAaName())); //NON-NLS
             ex.printStackTrace();
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.CONFIG, start);
         }
     } // end method
 
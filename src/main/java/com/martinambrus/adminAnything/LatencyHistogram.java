@@ -0,0 +1,191 @@
+package com.martinambrus.adminAnything;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with a fixed number of buckets.
+ *
+ * Buckets grow exponentially, with each power of two being split
+ * into 8 linear sub-buckets, so every recorded value is kept
+ * with a precision of at least 12.5% while the whole histogram
+ * fits into a few kilobytes and never needs to allocate or lock
+ * when a new value is being recorded.
+ *
+ * Values up to 2^40 nanoseconds (about 18 minutes) are tracked,
+ * anything above that lands in the last bucket.
+ *
+ * @author Martin Ambrus
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of bits used to split each power of two into linear sub-buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Number of linear sub-buckets for each power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Highest power of two we keep separate buckets for.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * Total number of buckets in this histogram.
+     */
+    private static final int BUCKET_COUNT = ((MAX_EXPONENT - SUB_BUCKET_BITS) + 2) * SUB_BUCKETS;
+
+    /**
+     * Number of recorded values for each of the buckets.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Total number of recorded values.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Sum of all recorded values, used to calculate the average.
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * The highest value recorded so far.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a single latency value.
+     *
+     * @param nanos The latency to record, in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (0 > nanos) {
+            nanos = 0;
+        }
+
+        buckets.incrementAndGet(bucketFor(nanos));
+        count.increment();
+        total.add(nanos);
+
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    } // end method
+
+    /**
+     * Gets the total number of values recorded in this histogram.
+     *
+     * @return Returns the total number of values recorded in this histogram.
+     */
+    public long getCount() {
+        return count.sum();
+    } // end method
+
+    /**
+     * Gets the highest value recorded in this histogram.
+     *
+     * @return Returns the highest value recorded in this histogram, in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return max.get();
+    } // end method
+
+    /**
+     * Gets the average of all values recorded in this histogram.
+     *
+     * @return Returns the average of all values recorded in this histogram, in nanoseconds.
+     */
+    public long getAverageNanos() {
+        final long recorded = count.sum();
+        return 0 == recorded ? 0 : total.sum() / recorded;
+    } // end method
+
+    /**
+     * Gets the value at the given percentile of all values recorded in this histogram.
+     * As values are only kept in buckets, the upper bound of the matching bucket
+     * is returned, capped by the highest value ever recorded.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * long p99 = histogram.getPercentileNanos(99);
+     * </pre>
+     *
+     * @param percentile The percentile to return value for, between 0 and 100.
+     *
+     * @return Returns the value at the given percentile, in nanoseconds.
+     */
+    public long getPercentileNanos(final double percentile) {
+        // counting buckets directly, since the total counter can be slightly ahead of them
+        // while values are still being recorded
+        long recorded = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            recorded += buckets.get(i);
+        }
+
+        if (0 == recorded) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil((Math.min(100, Math.max(0, percentile)) / 100) * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+
+        return max.get();
+    } // end method
+
+    /**
+     * Calculates index of the bucket into which the given value belongs.
+     *
+     * @param nanos The value to find a bucket for.
+     *
+     * @return Returns index of the bucket into which the given value belongs.
+     */
+    static int bucketFor(final long nanos) {
+        if (SUB_BUCKETS > nanos) {
+            return (int) nanos;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (MAX_EXPONENT < exponent) {
+            return BUCKET_COUNT - 1;
+        }
+
+        final int subBucket = (int) ((nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return ((exponent - SUB_BUCKET_BITS) + 1) * SUB_BUCKETS + subBucket;
+    } // end method
+
+    /**
+     * Calculates the highest value that can still be stored in the given bucket.
+     *
+     * @param bucket Index of the bucket to calculate the upper bound for.
+     *
+     * @return Returns the highest value that can still be stored in the given bucket.
+     */
+    static long upperBoundOf(final int bucket) {
+        if (SUB_BUCKETS > bucket) {
+            return bucket;
+        }
+
+        if (BUCKET_COUNT - 1 == bucket) {
+            return Long.MAX_VALUE;
+        }
+
+        final int shift = (bucket / SUB_BUCKETS) - 1;
+        final long lowerBound = ((long) (SUB_BUCKETS + (bucket % SUB_BUCKETS))) << shift;
+        return lowerBound + (1L << shift) - 1;
+    } // end method
+
+} // end class
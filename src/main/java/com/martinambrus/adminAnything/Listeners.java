@@ -211,6 +211,13 @@ final class Listeners implements Listener {
                                     .adjustListenerPriorities(e.getArgs(), e.getListName(), e.getIgnoreLeadingSlash(), e
                                             .getOkList(), e.getKoList());
 
+            // rules added by a player or console via AA's commands go into the audit log
+            if (null != e.getSender() && null != e.getOkList()) {
+                for (final String command : e.getOkList()) {
+                    AA_API.audit(AuditAction.RULE_ADDED, e.getSender(), command, e.getListName());
+                }
+            }
+
             // send any OK messages we may have been given to send out
             if ((null != e.getSender()) && (null != e.getOkMessages()) && null != e.getOkList() && !e.getOkList()
                                                                                                      .isEmpty()) {
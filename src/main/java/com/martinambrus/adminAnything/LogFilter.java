@@ -1,7 +1,5 @@
 package com.martinambrus.adminAnything;
 
-import com.martinambrus.adminAnything.commands.Aa_mutecommand;
-
 import java.util.logging.Filter;
 import java.util.logging.LogRecord;
 
@@ -12,7 +10,11 @@ import java.util.logging.LogRecord;
  *
  * This class only ever gets utilized if:<br>
  * 1. we can't instrument server classes<br>
- * 2. we are indeed muting some commands
+ * 2. we are indeed muting some commands<br><br>
+ *
+ * It also mutes console log records matching any of the muted output patterns
+ * from {@link com.martinambrus.adminAnything.OutputMutes}. Records muted on behalf
+ * of a muted command are kept in the {@link com.martinambrus.adminAnything.MutedOutputLog}.
  *
  * @author Martin Ambrus
  */
@@ -21,16 +23,35 @@ public final class LogFilter implements Filter {
     /***
      * Checks the log record to make sure we're filtering
      * messages via AdminAnything, then mutes the record
-     * if it's within a certain time threshold.
+     * if it was logged by a thread which is dispatching a muted command
+     * or if it matches any of the muted output patterns.
      */
     @Override
     public boolean isLoggable(final LogRecord record) {
-        // disable logging for up to 1.5 seconds after a muted command was executed
+        final boolean muting = MuteSessions.isActive();
+        final boolean filtering = OutputMutes.isActive();
+
+        // fast path - nothing is being muted right now
+        if (!muting && !filtering) {
+            return true;
+        }
+
+        // never mute our own messages
+        if ("com.martinambrus.adminAnything".equals(record.getLoggerName())) { //NON-NLS
+            return true;
+        }
+
+        // disable logging on the thread dispatching a muted command while that dispatch runs
         // to prevent broadcastMessage() messages in console
-        return "com.martinambrus.adminAnything".equals(record //NON-NLS
-                                                              .getLoggerName()) || (0 >= Aa_mutecommand.lastMuteTimestamp) || (!((Aa_mutecommand.lastMuteTimestamp + 1.5) > Utils
-            .getUnixTimestamp()));
+        if (muting) {
+            final String mutedCommand = MuteSessions.getThreadMute();
+            if (null != mutedCommand) {
+                MutedOutputLog.capture(mutedCommand, record.getMessage());
+                return false;
+            }
+        }
 
+        return !filtering || !OutputMutes.shouldMute(record.getMessage());
     } //end method
 
 } // end class
\ No newline at end of file
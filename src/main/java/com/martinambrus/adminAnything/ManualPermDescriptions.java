@@ -0,0 +1,445 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Compiled, immutable form of the permdescriptions.yml file.
+ *
+ * All plugins, their commands and permissions are stored in flat arrays,
+ * where commands of a plugin and permissions of a command are always stored
+ * next to each other and addressed by their start offsets. Once a command is
+ * found by its name, all of its data are then simple array accesses.
+ *
+ * This structure can also be persisted into a versioned binary cache file,
+ * which is keyed by hash of the YAML sources it was compiled from,
+ * so we don't need to parse the large YAML file on each start.
+ *
+ * @author Martin Ambrus
+ */
+public final class ManualPermDescriptions {
+
+    /**
+     * Magic number at the start of the binary cache file ("AAPD").
+     */
+    private static final int CACHE_MAGIC = 0x41415044;
+
+    /**
+     * Version of the binary cache format. Needs to be raised
+     * whenever the format of the cache file changes.
+     */
+    private static final int CACHE_VERSION = 1;
+
+    /**
+     * Names of all plugins, as they appear in the YAML file.
+     */
+    private final String[] pluginNames;
+
+    /**
+     * Index of the first command of each plugin. Commands of plugin N are stored
+     * in the range [pluginFirstCommand[N], pluginFirstCommand[N + 1]).
+     */
+    private final int[] pluginFirstCommand;
+
+    /**
+     * Names of all commands.
+     */
+    private final String[] commandNames;
+
+    /**
+     * Descriptions of all commands (the "$"-prefixed lines), null if a command has none.
+     */
+    private final String[] commandDescriptions;
+
+    /**
+     * Index of the first permission of each command. Permissions of command N are stored
+     * in the range [commandFirstPermission[N], commandFirstPermission[N + 1]).
+     */
+    private final int[] commandFirstPermission;
+
+    /**
+     * Names of all permissions.
+     */
+    private final String[] permissionNames;
+
+    /**
+     * Descriptions of all permissions, null if a permission has none.
+     */
+    private final String[] permissionDescriptions;
+
+    /**
+     * Lookup of plugin indexes by plugin name.
+     */
+    private final Map<String, Integer> pluginIndex = new HashMap<String, Integer>();
+
+    /**
+     * Lookup of command indexes by "pluginName.commandName".
+     */
+    private final Map<String, Integer> commandIndex = new HashMap<String, Integer>();
+
+    /**
+     * Constructor, stores all arrays and builds the name lookups.
+     *
+     * @param plugins Names of all plugins.
+     * @param firstCommands Index of the first command of each plugin, plus the total number of commands.
+     * @param commands Names of all commands.
+     * @param descriptions Descriptions of all commands.
+     * @param firstPermissions Index of the first permission of each command, plus the total number of permissions.
+     * @param permissions Names of all permissions.
+     * @param permDescriptions Descriptions of all permissions.
+     */
+    private ManualPermDescriptions(final String[] plugins, final int[] firstCommands, final String[] commands,
+        final String[] descriptions, final int[] firstPermissions, final String[] permissions,
+        final String[] permDescriptions) {
+        pluginNames = plugins;
+        pluginFirstCommand = firstCommands;
+        commandNames = commands;
+        commandDescriptions = descriptions;
+        commandFirstPermission = firstPermissions;
+        permissionNames = permissions;
+        permissionDescriptions = permDescriptions;
+
+        for (int p = 0; p < pluginNames.length; p++) {
+            pluginIndex.put(pluginNames[p], p);
+            for (int c = pluginFirstCommand[p]; c < pluginFirstCommand[p + 1]; c++) {
+                commandIndex.put(pluginNames[p] + '.' + commandNames[c], c);
+            }
+        }
+    } // end method
+
+    /**
+     * Compiles the manualPermissions section of permdescriptions.yml.
+     *
+     * @param manualPermissions The manualPermissions configuration section. Can be null.
+     *
+     * @return Returns the compiled permission descriptions.
+     */
+    static ManualPermDescriptions compile(final ConfigurationSection manualPermissions) {
+        final List<String> plugins = new ArrayList<String>();
+        final List<Integer> firstCommands = new ArrayList<Integer>();
+        final List<String> commands = new ArrayList<String>();
+        final List<String> descriptions = new ArrayList<String>();
+        final List<Integer> firstPermissions = new ArrayList<Integer>();
+        final List<String> permissions = new ArrayList<String>();
+        final List<String> permDescriptions = new ArrayList<String>();
+
+        if (null != manualPermissions) {
+            for (final String pluginName : manualPermissions.getKeys(false)) {
+                final ConfigurationSection pluginSection = manualPermissions.getConfigurationSection(pluginName);
+                if (null == pluginSection) {
+                    continue;
+                }
+
+                plugins.add(pluginName);
+                firstCommands.add(commands.size());
+
+                for (final String commandName : pluginSection.getKeys(false)) {
+                    String description = null;
+                    commands.add(commandName);
+                    firstPermissions.add(permissions.size());
+
+                    for (final String line : pluginSection.getStringList(commandName)) {
+                        if (line.startsWith("$")) {
+                            // custom command description
+                            if (null == description) {
+                                description = line.substring(1);
+                            }
+                        } else if (line.contains("=")) {
+                            permissions.add(line.substring(0, line.indexOf('=')));
+                            permDescriptions.add(line.substring(line.indexOf('=') + 1));
+                        } else {
+                            permissions.add(line);
+                            permDescriptions.add(null);
+                        }
+                    }
+
+                    descriptions.add(description);
+                }
+            }
+        }
+
+        firstCommands.add(commands.size());
+        firstPermissions.add(permissions.size());
+
+        return new ManualPermDescriptions(
+            plugins.toArray(new String[0]),
+            toIntArray(firstCommands),
+            commands.toArray(new String[0]),
+            descriptions.toArray(new String[0]),
+            toIntArray(firstPermissions),
+            permissions.toArray(new String[0]),
+            permDescriptions.toArray(new String[0])
+        );
+    } // end method
+
+    /**
+     * Converts a list of integers into a primitive array.
+     *
+     * @param list The list to convert.
+     *
+     * @return Returns a primitive array with all values from the list.
+     */
+    private static int[] toIntArray(final List<Integer> list) {
+        final int[] out = new int[list.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = list.get(i);
+        }
+
+        return out;
+    } // end method
+
+    /**
+     * Calculates a hash of all the given sources, used as the key of the binary cache.
+     *
+     * @param sources Contents of all files the cache is compiled from. Null entries are skipped.
+     *
+     * @return Returns hash of all the given sources.
+     */
+    static byte[] hashSources(final byte[]... sources) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256"); //NON-NLS
+            for (final byte[] source : sources) {
+                digest.update(null == source ? new byte[0] : source);
+                // separator, so moving bytes between sources changes the hash
+                digest.update((byte) 0);
+            }
+
+            return digest.digest();
+        } catch (final NoSuchAlgorithmException e) {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    } // end method
+
+    /**
+     * Loads permission descriptions from the binary cache file.
+     *
+     * @param cacheFile The binary cache file.
+     * @param expectedHash Hash of the current YAML sources.
+     *
+     * @return Returns the cached permission descriptions or null if the cache is missing,
+     *         outdated, was created by a different cache version or cannot be read.
+     */
+    static ManualPermDescriptions readCache(final File cacheFile, final byte[] expectedHash) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (CACHE_MAGIC != in.readInt() || CACHE_VERSION != in.readInt()) {
+                return null;
+            }
+
+            final byte[] hash = new byte[in.readUnsignedShort()];
+            in.readFully(hash);
+            if (!MessageDigest.isEqual(hash, expectedHash)) {
+                return null;
+            }
+
+            final String[] plugins = readStrings(in);
+            final int[] firstCommands = readInts(in);
+            final String[] commands = readStrings(in);
+            final String[] descriptions = readStrings(in);
+            final int[] firstPermissions = readInts(in);
+            final String[] permissions = readStrings(in);
+            final String[] permDescriptions = readStrings(in);
+
+            return new ManualPermDescriptions(plugins, firstCommands, commands, descriptions, firstPermissions,
+                permissions, permDescriptions);
+        } catch (final IOException | RuntimeException e) {
+            // a broken cache is not a problem, we'll just compile it again
+            return null;
+        }
+    } // end method
+
+    /**
+     * Saves these permission descriptions into the binary cache file.
+     *
+     * @param cacheFile The binary cache file.
+     * @param hash Hash of the YAML sources these descriptions were compiled from.
+     *
+     * @throws IOException When the cache file cannot be written.
+     */
+    void writeCache(final File cacheFile, final byte[] hash) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+            out.writeShort(hash.length);
+            out.write(hash);
+            writeStrings(out, pluginNames);
+            writeInts(out, pluginFirstCommand);
+            writeStrings(out, commandNames);
+            writeStrings(out, commandDescriptions);
+            writeInts(out, commandFirstPermission);
+            writeStrings(out, permissionNames);
+            writeStrings(out, permissionDescriptions);
+        }
+    } // end method
+
+    /**
+     * Writes an array of nullable strings into the cache.
+     *
+     * @param out The stream to write into.
+     * @param values The strings to write.
+     *
+     * @throws IOException When writing fails.
+     */
+    private static void writeStrings(final DataOutputStream out, final String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (final String value : values) {
+            out.writeBoolean(null != value);
+            if (null != value) {
+                out.writeUTF(value);
+            }
+        }
+    } // end method
+
+    /**
+     * Reads an array of nullable strings from the cache.
+     *
+     * @param in The stream to read from.
+     *
+     * @return Returns the strings read.
+     * @throws IOException When reading fails.
+     */
+    private static String[] readStrings(final DataInputStream in) throws IOException {
+        final String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readBoolean() ? in.readUTF() : null;
+        }
+
+        return values;
+    } // end method
+
+    /**
+     * Writes an array of integers into the cache.
+     *
+     * @param out The stream to write into.
+     * @param values The integers to write.
+     *
+     * @throws IOException When writing fails.
+     */
+    private static void writeInts(final DataOutputStream out, final int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (final int value : values) {
+            out.writeInt(value);
+        }
+    } // end method
+
+    /**
+     * Reads an array of integers from the cache.
+     *
+     * @param in The stream to read from.
+     *
+     * @return Returns the integers read.
+     * @throws IOException When reading fails.
+     */
+    private static int[] readInts(final DataInputStream in) throws IOException {
+        final int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+
+        return values;
+    } // end method
+
+    /**
+     * Gets names of all plugins with manual permission descriptions.
+     *
+     * @return Returns names of all plugins, as they appear in permdescriptions.yml.
+     */
+    public List<String> getPluginNames() {
+        return Collections.unmodifiableList(Arrays.asList(pluginNames));
+    } // end method
+
+    /**
+     * Gets names of all commands of the given plugin.
+     *
+     * @param pluginName Name of the plugin, as it appears in permdescriptions.yml.
+     *
+     * @return Returns names of all commands of the given plugin, an empty list if there are none.
+     */
+    public List<String> getCommandNames(final String pluginName) {
+        final Integer p = pluginIndex.get(pluginName);
+        if (null == p) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(
+            Arrays.asList(commandNames).subList(pluginFirstCommand[p], pluginFirstCommand[p + 1]));
+    } // end method
+
+    /**
+     * Finds a command of the given plugin.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final int cmd = descriptions.findCommand("essentials", "afk");
+     * for (int i = 0; i < descriptions.getPermissionCount(cmd); i++) {
+     *     Bukkit.getLogger().info(descriptions.getPermission(cmd, i));
+     * }
+     * }
+     * </pre>
+     *
+     * @param pluginName Name of the plugin, as it appears in permdescriptions.yml.
+     * @param commandName Name of the command.
+     *
+     * @return Returns index of the command to be used with other getters, or -1 if not found.
+     */
+    public int findCommand(final String pluginName, final String commandName) {
+        final Integer c = commandIndex.get(pluginName + '.' + commandName);
+        return null == c ? -1 : c;
+    } // end method
+
+    /**
+     * Gets description of a command.
+     *
+     * @param command Index of the command, as returned by {@link #findCommand(String, String)}.
+     *
+     * @return Returns description of the command, or null if the command has none or was not found.
+     */
+    public String getCommandDescription(final int command) {
+        return 0 > command ? null : commandDescriptions[command];
+    } // end method
+
+    /**
+     * Gets number of permissions of a command.
+     *
+     * @param command Index of the command, as returned by {@link #findCommand(String, String)}.
+     *
+     * @return Returns number of permissions of the command, 0 if the command was not found.
+     */
+    public int getPermissionCount(final int command) {
+        return 0 > command ? 0 : commandFirstPermission[command + 1] - commandFirstPermission[command];
+    } // end method
+
+    /**
+     * Gets a single permission of a command.
+     *
+     * @param command Index of the command, as returned by {@link #findCommand(String, String)}.
+     * @param n Index of the permission, from 0 to {@link #getPermissionCount(int)} - 1.
+     *
+     * @return Returns the permission.
+     */
+    public String getPermission(final int command, final int n) {
+        return permissionNames[commandFirstPermission[command] + n];
+    } // end method
+
+    /**
+     * Gets description of a single permission of a command.
+     *
+     * @param command Index of the command, as returned by {@link #findCommand(String, String)}.
+     * @param n Index of the permission, from 0 to {@link #getPermissionCount(int)} - 1.
+     *
+     * @return Returns description of the permission, or null if it has none.
+     */
+    public String getPermissionDescription(final int command, final int n) {
+        return permissionDescriptions[commandFirstPermission[command] + n];
+    } // end method
+
+} // end class
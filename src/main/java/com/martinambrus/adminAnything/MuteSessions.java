@@ -0,0 +1,321 @@
+package com.martinambrus.adminAnything;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registry of running mute sessions, shared by the code injected into server classes
+ * by /aa_mutecommand and by the {@link com.martinambrus.adminAnything.LogFilter}.
+ *
+ * A session is started whenever a muted command is about to be dispatched and is bound
+ * to the dispatching thread and command. It ends as soon as that dispatch finishes,
+ * or once its window closes if it's never ended explicitly. The first class sending a message from that thread
+ * within the session's window is captured as the command's output class and all its messages
+ * are muted until the window closes, even when sent from other threads.
+ *
+ * All lookups begin with a single volatile "sessions active" flag, so both the injected
+ * code and the log filter return right away when no mute is running. The flag is also
+ * published via system properties, as injected server classes cannot see our classes
+ * without reflection.
+ *
+ * @author Martin Ambrus
+ */
+public final class MuteSessions {
+
+    /**
+     * Name of the system property holding the "sessions active" flag
+     * as an {@link java.util.concurrent.atomic.AtomicBoolean}.
+     */
+    public static final String ACTIVE_PROPERTY = "com.martinambrus.adminAnything.muteSessionsActive"; //NON-NLS
+
+    /**
+     * How long (in nanoseconds) a mute session lasts.
+     */
+    static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(1500);
+
+    /**
+     * A single running mute session. Callers only get to hold on to it,
+     * so they can end exactly the session they've started.
+     */
+    public static final class Session {
+
+        /**
+         * The command line which started this session.
+         */
+        final String command;
+
+        /**
+         * Time (from {@link System#nanoTime()}) when this session ends.
+         */
+        final long deadline;
+
+        /**
+         * Whether this session should capture the first class sending a message
+         * as the muted command's output class. Sessions started for command overrides
+         * only mute log records of their thread.
+         */
+        final boolean captureSender;
+
+        /**
+         * Whether this session has already captured its output class.
+         */
+        volatile boolean captured = false;
+
+        /**
+         * Constructor, creates a new session.
+         *
+         * @param command The command line which started this session.
+         * @param deadline Time (from {@link System#nanoTime()}) when this session ends.
+         * @param captureSender Whether this session should capture its output class.
+         */
+        Session(final String command, final long deadline, final boolean captureSender) {
+            this.command = command;
+            this.deadline = deadline;
+            this.captureSender = captureSender;
+        } // end method
+
+    } // end class
+
+    /**
+     * The "sessions active" fast-path flag.
+     */
+    private static final AtomicBoolean active = new AtomicBoolean(false);
+
+    /**
+     * Running sessions, mapped by ID of their dispatching thread.
+     */
+    private static final Map<Long, Session> sessions = new ConcurrentHashMap<Long, Session>();
+
+    /**
+     * Captured output classes of muted commands, mapped to the session which captured them
+     * and whose deadline is the time when they should stop being muted.
+     */
+    private static final Map<String, Session> mutedClasses = new ConcurrentHashMap<String, Session>();
+
+    /**
+     * Time (from {@link System#nanoTime()}) when the last of the current sessions ends.
+     */
+    private static volatile long latestDeadline = 0;
+
+    /**
+     * Utility class, no instances.
+     */
+    private MuteSessions() {
+    } // end method
+
+    /**
+     * Starts a new mute session for the current thread, replacing any previous
+     * session of this thread.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // a muted command is about to be dispatched
+     * MuteSessions.start(commandLine, true);
+     * Bukkit.dispatchCommand(sender, commandLine);
+     * }
+     * </pre>
+     *
+     * @param command The command line being dispatched.
+     * @param captureSender Whether the first class sending a message from this thread
+     *                      should be captured and muted as this command's output class.
+     *
+     * @return Returns the new session, which can later be ended via {@link #end(Session)}.
+     */
+    public static synchronized Session start(final String command, final boolean captureSender) {
+        final long deadline = System.nanoTime() + WINDOW_NANOS;
+        final Session session = new Session(command, deadline, captureSender);
+
+        sessions.put(Thread.currentThread().getId(), session);
+        latestDeadline = deadline;
+        active.set(true);
+
+        // publish the flag for code injected into server classes
+        if (active != System.getProperties().get(ACTIVE_PROPERTY)) {
+            System.getProperties().put(ACTIVE_PROPERTY, active);
+        }
+
+        return session;
+    } // end method
+
+    /**
+     * Ends the mute session of the current thread, once the dispatch of its muted command finishes.
+     * Output classes captured by that session stay muted until its window closes,
+     * as they may still send messages from other threads.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * MuteSessions.start(commandLine, true);
+     * try {
+     *     Bukkit.dispatchCommand(sender, commandLine);
+     * } finally {
+     *     MuteSessions.end();
+     * }
+     * }
+     * </pre>
+     */
+    public static synchronized void end() {
+        sessions.remove(Thread.currentThread().getId());
+
+        if (sessions.isEmpty() && mutedClasses.isEmpty()) {
+            active.set(false);
+        }
+    } // end method
+
+    /**
+     * Ends the given mute session, unless the current thread has started a newer session since.
+     * Used when a session is ended later than its dispatch, such as on the next server tick,
+     * when another muted command may already be running on the same thread.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final MuteSessions.Session session = MuteSessions.start(commandLine, true);
+     * // ... the server dispatches the command, then on the next tick:
+     * MuteSessions.end(session);
+     * }
+     * </pre>
+     *
+     * @param session The session to end, as returned by {@link #start(String, boolean)}.
+     */
+    public static synchronized void end(final Session session) {
+        sessions.remove(Thread.currentThread().getId(), session);
+
+        if (sessions.isEmpty() && mutedClasses.isEmpty()) {
+            active.set(false);
+        }
+    } // end method
+
+    /**
+     * Checks whether any mute session is running at all. This is the fast path
+     * which should always be checked first.
+     *
+     * @return Returns true if any mute session might be running, false otherwise.
+     */
+    public static boolean isActive() {
+        return active.get();
+    } // end method
+
+    /**
+     * Checks whether a message sent by the given class should be muted.
+     * Called from the code injected into server classes via /aa_mutecommand.
+     *
+     * @param callerClassName Name of the class which is sending the message.
+     *
+     * @return Returns true if the message should be muted, false otherwise.
+     */
+    public static boolean shouldMuteMessage(final String callerClassName) {
+        return null != getMessageMute(callerClassName);
+    } // end method
+
+    /**
+     * Finds the muted command on behalf of which a message sent by the given class should be muted.
+     * Called from the code injected into server classes via /aa_mutecommand.
+     *
+     * @param callerClassName Name of the class which is sending the message.
+     *
+     * @return Returns the muted command which suppresses this message or null if it should not be muted.
+     */
+    public static String getMessageMute(String callerClassName) {
+        if (!active.get() || null == callerClassName) {
+            return null;
+        }
+
+        final long now = System.nanoTime();
+        if (0 <= now - latestDeadline) {
+            expire(now);
+            return null;
+        }
+
+        // only consider main classes, as their subclasses are part of them
+        if (callerClassName.contains("$")) {
+            callerClassName = callerClassName.substring(0, callerClassName.indexOf('$'));
+        }
+
+        // the first class sending a message from the dispatching thread is the muted command's output class
+        final Session session = sessions.get(Thread.currentThread().getId());
+        if (null != session && session.captureSender && !session.captured && 0 > now - session.deadline) {
+            session.captured = true;
+            mutedClasses.put(callerClassName, session);
+            return session.command;
+        }
+
+        final Session classSession = mutedClasses.get(callerClassName);
+        return null != classSession && 0 > now - classSession.deadline ? classSession.command : null;
+    } // end method
+
+    /**
+     * Checks whether a log record logged from the current thread should be muted,
+     * i.e. whether this thread is dispatching a muted command.
+     * Used by the {@link com.martinambrus.adminAnything.LogFilter}.
+     *
+     * @return Returns true if the log record should be muted, false otherwise.
+     */
+    public static boolean shouldMuteLogRecord() {
+        return null != getThreadMute();
+    } // end method
+
+    /**
+     * Finds the command of the mute session running on the current thread, if any.
+     * Output produced by this thread while the session runs belongs to that command.
+     *
+     * @return Returns the command of the current thread's running session or null if there is none.
+     */
+    public static String getThreadMute() {
+        if (!active.get()) {
+            return null;
+        }
+
+        final long now = System.nanoTime();
+        if (0 <= now - latestDeadline) {
+            expire(now);
+            return null;
+        }
+
+        final Session session = sessions.get(Thread.currentThread().getId());
+        return null != session && 0 > now - session.deadline ? session.command : null;
+    } // end method
+
+    /**
+     * Removes all sessions and muted classes which have already ended
+     * and clears the "sessions active" flag if none of them are left.
+     *
+     * @param now Current time, from {@link System#nanoTime()}.
+     */
+    private static synchronized void expire(final long now) {
+        final Iterator<Session> sessionsIterator = sessions.values().iterator();
+        while (sessionsIterator.hasNext()) {
+            if (0 <= now - sessionsIterator.next().deadline) {
+                sessionsIterator.remove();
+            }
+        }
+
+        final Iterator<Session> classesIterator = mutedClasses.values().iterator();
+        while (classesIterator.hasNext()) {
+            if (0 <= now - classesIterator.next().deadline) {
+                classesIterator.remove();
+            }
+        }
+
+        // a new session could have been started while we were waiting for the lock
+        if (sessions.isEmpty() && mutedClasses.isEmpty()) {
+            active.set(false);
+        }
+    } // end method
+
+    /**
+     * Ends all running sessions and stops publishing the "sessions active" flag.
+     * Used when AdminAnything is being disabled.
+     */
+    static synchronized void clear() {
+        sessions.clear();
+        mutedClasses.clear();
+        active.set(false);
+        System.getProperties().remove(ACTIVE_PROPERTY, active);
+    } // end method
+
+} // end class
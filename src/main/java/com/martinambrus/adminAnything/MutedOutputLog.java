@@ -0,0 +1,341 @@
+package com.martinambrus.adminAnything;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps recent output suppressed by /aa_mutecommand for selected muted commands,
+ * configured in the muteLog.commands section of AA's config, so noisy commands
+ * can stay muted while their output can still be inspected via /aa_mutelog.
+ *
+ * Each captured command gets its own fixed-size lock-free ring buffer, so capturing
+ * never blocks the thread sending the message and the oldest lines are simply overwritten
+ * once the buffer is full. Commands which are not captured only cost a single flag check.
+ *
+ * @author Martin Ambrus
+ */
+public final class MutedOutputLog {
+
+    /**
+     * A single captured line of output.
+     */
+    public static final class Entry {
+
+        /**
+         * Sequence number of this entry in its ring buffer.
+         */
+        private final long sequence;
+
+        /**
+         * Time (in milliseconds) when this line was suppressed.
+         */
+        private final long time;
+
+        /**
+         * The suppressed line itself.
+         */
+        private final String line;
+
+        /**
+         * Constructor, creates a new entry.
+         *
+         * @param sequence Sequence number of this entry in its ring buffer.
+         * @param time Time (in milliseconds) when this line was suppressed.
+         * @param line The suppressed line itself.
+         */
+        Entry(final long sequence, final long time, final String line) {
+            this.sequence = sequence;
+            this.time = time;
+            this.line = line;
+        } // end method
+
+        /**
+         * Gets the time when this line was suppressed.
+         *
+         * @return Returns the time (in milliseconds) when this line was suppressed.
+         */
+        public long getTime() {
+            return time;
+        } // end method
+
+        /**
+         * Gets the suppressed line.
+         *
+         * @return Returns the suppressed line itself.
+         */
+        public String getLine() {
+            return line;
+        } // end method
+
+    } // end class
+
+    /**
+     * Lock-free ring buffer of lines captured for a single command.
+     */
+    private static final class Ring {
+
+        /**
+         * The ring buffer itself.
+         */
+        private final AtomicReferenceArray<Entry> slots;
+
+        /**
+         * Sequence number of the next line to be captured.
+         */
+        private final AtomicLong head = new AtomicLong();
+
+        /**
+         * Constructor, creates an empty ring buffer.
+         *
+         * @param capacity Maximum number of lines to keep.
+         */
+        Ring(final int capacity) {
+            slots = new AtomicReferenceArray<Entry>(capacity);
+        } // end method
+
+        /**
+         * Adds a line into this buffer, overwriting the oldest one if the buffer is full.
+         *
+         * @param line The line to add.
+         */
+        void add(final String line) {
+            final long sequence = head.getAndIncrement();
+            slots.set((int) (sequence % slots.length()), new Entry(sequence, System.currentTimeMillis(), line));
+        } // end method
+
+        /**
+         * Gets all lines currently held in this buffer, oldest first.
+         * Lines overwritten while reading are skipped.
+         *
+         * @return Returns all lines currently held in this buffer.
+         */
+        List<Entry> snapshot() {
+            final long end = head.get();
+            final List<Entry> entries = new ArrayList<Entry>();
+
+            for (long sequence = Math.max(0, end - slots.length()); sequence < end; sequence++) {
+                final Entry entry = slots.get((int) (sequence % slots.length()));
+                if (null != entry && entry.sequence == sequence) {
+                    entries.add(entry);
+                }
+            }
+
+            return entries;
+        } // end method
+
+        /**
+         * Gets the number of lines which didn't fit into this buffer and were overwritten.
+         *
+         * @return Returns the number of overwritten lines.
+         */
+        long getDropped() {
+            return Math.max(0, head.get() - slots.length());
+        } // end method
+
+    } // end class
+
+    /**
+     * Config value which captures output of all muted commands.
+     */
+    private static final String ALL_COMMANDS = "*";
+
+    /**
+     * Ring buffers of all commands captured so far, mapped by the lower-cased muted command.
+     */
+    private static final ConcurrentMap<String, Ring> rings = new ConcurrentHashMap<String, Ring>();
+
+    /**
+     * Lower-cased muted commands whose output should be captured.
+     */
+    private static volatile Set<String> captured = Collections.emptySet();
+
+    /**
+     * Whether output of all muted commands should be captured.
+     */
+    private static volatile boolean captureAll = false;
+
+    /**
+     * Whether anything should be captured at all, checked first on every suppressed line.
+     */
+    private static volatile boolean active = false;
+
+    /**
+     * Maximum number of lines to keep for each captured command.
+     */
+    private static volatile int maxLines = 100;
+
+    /**
+     * Utility class, no instances.
+     */
+    private MutedOutputLog() {
+    } // end method
+
+    /**
+     * Starts capturing suppressed output of the given muted commands,
+     * replacing any previous configuration. Lines captured so far are kept
+     * for commands which are still captured.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // keep the last 50 suppressed lines of /warp and /vote
+     * MutedOutputLog.load(Arrays.asList("warp", "vote"), 50);
+     * }
+     * </pre>
+     *
+     * @param commands Muted commands to capture output of, as they were muted via /aa_mutecommand.
+     *                 A single * captures output of all muted commands.
+     * @param linesPerCommand Maximum number of lines to keep for each command.
+     */
+    public static synchronized void load(final Collection<String> commands, final int linesPerCommand) {
+        final Set<String> newCaptured = new HashSet<String>();
+        boolean all = false;
+
+        for (final String command : commands) {
+            if (ALL_COMMANDS.equals(command.trim())) {
+                all = true;
+            } else if (!normalize(command).isEmpty()) {
+                newCaptured.add(normalize(command));
+            }
+        }
+
+        // buffers of a different size need to be re-created
+        if (Math.max(1, linesPerCommand) != maxLines) {
+            rings.clear();
+        }
+
+        maxLines = Math.max(1, linesPerCommand);
+        captured = Collections.unmodifiableSet(newCaptured);
+        captureAll = all;
+        active = all || !newCaptured.isEmpty();
+
+        if (!all) {
+            rings.keySet().retainAll(newCaptured);
+        }
+    } // end method
+
+    /**
+     * Normalizes a command the same way for capturing and lookups.
+     *
+     * @param command The command to normalize.
+     *
+     * @return Returns the trimmed and lower-cased command without a leading slash.
+     */
+    private static String normalize(final String command) {
+        final String trimmed = command.trim();
+        return (trimmed.startsWith("/") ? trimmed.substring(1) : trimmed).toLowerCase(Locale.ENGLISH);
+    } // end method
+
+    /**
+     * Checks whether output of the given muted command is being captured.
+     *
+     * @param command The muted command to check.
+     *
+     * @return Returns true if suppressed output of this command is being captured, false otherwise.
+     */
+    public static boolean isCaptured(final String command) {
+        return active && null != command && (captureAll || captured.contains(normalize(command)));
+    } // end method
+
+    /**
+     * Captures a line suppressed while muting the given command, if that command is being captured.
+     *
+     * @param command The muted command whose output was suppressed.
+     * @param line The suppressed line.
+     */
+    public static void capture(final String command, final String line) {
+        if (!active || null == line || !isCaptured(command)) {
+            return;
+        }
+
+        final String key = normalize(command);
+        Ring ring = rings.get(key);
+        if (null == ring) {
+            final Ring newRing = new Ring(maxLines);
+            ring = rings.putIfAbsent(key, newRing);
+            if (null == ring) {
+                ring = newRing;
+            }
+        }
+
+        ring.add(line);
+    } // end method
+
+    /**
+     * Captures a message suppressed in any of the server methods instrumented
+     * by /aa_mutecommand, i.e. methods whose first parameter is a String or an array of Strings.
+     *
+     * @param command The muted command whose output was suppressed.
+     * @param args Parameters of the instrumented method.
+     */
+    public static void capture(final String command, final Object[] args) {
+        if (!active || null == args || 0 == args.length) {
+            return;
+        }
+
+        if (args[0] instanceof String) {
+            capture(command, (String) args[0]);
+        } else if (args[0] instanceof String[]) {
+            for (final String line : (String[]) args[0]) {
+                capture(command, line);
+            }
+        }
+    } // end method
+
+    /**
+     * Gets recent suppressed output of the given muted command.
+     *
+     * @param command The muted command to get output of.
+     *
+     * @return Returns all lines currently kept for this command, oldest first.
+     */
+    public static List<Entry> getEntries(final String command) {
+        final Ring ring = rings.get(normalize(command));
+        return null == ring ? Collections.<Entry>emptyList() : ring.snapshot();
+    } // end method
+
+    /**
+     * Gets the number of suppressed lines of the given muted command
+     * which were dropped because they didn't fit into its buffer.
+     *
+     * @param command The muted command to check.
+     *
+     * @return Returns the number of dropped lines.
+     */
+    public static long getDropped(final String command) {
+        final Ring ring = rings.get(normalize(command));
+        return null == ring ? 0 : ring.getDropped();
+    } // end method
+
+    /**
+     * Gets all muted commands which have any captured output.
+     *
+     * @return Returns a sorted list of all muted commands with captured output.
+     */
+    public static List<String> getCapturedCommands() {
+        final List<String> commands = new ArrayList<String>(rings.keySet());
+        Collections.sort(commands);
+        return commands;
+    } // end method
+
+    /**
+     * Stops capturing and removes all captured output.
+     * Used when AdminAnything is being disabled.
+     */
+    static synchronized void clear() {
+        active = false;
+        captureAll = false;
+        captured = Collections.emptySet();
+        rings.clear();
+    } // end method
+
+} // end class
@@ -0,0 +1,157 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registry of plugin output lines to mute, configured as literal or wildcard
+ * patterns in the mutedOutput section of AA's config and compiled
+ * into a single {@link com.martinambrus.adminAnything.OutputPatternMatcher}.
+ *
+ * Both the {@link com.martinambrus.adminAnything.LogFilter} and the code injected
+ * into server classes by /aa_mutecommand check these, so noisy plugin broadcasts
+ * can be muted in console as well as in player chat.
+ *
+ * As with {@link com.martinambrus.adminAnything.MuteSessions}, a single "patterns active"
+ * flag is checked first and published via system properties for the injected code.
+ *
+ * @author Martin Ambrus
+ */
+public final class OutputMutes {
+
+    /**
+     * Name of the system property holding the "patterns active" flag
+     * as an {@link java.util.concurrent.atomic.AtomicBoolean}.
+     */
+    public static final String ACTIVE_PROPERTY = "com.martinambrus.adminAnything.outputMutesActive"; //NON-NLS
+
+    /**
+     * The "patterns active" fast-path flag.
+     */
+    private static final AtomicBoolean active = new AtomicBoolean(false);
+
+    /**
+     * The matcher compiled from all currently configured patterns.
+     */
+    private static volatile OutputPatternMatcher matcher = new OutputPatternMatcher(Collections.<String>emptyList());
+
+    /**
+     * Utility class, no instances.
+     */
+    private OutputMutes() {
+    } // end method
+
+    /**
+     * Compiles the given patterns and starts muting all output lines matching them,
+     * replacing any previously loaded patterns. Invalid patterns are reported in console.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * OutputMutes.load(Arrays.asList("[AutoMessage]*", "* has voted for the server"));
+     * }
+     * </pre>
+     *
+     * @param patterns The patterns to mute output lines by.
+     *
+     * @return Returns the number of patterns which were loaded.
+     */
+    public static synchronized int load(final Collection<String> patterns) {
+        final List<String> valid = new ArrayList<String>();
+
+        for (final String pattern : patterns) {
+            if (OutputPatternMatcher.isValidPattern(pattern)) {
+                valid.add(pattern);
+            } else {
+                Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+                    .__("output.invalid-pattern", pattern));
+            }
+        }
+
+        matcher = new OutputPatternMatcher(valid);
+        active.set(!matcher.isEmpty());
+
+        // publish the flag for code injected into server classes
+        if (active.get() && active != System.getProperties().get(ACTIVE_PROPERTY)) {
+            System.getProperties().put(ACTIVE_PROPERTY, active);
+        }
+
+        return matcher.getPatterns().size();
+    } // end method
+
+    /**
+     * Checks whether any output patterns are loaded at all. This is the fast path
+     * which should always be checked first.
+     *
+     * @return Returns true if any output patterns are loaded, false otherwise.
+     */
+    public static boolean isActive() {
+        return active.get();
+    } // end method
+
+    /**
+     * Checks whether the given output line should be muted.
+     *
+     * @param line The line to check, i.e. a log message or a chat message.
+     *
+     * @return Returns true if the line matches any of the loaded patterns, false otherwise.
+     */
+    public static boolean shouldMute(final String line) {
+        return active.get() && matcher.matches(line);
+    } // end method
+
+    /**
+     * Checks whether a message sent via any of the server methods instrumented
+     * by /aa_mutecommand should be muted. Only text messages are checked, i.e. methods
+     * whose first parameter is a String or an array of Strings.
+     *
+     * @param args Parameters of the instrumented method.
+     *
+     * @return Returns true if the message matches any of the loaded patterns, false otherwise.
+     */
+    public static boolean shouldMute(final Object[] args) {
+        if (!active.get() || null == args || 0 == args.length) {
+            return false;
+        }
+
+        if (args[0] instanceof String) {
+            return matcher.matches((String) args[0]);
+        }
+
+        // multi-line messages are muted when any of their lines match
+        if (args[0] instanceof String[]) {
+            for (final String line : (String[]) args[0]) {
+                if (matcher.matches(line)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    } // end method
+
+    /**
+     * Gets all currently loaded patterns.
+     *
+     * @return Returns an unmodifiable list of all currently loaded patterns.
+     */
+    public static List<String> getPatterns() {
+        return matcher.getPatterns();
+    } // end method
+
+    /**
+     * Unloads all patterns and stops publishing the "patterns active" flag.
+     * Used when AdminAnything is being disabled.
+     */
+    static synchronized void clear() {
+        matcher = new OutputPatternMatcher(Collections.<String>emptyList());
+        active.set(false);
+        System.getProperties().remove(ACTIVE_PROPERTY, active);
+    } // end method
+
+} // end class
@@ -0,0 +1,333 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Matches lines of plugin output against any number of literal or wildcard
+ * patterns in a single pass, using an Aho-Corasick automaton compiled
+ * from all literal parts of all patterns.
+ *
+ * Patterns are case-insensitive and match anywhere within a line, with color codes
+ * removed. A * in a pattern matches any number of characters, so "joined the * arena"
+ * matches "Bob joined the PvP arena!". Matching a line never takes longer
+ * with more patterns, only with longer lines.
+ *
+ * Instances are immutable and can be used from any thread.
+ *
+ * @author Martin Ambrus
+ */
+public final class OutputPatternMatcher {
+
+    /**
+     * The wildcard character, which matches any number of characters.
+     */
+    private static final char WILDCARD = '*';
+
+    /**
+     * Patterns this matcher was compiled from, in their original form.
+     */
+    private final List<String> patterns;
+
+    /**
+     * Number of literal parts of each pattern.
+     */
+    private final int[] patternParts;
+
+    /**
+     * Pattern each literal part belongs to, indexed by ID of the part.
+     */
+    private final int[] partPattern;
+
+    /**
+     * Position of each literal part within its pattern, indexed by ID of the part.
+     */
+    private final int[] partIndex;
+
+    /**
+     * Length of each literal part, indexed by ID of the part.
+     */
+    private final int[] partLength;
+
+    /**
+     * Characters of all transitions from each state of the automaton, sorted for binary search.
+     */
+    private final char[][] transitionChars;
+
+    /**
+     * Target states of all transitions from each state of the automaton,
+     * in the same order as {@link #transitionChars}.
+     */
+    private final int[][] transitionTargets;
+
+    /**
+     * Failure link of each state of the automaton, i.e. the state for the longest
+     * proper suffix of this state's text which is also in the automaton.
+     */
+    private final int[] failure;
+
+    /**
+     * IDs of all literal parts ending in each state of the automaton,
+     * including the ones reachable via failure links.
+     */
+    private final int[][] output;
+
+    /**
+     * Constructor, compiles all valid patterns into a single automaton.
+     * Invalid patterns (see {@link #isValidPattern(String)}) are ignored.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final OutputPatternMatcher matcher = new OutputPatternMatcher(Arrays.asList("[Broadcast]*vote", "has joined the *"));
+     * if (matcher.matches(message)) {
+     *     // don't show this message
+     * }
+     * }
+     * </pre>
+     *
+     * @param patterns The patterns to compile.
+     */
+    public OutputPatternMatcher(final Collection<String> patterns) {
+        final List<String> validPatterns = new ArrayList<String>();
+        final List<String> parts = new ArrayList<String>();
+        final List<Integer> partsPatterns = new ArrayList<Integer>();
+        final List<Integer> partsIndexes = new ArrayList<Integer>();
+
+        for (final String pattern : patterns) {
+            if (!isValidPattern(pattern)) {
+                continue;
+            }
+
+            final int patternId = validPatterns.size();
+            int index = 0;
+            validPatterns.add(pattern);
+
+            for (final String part : normalize(pattern).split("\\" + WILDCARD)) {
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                    partsPatterns.add(patternId);
+                    partsIndexes.add(index++);
+                }
+            }
+        }
+
+        this.patterns = Collections.unmodifiableList(validPatterns);
+        patternParts = new int[validPatterns.size()];
+        partPattern = new int[parts.size()];
+        partIndex = new int[parts.size()];
+        partLength = new int[parts.size()];
+
+        for (int i = 0; i < parts.size(); i++) {
+            partPattern[i] = partsPatterns.get(i);
+            partIndex[i] = partsIndexes.get(i);
+            partLength[i] = parts.get(i).length();
+            patternParts[partPattern[i]]++;
+        }
+
+        // build the trie of all literal parts
+        final List<TreeMap<Character, Integer>> trie = new ArrayList<TreeMap<Character, Integer>>();
+        final List<List<Integer>> outputs = new ArrayList<List<Integer>>();
+        trie.add(new TreeMap<Character, Integer>());
+        outputs.add(new ArrayList<Integer>());
+
+        for (int i = 0; i < parts.size(); i++) {
+            int state = 0;
+            for (final char c : parts.get(i).toCharArray()) {
+                Integer next = trie.get(state).get(c);
+                if (null == next) {
+                    next = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    outputs.add(new ArrayList<Integer>());
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            outputs.get(state).add(i);
+        }
+
+        // compile transitions into sorted arrays
+        final int states = trie.size();
+        transitionChars = new char[states][];
+        transitionTargets = new int[states][];
+        failure = new int[states];
+        output = new int[states][];
+
+        for (int state = 0; state < states; state++) {
+            final TreeMap<Character, Integer> transitions = trie.get(state);
+            transitionChars[state] = new char[transitions.size()];
+            transitionTargets[state] = new int[transitions.size()];
+
+            int i = 0;
+            for (final Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                transitionChars[state][i] = transition.getKey();
+                transitionTargets[state][i++] = transition.getValue();
+            }
+        }
+
+        // compute failure links breadth-first, merging outputs of each state's failure state into its own
+        final Queue<Integer> queue = new ArrayDeque<Integer>();
+        for (final int child : transitionTargets[0]) {
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            final int state = queue.poll();
+
+            for (int i = 0; i < transitionChars[state].length; i++) {
+                final char c = transitionChars[state][i];
+                final int child = transitionTargets[state][i];
+
+                int fallback = failure[state];
+                while (0 != fallback && -1 == transition(fallback, c)) {
+                    fallback = failure[fallback];
+                }
+
+                final int target = transition(fallback, c);
+                failure[child] = (-1 == target || target == child) ? 0 : target;
+                outputs.get(child).addAll(outputs.get(failure[child]));
+                queue.add(child);
+            }
+        }
+
+        for (int state = 0; state < states; state++) {
+            final List<Integer> stateOutput = outputs.get(state);
+            output[state] = new int[stateOutput.size()];
+            for (int i = 0; i < stateOutput.size(); i++) {
+                output[state][i] = stateOutput.get(i);
+            }
+        }
+    } // end method
+
+    /**
+     * Checks whether the given pattern can be compiled, i.e. whether it contains
+     * at least a single character which is not a wildcard, since patterns
+     * made only of wildcards would mute everything.
+     *
+     * @param pattern The pattern to check.
+     *
+     * @return Returns true if the pattern is valid, false otherwise.
+     */
+    public static boolean isValidPattern(final String pattern) {
+        if (null == pattern) {
+            return false;
+        }
+
+        final String normalized = normalize(pattern);
+        for (int i = 0; i < normalized.length(); i++) {
+            if (WILDCARD != normalized.charAt(i)) {
+                return true;
+            }
+        }
+
+        return false;
+    } // end method
+
+    /**
+     * Prepares a line or a pattern for matching by removing color codes and lower-casing it.
+     *
+     * @param text The text to normalize.
+     *
+     * @return Returns the normalized text.
+     */
+    private static String normalize(final String text) {
+        final String stripped = ChatColor.stripColor(text);
+        return (null == stripped ? "" : stripped).toLowerCase(Locale.ENGLISH);
+    } // end method
+
+    /**
+     * Gets the target state of a transition in the automaton.
+     *
+     * @param state The state to transition from.
+     * @param c The character to transition with.
+     *
+     * @return Returns the target state or -1 if there is no such transition.
+     */
+    private int transition(final int state, final char c) {
+        final int i = Arrays.binarySearch(transitionChars[state], c);
+        return 0 > i ? -1 : transitionTargets[state][i];
+    } // end method
+
+    /**
+     * Checks whether any of the compiled patterns matches the given line.
+     *
+     * @param line The line to check, i.e. a log message or a chat message.
+     *
+     * @return Returns true if at least one pattern matches the given line, false otherwise.
+     */
+    public boolean matches(final String line) {
+        if (null == line || patterns.isEmpty()) {
+            return false;
+        }
+
+        final String text = normalize(line);
+
+        // progress of wildcard patterns, only allocated when we find their first part
+        int[] partsFound = null;
+        int[] nextPartStart = null;
+        int state = 0;
+
+        for (int position = 0; position < text.length(); position++) {
+            final char c = text.charAt(position);
+
+            int next = transition(state, c);
+            while (-1 == next && 0 != state) {
+                state = failure[state];
+                next = transition(state, c);
+            }
+            state = -1 == next ? 0 : next;
+
+            for (final int part : output[state]) {
+                final int pattern = partPattern[part];
+                if (1 == patternParts[pattern]) {
+                    return true;
+                }
+
+                if (null == partsFound) {
+                    partsFound = new int[patternParts.length];
+                    nextPartStart = new int[patternParts.length];
+                }
+
+                // parts of a wildcard pattern need to be found in their order and must not overlap,
+                // and since earliest occurrences leave the most room for the rest, we can take them greedily
+                if (partsFound[pattern] == partIndex[part] && position - partLength[part] + 1 >= nextPartStart[pattern]) {
+                    nextPartStart[pattern] = position + 1;
+                    if (++partsFound[pattern] == patternParts[pattern]) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    } // end method
+
+    /**
+     * Gets all patterns compiled into this matcher.
+     *
+     * @return Returns an unmodifiable list of all valid patterns compiled into this matcher.
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    } // end method
+
+    /**
+     * Checks whether there are no patterns compiled into this matcher.
+     *
+     * @return Returns true if this matcher has no patterns and thus never matches anything.
+     */
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    } // end method
+
+} // end class
@@ -0,0 +1,503 @@
+package com.martinambrus.adminAnything;
+
+import com.martinambrus.adminAnything.events.AAReloadEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.rmi.AccessException;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of permissions on the server, used by /aa_pluginperms and /aa_playerperms
+ * so they don't need to scan the whole commandMap and check every single permission node
+ * of a player via Vault each time they're run.
+ *
+ * The index maps plugins to their permission nodes (from their plugin.yml, registered
+ * {@link org.bukkit.permissions.Permission Permission} objects, their commands and our permdescriptions.yml file)
+ * and permission nodes to commands which use them. It is built lazily, plugin by plugin,
+ * and only the affected plugin is dropped from it when a plugin gets enabled or disabled.
+ *
+ * @author Martin Ambrus
+ */
+final class PermissionIndex implements Listener {
+
+    /**
+     * Time (in milliseconds) after which cached permissions of a player get recomputed,
+     * since permission plugins don't tell us when they change a player's permissions.
+     */
+    private static final long PLAYER_PERMS_TTL_MILLIS = 60000;
+
+    /**
+     * Maximum number of search results cached for a single plugin.
+     */
+    private static final int MAX_CACHED_SEARCHES = 16;
+
+    /**
+     * Indexed permissions of a single plugin.
+     */
+    private static final class PluginPermissions {
+
+        /**
+         * Permission nodes of the plugin, sorted alphabetically and mapped to their descriptions.
+         */
+        final SortedMap<String, String> descriptions = new TreeMap<String, String>();
+
+        /**
+         * Commands of the plugin (without leading slashes), keyed by permission nodes which give access to them.
+         */
+        final Map<String, SortedSet<String>> commands = new HashMap<String, SortedSet<String>>();
+
+        /**
+         * Recently searched permission nodes, keyed by the search string.
+         */
+        final Map<String, List<String>> searches = Collections.synchronizedMap(
+            new LinkedHashMap<String, List<String>>(MAX_CACHED_SEARCHES, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, List<String>> eldest) {
+                    return MAX_CACHED_SEARCHES < size();
+                }
+
+            });
+
+    } // end class
+
+    /**
+     * Cached permissions of a single player.
+     */
+    private static final class PlayerPermissions {
+
+        /**
+         * Time (in milliseconds) when these permissions were computed.
+         */
+        final long created = System.currentTimeMillis();
+
+        /**
+         * Fingerprint of the player's effective permissions these were computed from.
+         */
+        final int fingerprint;
+
+        /**
+         * Permissions of the player, sorted alphabetically ignoring case.
+         */
+        final List<String> permissions;
+
+        /**
+         * Constructor, stores the computed permissions.
+         *
+         * @param fingerprint Fingerprint of the player's effective permissions.
+         * @param permissions Permissions of the player, sorted alphabetically ignoring case.
+         */
+        PlayerPermissions(final int fingerprint, final List<String> permissions) {
+            this.fingerprint = fingerprint;
+            this.permissions = permissions;
+        } // end method
+
+    } // end class
+
+    /**
+     * Indexed permissions of plugins, keyed by lower-cased plugin names.
+     */
+    private final Map<String, PluginPermissions> plugins = new ConcurrentHashMap<String, PluginPermissions>();
+
+    /**
+     * Commands from the commandMap, keyed by lower-cased names of plugins they belong to,
+     * each mapped from its commandMap key. Null when it needs to be rebuilt.
+     */
+    private Map<String, Map<String, Command>> commandsByPlugin = null;
+
+    /**
+     * Registered permissions, keyed by their lower-cased first node (i.e. "essentials" for "essentials.home").
+     * Null when it needs to be rebuilt.
+     */
+    private Map<String, List<Permission>> registeredByPrefix = null;
+
+    /**
+     * Cached permissions of online players, keyed by their UUID.
+     */
+    private final Map<UUID, PlayerPermissions> players = new ConcurrentHashMap<UUID, PlayerPermissions>();
+
+    /**
+     * Finds permission nodes of the given plugin containing the given search string.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // all permission nodes of Essentials with "home" in them
+     * List<String> perms = aa_plugin_instance.getPermissionIndex().findPluginPermissions(essentials, "home");
+     * }
+     * </pre>
+     *
+     * @param plugin The plugin to find permissions for.
+     * @param search The string which found permission nodes must contain. Can be empty to return all nodes.
+     *
+     * @return Returns alphabetically sorted permission nodes of the plugin containing the search string.
+     *
+     * @throws IllegalAccessException When access is denied to the commandMap.
+     * @throws NoSuchMethodException When there is a get() method missing from the knownCommands field.
+     * @throws InvocationTargetException When we try to invoke get() on knownCommands with invalid commandMap parameter.
+     * @throws AccessException When we don't have the permission to access the knownCommands field of commandMap.
+     */
+    List<String> findPluginPermissions(final Plugin plugin, final String search)
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        final PluginPermissions indexed = getPluginPermissions(plugin);
+        List<String> found = indexed.searches.get(search);
+
+        if (null == found) {
+            found = new ArrayList<String>();
+            for (final String perm : indexed.descriptions.keySet()) {
+                if (search.isEmpty() || perm.contains(search)) {
+                    found.add(perm);
+                }
+            }
+
+            found = Collections.unmodifiableList(found);
+            indexed.searches.put(search, found);
+        }
+
+        return found;
+    } // end method
+
+    /**
+     * Gets description of a permission node of the given plugin.
+     *
+     * @param plugin The plugin this permission node belongs to.
+     * @param perm The permission node to get description for.
+     *
+     * @return Returns description of the permission node or null if the plugin doesn't have such node.
+     *
+     * @throws IllegalAccessException When access is denied to the commandMap.
+     * @throws NoSuchMethodException When there is a get() method missing from the knownCommands field.
+     * @throws InvocationTargetException When we try to invoke get() on knownCommands with invalid commandMap parameter.
+     * @throws AccessException When we don't have the permission to access the knownCommands field of commandMap.
+     */
+    String getPermissionDescription(final Plugin plugin, final String perm)
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        return getPluginPermissions(plugin).descriptions.get(perm);
+    } // end method
+
+    /**
+     * Gets commands of the given plugin which the given permission node gives access to.
+     *
+     * @param plugin The plugin this permission node belongs to.
+     * @param perm The permission node to get commands for.
+     *
+     * @return Returns alphabetically sorted command names (without leading slashes), empty if there are none.
+     *
+     * @throws IllegalAccessException When access is denied to the commandMap.
+     * @throws NoSuchMethodException When there is a get() method missing from the knownCommands field.
+     * @throws InvocationTargetException When we try to invoke get() on knownCommands with invalid commandMap parameter.
+     * @throws AccessException When we don't have the permission to access the knownCommands field of commandMap.
+     */
+    Collection<String> getPermissionCommands(final Plugin plugin, final String perm)
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        final SortedSet<String> commands = getPluginPermissions(plugin).commands.get(perm.toLowerCase());
+        return null == commands ? Collections.<String>emptySet() : Collections.unmodifiableSortedSet(commands);
+    } // end method
+
+    /**
+     * Gets indexed permissions of the given plugin, indexing them first if needed.
+     *
+     * @param plugin The plugin to get indexed permissions for.
+     *
+     * @return Returns indexed permissions of the given plugin.
+     *
+     * @throws IllegalAccessException When access is denied to the commandMap.
+     * @throws NoSuchMethodException When there is a get() method missing from the knownCommands field.
+     * @throws InvocationTargetException When we try to invoke get() on knownCommands with invalid commandMap parameter.
+     * @throws AccessException When we don't have the permission to access the knownCommands field of commandMap.
+     */
+    private synchronized PluginPermissions getPluginPermissions(final Plugin plugin)
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        final String pluginName = plugin.getName().toLowerCase();
+        PluginPermissions indexed = plugins.get(pluginName);
+
+        if (null == indexed) {
+            indexed = indexPlugin(plugin, pluginName);
+            plugins.put(pluginName, indexed);
+        }
+
+        return indexed;
+    } // end method
+
+    /**
+     * Goes through the commandMap and all registered permissions once, sorting them by plugins
+     * they belong to, so each plugin can be indexed without going through all of them again.
+     *
+     * @throws IllegalAccessException When access is denied to the commandMap.
+     * @throws NoSuchMethodException When there is a get() method missing from the knownCommands field.
+     * @throws InvocationTargetException When we try to invoke get() on knownCommands with invalid commandMap parameter.
+     * @throws AccessException When we don't have the permission to access the knownCommands field of commandMap.
+     */
+    private void groupByPlugins()
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        final Map<String, Map<String, Command>> commands = new HashMap<String, Map<String, Command>>();
+
+        for (final Entry<String, Command> pair : AA_API.getCommandMapCopy().entrySet()) {
+            // plugin commands know their plugin, any other commands can only be recognized by their prefix
+            final String pluginName = (pair.getValue() instanceof PluginCommand)
+                                      ? ((PluginCommand) pair.getValue()).getPlugin().getName().toLowerCase()
+                                      : AA_API.getClearCommand(pair.getKey().toLowerCase())[0];
+
+            if (!commands.containsKey(pluginName)) {
+                commands.put(pluginName, new HashMap<String, Command>());
+            }
+
+            commands.get(pluginName).put(pair.getKey(), pair.getValue());
+        }
+
+        final Map<String, List<Permission>> registered = new HashMap<String, List<Permission>>();
+
+        for (final Permission permission : Bukkit.getPluginManager().getPermissions()) {
+            final String name = permission.getName().toLowerCase();
+            final String prefix = name.contains(".") ? name.substring(0, name.indexOf('.')) : name;
+
+            if (!registered.containsKey(prefix)) {
+                registered.put(prefix, new ArrayList<Permission>());
+            }
+
+            registered.get(prefix).add(permission);
+        }
+
+        commandsByPlugin = commands;
+        registeredByPrefix = registered;
+    } // end method
+
+    /**
+     * Indexes permissions of a single plugin.
+     *
+     * @param plugin The plugin to index permissions of.
+     * @param pluginName Lower-cased name of the plugin.
+     *
+     * @return Returns indexed permissions of the plugin.
+     *
+     * @throws IllegalAccessException When access is denied to the commandMap.
+     * @throws NoSuchMethodException When there is a get() method missing from the knownCommands field.
+     * @throws InvocationTargetException When we try to invoke get() on knownCommands with invalid commandMap parameter.
+     * @throws AccessException When we don't have the permission to access the knownCommands field of commandMap.
+     */
+    private PluginPermissions indexPlugin(final Plugin plugin, final String pluginName)
+        throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, AccessException {
+        if (null == commandsByPlugin) {
+            groupByPlugins();
+        }
+
+        final PluginPermissions indexed = new PluginPermissions();
+
+        // load custom permission descriptions for permissions of those plugins
+        // which do not include their description in their plugin.yml
+        final ManualPermDescriptions permsFromConfig = AA_API.getManualPermDescriptions();
+
+        // go the plugin.yml route first
+        for (final Permission permission : plugin.getDescription().getPermissions()) {
+            indexed.descriptions.put(permission.getName(), permission.getDescription());
+        }
+
+        // then add permissions the plugin registered on its own, named after the plugin
+        if (registeredByPrefix.containsKey(pluginName)) {
+            for (final Permission permission : registeredByPrefix.get(pluginName)) {
+                if (!indexed.descriptions.containsKey(permission.getName())) {
+                    indexed.descriptions.put(permission.getName(), permission.getDescription());
+                }
+            }
+        }
+
+        // then load any additional permissions for commands that were loaded dynamically
+        if (commandsByPlugin.containsKey(pluginName)) {
+            for (final Entry<String, Command> pair : commandsByPlugin.get(pluginName).entrySet()) {
+                // prepare a clear command name, without any colons
+                final String clearCommandName = (pair.getKey().contains(":")
+                                                 ? pair.getKey().substring(pair.getKey().indexOf(':') + 1)
+                                                 : pair.getKey());
+
+                // load permissions from the internal config file and fallback to the getPermission() method if nothing is found
+                final String defaultPerm = pair.getValue().getPermission();
+                final int manualCommand = permsFromConfig.findCommand(pluginName, clearCommandName);
+                final int manualPermsCount = permsFromConfig.getPermissionCount(manualCommand);
+
+                if (0 < manualPermsCount) {
+                    // the last permission listed for this command is the one we show
+                    final String perm = permsFromConfig.getPermission(manualCommand, manualPermsCount - 1);
+                    final String desc = permsFromConfig.getPermissionDescription(manualCommand, manualPermsCount - 1);
+
+                    if (!indexed.descriptions.containsKey(perm)) {
+                        indexed.descriptions.put(perm, null == desc ? "" : desc);
+                    }
+
+                    for (int i = 0; i < manualPermsCount; i++) {
+                        addCommand(indexed, permsFromConfig.getPermission(manualCommand, i), clearCommandName);
+                    }
+                } else if (null != defaultPerm && !defaultPerm.isEmpty()) {
+                    if (!indexed.descriptions.containsKey(defaultPerm)) {
+                        indexed.descriptions.put(defaultPerm, pair.getValue().getDescription());
+                    }
+
+                    // Bukkit allows for multiple permissions separated by semicolons
+                    for (final String perm : defaultPerm.split(";")) {
+                        addCommand(indexed, perm, clearCommandName);
+                    }
+                }
+            }
+        }
+
+        // load any permissions from the manual list, if any
+        for (final String clearCommandName : permsFromConfig.getCommandNames(pluginName)) {
+            final int manualCommand = permsFromConfig.findCommand(pluginName, clearCommandName);
+            final int manualPermsCount = permsFromConfig.getPermissionCount(manualCommand);
+
+            if (0 < manualPermsCount) {
+                // the last permission listed for this command is the one we show
+                final String perm = permsFromConfig.getPermission(manualCommand, manualPermsCount - 1);
+                final String desc = permsFromConfig.getPermissionDescription(manualCommand, manualPermsCount - 1);
+
+                if (!indexed.descriptions.containsKey(perm)) {
+                    indexed.descriptions.put(perm, null == desc ? "" : desc);
+                }
+
+                for (int i = 0; i < manualPermsCount; i++) {
+                    addCommand(indexed, permsFromConfig.getPermission(manualCommand, i), clearCommandName);
+                }
+            }
+        }
+
+        return indexed;
+    } // end method
+
+    /**
+     * Links a command to a permission node which gives access to it.
+     *
+     * @param indexed Indexed permissions of the plugin this command belongs to.
+     * @param perm The permission node.
+     * @param commandName Name of the command, without a leading slash.
+     */
+    private static void addCommand(final PluginPermissions indexed, final String perm, final String commandName) {
+        final String key = perm.trim().toLowerCase();
+        if (key.isEmpty()) {
+            return;
+        }
+
+        if (!indexed.commands.containsKey(key)) {
+            indexed.commands.put(key, new TreeSet<String>());
+        }
+
+        indexed.commands.get(key).add(commandName);
+    } // end method
+
+    /**
+     * Gets all permissions of the given player. These are only recomputed when the player's
+     * effective permissions change or when they get too old, so we don't have to double-check
+     * every single one of them via Vault each time.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * for (String perm : aa_plugin_instance.getPermissionIndex().getPlayerPermissions(player)) {
+     *     // do something
+     * }
+     * }
+     * </pre>
+     *
+     * @param p The player to get permissions for.
+     *
+     * @return Returns all permissions of the player, sorted alphabetically ignoring case.
+     */
+    List<String> getPlayerPermissions(final Player p) {
+        final Set<PermissionAttachmentInfo> effective = p.getEffectivePermissions();
+
+        // a cheap fingerprint, so we know whether the player's permissions changed since we've last seen them
+        int fingerprint = effective.size();
+        for (final PermissionAttachmentInfo perm : effective) {
+            fingerprint = 31 * fingerprint + perm.getPermission().hashCode() + (perm.getValue() ? 1 : 0);
+        }
+
+        PlayerPermissions cached = players.get(p.getUniqueId());
+
+        if (null == cached || fingerprint != cached.fingerprint
+            || PLAYER_PERMS_TTL_MILLIS < System.currentTimeMillis() - cached.created) {
+            final List<String> perms = new ArrayList<String>();
+            for (final PermissionAttachmentInfo perm : effective) {
+                // add Vault support for double-checking on PEX and other perm systems (negative perms will still be assigned as perm attachments otherwise)
+                if (AA_API.isVaultEnabled() && !AA_API.checkPerms(p, perm.getPermission(), false)) {
+                    continue;
+                }
+
+                perms.add(perm.getPermission());
+            }
+
+            // sort them alphabetically
+            Collections.sort(perms, String.CASE_INSENSITIVE_ORDER);
+
+            cached = new PlayerPermissions(fingerprint, Collections.unmodifiableList(perms));
+            players.put(p.getUniqueId(), cached);
+        }
+
+        return cached.permissions;
+    } // end method
+
+    /**
+     * Drops the given plugin from the index, together with the commandMap grouping,
+     * as the plugin may have brought new commands.
+     *
+     * @param e The actual plugin enable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public synchronized void onPluginEnable(final PluginEnableEvent e) {
+        plugins.remove(e.getPlugin().getName().toLowerCase());
+        commandsByPlugin = null;
+        registeredByPrefix = null;
+    } // end method
+
+    /**
+     * Drops the given plugin from the index, together with the commandMap grouping.
+     *
+     * @param e The actual plugin disable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public synchronized void onPluginDisable(final PluginDisableEvent e) {
+        plugins.remove(e.getPlugin().getName().toLowerCase());
+        commandsByPlugin = null;
+        registeredByPrefix = null;
+    } // end method
+
+    /**
+     * Forgets cached permissions of a player when they leave the server.
+     *
+     * @param e The actual player quit event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final PlayerQuitEvent e) {
+        players.remove(e.getPlayer().getUniqueId());
+    } // end method
+
+    /***
+     * React to the custom ReloadEvent which is fired when /aa_reload gets executed,
+     * as our permdescriptions.yml file may have changed.
+     *
+     * @param e The actual reload event with message that says who is this reload for.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public synchronized void reload(final AAReloadEvent e) {
+        final String msg = e.getMessage();
+        if (null != msg && msg.isEmpty()) {
+            plugins.clear();
+            players.clear();
+            commandsByPlugin = null;
+            registeredByPrefix = null;
+        }
+    } // end method
+
+} // end class
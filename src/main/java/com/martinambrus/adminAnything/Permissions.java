@@ -5,9 +5,14 @@ import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.Permissible;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.RegisteredServiceProvider;
 
+import java.util.*;
+import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -55,6 +60,31 @@ final class Permissions {
      */
     private final Pattern oneLinerOrRegex = Pattern.compile("\\(?[^ (]+ OR +([^ )]+)?\\)?", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
 
+    /**
+     * Name of the parent permission node which grants all virtual permissions at once.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    static final String VIRTUAL_PERMISSIONS_PARENT = "aa.virtualperms.*";
+
+    /**
+     * Virtual permissions added via /aa_addperm, keyed by the command line they guard.
+     * Replaced as a whole every time virtual permissions are reloaded, so it can be read without locking.
+     */
+    private volatile Map<String, String[]> commandVirtualPermissions = Collections.emptyMap();
+
+    /**
+     * Whether virtual permissions are registered as native Bukkit permission nodes
+     * and checked directly via {@link org.bukkit.permissions.Permissible#hasPermission(String) hasPermission()}.
+     */
+    private volatile boolean virtualPermissionNodesEnabled = false;
+
+    /**
+     * Names of all permission nodes we've registered with Bukkit for virtual permissions,
+     * so we can unregister them again when they're removed or when AA is disabled.
+     * Nodes which were already registered by other plugins are never put here.
+     */
+    private final Set<String> registeredVirtualPermissionNodes = new HashSet<String>();
+
     /**
      * Constructor.
      * Hooks into the <a href="https://dev.bukkit.org/projects/vault">Vault</a> permissions manager.
@@ -280,6 +310,25 @@ final class Permissions {
      * @return Returns true if the sender has the requested permission(s), false otherwise.
      */
     boolean checkPerms(final CommandSender sender, final String permsQuery, final boolean showResultToSender) {
+        final long start = System.nanoTime();
+        try {
+            return evaluatePerms(sender, permsQuery, showResultToSender);
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.PERMISSIONS, start);
+        }
+    } // end method
+
+    /***
+     * Does the actual work for {@link #checkPerms(CommandSender, String, boolean) checkPerms()},
+     * which only measures how long these checks take.
+     *
+     * @param sender     The {@link org.bukkit.command.CommandSender CommandSender} who we're checking the permission(s) for.
+     * @param permsQuery An SQL-like query containing all the parameters that we need to check for.
+     * @param showResultToSender If TRUE, a message will be sent out to the player / console for who we're checking these permissions.
+     *
+     * @return Returns true if the sender has the requested permission(s), false otherwise.
+     */
+    private boolean evaluatePerms(final CommandSender sender, final String permsQuery, final boolean showResultToSender) {
         //noinspection UnusedAssignment
         boolean hasPerms = false;
 
@@ -498,4 +547,129 @@ final class Permissions {
         }
     } // end method
 
-} // end class
\ No newline at end of file
+    /**
+     * Rebuilds the command line to virtual permissions map and, if enabled, registers all virtual permissions
+     * as native Bukkit permission nodes (default: op), all of them being children of the
+     * {@value #VIRTUAL_PERMISSIONS_PARENT} node. This lets permission plugins see and manage these nodes
+     * and lets Bukkit precompute them into every player's effective permissions.
+     *
+     * Any nodes we registered previously and which are no longer present as virtual permissions are unregistered.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * aa_plugin_instance.getPermissionUtils().loadVirtualPermissions(
+     *     AA_API.getCommandsConfigurationValues("virtualperms"), AA_API.getConfigBoolean("virtualPermissionsAsNodes"));
+     * }
+     * </pre>
+     *
+     * @param virtualPerms All virtual permissions from the config, permission name being the key
+     *                     and the command line it guards being the value.
+     * @param asNodes Whether to register virtual permissions as native Bukkit permission nodes.
+     */
+    synchronized void loadVirtualPermissions(final Map<String, Object> virtualPerms, final boolean asNodes) {
+        final Map<String, String[]> commandPerms = new HashMap<String, String[]>();
+        final Map<String, String> permCommands = new LinkedHashMap<String, String>();
+
+        for (final Entry<String, Object> pair : virtualPerms.entrySet()) {
+            // nested sections are created for permissions with dots in their names, we only need the leaves
+            if (!(pair.getValue() instanceof String)) {
+                continue;
+            }
+
+            final String commandLine = (String) pair.getValue();
+            final String[] existing = commandPerms.get(commandLine);
+            if (null == existing) {
+                commandPerms.put(commandLine, new String[] { pair.getKey() });
+            } else {
+                final String[] merged = Arrays.copyOf(existing, existing.length + 1);
+                merged[existing.length] = pair.getKey();
+                commandPerms.put(commandLine, merged);
+            }
+
+            permCommands.put(pair.getKey(), commandLine);
+        }
+
+        unregisterVirtualPermissionNodes();
+
+        if (asNodes && !permCommands.isEmpty()) {
+            final PluginManager pm = Bukkit.getPluginManager();
+            final Map<String, Boolean> children = new LinkedHashMap<String, Boolean>();
+
+            for (final Entry<String, String> pair : permCommands.entrySet()) {
+                children.put(pair.getKey(), true);
+
+                // permissions of other plugins are theirs to manage, we only ever register our own nodes
+                if (null == pm.getPermission(pair.getKey())) {
+                    pm.addPermission(new Permission(pair.getKey(),
+                        AA_API.__("commands.addperm-virtual-permission-description", '/' + pair.getValue()),
+                        PermissionDefault.OP));
+                    registeredVirtualPermissionNodes.add(pair.getKey());
+                }
+            }
+
+            if (null == pm.getPermission(VIRTUAL_PERMISSIONS_PARENT)) {
+                pm.addPermission(new Permission(VIRTUAL_PERMISSIONS_PARENT,
+                    AA_API.__("commands.addperm-virtual-permissions-parent-description"), PermissionDefault.OP, children));
+                registeredVirtualPermissionNodes.add(VIRTUAL_PERMISSIONS_PARENT);
+            }
+
+            // let players holding the parent node see its new list of children
+            for (final Player p : Bukkit.getOnlinePlayers()) {
+                p.recalculatePermissions();
+            }
+        }
+
+        commandVirtualPermissions = commandPerms;
+        virtualPermissionNodesEnabled = asNodes;
+    } // end method
+
+    /**
+     * Unregisters all native Bukkit permission nodes we've registered for virtual permissions.
+     * Used when virtual permissions are reloaded and when AA is being disabled.
+     */
+    synchronized void unregisterVirtualPermissionNodes() {
+        final PluginManager pm = Bukkit.getPluginManager();
+        for (final String node : registeredVirtualPermissionNodes) {
+            pm.removePermission(node);
+        }
+
+        registeredVirtualPermissionNodes.clear();
+    } // end method
+
+    /**
+     * Retrieves all virtual permissions guarding the given command line.
+     *
+     * @param commandLine The command line (without slash) to get virtual permissions for.
+     *
+     * @return Returns all virtual permissions for this command line or null if there are none.
+     */
+    String[] getVirtualPermissionsForCommand(final String commandLine) {
+        return commandVirtualPermissions.get(commandLine);
+    } // end method
+
+    /**
+     * Checks whether a command sender has the given virtual permission. When virtual permissions
+     * are registered as native Bukkit permission nodes, this is a single lookup into the sender's
+     * effective permissions, otherwise the permission is checked via
+     * {@link #checkPerms(CommandSender, String, boolean) checkPerms()}.
+     *
+     * @param sender The {@link org.bukkit.command.CommandSender CommandSender} who we're checking the permission for.
+     * @param perm Name of the virtual permission to check.
+     *
+     * @return Returns true if the sender has the requested virtual permission, false otherwise.
+     */
+    boolean hasVirtualPermission(final CommandSender sender, final String perm) {
+        if (!virtualPermissionNodesEnabled) {
+            return checkPerms(sender, perm, false);
+        }
+
+        final long start = System.nanoTime();
+        try {
+            return sender.hasPermission(perm);
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.PERMISSIONS, start);
+        }
+    } // end method
+
+} // end class
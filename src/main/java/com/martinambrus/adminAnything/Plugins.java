@@ -1,10 +1,15 @@
 package com.martinambrus.adminAnything;
 
 import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
 import org.bukkit.plugin.Plugin;
 
 import java.io.InvalidClassException;
+import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -33,6 +38,26 @@ final class Plugins implements Listener {
      */
     private Map<String, String> classPathsCache;
 
+    /**
+     * Class loaders of all enabled plugins, mapped to their plugins.
+     *
+     * Used to determine which plugin a class belongs to by a single lookup,
+     * so we only need to parse JAR locations of classes not loaded by a plugin's own class loader.
+     *
+     * Class loaders don't override equals() nor hashCode(), so this works as an identity map.
+     * Keys are weak, so class loaders of unloaded plugins can be garbage-collected,
+     * and so are values, as each plugin holds a strong reference to its own class loader
+     * and would otherwise never let its key go.
+     */
+    private final Map<ClassLoader, WeakReference<Plugin>> pluginsByClassLoader =
+        Collections.synchronizedMap(new WeakHashMap<ClassLoader, WeakReference<Plugin>>());
+
+    /**
+     * Marker for class loaders shared by more than a single plugin (such as the server's own one),
+     * which therefore cannot tell us which plugin a class belongs to.
+     */
+    private static final WeakReference<Plugin> SHARED_CLASS_LOADER = new WeakReference<Plugin>(null);
+
     /**
      * Cache of lowercase plugin names.
      *
@@ -76,8 +101,94 @@ final class Plugins implements Listener {
      */
     Plugins(final AdminAnything plugin) {
         aa = plugin;
+
+        // plugins enabled before us won't fire an enable event we could listen to anymore
+        for (final Plugin pl : Bukkit.getPluginManager().getPlugins()) {
+            if (pl.isEnabled()) {
+                registerPluginClassLoader(pl);
+            }
+        }
     } //end method
 
+    /**
+     * Maps the class loader of the given plugin to that plugin.
+     *
+     * @param pl The plugin to map the class loader for.
+     */
+    private void registerPluginClassLoader(final Plugin pl) {
+        final ClassLoader loader = pl.getClass().getClassLoader();
+        if (null == loader) {
+            return;
+        }
+
+        synchronized (pluginsByClassLoader) {
+            final WeakReference<Plugin> existing = pluginsByClassLoader.get(loader);
+
+            if (null == existing) {
+                pluginsByClassLoader.put(loader, new WeakReference<Plugin>(pl));
+            } else if (existing.get() != pl) {
+                // more than one plugin comes from this class loader, we can't use it to tell them apart
+                pluginsByClassLoader.put(loader, SHARED_CLASS_LOADER);
+            }
+        }
+    } // end method
+
+    /**
+     * Retrieves the plugin which loaded the given class via its own class loader.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final Plugin owner = aa_plugin_instance.getPluginUtils().getPluginByClassLoader(command.getClass());
+     * }
+     * </pre>
+     *
+     * @param clazz The class to find a plugin for.
+     *
+     * @return Returns the plugin which loaded the given class or null if the class
+     *         was not loaded by a class loader of a single enabled plugin.
+     */
+    Plugin getPluginByClassLoader(final Class<?> clazz) {
+        final ClassLoader loader = clazz.getClassLoader();
+        if (null == loader) {
+            return null;
+        }
+
+        final WeakReference<Plugin> pluginRef = pluginsByClassLoader.get(loader);
+        return null == pluginRef ? null : pluginRef.get();
+    } // end method
+
+    /**
+     * Maps class loader of each newly enabled plugin to that plugin.
+     *
+     * @param e The actual plugin enable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(final PluginEnableEvent e) {
+        registerPluginClassLoader(e.getPlugin());
+    } // end method
+
+    /**
+     * Removes class loader mapping of a disabled plugin,
+     * so its classes cannot be resolved to a plugin that is no longer running.
+     *
+     * @param e The actual plugin disable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(final PluginDisableEvent e) {
+        final ClassLoader loader = e.getPlugin().getClass().getClassLoader();
+        if (null == loader) {
+            return;
+        }
+
+        synchronized (pluginsByClassLoader) {
+            final WeakReference<Plugin> existing = pluginsByClassLoader.get(loader);
+            if (null != existing && existing.get() == e.getPlugin()) {
+                pluginsByClassLoader.remove(loader);
+            }
+        }
+    } // end method
+
     /***
      * A simple method to initialize the cache of class paths for each
      * of the plugins on the server.
@@ -126,6 +237,16 @@ final class Plugins implements Listener {
         }
     } // end method
 
+    /**
+     * Loads the class paths and plugin names caches up-front on the main thread,
+     * so they can be safely read from async threads afterwards.
+     * Used by the {@link com.martinambrus.adminAnything.StartupPipeline} before its async stages start.
+     */
+    void primeCaches() {
+        initPluginNamesCache();
+        getPluginClassPathsMap();
+    } // end method
+
     /**
      * Clears up internal caches after some data has been cached
      * and a predefined timeout has passed to save memory resources
@@ -0,0 +1,524 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.event.EventPriority;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Central registry of all server internals AdminAnything accesses via reflection.
+ *
+ * Every member is resolved only once into a static final {@link java.lang.invoke.MethodHandle}
+ * adapted to the exact type of its call site, so calls are made via invokeExact() and the JIT can inline them
+ * like any direct call. All members are resolved when AA is enabled and any which cannot be found
+ * are reported in console right away, instead of failing at their first use.
+ *
+ * @author Martin Ambrus
+ */
+public final class ReflectionRegistry {
+
+    /**
+     * Getter of the server's commandMap field, (Server) → CommandMap.
+     */
+    public static final String SERVER_COMMAND_MAP = "CraftServer.commandMap"; //NON-NLS
+
+    /**
+     * Getter of the knownCommands field of SimpleCommandMap, (SimpleCommandMap) → Map.
+     */
+    public static final String KNOWN_COMMANDS = "SimpleCommandMap.knownCommands"; //NON-NLS
+
+    /**
+     * Setter of the priority field of RegisteredListener, (RegisteredListener, EventPriority) → void.
+     */
+    public static final String LISTENER_PRIORITY_SET = "RegisteredListener.priority"; //NON-NLS
+
+    /**
+     * Setter of the ignoreCancelled field of RegisteredListener, (RegisteredListener, boolean) → void.
+     */
+    public static final String LISTENER_IGNORE_CANCELLED_SET = "RegisteredListener.ignoreCancelled"; //NON-NLS
+
+    /**
+     * The fromJson() method of the server's GSon instance, (Gson, String, Class) → Object.
+     */
+    public static final String GSON_FROM_JSON = "Gson.fromJson"; //NON-NLS
+
+    /**
+     * The toJson() method of the server's GSon instance, (Gson, Object) → String.
+     */
+    public static final String GSON_TO_JSON = "Gson.toJson"; //NON-NLS
+
+    /**
+     * Possible locations of the GSon library, as it has relocated at least once
+     * during all Minecraft's development.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final String[] GSON_CLASSES = {
+        // mc 1.8+
+        "com.google.gson.Gson",
+        // mc 1.7
+        "net.minecraft.util.com.google.gson.Gson"
+    };
+
+    /**
+     * Reasons why members could not be resolved, mapped by their names.
+     */
+    private static final Map<String, String> failures = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Determines whether unresolved members were already reported in console.
+     */
+    private static boolean reported = false;
+
+    /**
+     * Members of the server's command map, resolved once the server is running.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final class CommandMapMembers {
+
+        /**
+         * Getter of the server's commandMap field.
+         */
+        static final MethodHandle SERVER_COMMAND_MAP_GETTER = getter(SERVER_COMMAND_MAP, Bukkit.getServer().getClass(),
+            "commandMap", MethodType.methodType(CommandMap.class, Server.class));
+
+        /**
+         * Getter of the knownCommands field of SimpleCommandMap.
+         */
+        static final MethodHandle KNOWN_COMMANDS_GETTER = getter(KNOWN_COMMANDS, SimpleCommandMap.class,
+            "knownCommands", MethodType.methodType(Map.class, SimpleCommandMap.class));
+
+    } // end class
+
+    /**
+     * Members of registered event listeners.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final class ListenerMembers {
+
+        /**
+         * Setter of the priority field of RegisteredListener.
+         */
+        static final MethodHandle PRIORITY_SETTER = setter(LISTENER_PRIORITY_SET, RegisteredListener.class,
+            "priority", MethodType.methodType(void.class, RegisteredListener.class, EventPriority.class));
+
+        /**
+         * Setter of the ignoreCancelled field of RegisteredListener.
+         */
+        static final MethodHandle IGNORE_CANCELLED_SETTER = setter(LISTENER_IGNORE_CANCELLED_SET, RegisteredListener.class,
+            "ignoreCancelled", MethodType.methodType(void.class, RegisteredListener.class, boolean.class));
+
+    } // end class
+
+    /**
+     * The server's GSon library along with its fromJson() and toJson() methods.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final class GsonMembers {
+
+        /**
+         * An instance of the server's GSon library, if found.
+         */
+        static final Object GSON;
+
+        /**
+         * The fromJson() method, called as (Object, String, Class) → Object.
+         */
+        static final MethodHandle FROM_JSON;
+
+        /**
+         * The toJson() method, called as (Object, Object) → String.
+         */
+        static final MethodHandle TO_JSON;
+
+        static {
+            Object gson = null;
+            MethodHandle fromJson = null;
+            MethodHandle toJson = null;
+            Class<?> gsonClass = null;
+
+            for (final String className : GSON_CLASSES) {
+                try {
+                    gsonClass = Class.forName(className);
+                    break;
+                } catch (final ClassNotFoundException ignored) {
+                    // we continue with other locations
+                }
+            }
+
+            if (null == gsonClass) {
+                failures.put(GSON_FROM_JSON, "ClassNotFoundException: " + String.join(", ", GSON_CLASSES));
+                failures.put(GSON_TO_JSON, "ClassNotFoundException: " + String.join(", ", GSON_CLASSES));
+            } else {
+                fromJson = method(GSON_FROM_JSON, gsonClass, "fromJson",
+                    MethodType.methodType(Object.class, String.class, Class.class),
+                    MethodType.methodType(Object.class, Object.class, String.class, Class.class));
+                toJson = method(GSON_TO_JSON, gsonClass, "toJson",
+                    MethodType.methodType(String.class, Object.class),
+                    MethodType.methodType(String.class, Object.class, Object.class));
+
+                try {
+                    gson = gsonClass.getConstructor().newInstance();
+                } catch (final Exception | LinkageError ex) {
+                    failures.put(GSON_FROM_JSON, ex.toString());
+                    failures.put(GSON_TO_JSON, ex.toString());
+                    fromJson = null;
+                    toJson = null;
+                }
+            }
+
+            GSON = gson;
+            FROM_JSON = fromJson;
+            TO_JSON = toJson;
+        }
+
+    } // end class
+
+    /**
+     * Utility class, no instances.
+     */
+    private ReflectionRegistry() {
+    } // end method
+
+    /**
+     * Resolves all members and reports any members which could not be found in console.
+     * Does nothing if the members were already resolved.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // in AdminAnything.onEnable(), once translations are loaded
+     * ReflectionRegistry.init();
+     * }
+     * </pre>
+     */
+    public static synchronized void init() {
+        if (reported) {
+            return;
+        }
+
+        for (final String name : new String[] { SERVER_COMMAND_MAP, KNOWN_COMMANDS, LISTENER_PRIORITY_SET,
+            LISTENER_IGNORE_CANCELLED_SET, GSON_FROM_JSON, GSON_TO_JSON }) {
+            isAvailable(name);
+        }
+
+        for (final Map.Entry<String, String> failure : getFailures().entrySet()) {
+            Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+                .__("error.reflection-member-unavailable", failure.getKey(), failure.getValue()));
+        }
+
+        reported = true;
+    } // end method
+
+    /**
+     * Resolves a getter for a (possibly private) field and adapts it to the type of its call site.
+     *
+     * @param name Name of the member, used to report a failure.
+     * @param clazz The class declaring the field, or any of its subclasses.
+     * @param fieldName Name of the field.
+     * @param callSiteType Type of the getter at its call site, i.e. (Owner) → FieldType.
+     *
+     * @return Returns the getter or null if it could not be resolved.
+     */
+    static MethodHandle getter(final String name, final Class<?> clazz, final String fieldName,
+        final MethodType callSiteType) {
+        try {
+            final Field field = findField(clazz, fieldName);
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field).asType(callSiteType);
+        } catch (final Exception | LinkageError ex) {
+            failures.put(name, ex.toString());
+            return null;
+        }
+    } // end method
+
+    /**
+     * Resolves a setter for a (possibly private or final) instance field
+     * and adapts it to the type of its call site.
+     *
+     * @param name Name of the member, used to report a failure.
+     * @param clazz The class declaring the field, or any of its subclasses.
+     * @param fieldName Name of the field.
+     * @param callSiteType Type of the setter at its call site, i.e. (Owner, FieldType) → void.
+     *
+     * @return Returns the setter or null if it could not be resolved.
+     */
+    static MethodHandle setter(final String name, final Class<?> clazz, final String fieldName,
+        final MethodType callSiteType) {
+        try {
+            final Field field = findField(clazz, fieldName);
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(field).asType(callSiteType);
+        } catch (final Exception | LinkageError ex) {
+            failures.put(name, ex.toString());
+            return null;
+        }
+    } // end method
+
+    /**
+     * Resolves a public instance method and adapts it to the type of its call site.
+     *
+     * @param name Name of the member, used to report a failure.
+     * @param clazz The class declaring the method.
+     * @param methodName Name of the method.
+     * @param methodType Type of the method as declared, without its owner.
+     * @param callSiteType Type of the method at its call site, including its owner as the first parameter.
+     *
+     * @return Returns the method or null if it could not be resolved.
+     */
+    static MethodHandle method(final String name, final Class<?> clazz, final String methodName,
+        final MethodType methodType, final MethodType callSiteType) {
+        try {
+            return MethodHandles.publicLookup().findVirtual(clazz, methodName, methodType).asType(callSiteType);
+        } catch (final Exception | LinkageError ex) {
+            failures.put(name, ex.toString());
+            return null;
+        }
+    } // end method
+
+    /**
+     * Finds a field declared in the given class or any of its superclasses,
+     * as CraftServer implementations tend to be subclassed by server forks.
+     *
+     * @param clazz The class to start looking in.
+     * @param fieldName Name of the field.
+     *
+     * @return Returns the field found.
+     *
+     * @throws NoSuchFieldException When neither the class nor any of its superclasses declare this field.
+     */
+    private static Field findField(final Class<?> clazz, final String fieldName) throws NoSuchFieldException {
+        for (Class<?> current = clazz; null != current; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(fieldName);
+            } catch (final NoSuchFieldException ignored) {
+                // try the superclass
+            }
+        }
+
+        throw new NoSuchFieldException(clazz.getName() + '.' + fieldName);
+    } // end method
+
+    /**
+     * Checks whether a member was resolved, resolving it first if that didn't happen yet.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * if (!ReflectionRegistry.isAvailable(ReflectionRegistry.SERVER_COMMAND_MAP)) {
+     *     // the registry has already reported what's missing in console
+     *     return;
+     * }
+     * }
+     * </pre>
+     *
+     * @param name Name of the member, one of the constants in this class.
+     *
+     * @return Returns true if the member is available on this server, false otherwise.
+     */
+    public static boolean isAvailable(final String name) {
+        switch (name) {
+            case SERVER_COMMAND_MAP:
+                return null != CommandMapMembers.SERVER_COMMAND_MAP_GETTER;
+
+            case KNOWN_COMMANDS:
+                return null != CommandMapMembers.KNOWN_COMMANDS_GETTER;
+
+            case LISTENER_PRIORITY_SET:
+                return null != ListenerMembers.PRIORITY_SETTER;
+
+            case LISTENER_IGNORE_CANCELLED_SET:
+                return null != ListenerMembers.IGNORE_CANCELLED_SETTER;
+
+            case GSON_FROM_JSON:
+                return null != GsonMembers.FROM_JSON;
+
+            case GSON_TO_JSON:
+                return null != GsonMembers.TO_JSON;
+
+            default:
+                return false;
+        }
+    } // end method
+
+    /**
+     * Gets the server's command map.
+     *
+     * @param server The server to get the command map of.
+     *
+     * @return Returns the server's command map.
+     *
+     * @throws IllegalAccessException When the commandMap field is not available on this server.
+     */
+    public static CommandMap getServerCommandMap(final Server server) throws IllegalAccessException {
+        if (null == CommandMapMembers.SERVER_COMMAND_MAP_GETTER) {
+            throw unavailable(SERVER_COMMAND_MAP);
+        }
+
+        try {
+            return (CommandMap) CommandMapMembers.SERVER_COMMAND_MAP_GETTER.invokeExact(server);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new IllegalStateException(SERVER_COMMAND_MAP, ex);
+        }
+    } // end method
+
+    /**
+     * Gets all commands known to the given command map.
+     *
+     * @param commandMap The command map to get known commands of.
+     *
+     * @return Returns the live map of known commands, mapped by their labels.
+     *
+     * @throws IllegalAccessException When the knownCommands field is not available on this server.
+     */
+    public static Map<?, ?> getKnownCommands(final SimpleCommandMap commandMap) throws IllegalAccessException {
+        if (null == CommandMapMembers.KNOWN_COMMANDS_GETTER) {
+            throw unavailable(KNOWN_COMMANDS);
+        }
+
+        try {
+            return (Map<?, ?>) CommandMapMembers.KNOWN_COMMANDS_GETTER.invokeExact(commandMap);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new IllegalStateException(KNOWN_COMMANDS, ex);
+        }
+    } // end method
+
+    /**
+     * Changes priority of a registered event listener.
+     *
+     * @param listener The listener to change priority of.
+     * @param priority The new priority.
+     *
+     * @throws IllegalAccessException When the priority field is not available on this server.
+     */
+    public static void setListenerPriority(final RegisteredListener listener, final EventPriority priority)
+        throws IllegalAccessException {
+        if (null == ListenerMembers.PRIORITY_SETTER) {
+            throw unavailable(LISTENER_PRIORITY_SET);
+        }
+
+        try {
+            ListenerMembers.PRIORITY_SETTER.invokeExact(listener, priority);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new IllegalStateException(LISTENER_PRIORITY_SET, ex);
+        }
+    } // end method
+
+    /**
+     * Changes whether a registered event listener ignores cancelled events.
+     *
+     * @param listener The listener to change.
+     * @param ignoreCancelled Whether the listener should ignore cancelled events.
+     *
+     * @throws IllegalAccessException When the ignoreCancelled field is not available on this server.
+     */
+    public static void setListenerIgnoreCancelled(final RegisteredListener listener, final boolean ignoreCancelled)
+        throws IllegalAccessException {
+        if (null == ListenerMembers.IGNORE_CANCELLED_SETTER) {
+            throw unavailable(LISTENER_IGNORE_CANCELLED_SET);
+        }
+
+        try {
+            ListenerMembers.IGNORE_CANCELLED_SETTER.invokeExact(listener, ignoreCancelled);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new IllegalStateException(LISTENER_IGNORE_CANCELLED_SET, ex);
+        }
+    } // end method
+
+    /**
+     * Parses JSON via the server's GSon library.
+     *
+     * @param gson The GSon instance, see {@link #getGson()}.
+     * @param json The JSON to parse.
+     * @param type Class of the object to parse the JSON into.
+     *
+     * @return Returns the parsed object.
+     *
+     * @throws IllegalAccessException When the GSon library is not available on this server.
+     */
+    public static Object fromJson(final Object gson, final String json, final Class<?> type) throws IllegalAccessException {
+        if (null == GsonMembers.FROM_JSON) {
+            throw unavailable(GSON_FROM_JSON);
+        }
+
+        try {
+            return (Object) GsonMembers.FROM_JSON.invokeExact(gson, json, type);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new IllegalStateException(GSON_FROM_JSON, ex);
+        }
+    } // end method
+
+    /**
+     * Serializes an object into JSON via the server's GSon library.
+     *
+     * @param gson The GSon instance, see {@link #getGson()}.
+     * @param object The object to serialize.
+     *
+     * @return Returns the JSON representation of the object.
+     *
+     * @throws IllegalAccessException When the GSon library is not available on this server.
+     */
+    public static String toJson(final Object gson, final Object object) throws IllegalAccessException {
+        if (null == GsonMembers.TO_JSON) {
+            throw unavailable(GSON_TO_JSON);
+        }
+
+        try {
+            return (String) GsonMembers.TO_JSON.invokeExact(gson, object);
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new IllegalStateException(GSON_TO_JSON, ex);
+        }
+    } // end method
+
+    /**
+     * Creates an exception for a member which is not available on this server.
+     *
+     * @param name Name of the member.
+     *
+     * @return Returns the exception to throw.
+     */
+    private static IllegalAccessException unavailable(final String name) {
+        return new IllegalAccessException(name + ": " + failures.get(name));
+    } // end method
+
+    /**
+     * Gets the server's GSon library instance.
+     *
+     * @return Returns an instance of the server's GSon library or null if it's not available.
+     */
+    public static Object getGson() {
+        return GsonMembers.GSON;
+    } // end method
+
+    /**
+     * Gets all members which could not be resolved on this server.
+     *
+     * @return Returns names of all unresolved members, mapped to the reason why they couldn't be resolved.
+     */
+    public static Map<String, String> getFailures() {
+        return Collections.unmodifiableMap(new TreeMap<String, String>(failures));
+    } // end method
+
+} // end class
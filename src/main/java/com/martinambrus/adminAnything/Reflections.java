@@ -7,6 +7,8 @@ import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A utility class to work with Java's Reflections and allow for
@@ -18,6 +20,19 @@ import java.lang.reflect.Method;
 public enum Reflections {
     ;
 
+    /**
+     * Classes already found by {@link #getSimpleClass(String[], Object)},
+     * mapped by the list of locations they were looked up from,
+     * so we don't need to go through Class.forName() for every new instance.
+     */
+    private static final Map<String, Class<?>> classCache = new ConcurrentHashMap<String, Class<?>>();
+
+    /**
+     * Methods already retrieved by {@link #getSimpleMethodFromObjectInstance(Object, Method, String, Object)},
+     * mapped by their class, name and parameter type.
+     */
+    private static final Map<String, Method> methodCache = new ConcurrentHashMap<String, Method>();
+
     /**
      * Receives a list of possible class locations for our target class
      * and an optional constructor parameter (only single parameter classes
@@ -42,11 +57,14 @@ public enum Reflections {
      */
     public static Object getSimpleClass(final String[] clazzez, final Object constructorParameter) {
         Object ret = null;
+        final String cacheKey = String.join(",", clazzez);
+        final Class<?> cachedClass = classCache.get(cacheKey);
 
-        // iterate over all class locations and try to find a working one
-        for (final String className : clazzez) {
+        // iterate over all class locations and try to find a working one,
+        // unless we've already found it before
+        for (final String className : null == cachedClass ? clazzez : new String[] { cachedClass.getName() }) {
             try {
-                final Class<?> clazz = Class.forName(className);
+                final Class<?> clazz = null == cachedClass ? Class.forName(className) : cachedClass;
 
                 if (null == constructorParameter) {
                     ret = clazz.getConstructor().newInstance();
@@ -70,6 +88,10 @@ public enum Reflections {
                         }
                     }
                 }
+
+                if (null != ret) {
+                    classCache.put(cacheKey, clazz);
+                }
                 break;
             } catch (final ClassNotFoundException | InstantiationException | IllegalAccessException ignored) {
                 // we continue with other classes and only handle ClassNotFound after the loop is done
@@ -119,7 +141,13 @@ public enum Reflections {
             final Object methodParameter) {
         try {
             if ((null == m) || !m.getName().equals(methodName)) {
-                if (null == methodParameter) {
+                final String cacheKey = o.getClass().getName() + '#' + methodName + '('
+                    + (null == methodParameter ? "" : methodParameter.getClass().getName()) + ')';
+                final Method cachedMethod = methodCache.get(cacheKey);
+
+                if (null != cachedMethod) {
+                    m = cachedMethod;
+                } else if (null == methodParameter) {
                     m = o.getClass().getMethod(methodName);
                 } else if (methodParameter instanceof String) {
                     m = o.getClass().getMethod(methodName, String.class);
@@ -131,6 +159,10 @@ public enum Reflections {
                     handleReflectionException(new Exception("Unsupported class type for method \"" + methodName
                             + "\" given. Object class passed was: " + methodParameter.getClass().getName()));
                 }
+
+                if (null != m && null == cachedMethod && m.getName().equals(methodName)) {
+                    methodCache.put(cacheKey, m);
+                }
             }
         } catch (NoSuchMethodException | SecurityException | IllegalArgumentException e) {
             handleReflectionException(e);
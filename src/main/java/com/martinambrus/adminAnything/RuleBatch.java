@@ -0,0 +1,321 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of changes to AdminAnything's rules (ignores, overrides, removals, mutes,
+ * redirects and virtual permissions) which are validated together and applied
+ * as a single transaction via {@link AA_API#applyRuleBatch(org.bukkit.command.CommandSender, RuleBatch)}.
+ *
+ * <br><br><strong>Example:</strong>
+ * <pre>
+ * {@code
+ * final List<String> errors = AA_API.applyRuleBatch(sender, new RuleBatch()
+ *     .disable("pl")
+ *     .mute("lag")
+ *     .override("ban", "essentials:ban")
+ *     .redirect("spawn", "warp spawn")
+ *     .addVirtualPerm("myserver.tpa", "tpa"));
+ * }
+ * </pre>
+ *
+ * @author Martin Ambrus
+ */
+public final class RuleBatch {
+
+    /**
+     * A single change within this batch.
+     */
+    static final class Change {
+
+        /**
+         * Type of the commands list this change is for, i.e. removals, mutes...
+         */
+        final String listType;
+
+        /**
+         * True if this change adds a rule, false if it removes one.
+         */
+        final boolean add;
+
+        /**
+         * The command, command line or permission this rule is for.
+         */
+        final String key;
+
+        /**
+         * Value of the rule for overrides, redirects and virtual permissions,
+         * null for all other changes.
+         */
+        final String value;
+
+        /**
+         * Constructor, stores all details of this change.
+         *
+         * @param listType Type of the commands list this change is for.
+         * @param add True if this change adds a rule, false if it removes one.
+         * @param key The command, command line or permission this rule is for.
+         * @param value Value of the rule, if any.
+         */
+        Change(final String listType, final boolean add, final String key, final String value) {
+            this.listType = listType;
+            this.add = add;
+            this.key = key;
+            this.value = value;
+        } // end method
+
+    } // end class
+
+    /**
+     * Types of commands lists which can be changed via a batch, as they are named
+     * in batch files loaded via {@link #fromConfig(ConfigurationSection)}.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    static final String[] LIST_TYPES = {
+        "ignores", "overrides", "virtualperms", "removals", "mutes", "redirects"
+    };
+
+    /**
+     * All changes in this batch, in the order they were added.
+     */
+    private final List<Change> changes = new ArrayList<Change>();
+
+    /**
+     * Adds a new change to this batch.
+     *
+     * @param listType Type of the commands list this change is for.
+     * @param add True if this change adds a rule, false if it removes one.
+     * @param key The command, command line or permission this rule is for.
+     * @param value Value of the rule, if any.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    private RuleBatch change(final String listType, final boolean add, final String key, final String value) {
+        changes.add(new Change(listType, add, key, value));
+        return this;
+    } // end method
+
+    /**
+     * Adds a command to the list of commands ignored by /aa_checkcommandconflicts.
+     *
+     * @param command The command to ignore.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch ignore(final String command) {
+        return change("ignores", true, command, null); //NON-NLS
+    } // end method
+
+    /**
+     * Removes a command from the list of commands ignored by /aa_checkcommandconflicts.
+     *
+     * @param command The command to stop ignoring.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch unignore(final String command) {
+        return change("ignores", false, command, null); //NON-NLS
+    } // end method
+
+    /**
+     * Disables a command on the server, as if done via /aa_disablecommand.
+     *
+     * @param command The command to disable.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch disable(final String command) {
+        return change("removals", true, command, null); //NON-NLS
+    } // end method
+
+    /**
+     * Re-enables a previously disabled command, as if done via /aa_enablecommand.
+     *
+     * @param command The command to enable.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch enable(final String command) {
+        return change("removals", false, command, null); //NON-NLS
+    } // end method
+
+    /**
+     * Mutes output of a command, as if done via /aa_mutecommand.
+     *
+     * @param commandLine The command line to mute, including any parameters.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch mute(final String commandLine) {
+        return change("mutes", true, commandLine, null); //NON-NLS
+    } // end method
+
+    /**
+     * Un-mutes output of a command, as if done via /aa_unmutecommand.
+     *
+     * @param commandLine The muted command line, including any parameters.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch unmute(final String commandLine) {
+        return change("mutes", false, commandLine, null); //NON-NLS
+    } // end method
+
+    /**
+     * Fixes a command to always be run from the given plugin, as if done via /aa_fixcommand.
+     *
+     * @param command The command to fix.
+     * @param pluginCommand The plugin-prefixed command to run instead, i.e. essentials:ban
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch override(final String command, final String pluginCommand) {
+        return change("overrides", true, command, pluginCommand); //NON-NLS
+    } // end method
+
+    /**
+     * Removes a command fix, as if done via /aa_unfixcommand.
+     *
+     * @param command The fixed command.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch removeOverride(final String command) {
+        return change("overrides", false, command, null); //NON-NLS
+    } // end method
+
+    /**
+     * Redirects a command to another one, as if done via /aa_addredirect.
+     *
+     * @param commandLine The command (optionally with parameters) to redirect.
+     * @param redirect The command line to run instead.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch redirect(final String commandLine, final String redirect) {
+        return change("redirects", true, commandLine, redirect); //NON-NLS
+    } // end method
+
+    /**
+     * Removes a command redirect, as if done via /aa_delredirect.
+     *
+     * @param commandLine The redirected command (optionally with parameters).
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch removeRedirect(final String commandLine) {
+        return change("redirects", false, commandLine, null); //NON-NLS
+    } // end method
+
+    /**
+     * Guards a command by a virtual permission, as if done via /aa_addperm.
+     *
+     * @param permission Name of the virtual permission.
+     * @param commandLine The command (optionally with parameters) to guard by this permission.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch addVirtualPerm(final String permission, final String commandLine) {
+        return change("virtualperms", true, permission, commandLine); //NON-NLS
+    } // end method
+
+    /**
+     * Removes a virtual permission, as if done via /aa_delperm.
+     *
+     * @param permission Name of the virtual permission.
+     *
+     * @return Returns this batch, so calls can be chained.
+     */
+    public RuleBatch removeVirtualPerm(final String permission) {
+        return change("virtualperms", false, permission, null); //NON-NLS
+    } // end method
+
+    /**
+     * Gets the number of changes in this batch.
+     *
+     * @return Returns the number of changes in this batch.
+     */
+    public int size() {
+        return changes.size();
+    } // end method
+
+    /**
+     * Checks whether this batch contains any changes at all.
+     *
+     * @return Returns true if there are no changes in this batch, false otherwise.
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    } // end method
+
+    /**
+     * Gets all changes in this batch, in the order they were added.
+     *
+     * @return Returns an unmodifiable list of all changes in this batch.
+     */
+    List<Change> getChanges() {
+        return Collections.unmodifiableList(changes);
+    } // end method
+
+    /**
+     * Creates a batch from a configuration section, such as a rule template
+     * loaded from a YAML file by /aa_batch. Rules to add are listed under the
+     * <i>add</i> section, rules to remove under the <i>remove</i> section.
+     * Ignores, removals and mutes are lists of commands, overrides, redirects
+     * and virtual permissions are maps of commands (or permissions) to their values
+     * when added and lists of commands (or permissions) when removed.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // add:
+     * //   removals: [pl, version]
+     * //   overrides:
+     * //     ban: essentials:ban
+     * // remove:
+     * //   mutes: [lag]
+     * final RuleBatch batch = RuleBatch.fromConfig(YamlConfiguration.loadConfiguration(file));
+     * }
+     * </pre>
+     *
+     * @param section The configuration section to read rules from.
+     *
+     * @return Returns a new batch with all the rules found in the given section.
+     */
+    public static RuleBatch fromConfig(final ConfigurationSection section) {
+        final RuleBatch batch = new RuleBatch();
+        final ConfigurationSection additions = section.getConfigurationSection("add"); //NON-NLS
+        final ConfigurationSection deletions = section.getConfigurationSection("remove"); //NON-NLS
+
+        for (final String listType : LIST_TYPES) {
+            if (null != additions) {
+                if (additions.isConfigurationSection(listType)) {
+                    // virtual permissions contain dots, so we need to read them as full paths
+                    final ConfigurationSection rules = additions.getConfigurationSection(listType);
+                    for (final String key : rules.getKeys(true)) {
+                        if (rules.isString(key)) {
+                            batch.change(listType, true, key, rules.getString(key));
+                        }
+                    }
+                } else {
+                    for (final String key : additions.getStringList(listType)) {
+                        batch.change(listType, true, key, null);
+                    }
+                }
+            }
+
+            if (null != deletions) {
+                for (final String key : deletions.getStringList(listType)) {
+                    batch.change(listType, false, key, null);
+                }
+            }
+        }
+
+        return batch;
+    } // end method
+
+} // end class
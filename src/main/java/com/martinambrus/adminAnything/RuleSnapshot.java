@@ -0,0 +1,349 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A complete copy of AdminAnything's rules (ignores, overrides, virtual permissions,
+ * removals, mutes, redirects and help disables), which can be written into a single
+ * compact snapshot file via /aa_export and swapped into a running server via /aa_import.
+ *
+ * Snapshot files are GZIP-compressed binary files starting with a magic number
+ * and a format version, followed by all the rules and a CRC32 checksum of everything
+ * before it, so damaged or foreign files are never imported.
+ *
+ * @author Martin Ambrus
+ */
+public final class RuleSnapshot {
+
+    /**
+     * Magic number at the start of each snapshot file ("AARS").
+     */
+    static final int MAGIC = 0x41415253;
+
+    /**
+     * Version of the snapshot file format written by this class.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Name of the folder within AA's data folder which holds snapshot files.
+     */
+    public static final String FOLDER_NAME = "snapshots"; //NON-NLS
+
+    /**
+     * Extension of snapshot files.
+     */
+    public static final String FILE_EXTENSION = ".aasnap"; //NON-NLS
+
+    /**
+     * All rules in this snapshot, mapped by the type of their commands list.
+     * Plain lists (ignores, removals...) have null values, while overrides,
+     * redirects and virtual permissions store their value alongside each key.
+     */
+    private final Map<String, Map<String, String>> rules = new LinkedHashMap<String, Map<String, String>>();
+
+    /**
+     * Version of AdminAnything which created this snapshot.
+     */
+    private final String aaVersion;
+
+    /**
+     * Time (in milliseconds) when this snapshot was created.
+     */
+    private final long created;
+
+    /**
+     * Constructor, creates an empty snapshot.
+     *
+     * @param aaVersion Version of AdminAnything which created this snapshot.
+     * @param created Time (in milliseconds) when this snapshot was created.
+     */
+    private RuleSnapshot(final String aaVersion, final long created) {
+        this.aaVersion = aaVersion;
+        this.created = created;
+
+        for (final String which : CommandListeners.LIST_TYPES) {
+            rules.put(which, new LinkedHashMap<String, String>());
+        }
+    } // end method
+
+    /**
+     * Checks whether the given commands list stores a plain list of commands
+     * in its config file, as opposed to commands mapped to their values.
+     *
+     * @param which Type of the commands list.
+     *
+     * @return Returns true for ignores, removals, mutes and help disables, false otherwise.
+     */
+    private static boolean isPlainList(final String which) {
+        return "ignores".equals(which) || "removals".equals(which) || "mutes".equals(which) //NON-NLS
+            || "helpDisables".equals(which); //NON-NLS
+    } // end method
+
+    /**
+     * Copies all current rules into a new snapshot. Must be called on the main thread.
+     *
+     * @param commandListeners Instance of {@link com.martinambrus.adminAnything.CommandListeners} holding the live rules.
+     *
+     * @return Returns a new snapshot with all the current rules.
+     */
+    static RuleSnapshot capture(final CommandListeners commandListeners) {
+        final RuleSnapshot snapshot = new RuleSnapshot(AA_API.getAaVersion(), System.currentTimeMillis());
+
+        for (final String which : CommandListeners.LIST_TYPES) {
+            final Map<String, String> list = snapshot.rules.get(which);
+
+            if (isPlainList(which)) {
+                for (final String command : commandListeners.getCommandsList(which)) {
+                    list.put(command, null);
+                }
+            } else {
+                // virtual permissions contain dots, so we need to read them as full paths
+                final Map<String, Object> values = commandListeners.getCommandsConfigurationValuesMap(which);
+                for (final Map.Entry<String, Object> value : values.entrySet()) {
+                    if (value.getValue() instanceof String) {
+                        list.put(value.getKey(), (String) value.getValue());
+                    }
+                }
+            }
+        }
+
+        return snapshot;
+    } // end method
+
+    /**
+     * Writes this snapshot into the given file.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * AA_API.captureRuleSnapshot().write(new File(folder, "lobby" + RuleSnapshot.FILE_EXTENSION));
+     * }
+     * </pre>
+     *
+     * @param file The file to write this snapshot into.
+     *
+     * @throws IOException When the file cannot be written.
+     */
+    public void write(final File file) throws IOException {
+        final CRC32 checksum = new CRC32();
+        final GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+        try {
+            final DataOutputStream out = new DataOutputStream(new CheckedOutputStream(gzip, checksum));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(aaVersion);
+            out.writeLong(created);
+            out.writeInt(rules.size());
+
+            for (final Map.Entry<String, Map<String, String>> list : rules.entrySet()) {
+                out.writeUTF(list.getKey());
+                out.writeInt(list.getValue().size());
+
+                for (final Map.Entry<String, String> rule : list.getValue().entrySet()) {
+                    out.writeUTF(rule.getKey());
+                    out.writeBoolean(null != rule.getValue());
+                    if (null != rule.getValue()) {
+                        out.writeUTF(rule.getValue());
+                    }
+                }
+            }
+
+            out.flush();
+
+            // the checksum itself is not part of the checksummed data
+            new DataOutputStream(gzip).writeLong(checksum.getValue());
+        } finally {
+            gzip.close();
+        }
+    } // end method
+
+    /**
+     * Reads a snapshot from the given file, verifying its format, version and checksum.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final RuleSnapshot snapshot = RuleSnapshot.read(new File(folder, "lobby" + RuleSnapshot.FILE_EXTENSION));
+     * }
+     * </pre>
+     *
+     * @param file The file to read the snapshot from.
+     *
+     * @return Returns the snapshot read from the given file.
+     * @throws IOException When the file cannot be read or is not a valid snapshot.
+     */
+    public static RuleSnapshot read(final File file) throws IOException {
+        final CRC32 checksum = new CRC32();
+        final GZIPInputStream gzip;
+
+        try {
+            gzip = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (final java.util.zip.ZipException ex) {
+            throw new IOException(AA_API.__("snapshot.error-not-snapshot"), ex);
+        }
+
+        try {
+            final DataInputStream in = new DataInputStream(new CheckedInputStream(gzip, checksum));
+
+            if (MAGIC != in.readInt()) {
+                throw new IOException(AA_API.__("snapshot.error-not-snapshot"));
+            }
+
+            final int version = in.readInt();
+            if (FORMAT_VERSION < version) {
+                throw new IOException(AA_API.__("snapshot.error-version", version, FORMAT_VERSION));
+            }
+
+            final RuleSnapshot snapshot = new RuleSnapshot(in.readUTF(), in.readLong());
+            final int listCount = in.readInt();
+
+            for (int i = 0; i < listCount; i++) {
+                final String which = in.readUTF();
+                final Map<String, String> list = snapshot.rules.get(which);
+
+                if (null == list) {
+                    throw new IOException(AA_API.__("snapshot.error-unknown-list", which));
+                }
+
+                final int ruleCount = in.readInt();
+                for (int j = 0; j < ruleCount; j++) {
+                    final String key = in.readUTF();
+                    list.put(key, in.readBoolean() ? in.readUTF() : null);
+                }
+            }
+
+            if (checksum.getValue() != new DataInputStream(gzip).readLong()) {
+                throw new IOException(AA_API.__("snapshot.error-checksum"));
+            }
+
+            return snapshot;
+        } catch (final java.io.EOFException | java.util.zip.ZipException ex) {
+            throw new IOException(AA_API.__("snapshot.error-checksum"), ex);
+        } finally {
+            gzip.close();
+        }
+    } // end method
+
+    /**
+     * Creates configurations for all commands lists from this snapshot,
+     * in the same structure as our commands config files have.
+     *
+     * @return Returns configurations for all commands lists, mapped by their type.
+     */
+    Map<String, FileConfiguration> toConfigs() {
+        final Map<String, FileConfiguration> configs = new LinkedHashMap<String, FileConfiguration>();
+
+        for (final Map.Entry<String, Map<String, String>> list : rules.entrySet()) {
+            final YamlConfiguration configHandle = new YamlConfiguration();
+
+            if (isPlainList(list.getKey())) {
+                configHandle.set("commands", new ArrayList<String>(list.getValue().keySet())); //NON-NLS
+            } else {
+                for (final Map.Entry<String, String> rule : list.getValue().entrySet()) {
+                    configHandle.set(rule.getKey(), rule.getValue());
+                }
+            }
+
+            configs.put(list.getKey(), configHandle);
+        }
+
+        return configs;
+    } // end method
+
+    /**
+     * Gets all rules of a single commands list in this snapshot.
+     *
+     * @param which Type of the commands list, i.e. removals, mutes...
+     *
+     * @return Returns an unmodifiable map of all rules of the requested list,
+     *         with null values for plain lists of commands.
+     */
+    public Map<String, String> getRules(final String which) {
+        final Map<String, String> list = rules.get(which);
+        return null == list ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(list);
+    } // end method
+
+    /**
+     * Gets the total number of rules in this snapshot.
+     *
+     * @return Returns the total number of rules in this snapshot.
+     */
+    public int size() {
+        int size = 0;
+        for (final Map<String, String> list : rules.values()) {
+            size += list.size();
+        }
+
+        return size;
+    } // end method
+
+    /**
+     * Gets names of all commands which have rules in this snapshot that
+     * AdminAnything needs to pre-process, i.e. all but ignores and help disables.
+     *
+     * @return Returns names of all pre-processed commands in this snapshot, without any parameters.
+     */
+    List<String> getPreprocessedCommands() {
+        final List<String> commands = new ArrayList<String>();
+
+        for (final Map.Entry<String, Map<String, String>> list : rules.entrySet()) {
+            if ("ignores".equals(list.getKey()) || "helpDisables".equals(list.getKey())) { //NON-NLS
+                continue;
+            }
+
+            for (final Map.Entry<String, String> rule : list.getValue().entrySet()) {
+                // virtual permissions are keyed by their name, with the command line as their value
+                final String commandLine = "virtualperms".equals(list.getKey()) ? rule.getValue() : rule.getKey(); //NON-NLS
+                if (null == commandLine || commandLine.isEmpty()) {
+                    continue;
+                }
+
+                final int space = commandLine.indexOf(' ');
+                commands.add(-1 == space ? commandLine : commandLine.substring(0, space));
+            }
+        }
+
+        return commands;
+    } // end method
+
+    /**
+     * Gets the version of AdminAnything which created this snapshot.
+     *
+     * @return Returns the version of AdminAnything which created this snapshot.
+     */
+    public String getAaVersion() {
+        return aaVersion;
+    } // end method
+
+    /**
+     * Gets the time when this snapshot was created.
+     *
+     * @return Returns the time (in milliseconds) when this snapshot was created.
+     */
+    public long getCreated() {
+        return created;
+    } // end method
+
+} // end class
@@ -0,0 +1,238 @@
+package com.martinambrus.adminAnything;
+
+import com.martinambrus.adminAnything.events.AAServerLoadedEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.ServerLoadEvent;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Brings AdminAnything from enabled into a fully active state
+ * as soon as the server finishes loading all of its plugins.
+ *
+ * Once the server is loaded, a snapshot of the command map is taken on the main thread
+ * and the command catalog, the conflict model (plugins containing each command)
+ * and tab-completion data are then built in parallel on the async worker threads
+ * of the Bukkit scheduler. AdminAnything is marked as active the moment
+ * the last of these stages finishes, with timings of each stage logged into the console.
+ *
+ * @author Martin Ambrus
+ */
+final class StartupPipeline implements Listener {
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    private final AdminAnything plugin;
+
+    /**
+     * Makes sure we only start the pipeline once, no matter whether
+     * it was the ServerLoadEvent or our fallback task that started it.
+     */
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    /**
+     * Number of async stages still running.
+     */
+    private final AtomicInteger stagesRemaining = new AtomicInteger();
+
+    /**
+     * Time (in nanoseconds) when this pipeline was started.
+     */
+    private volatile long startNanos;
+
+    /**
+     * Constructor, stores instance of AdminAnything for further use
+     * and makes sure the pipeline starts once the server is loaded.
+     *
+     * On servers with ServerLoadEvent (1.13+), we start immediately when the event fires.
+     * On older servers and when AA is enabled on an already running server
+     * (i.e. via /aa_reload), we start via a task run as soon as the server ticks.
+     *
+     * @param aa Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    StartupPipeline(final AdminAnything aa) {
+        plugin = aa;
+
+        try {
+            Class.forName("org.bukkit.event.server.ServerLoadEvent");
+
+            // if we're here, the event is present on the server - let's make use of it
+            AA_API.startRequiredListener("startupPipeline", this); //NON-NLS
+        } catch (final Throwable e) {
+            // this is a 1.12.2 or lower server, our fallback task below will start the pipeline
+        }
+
+        Bukkit.getScheduler().scheduleSyncDelayedTask(aa, new Runnable() {
+
+            @Override
+            public void run() {
+                start();
+            }
+
+        }, 0); // 0 = will be run as soon as the server finished loading
+    } // end method
+
+    /**
+     * Starts the pipeline as soon as the server finishes loading all plugins.
+     *
+     * @param e The actual server load event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServerLoad(final ServerLoadEvent e) {
+        start();
+    } // end method
+
+    /**
+     * Takes a snapshot of the command map on the main thread and starts
+     * all async stages which build our caches from it.
+     * Does nothing if the pipeline was already started.
+     */
+    void start() {
+        if (!plugin.isEnabled() || !started.compareAndSet(false, true)) {
+            return;
+        }
+
+        startNanos = System.nanoTime();
+        Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("startup.activating"));
+
+        final Commands commands = plugin.getCommandsUtils();
+        final Map<String, Command> commandMapSnapshot;
+
+        try {
+            // everything that reads live server state needs to happen here, on the main thread
+            commands.clearCommandToPluginMap();
+            commands.clearContainingPluginsCache();
+            plugin.getPluginUtils().primeCaches();
+            commandMapSnapshot = AA_API.getCommandMapCopy();
+            AA_API.getAugmentedCommandMap();
+        } catch (final Throwable ex) {
+            // we can still work without pre-built caches, they will just be built lazily
+            Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API.__("startup.snapshot-failed"));
+            ex.printStackTrace();
+            markReady();
+            return;
+        }
+
+        // let our listeners know that all plugins and their commands are now present
+        Bukkit.getPluginManager().callEvent(new AAServerLoadedEvent());
+
+        stagesRemaining.set(3);
+
+        //noinspection HardCodedStringLiteral
+        runStage("command-catalog", new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    for (final Entry<String, Command> pair : commandMapSnapshot.entrySet()) {
+                        commands.getPluginForCommand(pair.getKey(), pair.getValue());
+                    }
+                } catch (final Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+
+        });
+
+        //noinspection HardCodedStringLiteral
+        runStage("conflict-model", new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    commands.primeContainingPluginsCache(commandMapSnapshot);
+                } catch (final Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+
+        });
+
+        //noinspection HardCodedStringLiteral
+        runStage("tab-complete", new Runnable() {
+
+            @Override
+            public void run() {
+                plugin.getTabCompletUtils().init(null);
+            }
+
+        });
+    } // end method
+
+    /**
+     * Runs a single pipeline stage on an async thread, logs its timing
+     * and marks AdminAnything as ready once the last stage is done.
+     *
+     * A failed stage is logged but doesn't prevent AA from becoming active,
+     * since all of the data built by stages are only caches which would
+     * otherwise be built lazily.
+     *
+     * @param stageName Name of the stage, used in the log.
+     * @param work The actual work this stage performs.
+     */
+    private void runStage(final String stageName, final Runnable work) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                final long stageStart = System.nanoTime();
+
+                try {
+                    work.run();
+                    Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("startup.stage-done",
+                        stageName, AA_API.formatNanos(System.nanoTime() - stageStart)));
+                } catch (final Throwable ex) {
+                    Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API.__("startup.stage-failed",
+                        stageName));
+                    ex.printStackTrace();
+                } finally {
+                    if (0 == stagesRemaining.decrementAndGet() && plugin.isEnabled()) {
+                        Bukkit.getScheduler().runTask(plugin, new Runnable() {
+
+                            @Override
+                            public void run() {
+                                markReady();
+                            }
+
+                        });
+                    }
+                }
+            }
+
+        });
+    } // end method
+
+    /**
+     * Marks AdminAnything as fully active and lets clients of online players
+     * know that they should refresh their tab-completions.
+     */
+    private void markReady() {
+        if (!plugin.finishWarmingUp()) {
+            return;
+        }
+
+        Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("startup.now-active",
+            AA_API.getAaName(), AA_API.formatNanos(System.nanoTime() - startNanos)));
+
+        // if we're on 1.13+ server, let clients of players who joined while we were warming up
+        // (or were online during a reload) know to update their client-side tab-completions
+        try {
+            Class.forName("org.bukkit.event.player.PlayerCommandSendEvent");
+            for (final Player p : Bukkit.getOnlinePlayers()) {
+                p.updateCommands();
+            }
+        } catch (final Throwable ex) {
+            // we're on 1.12.2 or lower server version, and there's no special function to call for all players here
+        }
+    } // end method
+
+} // end class
@@ -0,0 +1,195 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on latency and cache statistics for the hot paths
+ * of AdminAnything, such as command pre-processing, permission checks,
+ * tab-completion filtering, chat decoration and config saving.
+ *
+ * All values are recorded into lock-free structures, so they can be safely
+ * collected from both, the main and the async (chat) threads.
+ *
+ * @author Martin Ambrus
+ */
+final class Stats {
+
+    /**
+     * Samples taking at least this long will be logged into the console
+     * when AdminAnything's debug mode is on.
+     */
+    private static final long SLOW_SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    private final AdminAnything plugin;
+
+    /**
+     * The current collection window. Replaced as a whole when statistics are reset,
+     * so we never need to lock while recording new values.
+     */
+    private volatile Window window = new Window();
+
+    /**
+     * Holds all histograms and cache counters since the last reset.
+     */
+    private static final class Window {
+
+        /**
+         * Time (in milliseconds) when this window started collecting data.
+         */
+        final long since = System.currentTimeMillis();
+
+        /**
+         * Latency histograms for each of the subsystems.
+         */
+        final LatencyHistogram[] latencies = new LatencyHistogram[StatsSubsystem.values().length];
+
+        /**
+         * Cache hits for each of the subsystems.
+         */
+        final LongAdder[] cacheHits = new LongAdder[StatsSubsystem.values().length];
+
+        /**
+         * Cache misses for each of the subsystems.
+         */
+        final LongAdder[] cacheMisses = new LongAdder[StatsSubsystem.values().length];
+
+        /**
+         * Constructor, creates empty histograms and counters for all subsystems.
+         */
+        Window() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+                cacheHits[i] = new LongAdder();
+                cacheMisses[i] = new LongAdder();
+            }
+        } // end method
+
+    } // end class
+
+    /**
+     * Constructor, stores instance of AdminAnything for further use.
+     *
+     * @param aa Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    Stats(final AdminAnything aa) {
+        plugin = aa;
+    } // end method
+
+    /**
+     * Records time spent in the given subsystem since the given start time.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final long start = System.nanoTime();
+     * try {
+     *     // do your stuff
+     * } finally {
+     *     aa_plugin_instance.getStats().record(StatsSubsystem.PREPROCESSOR, start);
+     * }
+     * }
+     * </pre>
+     *
+     * @param subsystem The subsystem the time was spent in.
+     * @param startNanos Start time, as returned by {@link System#nanoTime()}.
+     */
+    void record(final StatsSubsystem subsystem, final long startNanos) {
+        final long elapsed = System.nanoTime() - startNanos;
+        window.latencies[subsystem.ordinal()].record(elapsed);
+
+        if (SLOW_SAMPLE_NANOS <= elapsed) {
+            final ConfigAbstractAdapter conf = plugin.getConf();
+            if (null != conf && conf.getDebug()) {
+                Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("stats.slow-sample", //NON-NLS
+                    subsystem.toString(), formatNanos(elapsed), Thread.currentThread().getName()));
+            }
+        }
+    } // end method
+
+    /**
+     * Records a cache lookup for the given subsystem.
+     *
+     * @param subsystem The subsystem the cache belongs to.
+     * @param hit Whether the value was found in the cache.
+     */
+    void recordCacheLookup(final StatsSubsystem subsystem, final boolean hit) {
+        final Window current = window;
+        if (hit) {
+            current.cacheHits[subsystem.ordinal()].increment();
+        } else {
+            current.cacheMisses[subsystem.ordinal()].increment();
+        }
+    } // end method
+
+    /**
+     * Gets the latency histogram for the given subsystem.
+     *
+     * @param subsystem The subsystem to get latencies for.
+     *
+     * @return Returns the latency histogram for the given subsystem.
+     */
+    LatencyHistogram getLatencies(final StatsSubsystem subsystem) {
+        return window.latencies[subsystem.ordinal()];
+    } // end method
+
+    /**
+     * Gets the number of cache hits for the given subsystem.
+     *
+     * @param subsystem The subsystem to get cache hits for.
+     *
+     * @return Returns the number of cache hits for the given subsystem.
+     */
+    long getCacheHits(final StatsSubsystem subsystem) {
+        return window.cacheHits[subsystem.ordinal()].sum();
+    } // end method
+
+    /**
+     * Gets the number of cache misses for the given subsystem.
+     *
+     * @param subsystem The subsystem to get cache misses for.
+     *
+     * @return Returns the number of cache misses for the given subsystem.
+     */
+    long getCacheMisses(final StatsSubsystem subsystem) {
+        return window.cacheMisses[subsystem.ordinal()].sum();
+    } // end method
+
+    /**
+     * Gets the time when statistics started being collected.
+     *
+     * @return Returns the time (in milliseconds) when statistics were last reset.
+     */
+    long getCollectingSince() {
+        return window.since;
+    } // end method
+
+    /**
+     * Throws away all statistics collected so far and starts collecting from scratch.
+     */
+    void reset() {
+        window = new Window();
+    } // end method
+
+    /**
+     * Formats nanoseconds into a short human-readable string,
+     * using microseconds or milliseconds, whichever fits better.
+     *
+     * @param nanos The nanoseconds value to format.
+     *
+     * @return Returns the formatted value, for example "250us" or "12.5ms".
+     */
+    static String formatNanos(final long nanos) {
+        if (TimeUnit.MILLISECONDS.toNanos(1) > nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos) + "us"; //NON-NLS
+        }
+
+        return String.format("%.1fms", nanos / 1000000.0); //NON-NLS
+    } // end method
+
+} // end class
@@ -0,0 +1,63 @@
+package com.martinambrus.adminAnything;
+
+/**
+ * Parts of AdminAnything for which we collect latency
+ * and cache statistics, displayed via /aa_stats.
+ *
+ * @author Martin Ambrus
+ */
+public enum StatsSubsystem {
+
+    /**
+     * Player and console command pre-processing (disables, redirects, overrides, mutes).
+     */
+    PREPROCESSOR("preprocessor"), //NON-NLS
+
+    /**
+     * Permission checks, including the AND / OR permission queries.
+     */
+    PERMISSIONS("permissions"), //NON-NLS
+
+    /**
+     * Filtering of tab completions sent to players.
+     */
+    TABCOMPLETE("tabcomplete"), //NON-NLS
+
+    /**
+     * Decoration of chat messages with clickable nick actions.
+     */
+    CHAT("chat"), //NON-NLS
+
+    /**
+     * Saving of configuration files.
+     */
+    CONFIG("config"), //NON-NLS
+
+    /**
+     * Lookups of commands and plugins they belong to.
+     */
+    COMMANDS("commands"); //NON-NLS
+
+    /**
+     * Name of this subsystem, as shown in /aa_stats.
+     */
+    private final String subsystemName;
+
+    /**
+     * Constructor.
+     *
+     * @param name Name of this subsystem, as shown in /aa_stats.
+     */
+    StatsSubsystem(final String name) {
+        this.subsystemName = name;
+    } //end method
+
+    /* (non-Javadoc)
+     * @see java.lang.Enum#toString()
+     */
+    @Override
+    public String toString() {
+        return this.subsystemName;
+    } //end method
+
+} // end class
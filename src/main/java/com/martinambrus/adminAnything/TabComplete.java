@@ -7,7 +7,6 @@ import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.command.TabCompleter;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -160,7 +159,7 @@ final class TabComplete implements Listener {
         Permissions               permUtils                = ((AdminAnything) plugin).getPermissionUtils();
         List<String>              helpDisablesCommandsList = AA_API.getCommandsList("helpDisables");
         Map<String, List<String>> disabledHelpCommandsMap  = new HashMap<String, List<String>>();
-        FileConfiguration         permsFromConfig          = AA_API.getManualPermDescriptionsConfig();
+        ManualPermDescriptions    permsFromConfig          = AA_API.getManualPermDescriptions();
         Player[] players;
 
         // if we're loading commands for a single player only,
@@ -257,18 +256,9 @@ final class TabComplete implements Listener {
                     tmpPerms.add(pair.getValue().getPermission());
                 } else {
                     // permission not present in the description file, try our internal YML descriptions file
-                    //noinspection HardCodedStringLiteral
-                    final List<String> descriptionedPerms = permsFromConfig
-                        .getStringList("manualPermissions." + pluginName.toLowerCase() + '.' + clearCommandName);
-
-                    // strip perms of their descriptions
-                    if (!descriptionedPerms.isEmpty()) {
-                        for (final String descPerm : descriptionedPerms) {
-                            // make sure it's not a custom command description
-                            if (!descPerm.startsWith("$")) {
-                                tmpPerms.add(descPerm.contains("=") ? descPerm.substring(0, descPerm.indexOf('=')) : descPerm);
-                            }
-                        }
+                    final int manualCommand = permsFromConfig.findCommand(pluginName.toLowerCase(), clearCommandName);
+                    for (int i = 0; i < permsFromConfig.getPermissionCount(manualCommand); i++) {
+                        tmpPerms.add(permsFromConfig.getPermission(manualCommand, i));
                     }
                 }
 
@@ -521,16 +511,9 @@ final class TabComplete implements Listener {
             try {
                 Class.forName("org.bukkit.event.player.PlayerCommandSendEvent");
                 for (Player p : players) {
-                    // if AA is not fully loaded yet, let's wait and fire up these only after its full load,
-                    // otherwise our PlayerCommandSendEvent will not react
-                    if (AA_API.isWarmingUp()) {
-                        Bukkit.getScheduler().scheduleSyncDelayedTask(this.plugin, new Runnable() {
-                            @Override
-                            public void run() {
-                                p.updateCommands();
-                            }
-                        }, 20 * 12); // full AA load takes 10 seconds, let's wait 12
-                    } else {
+                    // if AA is not fully loaded yet, the startup pipeline will update commands
+                    // for all online players once it's done, otherwise our PlayerCommandSendEvent will not react
+                    if (!AA_API.isWarmingUp()) {
                         // warmup period has passed, update this player's commands after 2 seconds,
                         // as we may have come from /op or /deop command and consequently from
                         // the actual PlayerCommandSendEvent event already - which would create a stupid loop
@@ -565,9 +548,12 @@ final class TabComplete implements Listener {
         // and before the PlayerJoinEvent event, so just disable all tab-completions until we reload them via
         // the init() method in the PlayerJoinEvent event
         if (null == playerCommands.get(p.getName())) {
+            AA_API.recordCacheLookup(StatsSubsystem.TABCOMPLETE, false);
             return new ArrayList<String>();
         }
 
+        AA_API.recordCacheLookup(StatsSubsystem.TABCOMPLETE, true);
+
         // all players would have commands that are in the superglobal group,
         // so start with those
         String worldName = p.getWorld().getName();
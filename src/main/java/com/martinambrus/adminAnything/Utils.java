@@ -35,11 +35,9 @@ public enum Utils {
      * <br><br><strong>Example:</strong>
      * <pre>
      * {@code
-     * // ... as used in /aa_mutecommand ...
-     * // check if this class should still be muted
-     * if ((mutedClasses.get(newMutedClass) + maxMuteCheckTimeout) > Utils.getUnixTimestamp()) {
-     *     lastClassMuted = true;
-     * }
+     * // ... as used in AgentLoader ...
+     * // initialize the agent JAR file
+     * final File jarFile = new File(dataFolder, "AdminAnythingTransformAgent" + Utils.getUnixTimestamp() + ".jar");
      * }
      * </pre>
      *
@@ -54,8 +52,11 @@ public enum Utils {
      *
      * <br><br><strong>Example:</strong>
      * <pre>
-     * // ... as used in the commandPreprocessor event listener ...
-     * Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
+     * // current time
+     * final int now = Utils.getUnixTimestamp(0L);
+     *
+     * // time of the last modification of a file
+     * final int modified = Utils.getUnixTimestamp(file.lastModified());
      * </pre>
      *
      * @param i Integer timestamp in milliseconds to convert.
@@ -0,0 +1,175 @@
+package com.martinambrus.adminAnything.commands;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.AuditRecord;
+import com.martinambrus.adminAnything.Constants;
+import com.martinambrus.adminAnything.Utils;
+import mkremins.fanciful.FancyMessage;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Shows recent entries of the audit log, i.e. commands AdminAnything
+ * blocked, redirected, overrode or muted and changes to its rules,
+ * optionally filtered by player, command or type.
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_audit extends AbstractCommand {
+
+    /***
+     * /aa_audit [player:name] [command:name] [type:name] [page] - shows recent audit log entries,
+     * newest first, optionally filtered by the player (or plugin) who caused them, the command
+     * they're about and their type (such as blocked or rule-added) or rule type (such as redirects)
+     *
+     * @param sender The player who is calling this command.
+     * @param cmd The actual command that is being executed.
+     * @param unused Name of the command which is being executed.
+     * @param args Any arguments passed to this command.
+     *
+     * @return Returns true if the command was used correctly, false otherwise.
+     */
+    @Override
+    public boolean onCommand(final CommandSender sender, final Command cmd, final String unused, final String[] args) {
+        if (!super.onCommand(sender, cmd, unused, args)) {
+            return true;
+        }
+
+        //noinspection HardCodedStringLiteral
+        if (!AA_API.isFeatureEnabled("audit")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("general.feature-disabled"));
+            return true;
+        }
+
+        // pagination
+        final double maxPerPage = ((sender instanceof ConsoleCommandSender) ? 100.0 : AA_API.getMaxRecordsPerPage());
+        final String intRegex = Constants.INT_REGEX.toString();
+        int requestedPage = 1;
+
+        // filters
+        String player = null;
+        String command = null;
+        String type = null;
+
+        for (final String arg : args) {
+            final String lowerArg = arg.toLowerCase();
+
+            //noinspection HardCodedStringLiteral
+            if (lowerArg.startsWith("player:")) {
+                player = lowerArg.substring(7);
+            } else if (lowerArg.startsWith("command:")) {
+                command = lowerArg.substring(8);
+                if (command.startsWith("/")) {
+                    command = command.substring(1);
+                }
+            } else if (lowerArg.startsWith("type:")) {
+                type = lowerArg.substring(5);
+            } else if (arg.matches(intRegex)) {
+                requestedPage = Integer.parseInt(arg);
+            } else {
+                // invalid arguments, let the server show usage for this command
+                return false;
+            }
+        }
+
+        // this one is used to generate next/previous links
+        // by using the same output as the input we've been given
+        int requestedPageOriginal = requestedPage;
+
+        // no nullpointers for you :P
+        if (0 >= requestedPage) {
+            requestedPage = 1;
+            requestedPageOriginal = requestedPage;
+        }
+
+        //noinspection HardCodedStringLiteral
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        final List<String> messages = new ArrayList<String>();
+
+        for (final AuditRecord record : AA_API.getAuditRecords()) {
+            if (null != player && !record.getActor().toLowerCase().equals(player)) {
+                continue;
+            }
+
+            if (null != command && !record.getCommand().toLowerCase().startsWith(command)) {
+                continue;
+            }
+
+            if (null != type && !record.getAction().toString().equals(type) && !(null != record.getDetail() && record
+                .getDetail().toLowerCase().equals(type))) {
+                continue;
+            }
+
+            messages.add(ChatColor.GRAY + dateFormat.format(new Date(record.getTime())) + ' '
+                + ChatColor.GOLD + record.getAction() + ' '
+                + ChatColor.WHITE + record.getActor() + ChatColor.GRAY + ": "
+                + ChatColor.AQUA + '/' + record.getCommand()
+                + (null == record.getDetail() ? "" : ChatColor.GRAY + " -> " + ChatColor.WHITE + record.getDetail()));
+        }
+
+        // calculate pagination data
+        String pages = String.valueOf(Math.ceil(messages.size() / maxPerPage));
+        pages = pages.substring(0, pages.indexOf('.'));
+        final int pagesInt = Integer.parseInt(pages);
+
+        if (requestedPage > pagesInt) {
+            requestedPage = pagesInt - 1;
+        } else {
+            requestedPage--;
+        }
+
+        // cut messages, so only the ones we requested are shown
+        int fromIndex = (int) Math.max(0, requestedPage * maxPerPage);
+        final int toIndex = (int) Math.min(messages.size(), (requestedPage + 1) * maxPerPage);
+
+        if (fromIndex >= toIndex) {
+            fromIndex = Math.max(0, toIndex - 1);
+        }
+
+        // start sending
+        sender.sendMessage("");
+
+        final FancyMessage topMessage = new FancyMessage("== ").color(ChatColor.WHITE); //NON-NLS
+
+        // left arrow navigation
+        Utils.addChatTopNavigation(sender, fromIndex, topMessage, cmd, args, intRegex, requestedPageOriginal, true);
+
+        // header
+        topMessage
+            .then(AA_API.__("audit.title"))
+            .color(ChatColor.YELLOW);
+
+        topMessage
+            .then(" (" + (Math.max(0, requestedPage) + 1) + ' ' + AA_API.__("general.of") + ' ' + Math.max(1, pagesInt) + ')') //NON-NLS
+            .color(ChatColor.YELLOW);
+
+        // right arrow navigation
+        Utils.addChatTopNavigation(sender, fromIndex, topMessage, cmd, args, intRegex, requestedPageOriginal, false);
+
+        topMessage.then(" ==").send(sender); //NON-NLS
+
+        sender.sendMessage("");
+
+        if (!messages.isEmpty()) {
+            for (final String msg : messages.subList(fromIndex, toIndex)) {
+                sender.sendMessage(msg);
+            }
+        } else {
+            sender.sendMessage(ChatColor.RED + AA_API.__("audit.no-records"));
+        }
+
+        if (0 < AA_API.getAuditDropped()) {
+            sender.sendMessage(ChatColor.GRAY + AA_API.__("audit.dropped", AA_API.getAuditDropped()));
+        }
+
+        return true;
+    } // end method
+
+} // end class
@@ -0,0 +1,117 @@
+package com.martinambrus.adminAnything.commands;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.RuleBatch;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.lang.reflect.InvocationTargetException;
+import java.rmi.AccessException;
+import java.util.List;
+
+/**
+ * Applies a whole rule template (a YAML file with ignores, overrides, removals,
+ * mutes, redirects and virtual permissions to add or remove) at once,
+ * saving each of the changed config files only once.
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_batch extends AbstractCommand {
+
+    /**
+     * Name of the folder within AA's data folder which holds rule templates for /aa_batch.
+     */
+    public static final String BATCH_FOLDER_NAME = "batches"; //NON-NLS
+
+    /***
+     * /aa_batch file - validates all rules from the given rule template file
+     * and applies them if all of them are valid
+     *
+     * @param sender The player who is calling this command.
+     * @param cmd The actual command that is being executed.
+     * @param unused Name of the command which is being executed.
+     * @param args Any arguments passed to this command.
+     *
+     * @return Returns true if the command was used correctly, false otherwise.
+     */
+    @Override
+    public boolean onCommand(final CommandSender sender, final Command cmd, final String unused, final String[] args) {
+        if (!super.onCommand(sender, cmd, unused, args)) {
+            return true;
+        }
+
+        //noinspection HardCodedStringLiteral
+        if (!AA_API.isFeatureEnabled("batch")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("general.feature-disabled"));
+            return true;
+        }
+
+        // check for the rule template file name
+        if (1 != args.length) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("batch.provide-file", BATCH_FOLDER_NAME));
+            return false;
+        }
+
+        // never allow reading files outside of the batches folder
+        String fileName = args[0];
+        if (fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("batch.file-not-found", fileName, BATCH_FOLDER_NAME));
+            return true;
+        }
+
+        //noinspection HardCodedStringLiteral
+        if (!fileName.toLowerCase().endsWith(".yml")) {
+            fileName += ".yml"; //NON-NLS
+        }
+
+        final File batchFile = new File(new File(AA_API.getAaDataDir(), BATCH_FOLDER_NAME), fileName);
+        if (!batchFile.isFile()) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("batch.file-not-found", fileName, BATCH_FOLDER_NAME));
+            return true;
+        }
+
+        final YamlConfiguration batchConfig = new YamlConfiguration();
+        try {
+            batchConfig.load(batchFile);
+        } catch (final IOException | InvalidConfigurationException ex) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("batch.file-invalid", fileName, ex.getMessage()));
+            return true;
+        }
+
+        final RuleBatch batch = RuleBatch.fromConfig(batchConfig);
+        if (batch.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("batch.file-empty", fileName));
+            return true;
+        }
+
+        final List<String> errors;
+        try {
+            errors = AA_API.applyRuleBatch(sender, batch);
+        } catch (AccessException | IllegalAccessException | InvalidClassException | NoSuchMethodException
+            | InvocationTargetException e) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("error.general-for-chat"));
+            Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API.__("error.general-for-chat"));
+            e.printStackTrace();
+            return true;
+        }
+
+        if (errors.isEmpty()) {
+            sender.sendMessage(ChatColor.GREEN + AA_API.__("batch.applied", batch.size(), fileName));
+        } else {
+            sender.sendMessage(ChatColor.RED + AA_API.__("batch.rejected", fileName));
+            for (final String error : errors) {
+                sender.sendMessage(ChatColor.RED + " - " + ChatColor.WHITE + error);
+            }
+        }
+
+        return true;
+    } // end method
+
+} // end class
@@ -0,0 +1,111 @@
+package com.martinambrus.adminAnything.commands;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.RuleSnapshot;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Exports all of AdminAnything's rules (ignores, overrides, virtual permissions,
+ * removals, mutes, redirects and help disables) into a single snapshot file,
+ * which can be imported on another server via /aa_import.
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_export extends AbstractCommand {
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    private final Plugin plugin;
+
+    /**
+     * Constructor, stores the reference to AdminAnything instance,
+     * as we'll need it to write the snapshot file asynchronously.
+     *
+     * @param aa Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    public Aa_export(final Plugin aa) {
+        plugin = aa;
+    } // end method
+
+    /***
+     * /aa_export [name] - exports all rules into a snapshot file in the snapshots folder
+     *
+     * @param sender The player who is calling this command.
+     * @param cmd The actual command that is being executed.
+     * @param unused Name of the command which is being executed.
+     * @param args Any arguments passed to this command.
+     *
+     * @return Returns true if the command was used correctly, false otherwise.
+     */
+    @Override
+    public boolean onCommand(final CommandSender sender, final Command cmd, final String unused, final String[] args) {
+        if (!super.onCommand(sender, cmd, unused, args)) {
+            return true;
+        }
+
+        //noinspection HardCodedStringLiteral
+        if (!AA_API.isFeatureEnabled("export")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("general.feature-disabled"));
+            return true;
+        }
+
+        if (1 < args.length) {
+            return false;
+        }
+
+        //noinspection HardCodedStringLiteral
+        String fileName = 1 == args.length ? args[0] :
+                          "rules-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+        // never allow writing files outside of the snapshots folder
+        if (fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("snapshot.invalid-name", fileName));
+            return true;
+        }
+
+        if (!fileName.toLowerCase().endsWith(RuleSnapshot.FILE_EXTENSION)) {
+            fileName += RuleSnapshot.FILE_EXTENSION;
+        }
+
+        // rules are copied on the main thread, so they can't change while being written
+        final RuleSnapshot snapshot = AA_API.captureRuleSnapshot();
+        final File folder = new File(AA_API.getAaDataDir(), RuleSnapshot.FOLDER_NAME);
+        final File snapshotFile = new File(folder, fileName);
+        final String finalFileName = fileName;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    if (!folder.isDirectory() && !folder.mkdirs()) {
+                        throw new IOException(folder.getAbsolutePath());
+                    }
+
+                    snapshot.write(snapshotFile);
+                    sender.sendMessage(ChatColor.GREEN + AA_API.__("snapshot.exported", snapshot.size(),
+                        ChatColor.WHITE + finalFileName + ChatColor.GREEN));
+                } catch (final IOException ex) {
+                    sender.sendMessage(ChatColor.RED + AA_API.__("error.general-for-chat"));
+                    Bukkit.getLogger().severe('[' + AA_API.getAaName() + "] " + AA_API
+                        .__("snapshot.write-failed", finalFileName));
+                    ex.printStackTrace();
+                }
+            }
+
+        });
+
+        return true;
+    } // end method
+
+} // end class
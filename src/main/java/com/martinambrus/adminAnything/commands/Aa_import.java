@@ -0,0 +1,150 @@
+package com.martinambrus.adminAnything.commands;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.RuleSnapshot;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.util.List;
+
+/**
+ * Replaces all of AdminAnything's rules by the ones from a snapshot file
+ * previously created via /aa_export. The snapshot is read and verified
+ * asynchronously and all of its rules are then swapped in at once.
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_import extends AbstractCommand {
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    private final Plugin plugin;
+
+    /**
+     * Constructor, stores the reference to AdminAnything instance,
+     * as we'll need it to read the snapshot file asynchronously.
+     *
+     * @param aa Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    public Aa_import(final Plugin aa) {
+        plugin = aa;
+    } // end method
+
+    /***
+     * /aa_import name - replaces all rules by the ones from a snapshot file in the snapshots folder
+     *
+     * @param sender The player who is calling this command.
+     * @param cmd The actual command that is being executed.
+     * @param unused Name of the command which is being executed.
+     * @param args Any arguments passed to this command.
+     *
+     * @return Returns true if the command was used correctly, false otherwise.
+     */
+    @Override
+    public boolean onCommand(final CommandSender sender, final Command cmd, final String unused, final String[] args) {
+        if (!super.onCommand(sender, cmd, unused, args)) {
+            return true;
+        }
+
+        //noinspection HardCodedStringLiteral
+        if (!AA_API.isFeatureEnabled("export")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("general.feature-disabled"));
+            return true;
+        }
+
+        if (1 != args.length) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("snapshot.provide-file", RuleSnapshot.FOLDER_NAME));
+            return false;
+        }
+
+        // never allow reading files outside of the snapshots folder
+        String fileName = args[0];
+        if (fileName.contains("..") || fileName.contains("/") || fileName.contains("\\")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("snapshot.invalid-name", fileName));
+            return true;
+        }
+
+        if (!fileName.toLowerCase().endsWith(RuleSnapshot.FILE_EXTENSION)) {
+            fileName += RuleSnapshot.FILE_EXTENSION;
+        }
+
+        final File snapshotFile = new File(new File(AA_API.getAaDataDir(), RuleSnapshot.FOLDER_NAME), fileName);
+        if (!snapshotFile.isFile()) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("batch.file-not-found", fileName, RuleSnapshot.FOLDER_NAME));
+            return true;
+        }
+
+        final String finalFileName = fileName;
+
+        // read and verify the snapshot off the main thread
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                final RuleSnapshot snapshot;
+
+                try {
+                    snapshot = RuleSnapshot.read(snapshotFile);
+                } catch (final IOException ex) {
+                    sender.sendMessage(ChatColor.RED + AA_API.__("batch.file-invalid", finalFileName, ex.getMessage()));
+                    return;
+                }
+
+                // we could have been disabled while the file was being read
+                if (!plugin.isEnabled()) {
+                    return;
+                }
+
+                // ... and swap all rules in on the main thread
+                Bukkit.getScheduler().runTask(plugin, new Runnable() {
+
+                    @Override
+                    public void run() {
+                        applySnapshot(sender, snapshot, finalFileName);
+                    }
+
+                });
+            }
+
+        });
+
+        return true;
+    } // end method
+
+    /**
+     * Replaces all current rules by the ones from the given snapshot
+     * and lets the sender know how it went. Must be called on the main thread.
+     *
+     * @param sender The player or console who requested this import.
+     * @param snapshot The snapshot to import.
+     * @param fileName Name of the snapshot file.
+     */
+    private void applySnapshot(final CommandSender sender, final RuleSnapshot snapshot, final String fileName) {
+        final List<String> errors;
+
+        try {
+            errors = AA_API.applyRuleSnapshot(sender, snapshot, fileName);
+        } catch (final InvalidClassException ex) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("error.general-for-chat"));
+            ex.printStackTrace();
+            return;
+        }
+
+        if (errors.isEmpty()) {
+            sender.sendMessage(ChatColor.GREEN + AA_API.__("snapshot.imported", snapshot.size(),
+                ChatColor.WHITE + fileName + ChatColor.GREEN, snapshot.getAaVersion()));
+        } else {
+            for (final String error : errors) {
+                sender.sendMessage(ChatColor.RED + error);
+            }
+        }
+    } // end method
+
+} // end class
@@ -2,13 +2,13 @@ package com.martinambrus.adminAnything.commands;
 
 import com.martinambrus.adminAnything.AA_API;
 import com.martinambrus.adminAnything.Constants;
+import com.martinambrus.adminAnything.ManualPermDescriptions;
 import mkremins.fanciful.FancyMessage;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
 import java.io.InvalidClassException;
@@ -117,12 +117,12 @@ public class Aa_listcommands_runnable implements Runnable {
     private String descriptionSearch = null;
 
     /**
-     * Configuration file handle for the static permission descriptions
+     * Compiled static permission descriptions
      * which are used for popular plugins that do not actually have these
      * descriptions in their plugin.yml file (mostly because they handle their
      * commands dynamically).
      */
-    public FileConfiguration permsFromConfig;
+    public ManualPermDescriptions permsFromConfig;
 
     /**
      * Constructor, takes all the parameters needed for this all to work
@@ -141,7 +141,7 @@ public class Aa_listcommands_runnable implements Runnable {
         this.cmd = cmd;
 
         // load static permissions descriptions from the yml file
-        permsFromConfig = AA_API.getManualPermDescriptionsConfig();
+        permsFromConfig = AA_API.getManualPermDescriptions();
 
         // load filter defaults
         if (AA_API.configContainsKey("listcommandsDefaults.showdescriptions")) {
@@ -752,33 +752,27 @@ public class Aa_listcommands_runnable implements Runnable {
                     // load permissions from the internal config file and fallback to the getPermission() method if nothing is found
                     String perm = null;
                     final String defaultPerm = pair.getValue().getPermission();
-                    //noinspection HardCodedStringLiteral
-                    final List<String> tmpPerms = permsFromConfig
-                        .getStringList("manualPermissions." + lowerCasePluginName + '.' + clearCommandName);
+                    final int manualCommand = permsFromConfig.findCommand(lowerCasePluginName, clearCommandName);
+                    final int manualPermsCount = permsFromConfig.getPermissionCount(manualCommand);
 
                     if (moreLines) {
-                        if (null != tmpPerms && !tmpPerms.isEmpty()) {
+                        if (0 < manualPermsCount) {
                             perm = ChatColor.WHITE.toString();
-                            for (final String tmpPerm : tmpPerms) {
-                                // make sure it's not a custom command description
-                                if (!tmpPerm.startsWith("$")) {
-                                    perm = showPermDescriptions ? perm + "\n   --> " + ChatColor.YELLOW
-                                        + tmpPerm.replace("=", " = " + ChatColor.WHITE) :
-                                           perm + "\n   --> " + (tmpPerm.contains("=")
-                                                                 ? tmpPerm.substring(0, tmpPerm.indexOf('=')) :
-                                                                 tmpPerm);
-                                }
+                            for (int i = 0; i < manualPermsCount; i++) {
+                                final String permDescription = permsFromConfig.getPermissionDescription(manualCommand, i);
+                                perm = perm + "\n   --> " + (showPermDescriptions ? ChatColor.YELLOW : "")
+                                    + permsFromConfig.getPermission(manualCommand, i)
+                                    + (showPermDescriptions && null != permDescription ?
+                                       " = " + ChatColor.WHITE + permDescription : "");
                             }
                         } else if (null != defaultPerm && !defaultPerm.isEmpty()) {
                             perm = ChatColor.WHITE + "[" + ChatColor.YELLOW + defaultPerm + ChatColor.WHITE + ']';
                         }
                     } else {
-                        if (null != tmpPerms && !tmpPerms.isEmpty()) {
+                        if (0 < manualPermsCount) {
                             StringBuilder permBuilder = new StringBuilder(ChatColor.WHITE + AA_API.getConfigString("listCommandsSeparator", " ") + "[" + ChatColor.YELLOW);
-                            for (final String tmpPerm : tmpPerms) {
-                                permBuilder.append(
-                                    tmpPerm.contains("=") ? tmpPerm.substring(0, tmpPerm.indexOf('=')) : tmpPerm)
-                                           .append(", ");
+                            for (int i = 0; i < manualPermsCount; i++) {
+                                permBuilder.append(permsFromConfig.getPermission(manualCommand, i)).append(", ");
                             }
                             perm = permBuilder.toString();
                             perm = perm.substring(0, perm.length() - 2) + ChatColor.WHITE + ']';
@@ -3,20 +3,27 @@ package com.martinambrus.adminAnything.commands;
 import com.martinambrus.adminAnything.AA_API;
 import com.martinambrus.adminAnything.Constants;
 import com.martinambrus.adminAnything.LogFilter;
+import com.martinambrus.adminAnything.MuteSessions;
+import com.martinambrus.adminAnything.MutedOutputLog;
+import com.martinambrus.adminAnything.OutputMutes;
 import com.martinambrus.adminAnything.Utils;
 import com.martinambrus.adminAnything.events.AAAdjustListenerPrioritiesEvent;
 import com.martinambrus.adminAnything.events.AAReloadEvent;
 import com.martinambrus.adminAnything.events.AASaveMutedCommandsEvent;
 import com.martinambrus.adminAnything.instrumentation.Instrumentator;
+import com.martinambrus.adminAnything.instrumentation.LibraryResolver;
+import com.martinambrus.adminAnything.listeners.WorldRules;
 import mkremins.fanciful.FancyMessage;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
 import org.bukkit.plugin.Plugin;
 
-import java.io.File;
 import java.util.*;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -35,47 +42,25 @@ import java.util.logging.Logger;
  * If a muted command was run before just before sendMessage()
  * was called, we simply cancel it. There is no way for us to know
  * exactly which command has requested this because of the events system,
- * so we have to mute everything until a certain time has passed.
+ * so the first class sending a message from the thread which dispatched
+ * the muted command gets muted until a certain time has passed.
  *
  * This timeout time is set to 1.5 seconds by default, which is by far
  * enough to mute anything that should be trying to call sendMessage().
+ * All of this state is kept in {@link com.martinambrus.adminAnything.MuteSessions}.
  *
- * After this timeout is reached, we reset our internal status and will
+ * After this timeout is reached, the mute session ends and we will
  * no longer be muting any commands up until another command that should
  * be muted is run - at which point this whole circus starts over :-P
  *
  * @author Martin Ambrus
  */
-public class Aa_mutecommand extends AbstractCommand {
-
-    /**
-     * Determines how long ago has the last command
-     * that should be muted ran.
-     */
-    public static int lastMuteTimestamp = 0;
-
-    /**
-     * Stores a name for the class which called
-     * a muted command.
-     */
-    public static String newMutedClass;
-
-    /**
-     * Determines whether the last class that called sendMessage()
-     * was muted.
-     */
-    public static boolean lastClassMuted = false;
-
-    /**
-     * Determined whether we should capture the name
-     * of the current class that calls sendMessage().
-     */
-    public static boolean captureNextCommandSender = false;
+public class Aa_mutecommand extends AbstractCommand implements Listener {
 
     /**
      * Determines whether we've re-transformed any classes yet.
-     * This will be set to true after the first instrumentation,
-     * so we don't do this unnecessarily again and again.
+     * This will be set to true only once all server classes were actually redefined,
+     * so muted commands keep going through VirtualCommandSender until then.
      */
     public static boolean retransformed = false;
 
@@ -98,15 +83,10 @@ public class Aa_mutecommand extends AbstractCommand {
     public static LogFilter logFilter;
 
     /**
-     * Maximum time to cancel all sendMessage() calls for.
+     * Names of all server classes we've transformed, so we can restore them
+     * once there is nothing left to mute.
      */
-    private static final double maxMuteCheckTimeout = 1.5;
-
-    /**
-     * Cache.
-     * A map with all classes that should be muted.
-     */
-    private static final Map<String, Integer> mutedClasses = new HashMap<String, Integer>();
+    private static final Set<String> transformedClasses = new HashSet<String>();
 
     /**
      * Instance of {@link com.martinambrus.adminAnything.instrumentation.Instrumentator}.
@@ -140,12 +120,17 @@ public class Aa_mutecommand extends AbstractCommand {
         //noinspection HardCodedStringLiteral
         AA_API.startRequiredListener("commandPreprocessor");
 
-        // apply server core classes transformations if we have any commands muted already
+        // transform or restore server classes as the last mute gets added or removed
+        //noinspection HardCodedStringLiteral
+        AA_API.startRequiredListener("muteInstrumentation", this);
+
+        // apply server core classes transformations if we have any commands (globally or in any world)
+        // or output patterns muted already
         // note: we have to do this once the server is fully loaded, otherwise we wouldn't be able to get
         //       this command's command executor, i.e. this very class and we'd get an instance of AA instead
         //       in AATransformAgent
         //noinspection HardCodedStringLiteral
-        if (!AA_API.getCommandsList("mutes").isEmpty()) {
+        if (!AA_API.getCommandsList("mutes").isEmpty() || OutputMutes.isActive() || WorldRules.hasMutes()) {
             // check for native overrides system being enabled
             // and delay showing to user at the end of server load,
             // so it's well visible
@@ -181,7 +166,14 @@ public class Aa_mutecommand extends AbstractCommand {
         String serverVersion = '/' + Utils.getMinecraftVersion() + '/';
 
         // prepare code to inject into existing server methods calling sendMessage()
-        final String muteCheckCode = "" + "try {" + "  String commandCaller;"
+        final String muteCheckCode = ""
+                // fast path - don't do anything if no mute session is running and no output patterns are muted,
+                // using the flags published via system properties, so we don't need any reflection
+                + "Object aaMuteSessionsActive = System.getProperties().get(\"" + MuteSessions.ACTIVE_PROPERTY + "\");"
+                + "Object aaOutputMutesActive = System.getProperties().get(\"" + OutputMutes.ACTIVE_PROPERTY + "\");"
+                + "if ((aaMuteSessionsActive != null && ((java.util.concurrent.atomic.AtomicBoolean) aaMuteSessionsActive).get())"
+                + "  || (aaOutputMutesActive != null && ((java.util.concurrent.atomic.AtomicBoolean) aaOutputMutesActive).get())) {"
+                + "try {" + "  String commandCaller;"
                 // get the calling class
                 + "  try {" + "    commandCaller = sun.reflect.Reflection.getCallerClass(3).getName();"
                 // adjust if we got Bukkit native class - that means our plugin is 1 position to the front
@@ -198,29 +190,13 @@ public class Aa_mutecommand extends AbstractCommand {
                 + "  if (commandCaller != null && !commandCaller.endsWith(\".PlayerConnection\")) {"
                 // get command executor for Aa_mutecommand, so we can work with it
                 + "    org.bukkit.command.CommandExecutor executor = org.bukkit.Bukkit.getPluginCommand(\"aa_mutecommand\").getExecutor();"
-                + "    boolean isClassMuted = false;" + "  "
-                // always set newMutedClass to our current caller, so the command executor method
-                // will be able to do a lookup if our class is one of the muted ones and thus
-                // needs to be muted :P (we can't work with maps and lists here /VerifyError/)
-                + "    executor.getClass().getDeclaredField(\"newMutedClass\").set(null, commandCaller);" + "  "
-                // should we be muting the current class? (since it is the first one to message player / broadcast
-                // after a muted command was ran)
-                + "    boolean captureNextCommandSender = executor.getClass().getDeclaredField(\"captureNextCommandSender\").getBoolean(null);"
-                + "    if (captureNextCommandSender) {"
-                // check that we're not after 1.5s threshold, in which case we're no longer muting anyone
-                + "      executor.getClass().getDeclaredMethod(\"verifyMuteCheckTimeout\", null).invoke(null, null);"
-                // update captureNextCommandSender which will be changed now if we're beyond the timout
-                + "      captureNextCommandSender = executor.getClass().getDeclaredField(\"captureNextCommandSender\").getBoolean(null);"
-                // we're still within allowed time, let's mute this one
-                + "      if (captureNextCommandSender) {" + "        isClassMuted = true;" + "      }" + "    } else {"
-                + "      executor.getClass().getDeclaredMethod(\"checkIsClassMuted\", null).invoke(null, null);"
-                + "      isClassMuted = executor.getClass().getDeclaredField(\"lastClassMuted\").getBoolean(null);"
-                + "    }" + "  "
-                // let the command executor add this class to the map of muted classes
-                + "    if (captureNextCommandSender) {"
-                + "      executor.getClass().getDeclaredMethod(\"setCurrentClassMuted\", null).invoke(null, null);"
-                + "    }" + "  " + "    if (isClassMuted) {" + "      return;" + "    }" + "  }"
-                + "} catch (java.lang.Exception exc) {}";
+                // let the mute sessions and output mutes registries decide whether this message should be muted
+                // (we can't work with maps and lists here /VerifyError/)
+                + "    Object isClassMuted = executor.getClass().getDeclaredMethod(\"isMutedOutput\", new Class[] { String.class, Object[].class })"
+                + "      .invoke(null, new Object[] { commandCaller, $args });"
+                + "    if (((Boolean) isClassMuted).booleanValue()) {" + "      return;" + "    }" + "  }"
+                + "} catch (java.lang.Exception exc) {}"
+                + "}";
 
         // adjust CraftServer.broadcastMessage(), so it will return when ran from a muted command
         final Map<String, String> broadcastMessagePatch = new HashMap<String, String>();
@@ -405,68 +381,95 @@ public class Aa_mutecommand extends AbstractCommand {
         }
         retransformations.put(colorConsoleCommandSendMessageClass, colorConsoleCommandSendMessagePatch);
 
-        retransformed = true;
+        // only transform classes for the types of command senders we need to mute output for,
+        // an empty list means all of them
+        final List<String> senderTypes = AA_API.getConfigStringList("mutecommandSenderTypes");
+        if (!senderTypes.isEmpty()) {
+            final Iterator<String> classesIterator = retransformations.keySet().iterator();
+            while (classesIterator.hasNext()) {
+                if (!senderTypes.contains(getSenderType(classesIterator.next()))) {
+                    classesIterator.remove();
+                }
+            }
+        }
 
         return retransformations;
     } // end method
 
     /**
-     * Checks whether the previously saved class name
-     * should be muted and sets the internal variables
-     * accordingly.
+     * Determines the type of command sender whose messages go through the given server class,
+     * as used in the mutecommandSenderTypes configuration list.
+     *
+     * @param className Name of the server class, in its internal form (i.e. org/bukkit/...).
+     *
+     * @return Returns one of players, broadcasts, console, rcon, commandblocks or functions.
      */
-    public static void checkIsClassMuted() {
-        // only consider main classes, as their subclasses are part of them
-        if (newMutedClass.contains("$")) {
-            newMutedClass = newMutedClass.substring(0, newMutedClass.indexOf('$'));
-        }
-
-        if (mutedClasses.containsKey(newMutedClass)) {
-            // check if this class should still be muted
-            if ((mutedClasses.get(newMutedClass) + maxMuteCheckTimeout) > Utils.getUnixTimestamp()) {
-                lastClassMuted = true;
-            } else {
-                // class should be muted no more
-                mutedClasses.remove(newMutedClass);
-                lastClassMuted = false;
-            }
-        } else {
-            lastClassMuted = false;
-        }
-    } // end method
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static String getSenderType(final String className) {
+        final String simpleName = className.substring(className.lastIndexOf('/') + 1);
 
-    /**
-     * Checks whether we're still within a timeout to mute
-     * all commands that call sendMessage() and sets the internal
-     * variables accordingly.
-     */
-    public static void verifyMuteCheckTimeout() {
-        if ((lastMuteTimestamp + maxMuteCheckTimeout) < Utils.getUnixTimestamp()) {
-            // we're beyond the check timeout, nothing to do here
-            captureNextCommandSender = false;
+        switch (simpleName) {
+            case "CraftServer":
+            case "PlayerList":
+                return "broadcasts";
+
+            case "CraftConsoleCommandSender":
+            case "ColouredConsoleSender":
+            case "MinecraftServer":
+                return "console";
+
+            case "CraftRemoteConsoleCommandSender":
+            case "RemoteControlCommandListener":
+                return "rcon";
+
+            case "CraftBlockCommandSender":
+            case "CommandBlockListenerAbstract":
+            case "CraftMinecartCommand":
+                return "commandblocks";
+
+            case "CraftFunctionCommandSender":
+            case "ProxiedNativeCommandSender":
+                return "functions";
+
+            default:
+                return "players";
         }
     } // end method
 
     /**
-     * Sets previously saved class as one that should be muted.
+     * Checks whether a message sent by the given class should be muted, either because
+     * it's the output of a muted command or because it matches any of the muted output patterns.
+     * Called from the code injected into server classes, which cannot see our
+     * {@link com.martinambrus.adminAnything.MuteSessions} and {@link com.martinambrus.adminAnything.OutputMutes}
+     * registries directly.
+     *
+     * @param callerClassName Name of the class which is sending the message.
+     * @param args Parameters of the instrumented method, i.e. the message itself.
+     *
+     * @return Returns true if the message should be muted, false otherwise.
      */
-    public static void setCurrentClassMuted() {
-        // only consider main classes, as their subclasses are part of them
-        if (newMutedClass.contains("$")) {
-            newMutedClass = newMutedClass.substring(0, newMutedClass.indexOf('$'));
+    public static boolean isMutedOutput(final String callerClassName, final Object[] args) {
+        final String mutedCommand = MuteSessions.getMessageMute(callerClassName);
+        if (null != mutedCommand) {
+            // keep suppressed output of selected commands for /aa_mutelog
+            MutedOutputLog.capture(mutedCommand, args);
+            return true;
         }
 
-        mutedClasses.put(newMutedClass, Utils.getUnixTimestamp());
-        captureNextCommandSender = false;
+        return OutputMutes.shouldMute(args);
     } // end method
 
     /**
      * Sets chat filters.
      * This method is used if we cannot instrument server classes
      * for any reason, so we can mute at least some things in the chat.
+     * It's also used to mute console lines matching muted output patterns.
      */
-    private static void setFilters() {
-        logFilter = new LogFilter();
+    public static void setFilters() {
+        if (null == logFilter) {
+            logFilter = new LogFilter();
+        }
+
         final Enumeration<String> en = LogManager.getLogManager().getLoggerNames();
         while (en.hasMoreElements()) {
             final String el = en.nextElement();
@@ -483,20 +486,25 @@ public class Aa_mutecommand extends AbstractCommand {
         //noinspection HardCodedStringLiteral
         final Plugin aa = Bukkit.getPluginManager().getPlugin("AdminAnything");
 
-        // save (lib)attach.dll|so files for all OSes
-        // ... used to inject custom code into loaded classes for purposes like
-        //     cancelling broadcasts and player messages from muted commands etc.
-        if (!new File(AA_API.getAaDataDir() + "/libraries/natives/64/linux/libattach.so").exists()) {
-            aa.saveResource("libraries/natives/64/linux/libattach.so", true); //NON-NLS
-            aa.saveResource("libraries/natives/64/mac/libattach.dylib", true); //NON-NLS
-            aa.saveResource("libraries/natives/64/solaris/libattach.so", true); //NON-NLS
-            aa.saveResource("libraries/natives/64/windows/attach.dll", true); //NON-NLS
-        }
-
-        // instrument server classes
+        // instrument server classes, libraries are resolved locally
+        // and a missing javassist library is downloaded in the background,
+        // after which we'll come back here to finish the job
         try {
-            instrumentator = new Instrumentator(new File(AA_API.getAaDataDir(), "libraries/natives/").getPath());
-            instrumentator.instrumentate();
+            instrumentator = new Instrumentator(new LibraryResolver(aa));
+            final Set<String> transformed = instrumentator.instrumentate(new Runnable() {
+
+                @Override
+                public void run() {
+                    retransformCBMC();
+                }
+
+            });
+
+            // until the classes are really transformed, muted commands go through VirtualCommandSender
+            if (null != transformed) {
+                transformedClasses.addAll(transformed);
+                retransformed = true;
+            }
         } catch (final Throwable e) {
             if ( AA_API.getDebug() ) {
                 e.printStackTrace();
@@ -514,6 +522,54 @@ public class Aa_mutecommand extends AbstractCommand {
         setFilters();
     } // end method
 
+    /**
+     * Restores all server classes we've transformed to their original state,
+     * so servers which no longer mute anything don't run our code for every message.
+     * Classes will be transformed again as soon as something gets muted.
+     */
+    public static void restoreCBMC() {
+        if (!retransformed || !Instrumentator.restore(transformedClasses)) {
+            return;
+        }
+
+        transformedClasses.clear();
+        retransformed = false;
+        retransformationTried = false;
+
+        Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("commands.mute-instrumentation-removed"));
+    } // end method
+
+    /**
+     * React to the custom ReloadEvent which is fired whenever muted commands change,
+     * restoring server classes once the last mute is removed and transforming them
+     * again once a mute is added back, no matter where the change came from
+     * (commands, the API, batches, snapshot imports or config files edits).
+     *
+     * If the agent is not attached yet, it's attached right here. A missing javassist
+     * library is downloaded in the background and classes get transformed once it's ready.
+     *
+     * @param e The actual reload event with message that says who is this reload for.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onMutesReload(final AAReloadEvent e) {
+        //noinspection HardCodedStringLiteral
+        if (!"commandPreprocessor".equals(e.getMessage()) || !AA_API.isFeatureEnabled("mutecommand")) {
+            return;
+        }
+
+        //noinspection HardCodedStringLiteral
+        final boolean muting = !AA_API.getCommandsList("mutes").isEmpty() || OutputMutes.isActive()
+            || WorldRules.hasMutes();
+
+        if (muting && !retransformationTried) {
+            readyToRetransform = true;
+            retransformCBMC();
+            retransformationTried = true;
+        } else if (!muting && retransformed) {
+            restoreCBMC();
+        }
+    } // end method
+
     /***
      * /aa_muteCommand - mutes a command, so it won't broadcast any messaged to console or player chat
      *
@@ -565,7 +621,7 @@ public class Aa_mutecommand extends AbstractCommand {
         if (!retransformationTried) {
             readyToRetransform = true;
 
-            if (!new File(Instrumentator.getJavassistLibPath()).exists()) {
+            if (AA_API.getConfigBoolean("libraries.download") && !new LibraryResolver(plugin).isJavassistAvailable()) { //NON-NLS
                 sender.sendMessage(ChatColor.YELLOW + AA_API.__("commands.mute-downloading-javaassist"));
             }
             retransformCBMC();
@@ -0,0 +1,99 @@
+package com.martinambrus.adminAnything.commands;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.MutedOutputLog;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Shows recent output suppressed by /aa_mutecommand for muted commands
+ * configured to have their output captured, so they can stay muted
+ * while still being diagnosed.
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_mutelog extends AbstractCommand {
+
+    /***
+     * /aa_mutelog [command] - shows recent suppressed output of the given muted command
+     * or lists all muted commands with captured output when called without parameters
+     *
+     * @param sender The player who is calling this command.
+     * @param cmd The actual command that is being executed.
+     * @param unused Name of the command which is being executed.
+     * @param args Any arguments passed to this command.
+     *
+     * @return Returns true if the command was used correctly, false otherwise.
+     */
+    @Override
+    public boolean onCommand(final CommandSender sender, final Command cmd, final String unused, final String[] args) {
+        if (!super.onCommand(sender, cmd, unused, args)) {
+            return true;
+        }
+
+        //noinspection HardCodedStringLiteral
+        if (!AA_API.isFeatureEnabled("mutelog")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("general.feature-disabled"));
+            return true;
+        }
+
+        // no command given, list the ones we have output for
+        if (0 == args.length) {
+            final List<String> commands = MutedOutputLog.getCapturedCommands();
+            if (commands.isEmpty()) {
+                sender.sendMessage(ChatColor.RED + AA_API.__("mutelog.no-commands"));
+            } else {
+                sender.sendMessage(ChatColor.YELLOW + AA_API
+                    .__("mutelog.captured-commands", ChatColor.WHITE + String.join(", ", commands)));
+            }
+
+            return true;
+        }
+
+        // muted commands can have parameters, i.e. "warp spawn"
+        String command = String.join(" ", args);
+        if (command.startsWith("/")) {
+            command = command.substring(1);
+        }
+
+        if (!MutedOutputLog.isCaptured(command)) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("mutelog.not-captured", command));
+            return true;
+        }
+
+        final List<MutedOutputLog.Entry> entries = MutedOutputLog.getEntries(command);
+        if (entries.isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + AA_API.__("mutelog.no-records", command));
+            return true;
+        }
+
+        // players only get the most recent lines, so they don't scroll out of their chat window
+        final int maxLines = (sender instanceof ConsoleCommandSender) ? entries.size() : (int) AA_API.getMaxRecordsPerPage();
+        final int fromIndex = Math.max(0, entries.size() - maxLines);
+
+        sender.sendMessage("");
+        sender.sendMessage(ChatColor.WHITE + "== " + ChatColor.YELLOW + AA_API.__("mutelog.title", command) //NON-NLS
+            + " (" + (entries.size() - fromIndex) + ')' + ChatColor.WHITE + " ==");  //NON-NLS
+        sender.sendMessage("");
+
+        //noinspection HardCodedStringLiteral
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
+        for (final MutedOutputLog.Entry entry : entries.subList(fromIndex, entries.size())) {
+            sender.sendMessage(ChatColor.GRAY + dateFormat.format(new Date(entry.getTime())) + ' ' + ChatColor.RESET + entry.getLine());
+        }
+
+        final long dropped = MutedOutputLog.getDropped(command) + fromIndex;
+        if (0 < dropped) {
+            sender.sendMessage(ChatColor.GRAY + AA_API.__("mutelog.dropped", dropped));
+        }
+
+        return true;
+    } // end method
+
+} // end class
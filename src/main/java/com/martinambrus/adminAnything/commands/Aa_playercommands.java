@@ -21,6 +21,12 @@ public class Aa_playercommands extends AbstractCommand {
      */
     private final Plugin plugin;
 
+    /**
+     * Cached commands and permission views shared by all runs of this command,
+     * so we don't need to rescan the whole commandMap each time.
+     */
+    private final PlayerCommandsCache cache = new PlayerCommandsCache();
+
     /**
      * Constructor, takes AdminAnything as a parameter,
      * since we'll be needing it later to set up a delayed
@@ -98,14 +104,22 @@ public class Aa_playercommands extends AbstractCommand {
                 return true;
             }
 
+            // register our cache as a listener, so it can drop its data when commands or rules change
+            // ... this also happens after /aa_reload which unregisters all of our listeners
+            //noinspection HardCodedStringLiteral
+            if (!AA_API.isListenerRegistered("playercommands")) {
+                cache.invalidate();
+                AA_API.startRequiredListener("playercommands", cache);
+            }
+
             // load and display list of commands in a different thread, so we don't
             // make the main thread wait for our calculations
             if (!(sender instanceof Player)) {
                 Bukkit.getScheduler().scheduleAsyncDelayedTask(plugin,
-                    new Aa_playercommands_runnable(sender, args, cmd, p, plugin));
+                    new Aa_playercommands_runnable(sender, args, cmd, p, plugin, cache));
             } else {
                 Bukkit.getScheduler().scheduleSyncDelayedTask(plugin,
-                    new Aa_playercommands_runnable(sender, args, cmd, p, plugin));
+                    new Aa_playercommands_runnable(sender, args, cmd, p, plugin, cache));
             }
         }
 
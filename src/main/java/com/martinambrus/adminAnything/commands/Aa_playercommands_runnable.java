@@ -2,27 +2,18 @@ package com.martinambrus.adminAnything.commands;
 
 import com.martinambrus.adminAnything.AA_API;
 import com.martinambrus.adminAnything.Constants;
-import com.martinambrus.adminAnything.events.AASaveCommandHelpDisablesEvent;
 import mkremins.fanciful.FancyMessage;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
-import org.bukkit.command.PluginCommand;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
-import org.bukkit.event.Listener;
-import org.bukkit.permissions.PermissionAttachmentInfo;
 import org.bukkit.plugin.Plugin;
 
 import java.io.InvalidClassException;
 import java.lang.reflect.InvocationTargetException;
 import java.rmi.AccessException;
 import java.util.*;
-import java.util.Map.Entry;
 
 /**
  * The actual logic to list all commands available
@@ -30,7 +21,7 @@ import java.util.Map.Entry;
  *
  * @author Martin Ambrus
  */
-public class Aa_playercommands_runnable implements Runnable, Listener {
+public class Aa_playercommands_runnable implements Runnable {
 
     /**
      * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
@@ -58,17 +49,52 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
     private final Player p;
 
     /**
-     * A map of commands that should be hidden from the player commands
-     * listing, unless there's an explicit permission to show them present
-     * for the player. This map has commands grouped by permission groups,
-     * global being the default one.
+     * Cached commands and permission views shared by all runs of this command.
      */
-    private Map<String, List<String>> disabledHelpCommandsMap = new HashMap<String, List<String>>();
+    private final PlayerCommandsCache cache;
 
     /**
-     * Name of this command feature, so it can be checked for being enabled.
+     * A single command we're about to list, together with the reasons why it's listed.
      */
-    private String featureName = "playercommands";
+    private static final class ListedCommand {
+
+        /**
+         * The cached command itself.
+         */
+        final PlayerCommandsCache.CommandEntry command;
+
+        /**
+         * Whether this command is hidden from the listing for everyone.
+         */
+        final boolean globallyHidden;
+
+        /**
+         * Whether this command is hidden from the listing for the sender's permission group.
+         */
+        final boolean locallyHidden;
+
+        /**
+         * Permissions via which this command is accessible to our player.
+         */
+        final List<String> viaPerms;
+
+        /**
+         * Constructor, stores all information about the listed command.
+         *
+         * @param command The cached command itself.
+         * @param globallyHidden Whether this command is hidden from the listing for everyone.
+         * @param locallyHidden Whether this command is hidden from the listing for the sender's permission group.
+         * @param viaPerms Permissions via which this command is accessible to our player.
+         */
+        ListedCommand(final PlayerCommandsCache.CommandEntry command, final boolean globallyHidden,
+                      final boolean locallyHidden, final List<String> viaPerms) {
+            this.command = command;
+            this.globallyHidden = globallyHidden;
+            this.locallyHidden = locallyHidden;
+            this.viaPerms = viaPerms;
+        } // end method
+
+    } // end class
 
     /**
      * Constructor, sets internal variables to work with
@@ -80,94 +106,46 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
      * @param cmd The actual command that is being executed.
      * @param p The player for who we're listing available commands.
      * @param plugin Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     * @param cache Cached commands and permission views shared by all runs of this command.
      */
-    Aa_playercommands_runnable(final CommandSender sender, final String[] args, final Command cmd, final Player p, final Plugin plugin) {
+    Aa_playercommands_runnable(final CommandSender sender, final String[] args, final Command cmd, final Player p,
+                               final Plugin plugin, final PlayerCommandsCache cache) {
         this.sender = sender;
         this.args = args;
         this.cmd = cmd;
         this.p = p;
         this.plugin = plugin;
-
-        // register this class as a listener, so it can reload its perm groups and commands map on its updates
-        if (AA_API.isFeatureEnabled(this.featureName) && !AA_API.isListenerRegistered(this.featureName)) {
-            AA_API.startRequiredListener(this.featureName, this);
-        }
-
-        // first load of the disabled commands map
-        this.reloadHiddenCommandsMap(null);
+        this.cache = cache;
     } // end method
 
     /**
-     * Prepares a map of commands hidden from this listing
-     * from the stored config list and sorts it by groups.
+     * Creates the chat line for a single listed command, including management links
+     * if we have an admin player as sender.
      *
-     * Called when this command executor is being registered
-     * as well as when the config list is being updated to keep it reloaded.
+     * @param listed The command to create the chat line for.
+     * @param showingOwnCommands Whether the sender is listing their own commands.
+     * @param playerIsAdmin Whether the sender is a player with permission to manage this listing.
+     * @param senderGroup Lower-cased primary permission group of the sender.
+     *
+     * @return Returns the chat line for the given command.
      */
-    @EventHandler(priority = EventPriority.HIGHEST)
-    private void reloadHiddenCommandsMap(final AASaveCommandHelpDisablesEvent e) {
-        // iterate over all hidden commands and prepare them
-        // for the output
-        List<String> helpDisablesCommandsList = AA_API.getCommandsList("helpDisables");
-        for (int i = 0; i < helpDisablesCommandsList.size(); i++) {
-            // split the group and command and store them
-            String group = helpDisablesCommandsList.get(i).substring(0, helpDisablesCommandsList.get(i).indexOf('.'));
-            String commandLine = helpDisablesCommandsList.get(i).substring(helpDisablesCommandsList.get(i).indexOf('.') + 1);
-
-            // create new ArrayList for this command group, if not set yet
-            if (null == disabledHelpCommandsMap.get(group)) {
-                disabledHelpCommandsMap.put(group, new ArrayList<String>());
-            }
-
-            // add the command to this group's list
-            disabledHelpCommandsMap.get(group).add(commandLine);
-        }
-    }
-
-    private FancyMessage addManagementPrefixes(CommandSender sender, String clearCommandName, boolean showingOwnCommands, String rawCommandName, String rawCommandDescription, String pluginName, String pluginCorePrefix) {
-        // check the hidden commands map to see if our command is not to be hidden from ordinary users
-        boolean commandIsHidden       = false;
-        boolean commandGloballyHidden = false;
-        boolean commandLocallyHidden = false;
-        boolean senderIsPlayer        = sender instanceof Player;
-        boolean playerIsAdmin         = AA_API.checkPerms(sender, "aa.checkplayercommands.admin", false);
-        String lowerClearCommandName  = clearCommandName.toLowerCase();
-
-        // check if this command is hidden globally
-        if (disabledHelpCommandsMap.containsKey("global") && disabledHelpCommandsMap.get("global").contains(lowerClearCommandName)) {
-            // this command is globally hidden from everyone
-            commandIsHidden = true;
-            commandGloballyHidden = true;
-        }
-
-        // get player's primary group and check it against disabled commands
-        // ... if it's a player running this command
-        if (senderIsPlayer) {
-            if (
-                disabledHelpCommandsMap.containsKey(AA_API.getPlayerPrimaryPermGroup((Player) sender).toLowerCase()) &&
-                    disabledHelpCommandsMap.get(AA_API.getPlayerPrimaryPermGroup((Player) sender).toLowerCase()).contains(lowerClearCommandName)
-            ) {
-                // this command is hidden from this permission group
-                commandIsHidden = true;
-                commandLocallyHidden = true;
-            }
-        }
-
-        // continue with the next command, if we don't have an override permission
-        if (commandIsHidden && senderIsPlayer && !playerIsAdmin) {
-            return null;
-        }
+    private FancyMessage renderMessage(final ListedCommand listed, final boolean showingOwnCommands,
+                                       final boolean playerIsAdmin, final String senderGroup) {
+        final PlayerCommandsCache.CommandEntry command = listed.command;
+        final String clearCommandName = command.clearCommandName;
+        final String lowerClearCommandName = command.lowerClearCommandName;
+        final boolean commandIsHidden = listed.globallyHidden || listed.locallyHidden;
 
         // message output variables
         final String commandName = "/" + clearCommandName + ChatColor.WHITE;
-        FancyMessage out         = new FancyMessage("");
+        final FancyMessage out   = new FancyMessage("");
 
         // add management links to chat, if we have an admin player as sender
-        if (senderIsPlayer && playerIsAdmin) {
+        if (playerIsAdmin) {
             // this is a toggle to show/hide this command globally
             out.then("[G]");
 
-            if (!commandGloballyHidden) {
+            if (!listed.globallyHidden) {
                 out
                     .color(ChatColor.GREEN)
                     .tooltip(AA_API
@@ -184,18 +162,18 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
             // this is a toggle to show/hide this command based on player's primary perm group
             out.then("[P]");
 
-            if (!commandLocallyHidden) {
+            if (!listed.locallyHidden) {
                 out
                     .color(ChatColor.GREEN)
                     .tooltip(AA_API
                         .__("commands.disablehc-listing-click-to-hide-permbased", ChatColor.AQUA + clearCommandName + ChatColor.RESET))
-                    .command("/aa_disablehelpcommand " + clearCommandName + " " + AA_API.getPlayerPrimaryPermGroup((Player) sender).toLowerCase());
+                    .command("/aa_disablehelpcommand " + clearCommandName + " " + senderGroup);
             } else {
                 out
                     .color(ChatColor.RED)
                     .tooltip(AA_API
                         .__("commands.disablehc-listing-click-to-restore", ChatColor.AQUA + clearCommandName + ChatColor.RESET))
-                    .command("/aa_enablehelpcommand " + AA_API.getPlayerPrimaryPermGroup((Player) sender).toLowerCase() + "." + lowerClearCommandName);
+                    .command("/aa_enablehelpcommand " + senderGroup + "." + lowerClearCommandName);
             }
         }
 
@@ -209,10 +187,10 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
         if (!commandIsHidden) {
             out
                 .tooltip(AA_API.__("commands.click-to-run", ChatColor.AQUA + "/" + clearCommandName))
-                .suggest("/" + rawCommandName);
+                .suggest("/" + command.rawCommandName);
         } else {
             // if a command is hidden, add tooltip telling the player how
-            if (commandGloballyHidden) {
+            if (listed.globallyHidden) {
                 out.tooltip(AA_API.__("commands.disablehc-listing-globally-hidden"));
             } else {
                 out.tooltip(AA_API.__("commands.disablehc-listing-perm-based-hidden"));
@@ -221,16 +199,21 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
         // show plugin name and permissions when requesting other player's commands
         if (!showingOwnCommands) {
             out
-                .then(" [" + pluginName + ((null != pluginCorePrefix) ? " - " + pluginCorePrefix + ':' + clearCommandName : "") + ']')
+                .then(" [" + command.pluginName + ((null != command.pluginCorePrefix) ? " - " + command.pluginCorePrefix + ':' + clearCommandName : "") + ']')
                 .color(ChatColor.GRAY);
+
+            //noinspection HardCodedStringLiteral
+            out
+                .then(' ' + AA_API.__("general.via") + ' ' + String.join(", ", listed.viaPerms))
+                .color(ChatColor.WHITE);
         } else {
             out
-                .then((commandIsHidden ? "" + ChatColor.STRIKETHROUGH : "") + " " + rawCommandDescription)
+                .then((commandIsHidden ? "" + ChatColor.STRIKETHROUGH : "") + " " + command.description)
                 .color(ChatColor.WHITE);
 
             // if a command is hidden, add tooltip telling the player how
             if (commandIsHidden) {
-                if (commandGloballyHidden) {
+                if (listed.globallyHidden) {
                     out.tooltip(AA_API.__("commands.disablehc-listing-globally-hidden"));
                 } else {
                     out.tooltip(AA_API.__("commands.disablehc-listing-perm-based-hidden"));
@@ -239,217 +222,101 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
         }
 
         return out;
-    }
+    } // end method
 
     /**
-     * Loads permission information from all plugins
-     * on the server and check which ones are connected
-     * to our player.
+     * Selects commands from the cached commands view which are available to our player
+     * and sorts them by their name.
      *
-     * @param messages A reference to the resulting list of messages to show in output.
+     * @param commands All cached commands which are not disabled via AA.
+     * @param listing A reference to the resulting sorted map of commands to list.
+     * @param showingOwnCommands Whether the sender is listing their own commands.
+     * @param playerIsAdmin Whether the sender is a player with permission to manage this listing.
+     * @param senderGroup Lower-cased primary permission group of the sender.
      */
-    @SuppressWarnings("ConstantConditions")
-    private boolean loadMessages(final Map<String, FancyMessage> messages) {
+    private void loadCommands(final List<PlayerCommandsCache.CommandEntry> commands,
+                              final Map<String, ListedCommand> listing, final boolean showingOwnCommands,
+                              final boolean playerIsAdmin, final String senderGroup) {
         // de-duplication variable
-        final Map<Integer, Boolean> doneCommandIDs = new HashMap<Integer, Boolean>();
-        List<String> disabledCommands = AA_API.getCommandsList("removals");
-        final boolean showingOwnCommands = (
-            (AA_API.checkPerms(p, "aa.checkplayercommands.own", false) && !AA_API.checkPerms(p, "aa.checkplayercommands.admin", false) && 1 > args.length) ||
-            (AA_API.checkPerms(p, "aa.checkplayercommands.own", false) && !AA_API.checkPerms(p, "aa.checkplayercommands.admin", false) && 1 == args.length && args[0].matches(Constants.INT_REGEX.toString()))
-        );
-
-        // load custom permission descriptions for permissions of those plugins
-        // which do not include their description in their plugin.yml
-        //noinspection HardCodedStringLiteral
-        FileConfiguration permsFromConfig = AA_API.getManualPermDescriptionsConfig();
-
-        // a simple map of all permission attachments
-        // for the given player - used when Vault is not present
-        Map<String, Boolean> playerPermsCache = null;
-
-        // first of all, cache all available permission names for this player, if we don't have Vault enabled
-        if (!AA_API.isVaultEnabled()) {
-            for (final PermissionAttachmentInfo perm : p.getEffectivePermissions()) {
-                if (null == playerPermsCache) {
-                    playerPermsCache = new HashMap<String, Boolean>();
-                }
-
-                playerPermsCache.put(perm.getPermission(), true);
+        final Set<Integer> doneCommandIDs = new HashSet<Integer>();
+        final boolean senderIsPlayer = sender instanceof Player;
+
+        // commands hidden from this listing, globally and for the sender's group
+        final Map<String, List<String>> hiddenCommands = cache.getHiddenCommands();
+        final List<String> globallyHidden = hiddenCommands.get("global");
+        final List<String> locallyHidden = senderIsPlayer ? hiddenCommands.get(senderGroup) : null;
+
+        // the only player-specific part, i.e. what our player can use
+        final Set<String> playerPerms = cache.getPlayerPermissions(p);
+
+        // ignore our management commands when we're administering this listing
+        // and our user has the actual permission assigned to allow this instead of the group
+        final boolean hideManagementCommands = !showingOwnCommands && senderIsPlayer && !AA_API
+            .checkGroupPerm(sender, "aa.checkplayercommands.admin");
+
+        for (final PlayerCommandsCache.CommandEntry command : commands) {
+            // check the hidden commands map to see if our command is not to be hidden from ordinary users
+            final boolean commandGloballyHidden = (null != globallyHidden) && globallyHidden
+                .contains(command.lowerClearCommandName);
+            final boolean commandLocallyHidden = (null != locallyHidden) && locallyHidden
+                .contains(command.lowerClearCommandName);
+
+            // continue with the next command, if we don't have an override permission
+            if ((commandGloballyHidden || commandLocallyHidden) && senderIsPlayer && !playerIsAdmin) {
+                continue;
             }
-        }
 
-        boolean senderIsPlayer = sender instanceof Player;
-
-        try {
-            // iterate over all loaded commands from the commandMap
-            // and load their names, plugins and aliases
-            for (final Entry<String, Command> pair : AA_API.getAugmentedCommandMap().entrySet()) {
-                String key              = pair.getKey();
-                String pluginName       = null;
-                String pluginCorePrefix = null;
-
-                // strip out the initial colon from commands that start on one (like :ping)
-                if (key.startsWith(":")) {
-                    key = key.substring(1);
-                }
-
-                try {
-                    // if the command is not a standard one, it won't be castable to PluginCommand
-                    // and the catch statements will take over
-                    final PluginCommand pc = ((PluginCommand) pair.getValue());
-                    pluginName = pc.getPlugin().getName();
-                } catch (final ClassCastException e) {
-                    // try the usual route
-                    final PluginCommand pc = Bukkit.getPluginCommand(key);
-
-                    // check if prefixed and try getting plugin name from the prefix
-                    if ((null == pc) && key.contains(":")) {
-                        final Plugin p = AA_API.getPluginIgnoreCase(key.substring(0, key.indexOf(':')));
-                        if (null != p) {
-                            pluginName = p.getName();
-                        }
-                    }
-
-                    // non-prefixed, non-standard command
-                    // ... we can only guess by its classname location here
-                    if (null == pluginName) {
-                        try {
-                            pluginName = AA_API.guessPluginFromClass(pair.getValue().getClass());
-                        } catch (final InvalidClassException e1) {
-                            sender.sendMessage(ChatColor.RED
-                                + AA_API.__("error.general-for-chat"));
-                            e.printStackTrace();
-                            return false;
-                        }
-
-                        // store core prefix if this is a core command
-                        if (AA_API.__("general.core").equals(pluginName)) {
-                            pluginCorePrefix = (key.contains(":") ? key.substring(0, key.indexOf(':')) : null);
-                        }
-                    }
-                }
-
-                // name for a plugin not found
-                if (null == pluginName) {
-                    sender.sendMessage(ChatColor.RED + AA_API.__("error.general-for-chat"));
-                    Bukkit.getLogger().severe('[' + AA_API.getAaName()
-                        + "] " + AA_API.__("plugin.error-plugin-for-command-not-found") + ": " + pair.getKey());
-                    return false;
-                }
-
-                // store clear command name (without colons) for futher processing
-                final String clearCommandName = (pair.getKey().contains(":")
-                                                 ? pair.getKey().substring(pair.getKey().indexOf(':') + 1)
-                                                 : pair.getKey());
-                final String lowerClearCommandName = clearCommandName.toLowerCase();
-                final List<String> aliases = pair.getValue().getAliases();
-
-                // don't show commands that are disabled via AA
-                if (disabledCommands.contains(lowerClearCommandName)) {
-                    continue;
-                }
-
-                FancyMessage out = this.addManagementPrefixes(sender, clearCommandName, showingOwnCommands, pair.getKey(), pair.getValue().getDescription(), pluginName, pluginCorePrefix);
-
-                // if we got null as a result, the command is hidden from this listing
-                // and we don't have override admin permission to show it (i.e. we're not displaying the listing management GUI)
-                if (null == out) {
-                    continue;
-                }
-
-                // ignore the following commands when we're administering this listing
-                // and our user has the actual permission assigned to allow this instead of
-                // the group:
-                // - /aa_disablehelpcommand
-                // - /aa_enablehelpcommand
-                if (!showingOwnCommands && senderIsPlayer && !AA_API.checkGroupPerm(sender, "aa.checkplayercommands.admin")) {
-                    // we are a player managing the listing and have the actual managing permission as player (not as group)
-                    // ... check if this is one of our management commands
-                    if (
-                        clearCommandName.equals("aa_disablehelpcommand") ||
-                        clearCommandName.equals("disablehelpcommand") ||
-                        clearCommandName.equals("disablehc") ||
-                        clearCommandName.equals("adhc") ||
-                        clearCommandName.equals("aa_enablehelpcommand") ||
-                        clearCommandName.equals("enablehelpcommand") ||
-                        clearCommandName.equals("aehc") ||
-                        clearCommandName.equals("enablehc")
-                    ) {
-                        continue;
-                    }
-                }
-
-                // check that this is indeed a command and not an alias and that it's not been added to the listing yet
+            // we are a player managing the listing and have the actual managing permission as player (not as group)
+            // ... check if this is one of our management commands
+            if (hideManagementCommands) {
+                final String clearCommandName = command.clearCommandName;
                 if (
-                    // hide duplicit commands (with and without a prefix) - but only if we're not managing the self-perms listing
-                    (showingOwnCommands && doneCommandIDs.containsKey(pair.getValue().hashCode())) ||
-                    // hide this command only if it's prefixed, so we don't duplicate it in listing,
-                    // as we don't show prefixed commands in /aa_playercommands
-                    (!showingOwnCommands && pair.getKey().contains(":") && doneCommandIDs.containsKey(pair.getValue().hashCode())) ||
-                    // allow aliases if we're managing the actual showing of commands for this listing
-                    (showingOwnCommands && (null != aliases) && aliases.contains(clearCommandName))
+                    clearCommandName.equals("aa_disablehelpcommand") ||
+                    clearCommandName.equals("disablehelpcommand") ||
+                    clearCommandName.equals("disablehc") ||
+                    clearCommandName.equals("adhc") ||
+                    clearCommandName.equals("aa_enablehelpcommand") ||
+                    clearCommandName.equals("enablehelpcommand") ||
+                    clearCommandName.equals("aehc") ||
+                    clearCommandName.equals("enablehc")
                 ) {
-                    // alias found or command already added, let's bail out here or we'd duplicate this command's listing
                     continue;
-                } else if (!doneCommandIDs.containsKey(pair.getValue().hashCode()) && !showingOwnCommands) {
-                    // mark this command as done, so we don't duplicate it
-                    // ... this is because the commandMap contains both versions of the command,
-                    //     one without the plugin prefix and one with it (i.e. /essentials:repair AND /repair)
-                    doneCommandIDs.put(pair.getValue().hashCode(), true);
                 }
+            }
 
-                // let's see if we can get permissions for this command
-                final Collection<String> tmpPerms = new ArrayList<String>();
-
-                if (null != pair.getValue().getPermission() && !pair.getValue().getPermission().isEmpty()) {
-                    // permission is present in the description file
-                    tmpPerms.add(pair.getValue().getPermission());
-                } else {
-                    // permission not present in the description file, try our internal YML descriptions file
-                    //noinspection HardCodedStringLiteral
-                    final List<String> descriptionedPerms = permsFromConfig
-                            .getStringList("manualPermissions." + pluginName.toLowerCase() + '.' + clearCommandName);
-
-                    // strip perms of their descriptions
-                    if (!descriptionedPerms.isEmpty()) {
-                        for (final String descPerm : descriptionedPerms) {
-                            // make sure it's not a custom command description
-                            if (!descPerm.startsWith("$")) {
-                                tmpPerms.add(descPerm.substring(0, descPerm.indexOf('=')));
-                            }
-                        }
-                    }
-                }
+            // check that this is indeed a command and not an alias and that it's not been added to the listing yet
+            if (
+                // hide duplicit commands (with and without a prefix) - but only if we're not managing the self-perms listing
+                (showingOwnCommands && doneCommandIDs.contains(command.commandId)) ||
+                // hide this command only if it's prefixed, so we don't duplicate it in listing,
+                // as we don't show prefixed commands in /aa_playercommands
+                (!showingOwnCommands && command.prefixed && doneCommandIDs.contains(command.commandId)) ||
+                // allow aliases if we're managing the actual showing of commands for this listing
+                (showingOwnCommands && command.alias)
+            ) {
+                // alias found or command already added, let's bail out here or we'd duplicate this command's listing
+                continue;
+            } else if (!showingOwnCommands) {
+                // mark this command as done, so we don't duplicate it
+                // ... this is because the commandMap contains both versions of the command,
+                //     one without the plugin prefix and one with it (i.e. /essentials:repair AND /repair)
+                doneCommandIDs.add(command.commandId);
+            }
 
-                // if we can link one of the player's permission to current command, add this permission to our output
-                final Collection<String> viaPerms = new ArrayList<String>();
-                for (final String perm : tmpPerms) {
-                    if (((null != playerPermsCache) && playerPermsCache
-                            .containsKey(perm)) || ((null == playerPermsCache)
-                            && AA_API.isVaultEnabled() && AA_API.checkPerms(p, perm, false))) {
-                        viaPerms.add(perm);
-                    }
+            // if we can link one of the player's permission to current command, add this permission to our output
+            final List<String> viaPerms = new ArrayList<String>();
+            for (final String perm : command.permissions) {
+                if (playerPerms.contains(perm.toLowerCase())) {
+                    viaPerms.add(perm);
                 }
+            }
 
-                // found permissions via which this command is accessible
-                if (!viaPerms.isEmpty()) {
-                    //noinspection HardCodedStringLiteral
-                    out
-                        .then((!showingOwnCommands ? ' ' + AA_API.__("general.via") + ' ' + String.join(", ", viaPerms) : ""))
-                        .color(ChatColor.WHITE);
-
-                    messages.put(clearCommandName, out);
-                }
+            // found permissions via which this command is accessible
+            if (!viaPerms.isEmpty()) {
+                listing.put(command.clearCommandName,
+                    new ListedCommand(command, commandGloballyHidden, commandLocallyHidden, viaPerms));
             }
-        } catch (final IllegalArgumentException | IllegalAccessException | NoSuchMethodException | SecurityException
-                | InvocationTargetException | AccessException e) {
-            sender.sendMessage(
-                ChatColor.RED + AA_API.__("error.general-for-chat"));
-            e.printStackTrace();
-            return false;
         }
-
-        return true;
     } // end method
 
     /**
@@ -459,8 +326,8 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
     public void run() {
         final double maxPerPage = ((sender instanceof ConsoleCommandSender) ? 100.0 : AA_API.getMaxRecordsPerPage());
 
-        // messages are stored temporarily for sorting purposes
-        final Map<String, FancyMessage> messages = new HashMap<String, FancyMessage>();
+        // commands are stored temporarily for sorting purposes
+        final Map<String, ListedCommand> messages = new TreeMap<String, ListedCommand>();
 
         // pagination
         int requestedPage = 1;
@@ -485,13 +352,34 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
             requestedPageOriginal = requestedPage;
         }
 
-        // load all messages to output
-        if (!loadMessages(messages)) {
-            // something didn't work, just exit here
-            // and let the loadMessages() method handle the error message
+        // load all commands from the cached view
+        final List<PlayerCommandsCache.CommandEntry> commands;
+        try {
+            commands = cache.getCommands();
+        } catch (final IllegalArgumentException | IllegalAccessException | NoSuchMethodException | SecurityException
+                | InvocationTargetException | AccessException | InvalidClassException e) {
+            sender.sendMessage(
+                ChatColor.RED + AA_API.__("error.general-for-chat"));
+            e.printStackTrace();
             return;
         }
 
+        // a plugin for one of the commands was not found, the cache has logged it already
+        if (null == commands) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("error.general-for-chat"));
+            return;
+        }
+
+        final boolean showingOwnCommands = (
+            (AA_API.checkPerms(p, "aa.checkplayercommands.own", false) && !AA_API.checkPerms(p, "aa.checkplayercommands.admin", false) && 1 > args.length) ||
+            (AA_API.checkPerms(p, "aa.checkplayercommands.own", false) && !AA_API.checkPerms(p, "aa.checkplayercommands.admin", false) && 1 == args.length && args[0].matches(Constants.INT_REGEX.toString()))
+        );
+        final boolean playerIsAdmin = (sender instanceof Player) && AA_API.checkPerms(sender, "aa.checkplayercommands.admin", false);
+        final String senderGroup = (sender instanceof Player) ? String.valueOf(AA_API.getPlayerPrimaryPermGroup((Player) sender)).toLowerCase() : "";
+
+        // select commands available to our player
+        loadCommands(commands, messages, showingOwnCommands, playerIsAdmin, senderGroup);
+
         // calculate pagination data
         String pages = String.valueOf(Math.ceil(messages.size() / maxPerPage));
         pages = pages.substring(0, pages.indexOf('.'));
@@ -584,14 +472,17 @@ public class Aa_playercommands_runnable implements Runnable, Listener {
         sender.sendMessage("");
 
         if (!messages.isEmpty()) {
-            // sort messages, so same commands are displayed together
-            final Map<String, FancyMessage> sortedMessages = new TreeMap<String, FancyMessage>(messages);
             int sendCounter = 0;
 
-            // send them all out
-            for (final Entry<String, FancyMessage> pair : sortedMessages.entrySet()) {
-                if ((sendCounter >= fromIndex) && (sendCounter < toIndex)) {
-                    pair.getValue().send(sender);
+            // commands are sorted already, so same commands are displayed together
+            // ... only create chat lines for the requested page
+            for (final ListedCommand listed : messages.values()) {
+                if (sendCounter >= toIndex) {
+                    break;
+                }
+
+                if (sendCounter >= fromIndex) {
+                    renderMessage(listed, showingOwnCommands, playerIsAdmin, senderGroup).send(sender);
                 }
                 sendCounter++;
             }
@@ -10,11 +10,9 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
-import org.bukkit.permissions.PermissionAttachmentInfo;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -104,23 +102,17 @@ public class Aa_playerperms extends AbstractCommand {
             // messages are stored temporarily for sorting purposes
             final List<String> messages = new ArrayList<String>();
 
-            // prepare list of all permissions for the player
+            // prepare list of all permissions for the player from our permission index,
+            // they come sorted alphabetically already
             final List<String> perms = new ArrayList<String>();
-            for (final PermissionAttachmentInfo perm : p.getEffectivePermissions()) {
-                if (!searchString.isEmpty() && !perm.getPermission().contains(searchString)) {
+            for (final String perm : AA_API.getPlayerPermissions(p)) {
+                if (!searchString.isEmpty() && !perm.contains(searchString)) {
                     continue;
                 }
 
-                // add Vault support for double-checking on PEX and other perm systems (negative perms will still be assigned as perm attachments otherwise)
-                if (AA_API.isVaultEnabled() && !AA_API.checkPerms(p, perm.getPermission(), false)) {
-                    continue;
-                }
-
-                perms.add(perm.getPermission());
+                perms.add(perm);
             }
 
-            // sort them alphabetically
-            Collections.sort(perms, String.CASE_INSENSITIVE_ORDER);
             String currentGroup = "";
             StringBuilder buffer = new StringBuilder();
 
@@ -8,15 +8,11 @@ import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.permissions.Permission;
 import org.bukkit.plugin.Plugin;
 
 import java.lang.reflect.InvocationTargetException;
 import java.rmi.AccessException;
 import java.util.*;
-import java.util.Map.Entry;
 
 /**
  * Command which shows all permissions
@@ -26,20 +22,6 @@ import java.util.Map.Entry;
  */
 public class Aa_pluginperms extends AbstractCommand {
 
-    /**
-     * A custom permission description YML config file
-     * for plugins that do not store their perms in their
-     * plugin.yml file.
-     */
-    public FileConfiguration permsFromConfig;
-
-    /**
-     * Constructor, loads custom permissions configuration.
-     */
-    public Aa_pluginperms(Plugin aa) {
-        permsFromConfig = AA_API.getManualPermDescriptionsConfig();
-    }
-
     /***
      * /aa_pluginperms - displays all permissions for the given plugin
      *
@@ -77,9 +59,6 @@ public class Aa_pluginperms extends AbstractCommand {
             return false;
         }
 
-        // prepare plugin name to check for
-        final String pluginName = plugin.getName().toLowerCase();
-
         // pagination
         final double maxPerPage = ((sender instanceof ConsoleCommandSender) ? 100.0 : AA_API.getMaxRecordsPerPage());
         final String intRegex = Constants.INT_REGEX.toString();
@@ -110,115 +89,17 @@ public class Aa_pluginperms extends AbstractCommand {
         // create a text representation of the search string
         final String searchString = String.join(" ", search);
 
-        // messages are stored temporarily for sorting purposes
-        final List<String> messages = new ArrayList<String>();
-        final Map<String, String> perms = new HashMap<String, String>();
-
-        // go the plugin.yml route first
-        final List<Permission> permList = plugin.getDescription().getPermissions();
-        for (final Permission permission : permList) {
-            // bail out if we're not searching for this one
-            if (null != searchString && !searchString.isEmpty() && !permission.getName().contains(searchString)) {
-                continue;
-            }
-
-            perms.put(permission.getName(), permission.getDescription());
-        }
-
-        // the try to load any additional permissions for commands that were loaded dynamically
+        // look up permissions of this plugin in our permission index,
+        // they come sorted alphabetically already
+        List<String> messages;
         try {
-            for (final Entry<String, Command> pair : AA_API.getCommandMapCopy().entrySet()) {
-                // only load permissions for the given plugin
-                if (!AA_API.getClearCommand(pair.getKey().toLowerCase())[0].equals(pluginName)) {
-                    continue;
-                }
-
-                // prepare a clear command name, without any colons
-                final String clearCommandName = (pair.getKey().contains(":")
-                                                 ? pair.getKey().substring(pair.getKey().indexOf(':') + 1)
-                                                 : pair.getKey());
-
-                // load permissions from the internal config file and fallback to the getPermission() method if nothing is found
-                String perm = null;
-                String desc = null;
-                final String defaultPerm = pair.getValue().getPermission();
-                final List<String> tmpPerms = permsFromConfig
-                    .getStringList("manualPermissions." + pluginName + '.' + clearCommandName); //NON-NLS
-
-                if (!tmpPerms.isEmpty()) {
-                    for (final String tmpPerm : tmpPerms) {
-                        // make sure it's not a custom command description
-                        if (!tmpPerm.startsWith("$")) {
-                            perm = (tmpPerm.contains("=") ? tmpPerm.substring(0, tmpPerm.indexOf('=')) : tmpPerm);
-                            desc = (tmpPerm.contains("=") ?
-                                    tmpPerm.substring(tmpPerm.indexOf('=') + 1) : "");
-                        }
-                    }
-                } else if (null != defaultPerm && !defaultPerm.isEmpty()) {
-                    perm = defaultPerm;
-                    desc = pair.getValue().getDescription();
-                }
-
-                // bail out if we're not searching for this one
-                if (null != perm && null != searchString && !searchString.isEmpty() && !perm.contains(searchString)) {
-                    continue;
-                }
-
-                if (null != perm && !perms.containsKey(perm)) {
-                    perms.put(perm, desc);
-                }
-            }
+            messages = AA_API.findPluginPermissions(plugin, searchString);
         } catch (final IllegalAccessException | NoSuchMethodException | SecurityException
                 | InvocationTargetException | AccessException e) {
             sender.sendMessage(
                 ChatColor.RED + AA_API.__("error.general-for-chat"));
             e.printStackTrace();
-        }
-
-        // load any permissions from the manual list, if any
-        //noinspection HardCodedStringLiteral
-        ConfigurationSection cs = permsFromConfig.getConfigurationSection("manualPermissions." + pluginName);
-        if (null != cs) {
-            Set<String> configKeys = cs.getKeys(false);
-            if (!configKeys.isEmpty()) {
-                for (String clearCommandName : configKeys) {
-                    String perm = null;
-                    String desc = null;
-                    final List<String> tmpPerms = permsFromConfig
-                        .getStringList("manualPermissions." + pluginName + '.' + clearCommandName); //NON-NLS
-
-                    if (!tmpPerms.isEmpty()) {
-                        for (final String tmpPerm : tmpPerms) {
-                            // make sure it's not a custom command description
-                            if (!tmpPerm.startsWith("$")) {
-                                perm = (tmpPerm.contains("=") ? tmpPerm.substring(0, tmpPerm.indexOf('=')) : tmpPerm);
-                                desc = (tmpPerm.contains("=") ?
-                                        tmpPerm.substring(tmpPerm.indexOf('=')) :
-                                        "");
-                            }
-                        }
-                    }
-
-                    // bail out if we're not searching for this one
-                    if (null != perm && null != searchString && !searchString.isEmpty() && !perm
-                        .contains(searchString)) {
-                        continue;
-                    }
-
-                    if (null != perm && !perms.containsKey(perm)) {
-                        perms.put(perm, desc);
-                    }
-                }
-            }
-        }
-
-        // sort them alphabetically
-        final Map<String, String> sortedPerms = new TreeMap<String, String>(perms);
-
-        // create messages to be sent out
-        for (final Entry<String, String> pair : sortedPerms.entrySet()) {
-            messages.add("- " + ChatColor.GOLD + pair.getKey() + '\n' + ChatColor.RESET + "    -> " + ChatColor.WHITE
-                    + pair.getValue());
+            messages = Collections.emptyList();
         }
 
         // calculate pagination data
@@ -265,8 +146,20 @@ public class Aa_pluginperms extends AbstractCommand {
         sender.sendMessage("");
 
         if (!messages.isEmpty()) {
-            for (final String msg : messages.subList(fromIndex, toIndex)) {
-                sender.sendMessage(msg);
+            // only create messages for the page we're showing
+            try {
+                for (final String perm : messages.subList(fromIndex, toIndex)) {
+                    final Collection<String> commands = AA_API.getPermissionCommands(plugin, perm);
+
+                    sender.sendMessage("- " + ChatColor.GOLD + perm + '\n' + ChatColor.RESET + "    -> " + ChatColor.WHITE
+                        + AA_API.getPermissionDescription(plugin, perm)
+                        + (commands.isEmpty() ? "" : ChatColor.GRAY + " (/" + String.join(", /", commands) + ')'));
+                }
+            } catch (final IllegalAccessException | NoSuchMethodException | SecurityException
+                    | InvocationTargetException | AccessException e) {
+                sender.sendMessage(
+                    ChatColor.RED + AA_API.__("error.general-for-chat"));
+                e.printStackTrace();
             }
         } else {
             sender.sendMessage(ChatColor.RED + AA_API.__("commands.pluginperms-no-perms"));
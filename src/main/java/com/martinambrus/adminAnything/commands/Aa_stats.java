@@ -0,0 +1,101 @@
+package com.martinambrus.adminAnything.commands;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.LatencyHistogram;
+import com.martinambrus.adminAnything.StatsSubsystem;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows latency and cache statistics collected for the hot paths
+ * of AdminAnything, such as command pre-processing, permission checks,
+ * tab-completion filtering, chat decoration and config saving.
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_stats extends AbstractCommand {
+
+    /***
+     * /aa_stats - shows latency percentiles, counts and cache hit rates for AdminAnything subsystems
+     * /aa_stats reset - throws away all statistics collected so far
+     *
+     * @param sender The player who is calling this command.
+     * @param cmd The actual command that is being executed.
+     * @param unused Name of the command which is being executed.
+     * @param args Any arguments passed to this command.
+     *
+     * @return Returns true if the command was used correctly, false otherwise.
+     */
+    @Override
+    public boolean onCommand(final CommandSender sender, final Command cmd, final String unused, final String[] args) {
+        if (!super.onCommand(sender, cmd, unused, args)) {
+            return true;
+        }
+
+        //noinspection HardCodedStringLiteral
+        if (!AA_API.isFeatureEnabled("stats")) {
+            sender.sendMessage(ChatColor.RED + AA_API.__("general.feature-disabled"));
+            return true;
+        }
+
+        if (0 < args.length) {
+            //noinspection HardCodedStringLiteral
+            if (1 == args.length && "reset".equalsIgnoreCase(args[0])) {
+                AA_API.resetStats();
+                sender.sendMessage(ChatColor.GREEN + AA_API.__("stats.reset-done"));
+                return true;
+            }
+
+            // invalid arguments, let the server show usage for this command
+            return false;
+        }
+
+        final long collectingFor = System.currentTimeMillis() - AA_API.getStatsCollectingSince();
+        sender.sendMessage(ChatColor.AQUA + AA_API.__("stats.title", AA_API.getAaName(),
+            TimeUnit.MILLISECONDS.toMinutes(collectingFor)));
+
+        for (final StatsSubsystem subsystem : StatsSubsystem.values()) {
+            final LatencyHistogram latencies = AA_API.getStatsLatencies(subsystem);
+            final long cacheHits = AA_API.getStatsCacheHits(subsystem);
+            final long cacheMisses = AA_API.getStatsCacheMisses(subsystem);
+
+            if (0 == latencies.getCount() && 0 == (cacheHits + cacheMisses)) {
+                sender.sendMessage(ChatColor.YELLOW + subsystem.toString() + ": " + ChatColor.GRAY + AA_API //NON-NLS
+                    .__("stats.no-samples"));
+                continue;
+            }
+
+            if (0 < latencies.getCount()) {
+                sender.sendMessage(ChatColor.YELLOW + subsystem.toString() + ": " + ChatColor.WHITE + AA_API.__( //NON-NLS
+                    "stats.latencies",
+                    latencies.getCount(),
+                    AA_API.formatNanos(latencies.getPercentileNanos(50)),
+                    AA_API.formatNanos(latencies.getPercentileNanos(99)),
+                    AA_API.formatNanos(latencies.getMaxNanos()),
+                    AA_API.formatNanos(latencies.getAverageNanos())
+                ));
+            } else {
+                sender.sendMessage(ChatColor.YELLOW + subsystem.toString() + ':');
+            }
+
+            if (0 < (cacheHits + cacheMisses)) {
+                sender.sendMessage(ChatColor.GRAY + "  " + AA_API.__( //NON-NLS
+                    "stats.cache",
+                    String.format("%.1f", (cacheHits * 100.0) / (cacheHits + cacheMisses)), //NON-NLS
+                    cacheHits,
+                    cacheMisses
+                ));
+            }
+        }
+
+        if (AA_API.getDebug()) {
+            sender.sendMessage(ChatColor.GRAY + AA_API.__("stats.debug-slow-samples"));
+        }
+
+        return true;
+    } // end method
+
+} // end class
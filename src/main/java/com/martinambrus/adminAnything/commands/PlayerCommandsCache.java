@@ -0,0 +1,549 @@
+package com.martinambrus.adminAnything.commands;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.ManualPermDescriptions;
+import com.martinambrus.adminAnything.events.AAReloadEvent;
+import com.martinambrus.adminAnything.events.AASaveCommandHelpDisablesEvent;
+import com.martinambrus.adminAnything.events.AASaveDisabledCommandsEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+
+import java.io.InvalidClassException;
+import java.lang.reflect.InvocationTargetException;
+import java.rmi.AccessException;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches everything /aa_playercommands needs to know about commands on the server,
+ * so support staff can run it over and over without us rescanning the whole commandMap
+ * and checking every single command permission via Vault each time.
+ *
+ * The cache consists of 3 layers:
+ * <ul>
+ *     <li>a list of all commands (with their plugins and permissions) which are not disabled via AA,
+ *     rebuilt only when the command map or our rules change</li>
+ *     <li>a view of permissions granted to each (permission group, world) pair,
+ *     so Vault is only asked once per group and permission</li>
+ *     <li>a player-specific delta, computed on each run from the player's effective permissions,
+ *     which adds permissions granted to the player personally and removes negated ones</li>
+ * </ul>
+ *
+ * Wildcards, secondary groups and inherited permissions don't show up in either of the last two layers,
+ * so any command permission they don't contain is still checked for the player directly,
+ * just like before this cache existed.
+ *
+ * @author Martin Ambrus
+ */
+public final class PlayerCommandsCache implements Listener {
+
+    /**
+     * Time (in milliseconds) after which a group view gets recomputed,
+     * since permission plugins don't tell us when a group's permissions change.
+     */
+    private static final long GROUP_VIEW_TTL_MILLIS = 60000;
+
+    /**
+     * A single command, as shown in the /aa_playercommands listing.
+     */
+    public static final class CommandEntry {
+
+        /**
+         * The command as it's stored in the commandMap, i.e. possibly prefixed (essentials:repair).
+         */
+        final String rawCommandName;
+
+        /**
+         * Name of the command without any prefix.
+         */
+        final String clearCommandName;
+
+        /**
+         * Lower-cased name of the command without any prefix.
+         */
+        final String lowerClearCommandName;
+
+        /**
+         * Description of the command.
+         */
+        final String description;
+
+        /**
+         * Name of the plugin this command belongs to.
+         */
+        final String pluginName;
+
+        /**
+         * Prefix of a core command (i.e. minecraft or bukkit), null for plugin commands.
+         */
+        final String pluginCorePrefix;
+
+        /**
+         * Permissions via which this command is accessible.
+         */
+        final List<String> permissions;
+
+        /**
+         * ID of the actual command, shared by its prefixed and non-prefixed version in the commandMap.
+         */
+        final int commandId;
+
+        /**
+         * Whether this is a prefixed version of a command (such as essentials:repair).
+         */
+        final boolean prefixed;
+
+        /**
+         * Whether this commandMap entry is an alias of its command rather than the command itself.
+         */
+        final boolean alias;
+
+        /**
+         * Constructor, stores all command information.
+         *
+         * @param rawCommandName The command as it's stored in the commandMap.
+         * @param clearCommandName Name of the command without any prefix.
+         * @param description Description of the command.
+         * @param pluginName Name of the plugin this command belongs to.
+         * @param pluginCorePrefix Prefix of a core command, null for plugin commands.
+         * @param permissions Permissions via which this command is accessible.
+         * @param commandId ID of the actual command.
+         * @param alias Whether this commandMap entry is an alias of its command.
+         */
+        CommandEntry(final String rawCommandName, final String clearCommandName, final String description,
+                     final String pluginName, final String pluginCorePrefix, final List<String> permissions,
+                     final int commandId, final boolean alias) {
+            this.rawCommandName = rawCommandName;
+            this.clearCommandName = clearCommandName;
+            lowerClearCommandName = clearCommandName.toLowerCase();
+            this.description = description;
+            this.pluginName = pluginName;
+            this.pluginCorePrefix = pluginCorePrefix;
+            this.permissions = Collections.unmodifiableList(permissions);
+            this.commandId = commandId;
+            prefixed = rawCommandName.contains(":");
+            this.alias = alias;
+        } // end method
+
+        /**
+         * Getter for the command name without any prefix.
+         *
+         * @return Returns name of the command without any prefix.
+         */
+        public String getClearCommandName() {
+            return clearCommandName;
+        } // end method
+
+        /**
+         * Getter for permissions via which this command is accessible.
+         *
+         * @return Returns permissions via which this command is accessible.
+         */
+        public List<String> getPermissions() {
+            return permissions;
+        } // end method
+
+    } // end class
+
+    /**
+     * Permissions granted to a single permission group in a single world.
+     */
+    private static final class GroupView {
+
+        /**
+         * Time (in milliseconds) when this view was computed.
+         */
+        final long created = System.currentTimeMillis();
+
+        /**
+         * Lower-cased command permissions granted to the group.
+         */
+        final Set<String> granted;
+
+        /**
+         * Constructor, stores the granted permissions.
+         *
+         * @param granted Lower-cased command permissions granted to the group.
+         */
+        GroupView(final Set<String> granted) {
+            this.granted = granted;
+        } // end method
+
+    } // end class
+
+    /**
+     * All commands which are not disabled via AA, in the order of the commandMap.
+     * Null when they need to be rebuilt.
+     */
+    private volatile List<CommandEntry> commands = null;
+
+    /**
+     * Lower-cased permissions of all commands in {@link #commands}.
+     */
+    private volatile Set<String> commandPermissions = Collections.emptySet();
+
+    /**
+     * Permissions granted to (permission group, world) pairs, keyed by world name and group name
+     * separated by a colon.
+     */
+    private final Map<String, GroupView> groupViews = new ConcurrentHashMap<String, GroupView>();
+
+    /**
+     * Commands hidden from the listing, unless there's an explicit permission to show them present
+     * for the player, grouped by permission groups, global being the default one.
+     * Null when they need to be rebuilt.
+     */
+    private volatile Map<String, List<String>> hiddenCommands = null;
+
+    /**
+     * Returns all commands which are not disabled via AA, in the order of the commandMap,
+     * building the list first if our rules or the commandMap changed since we've last done so.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * for (PlayerCommandsCache.CommandEntry command : cache.getCommands()) {
+     *     // do something
+     * }
+     * }
+     * </pre>
+     *
+     * @return Returns all commands which are not disabled via AA, or null if a plugin for one of them
+     *         could not be found.
+     *
+     * @throws InvalidClassException When we can't determine the plugin of a non-standard command from its class.
+     * @throws IllegalAccessException When access is denied to the commandMap.
+     * @throws NoSuchMethodException When there is a get() method missing from the knownCommands field.
+     * @throws InvocationTargetException When we try to invoke get() on knownCommands with invalid commandMap parameter.
+     * @throws AccessException When we don't have the permission to access the knownCommands field of commandMap.
+     */
+    public synchronized List<CommandEntry> getCommands()
+        throws InvalidClassException, IllegalAccessException, NoSuchMethodException, InvocationTargetException,
+        AccessException {
+        if (null == commands) {
+            final List<CommandEntry> built = buildCommands();
+            if (null == built) {
+                return null;
+            }
+
+            final Set<String> perms = new HashSet<String>();
+            for (final CommandEntry command : built) {
+                for (final String perm : command.permissions) {
+                    perms.add(perm.toLowerCase());
+                }
+            }
+
+            commandPermissions = perms;
+            commands = built;
+        }
+
+        return commands;
+    } // end method
+
+    /**
+     * Goes through the whole commandMap and collects information about all commands
+     * which are not disabled via AA.
+     *
+     * @return Returns all commands which are not disabled via AA, or null if a plugin for one of them
+     *         could not be found.
+     *
+     * @throws InvalidClassException When we can't determine the plugin of a non-standard command from its class.
+     * @throws IllegalAccessException When access is denied to the commandMap.
+     * @throws NoSuchMethodException When there is a get() method missing from the knownCommands field.
+     * @throws InvocationTargetException When we try to invoke get() on knownCommands with invalid commandMap parameter.
+     * @throws AccessException When we don't have the permission to access the knownCommands field of commandMap.
+     */
+    private static List<CommandEntry> buildCommands()
+        throws InvalidClassException, IllegalAccessException, NoSuchMethodException, InvocationTargetException,
+        AccessException {
+        final List<CommandEntry> built = new ArrayList<CommandEntry>();
+        final Set<String> disabledCommands = new HashSet<String>(AA_API.getCommandsList("removals"));
+
+        // load custom permission descriptions for permissions of those plugins
+        // which do not include their description in their plugin.yml
+        final ManualPermDescriptions permsFromConfig = AA_API.getManualPermDescriptions();
+
+        // iterate over all loaded commands from the commandMap
+        // and load their names, plugins and aliases
+        for (final Entry<String, Command> pair : AA_API.getAugmentedCommandMap().entrySet()) {
+            String key              = pair.getKey();
+            String pluginName       = null;
+            String pluginCorePrefix = null;
+
+            // strip out the initial colon from commands that start on one (like :ping)
+            if (key.startsWith(":")) {
+                key = key.substring(1);
+            }
+
+            if (pair.getValue() instanceof PluginCommand) {
+                pluginName = ((PluginCommand) pair.getValue()).getPlugin().getName();
+            } else {
+                // try the usual route
+                final PluginCommand pc = Bukkit.getPluginCommand(key);
+
+                // check if prefixed and try getting plugin name from the prefix
+                if ((null == pc) && key.contains(":")) {
+                    final Plugin p = AA_API.getPluginIgnoreCase(key.substring(0, key.indexOf(':')));
+                    if (null != p) {
+                        pluginName = p.getName();
+                    }
+                }
+
+                // non-prefixed, non-standard command
+                // ... we can only guess by its classname location here
+                if (null == pluginName) {
+                    pluginName = AA_API.guessPluginFromClass(pair.getValue().getClass());
+
+                    // store core prefix if this is a core command
+                    if (AA_API.__("general.core").equals(pluginName)) {
+                        pluginCorePrefix = (key.contains(":") ? key.substring(0, key.indexOf(':')) : null);
+                    }
+                }
+            }
+
+            // name for a plugin not found
+            if (null == pluginName) {
+                Bukkit.getLogger().severe('[' + AA_API.getAaName()
+                    + "] " + AA_API.__("plugin.error-plugin-for-command-not-found") + ": " + pair.getKey());
+                return null;
+            }
+
+            // store clear command name (without colons) for futher processing
+            final String clearCommandName = (pair.getKey().contains(":")
+                                             ? pair.getKey().substring(pair.getKey().indexOf(':') + 1)
+                                             : pair.getKey());
+
+            // don't show commands that are disabled via AA
+            if (disabledCommands.contains(clearCommandName.toLowerCase())) {
+                continue;
+            }
+
+            // let's see if we can get permissions for this command
+            final List<String> perms = new ArrayList<String>();
+
+            if (null != pair.getValue().getPermission() && !pair.getValue().getPermission().isEmpty()) {
+                // permission is present in the description file
+                perms.add(pair.getValue().getPermission());
+            } else {
+                // permission not present in the description file, try our internal YML descriptions file
+                final int manualCommand = permsFromConfig.findCommand(pluginName.toLowerCase(), clearCommandName);
+                for (int i = 0; i < permsFromConfig.getPermissionCount(manualCommand); i++) {
+                    perms.add(permsFromConfig.getPermission(manualCommand, i));
+                }
+            }
+
+            final List<String> aliases = pair.getValue().getAliases();
+            built.add(new CommandEntry(pair.getKey(), clearCommandName, pair.getValue().getDescription(), pluginName,
+                pluginCorePrefix, perms, pair.getValue().hashCode(),
+                (null != aliases) && aliases.contains(clearCommandName)));
+        }
+
+        return built;
+    } // end method
+
+    /**
+     * Returns lower-cased command permissions the given player has. These are taken from the cached view
+     * of the player's primary permission group in their current world, adjusted by the player's
+     * own effective permissions. Permissions found in neither of them (such as those granted
+     * via wildcards or secondary groups) are checked for the player directly.
+     *
+     * Must be called after {@link #getCommands()}, since only permissions of known commands are considered.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * if (cache.getPlayerPermissions(player).contains("essentials.repair")) {
+     *     // player can use /repair
+     * }
+     * }
+     * </pre>
+     *
+     * @param p The player to get command permissions for.
+     *
+     * @return Returns lower-cased command permissions the given player has.
+     */
+    public Set<String> getPlayerPermissions(final Player p) {
+        final Set<String> perms = commandPermissions;
+        final Set<String> granted = new HashSet<String>();
+
+        // start with what the player's group has
+        if (AA_API.isVaultEnabled()) {
+            final String group = AA_API.getPlayerPrimaryPermGroup(p);
+            if (null != group && !group.isEmpty()) {
+                granted.addAll(getGroupView(p.getWorld().getName(), group, perms).granted);
+            }
+        }
+
+        // ... and apply the player's own permissions on top of it
+        final Set<String> negated = new HashSet<String>();
+        for (final PermissionAttachmentInfo info : p.getEffectivePermissions()) {
+            final String perm = info.getPermission().toLowerCase();
+            if (perms.contains(perm)) {
+                if (info.getValue()) {
+                    granted.add(perm);
+                } else {
+                    granted.remove(perm);
+                    negated.add(perm);
+                }
+            }
+        }
+
+        // wildcards, secondary groups and inheritance are only known to the permissions plugin itself
+        for (final String perm : perms) {
+            if (!granted.contains(perm) && !negated.contains(perm) && AA_API.checkPerms(p, perm, false)) {
+                granted.add(perm);
+            }
+        }
+
+        return granted;
+    } // end method
+
+    /**
+     * Returns permissions granted to the given group in the given world,
+     * computing them first if we don't have them cached or they're too old.
+     *
+     * @param worldName Name of the world to check permissions in.
+     * @param group Name of the permission group to check permissions for.
+     * @param perms Lower-cased permissions of all known commands.
+     *
+     * @return Returns permissions granted to the given group in the given world.
+     */
+    private GroupView getGroupView(final String worldName, final String group, final Set<String> perms) {
+        final String key = worldName + ':' + group;
+        GroupView view = groupViews.get(key);
+
+        if (null == view || GROUP_VIEW_TTL_MILLIS < System.currentTimeMillis() - view.created) {
+            final Set<String> granted = new HashSet<String>();
+            for (final String perm : perms) {
+                if (AA_API.checkGroupPerm(worldName, group, perm)) {
+                    granted.add(perm);
+                }
+            }
+
+            view = new GroupView(granted);
+            groupViews.put(key, view);
+        }
+
+        return view;
+    } // end method
+
+    /**
+     * Returns commands hidden from the listing, grouped by permission groups, global being the default one.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * boolean hiddenForEveryone = cache.getHiddenCommands().containsKey("global")
+     *                             && cache.getHiddenCommands().get("global").contains("repair");
+     * }
+     * </pre>
+     *
+     * @return Returns commands hidden from the listing, grouped by permission groups.
+     */
+    public Map<String, List<String>> getHiddenCommands() {
+        Map<String, List<String>> hidden = hiddenCommands;
+
+        if (null == hidden) {
+            hidden = new HashMap<String, List<String>>();
+
+            // split the group and command and store them
+            for (final String line : AA_API.getCommandsList("helpDisables")) {
+                final int dotPos = line.indexOf('.');
+                if (0 > dotPos) {
+                    continue;
+                }
+
+                final String group = line.substring(0, dotPos);
+
+                // create new ArrayList for this command group, if not set yet
+                if (!hidden.containsKey(group)) {
+                    hidden.put(group, new ArrayList<String>());
+                }
+
+                // add the command to this group's list
+                hidden.get(group).add(line.substring(dotPos + 1));
+            }
+
+            hiddenCommands = hidden;
+        }
+
+        return hidden;
+    } // end method
+
+    /**
+     * Drops everything we have cached, so it gets rebuilt on the next run.
+     */
+    public synchronized void invalidate() {
+        commands = null;
+        commandPermissions = Collections.emptySet();
+        groupViews.clear();
+        hiddenCommands = null;
+    } // end method
+
+    /**
+     * Drops the list of hidden commands when it's been changed.
+     *
+     * @param e The actual save event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onHelpDisablesSave(final AASaveCommandHelpDisablesEvent e) {
+        hiddenCommands = null;
+    } // end method
+
+    /**
+     * Drops all cached commands when a command gets disabled or re-enabled via AA.
+     *
+     * @param e The actual save event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDisabledCommandsSave(final AASaveDisabledCommandsEvent e) {
+        invalidate();
+    } // end method
+
+    /**
+     * Drops all cached commands when a plugin gets enabled, as it may have brought new commands.
+     *
+     * @param e The actual plugin enable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(final PluginEnableEvent e) {
+        invalidate();
+    } // end method
+
+    /**
+     * Drops all cached commands when a plugin gets disabled, as its commands are gone with it.
+     *
+     * @param e The actual plugin disable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(final PluginDisableEvent e) {
+        invalidate();
+    } // end method
+
+    /***
+     * React to the custom ReloadEvent which is fired when /aa_reload gets executed
+     * or when our rules change.
+     *
+     * @param e The actual reload event with message that says who is this reload for.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void reload(final AAReloadEvent e) {
+        final String msg = e.getMessage();
+        //noinspection HardCodedStringLiteral
+        if (null != msg && (msg.isEmpty() || "playercommands".equals(msg) || "checkcommandconflicts".equals(msg)
+            || "commandPreprocessor".equals(msg))) {
+            invalidate();
+        }
+    } // end method
+
+} // end class
@@ -33,6 +33,12 @@ public class AAAddVirtualPermEvent extends Event {
      */
     private String callerName = null;
 
+    /**
+     * The calling class itself, so the event receiver can resolve
+     * its plugin without having to look the class up by its name.
+     */
+    private Class<?> callerClass = null;
+
     /**
      * List of all event handlers activated for this event.
      */
@@ -53,7 +59,8 @@ public class AAAddVirtualPermEvent extends Event {
         // get caller name, so we can be sure we're coming from a valid AA command class
         try {
             final com.martinambrus.adminAnything.instrumentation.MySecurityManager mm = new com.martinambrus.adminAnything.instrumentation.MySecurityManager();
-            this.callerName = mm.getCallerClassName(2);
+            this.callerClass = mm.getCallerClass(2);
+            this.callerName = this.callerClass.getName();
         } catch (final java.lang.Exception exc) {}
     } // end method
 
@@ -85,6 +92,15 @@ public class AAAddVirtualPermEvent extends Event {
         return this.callerName;
     } // end method
 
+    /**
+     * Getter for the securely-calculated caller's class.
+     *
+     * @return Returns the calling class.
+     */
+    public Class<?> getCallerClass() {
+        return this.callerClass;
+    } // end method
+
     /**
      * Getter for list of all handlers for this event.
      */
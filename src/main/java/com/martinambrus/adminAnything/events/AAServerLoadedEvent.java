@@ -0,0 +1,40 @@
+package com.martinambrus.adminAnything.events;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Event which is fired up on the main thread once the server
+ * finished loading all plugins and AdminAnything's startup pipeline
+ * started building its caches.
+ *
+ * Listeners can use this to adjust their state against the final
+ * list of plugins and commands on the server.
+ *
+ * @author Martin Ambrus
+ */
+public class AAServerLoadedEvent extends Event {
+
+    /**
+     * List of all event handlers activated for this event.
+     */
+    private static final HandlerList handlers = new HandlerList();
+
+    /**
+     * Getter for list of all handlers for this event.
+     */
+    @Override
+    public HandlerList getHandlers() {
+        return handlers;
+    } // end method
+
+    /**
+     * Getter for list of all handlers for this event.
+     *
+     * @return Returns list of handlers for this event.
+     */
+    public static HandlerList getHandlerList() {
+        return handlers;
+    } // end method
+
+} // end class
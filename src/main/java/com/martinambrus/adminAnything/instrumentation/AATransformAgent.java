@@ -17,7 +17,10 @@ import java.lang.instrument.UnmodifiableClassException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.regex.Pattern;
@@ -34,17 +37,11 @@ import java.util.regex.Pattern;
 final class AATransformAgent implements ClassFileTransformer {
 
     /**
-     * Instance of the class responsible for the initialization
-     * procedure which includes attaching this agent and a couple
-     * of other classes to the JVM and loading the correct JAR files
-     * with all the tools necessary for this task.
+     * Name of the system property holding the {@link java.lang.instrument.Instrumentation}
+     * instance we got when our agent was attached, so AdminAnything can transform
+     * and restore server classes later without attaching the agent again.
      */
-    private static Instrumentation instrumentation = null;
-
-    /**
-     * A singleton instance of this transformation agent.
-     */
-    private static AATransformAgent transformer;
+    static final String INSTRUMENTATION_PROPERTY = "com.martinambrus.adminAnything.instrumentation"; //NON-NLS
 
     /**
      * A list of all transformations that need to be done
@@ -52,24 +49,56 @@ final class AATransformAgent implements ClassFileTransformer {
      * map consisting of "class-name-to-be-transformed" <> "instructions-what-to-transform"
      * information.
      */
-    private static final Map<String, Map<String, String>> retransformations = new HashMap<String, Map<String, String>>();
+    private final Map<String, Map<String, String>> retransformations;
 
     // TODO: can we really remove this one?
     //private static List<String> completedRetransformations = new ArrayList<>();
 
+    /**
+     * Constructor, creates a transformer for the given transformations.
+     *
+     * @param retransformations All transformations this transformer should perform.
+     */
+    private AATransformAgent(final Map<String, Map<String, String>> retransformations) {
+        this.retransformations = retransformations;
+    } // end method
+
     /**
      * public static void main() but for this agent
      *
      * @param string Unused.
      * @param instrument The actual class responsible for transformation init routine.
      */
-    @SuppressWarnings({"unchecked", "HardCodedStringLiteral"})
     public static void agentmain(final String string, final Instrumentation instrument) {
-        // prepare ourselves :)
-        // ... iterate over all command classes and check if any of them have
-        //     a static method that would fill our transformations map
+        // keep the instrumentation around, so AdminAnything can transform classes right after attaching,
+        // restore them once nothing is muted anymore and transform them again without re-attaching
+        System.getProperties().put(INSTRUMENTATION_PROPERTY, instrument);
+    } // end method
+
+    /**
+     * Gets the {@link java.lang.instrument.Instrumentation} instance we got when our agent
+     * was attached to the JVM.
+     *
+     * @return Returns the instrumentation instance or null if our agent was not attached yet.
+     */
+    static Instrumentation getInstrumentation() {
+        final Object instrumentation = System.getProperties().get(INSTRUMENTATION_PROPERTY);
+        return instrumentation instanceof Instrumentation ? (Instrumentation) instrumentation : null;
+    } // end method
+
+    /**
+     * Collects all transformations requested by AdminAnything's commands.
+     * Iterates over all command classes and checks if any of them are ready
+     * to retransform and have a static method that would fill our transformations map.
+     *
+     * @return Returns all requested transformations, mapped by names of classes to transform.
+     */
+    @SuppressWarnings({"unchecked", "HardCodedStringLiteral"})
+    static Map<String, Map<String, String>> collectTransformations() {
+        final Map<String, Map<String, String>> retransformations = new HashMap<String, Map<String, String>>();
         final JavaPlugin aa = (JavaPlugin) Bukkit.getPluginManager().getPlugin("AdminAnything");
         final PluginDescriptionFile yml = aa.getDescription();
+
         if (null != yml.getCommands()) {
             for (final String cmd : AA_API.getCommandsKeySet()) {
                 final CommandExecutor ce = aa.getCommand(cmd).getExecutor();
@@ -89,9 +118,24 @@ final class AATransformAgent implements ClassFileTransformer {
             }
         }
 
-        //Bukkit.getLogger().info("[AdminAnything] Loaded transformer agent.");
-        instrumentation = instrument;
-        transformer = new AATransformAgent();
+        return retransformations;
+    } // end method
+
+    /**
+     * Redefines all classes from the given transformations map, transforming them
+     * as they get redefined.
+     *
+     * @param instrumentation The instrumentation instance to redefine classes with.
+     * @param retransformations All transformations to perform, mapped by names of classes to transform.
+     *
+     * @return Returns true if all of the classes were redefined or skipped as optional for this server,
+     *         false otherwise.
+     */
+    static boolean redefine(final Instrumentation instrumentation, final Map<String, Map<String, String>> retransformations) {
+        final Plugin aa = Bukkit.getPluginManager().getPlugin("AdminAnything"); //NON-NLS
+        final AATransformAgent transformer = new AATransformAgent(retransformations);
+        boolean redefined = true;
+
         instrumentation.addTransformer(transformer, true);
         try {
             // redefine classes
@@ -135,6 +179,7 @@ final class AATransformAgent implements ClassFileTransformer {
                     }
 
                     if (!versionSkip) {
+                        redefined = false;
                         e.printStackTrace(System.out);
                         Bukkit.getLogger().warning(
                             '[' +
@@ -152,6 +197,7 @@ final class AATransformAgent implements ClassFileTransformer {
                 }
             }
         } catch (IOException | UnmodifiableClassException | SecurityException | IllegalArgumentException | AssertionError t) {
+            redefined = false;
             t.printStackTrace(System.out);
             Bukkit.getLogger().warning(
                 '[' +
@@ -165,10 +211,52 @@ final class AATransformAgent implements ClassFileTransformer {
                     "] " + //NON-NLS
                     AA_API.__("error.instrumentation-agent-cannot-instrument.2")
             );
+        } finally {
+            // all done, the transformer is no longer needed
+            instrumentation.removeTransformer(transformer);
         }
 
-        // all done, the agent is no longer needed
-        killAgent();
+        return redefined;
+    } // end method
+
+    /**
+     * Redefines the given classes back to their original bytecode, as loaded
+     * from the server JAR, removing all of our injected code from them.
+     *
+     * @param instrumentation The instrumentation instance to redefine classes with.
+     * @param classNames Names of all classes to restore, in their internal form (i.e. org/bukkit/...).
+     *
+     * @return Returns true if all of the classes were restored, false otherwise.
+     */
+    static boolean restore(final Instrumentation instrumentation, final Collection<String> classNames) {
+        final List<ClassDefinition> definitions = new ArrayList<ClassDefinition>();
+
+        try {
+            for (final String className : classNames) {
+                final Class<?> clazz;
+                try {
+                    clazz = Class.forName(className.replace("/", "."));
+                } catch (final ClassNotFoundException e) {
+                    // optional classes which don't exist on this server were never transformed
+                    continue;
+                }
+
+                definitions.add(new ClassDefinition(clazz,
+                    Tools.getBytesFromResource(AATransformAgent.class.getClassLoader(), className + ".class")));
+            }
+
+            // no transformer is registered at this point, so classes get their original bytecode back
+            instrumentation.redefineClasses(definitions.toArray(new ClassDefinition[0]));
+            return true;
+        } catch (IOException | ClassNotFoundException | UnmodifiableClassException | SecurityException | IllegalArgumentException | LinkageError t) {
+            if (AA_API.getDebug()) {
+                t.printStackTrace();
+            }
+
+            Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+                .__("error.instrumentation-cannot-restore"));
+            return false;
+        }
     } // end method
 
     /**
@@ -264,11 +352,4 @@ final class AATransformAgent implements ClassFileTransformer {
         return null;
     } // end method
 
-    /**
-     * Unlinks the transforming agent from JVM when no longer needed.
-     */
-    private static void killAgent() {
-        instrumentation.removeTransformer(transformer);
-    } // end method
-
 } // end class
\ No newline at end of file
@@ -0,0 +1,436 @@
+package com.martinambrus.adminAnything.instrumentation;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.instrumentation.Tools.Platform;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves libraries needed to instrument server classes, i.e. the javassist library
+ * and the native attach library for the current platform, from a plugin-local
+ * library folder (configurable via libraries.folder), so instrumentation works
+ * on hosts without internet access and startup never waits for a download.
+ *
+ * The javassist library is only ever used if it matches its pinned SHA-256 checksum
+ * (libraries.javassistSha256, the checksum of javassist 3.20.0-GA by default). Native libraries
+ * are extracted from our JAR into a folder keyed by their hash, so they are only written once
+ * across restarts. If javassist is missing, it can optionally be downloaded in the background.
+ *
+ * @author Martin Ambrus
+ */
+@SuppressWarnings("HardCodedStringLiteral")
+public final class LibraryResolver {
+
+    /**
+     * File name of the javassist library.
+     */
+    static final String JAVASSIST_FILE_NAME = "javassist.jar";
+
+    /**
+     * SHA-256 checksum of the javassist 3.20.0-GA library, as published on Maven Central.
+     */
+    static final String JAVASSIST_SHA256 = "d7691062fb779c2381640c8f72acba2c23873b01c243866d41c15dc4c8848ea2";
+
+    /**
+     * Download URL from which to download the Javassist
+     * library if not found on the server.
+     */
+    private static final String JAVASSIST_DOWNLOAD_URL = "https://repo1.maven.org/maven2/org/javassist/javassist/3.20.0-GA/javassist-3.20.0-GA.jar";
+
+    /**
+     * Location where older versions of AdminAnything downloaded the javassist library to.
+     */
+    private static final File LEGACY_JAVASSIST = new File(System.getProperty("user.dir") + File.separator + "lib", JAVASSIST_FILE_NAME);
+
+    /**
+     * Timeout (in milliseconds) for connecting to and reading from the download URL.
+     */
+    private static final int DOWNLOAD_TIMEOUT = 30000;
+
+    /**
+     * Determines whether the javassist library is being downloaded right now,
+     * so we never download it twice at the same time.
+     */
+    private static final AtomicBoolean downloading = new AtomicBoolean(false);
+
+    /**
+     * Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    private final Plugin plugin;
+
+    /**
+     * The folder in which we look for and store all libraries.
+     */
+    private final File libraryFolder;
+
+    /**
+     * Pinned SHA-256 checksum of the javassist library. If empty, no javassist library is ever used.
+     */
+    private final String javassistSha256;
+
+    /**
+     * Determines whether we can download the javassist library if it's not present locally.
+     */
+    private final boolean downloadAllowed;
+
+    /**
+     * Constructor, reads the library folder and verification settings from AA's configuration.
+     *
+     * @param aa Instance of {@link com.martinambrus.adminAnything.AdminAnything}.
+     */
+    public LibraryResolver(final Plugin aa) {
+        plugin = aa;
+
+        final File configuredFolder = new File(AA_API.getConfigString("libraries.folder", "libraries"));
+        libraryFolder = configuredFolder.isAbsolute() ? configuredFolder : new File(aa.getDataFolder(), configuredFolder.getPath());
+        javassistSha256 = AA_API.getConfigString("libraries.javassistSha256", JAVASSIST_SHA256).trim().toLowerCase();
+        downloadAllowed = AA_API.getConfigBoolean("libraries.download");
+    } // end method
+
+    /**
+     * Gets the folder in which we look for and store all libraries.
+     *
+     * @return Returns the library folder.
+     */
+    public File getLibraryFolder() {
+        return libraryFolder;
+    } // end method
+
+    /**
+     * Finds a verified javassist library in the library folder. If there is none,
+     * a library left by older versions of AdminAnything in the server's lib folder
+     * is verified and copied into our library folder.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final File javassist = resolver.resolveJavassist();
+     * if (null != javassist) {
+     *     ClasspathHacker.addFile(javassist);
+     * }
+     * }
+     * </pre>
+     *
+     * @return Returns the verified javassist library or null if there is none available locally.
+     */
+    public File resolveJavassist() {
+        final File javassist = new File(libraryFolder, JAVASSIST_FILE_NAME);
+
+        if (javassist.isFile()) {
+            return verifyJavassist(javassist) ? javassist : null;
+        }
+
+        if (LEGACY_JAVASSIST.isFile()) {
+            try {
+                if (!libraryFolder.isDirectory() && !libraryFolder.mkdirs()) {
+                    throw new IOException(libraryFolder.getAbsolutePath());
+                }
+
+                Files.copy(LEGACY_JAVASSIST.toPath(), javassist.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                return verifyJavassist(javassist) ? javassist : null;
+            } catch (final IOException ex) {
+                if (AA_API.getDebug()) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+
+        return null;
+    } // end method
+
+    /**
+     * Checks whether a verified javassist library is available locally, either in our library folder
+     * or where older versions of AdminAnything left it. Unlike {@link #resolveJavassist()}, this never
+     * copies, downloads or logs anything.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * if (!resolver.isJavassistAvailable()) {
+     *     sender.sendMessage(AA_API.__("commands.mute-downloading-javaassist"));
+     * }
+     * }
+     * </pre>
+     *
+     * @return Returns true if a verified javassist library is available locally, false otherwise.
+     */
+    public boolean isJavassistAvailable() {
+        return matchesChecksum(new File(libraryFolder, JAVASSIST_FILE_NAME)) || matchesChecksum(LEGACY_JAVASSIST);
+    } // end method
+
+    /**
+     * Verifies that the given file is a javassist library matching its pinned checksum.
+     * Libraries are always rejected if no checksum is pinned.
+     *
+     * @param javassist The javassist library to verify.
+     *
+     * @return Returns true if the library is valid, false otherwise.
+     */
+    private boolean verifyJavassist(final File javassist) {
+        if (javassistSha256.isEmpty()) {
+            Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API.__("libraries.javassist-no-checksum"));
+            return false;
+        }
+
+        if (matchesChecksum(javassist)) {
+            return true;
+        }
+
+        Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+            .__("libraries.javassist-invalid", javassist.getAbsolutePath()));
+        return false;
+    } // end method
+
+    /**
+     * Checks whether the given file exists and matches the pinned checksum of the javassist library.
+     *
+     * @param javassist The javassist library to check.
+     *
+     * @return Returns true if the file matches the pinned checksum, false otherwise.
+     */
+    private boolean matchesChecksum(final File javassist) {
+        if (javassistSha256.isEmpty() || !javassist.isFile()) {
+            return false;
+        }
+
+        try {
+            return javassistSha256.equals(sha256(javassist));
+        } catch (final IOException ex) {
+            if (AA_API.getDebug()) {
+                ex.printStackTrace();
+            }
+
+            return false;
+        }
+    } // end method
+
+    /**
+     * Downloads the javassist library in the background, verifies it and stores it
+     * in our library folder. Does nothing if downloads are disabled via configuration,
+     * if there is no checksum to verify the library with or if the library is being downloaded already.
+     *
+     * @param onDownloaded Task to run on the main thread once the library was downloaded and verified.
+     *
+     * @return Returns true if the download was started, false otherwise.
+     */
+    public boolean downloadJavassistAsync(final Runnable onDownloaded) {
+        if (!downloadAllowed) {
+            Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+                .__("libraries.javassist-missing", libraryFolder.getAbsolutePath()));
+            return false;
+        }
+
+        // we'd never use a library we cannot verify, so there's no point in downloading it
+        if (javassistSha256.isEmpty()) {
+            Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API.__("libraries.javassist-no-checksum"));
+            return false;
+        }
+
+        if (!downloading.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API
+            .__("error.instrumentation-downloading-javassist", libraryFolder.getAbsolutePath()));
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    downloadJavassist();
+                } catch (final IOException ex) {
+                    if (AA_API.getDebug()) {
+                        ex.printStackTrace();
+                    }
+
+                    Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+                        .__("error.instrumentation-cannot-download-javaassist") + ": " + JAVASSIST_DOWNLOAD_URL);
+                    Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API
+                        .__("libraries.javassist-missing", libraryFolder.getAbsolutePath()));
+                    return;
+                } finally {
+                    downloading.set(false);
+                }
+
+                // we could have been disabled while downloading
+                if (plugin.isEnabled()) {
+                    Bukkit.getScheduler().runTask(plugin, onDownloaded);
+                }
+            }
+
+        });
+
+        return true;
+    } // end method
+
+    /**
+     * Downloads the javassist library from Maven Central into a temporary file,
+     * verifies it against its pinned checksum and moves it into our library folder.
+     *
+     * @throws IOException When we couldn't download the library because of an IO error
+     *                     (possibly a timeout or other network problems) or when the downloaded
+     *                     file didn't pass verification.
+     */
+    private void downloadJavassist() throws IOException {
+        if (!libraryFolder.isDirectory() && !libraryFolder.mkdirs()) {
+            throw new IOException(libraryFolder.getAbsolutePath());
+        }
+
+        final URLConnection uc = new URL(JAVASSIST_DOWNLOAD_URL).openConnection();
+        uc.setConnectTimeout(DOWNLOAD_TIMEOUT);
+        uc.setReadTimeout(DOWNLOAD_TIMEOUT);
+
+        // check that we can access the download URL and that it yields the correct data
+        final String contentType = uc.getContentType();
+        if ((null == contentType) || contentType.startsWith("text/")) {
+            throw new IOException(AA_API.__("error.instrumentation-cannot-download-javaassist") + ": " + JAVASSIST_DOWNLOAD_URL);
+        }
+
+        final File temporary = new File(libraryFolder, JAVASSIST_FILE_NAME + ".download");
+        try (InputStream in = uc.getInputStream()) {
+            Files.copy(in, temporary.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (javassistSha256.isEmpty() || !javassistSha256.equals(sha256(temporary))) {
+            Files.deleteIfExists(temporary.toPath());
+            throw new IOException(AA_API.__("libraries.javassist-invalid", JAVASSIST_DOWNLOAD_URL));
+        }
+
+        final File javassist = new File(libraryFolder, JAVASSIST_FILE_NAME);
+        Files.move(temporary.toPath(), javassist.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        Bukkit.getLogger().info('[' + AA_API.getAaName() + "] " + AA_API.__("libraries.javassist-downloaded"));
+    } // end method
+
+    /**
+     * Extracts the native attach library for the current platform from our JAR file
+     * into a folder named by its hash, unless it was already extracted there before.
+     *
+     * @return Returns the folder containing the native attach library for the current platform.
+     *
+     * @throws IOException When the native library cannot be read or extracted.
+     */
+    public File resolveNativesFolder() throws IOException {
+        final String resource;
+        switch (Objects.requireNonNull(Platform.getPlatform())) {
+            case LINUX:
+                resource = "libraries/natives/64/linux/libattach.so";
+                break;
+            case WINDOWS:
+                resource = "libraries/natives/64/windows/attach.dll";
+                break;
+            case MAC:
+                resource = "libraries/natives/64/mac/libattach.dylib";
+                break;
+            case SOLARIS:
+                resource = "libraries/natives/64/solaris/libattach.so";
+                break;
+            default:
+                throw new UnsupportedOperationException("Unsupported platform detected.");
+        }
+
+        final InputStream in = plugin.getResource(resource);
+        if (null == in) {
+            throw new IOException(resource);
+        }
+
+        final byte[] library = Tools.getBytesFromStream(in);
+        final String hash = sha256(library);
+        final File folder = new File(new File(libraryFolder, "natives"), hash.substring(0, 16));
+        final File target = new File(folder, resource.substring(resource.lastIndexOf('/') + 1));
+
+        // extracted on a previous run already and still intact
+        if (target.isFile() && hash.equals(sha256(target))) {
+            return folder;
+        }
+
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException(folder.getAbsolutePath());
+        }
+
+        final File temporary = new File(folder, target.getName() + ".tmp");
+        Files.write(temporary.toPath(), library);
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        return folder;
+    } // end method
+
+    /**
+     * Calculates the SHA-256 checksum of a file.
+     *
+     * @param file The file to calculate the checksum of.
+     *
+     * @return Returns the checksum as a lower-case hexadecimal string.
+     *
+     * @throws IOException When the file cannot be read.
+     */
+    static String sha256(final File file) throws IOException {
+        final MessageDigest digest = newDigest();
+
+        try (InputStream in = new FileInputStream(file)) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while (-1 != (read = in.read(buffer))) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return toHex(digest.digest());
+    } // end method
+
+    /**
+     * Calculates the SHA-256 checksum of the given bytes.
+     *
+     * @param data The bytes to calculate the checksum of.
+     *
+     * @return Returns the checksum as a lower-case hexadecimal string.
+     */
+    static String sha256(final byte[] data) {
+        return toHex(newDigest().digest(data));
+    } // end method
+
+    /**
+     * Creates a new SHA-256 message digest.
+     *
+     * @return Returns a new SHA-256 message digest.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    } // end method
+
+    /**
+     * Converts bytes into a lower-case hexadecimal string.
+     *
+     * @param bytes The bytes to convert.
+     *
+     * @return Returns the hexadecimal representation of the given bytes.
+     */
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    } // end method
+
+} // end class
@@ -28,4 +28,21 @@ public class MySecurityManager extends SecurityManager {
         return c.length >= (callStackDepth - 1) ? this.getClassContext()[callStackDepth].getName() : null;
     } // end method
 
+    /**
+     * Retrieves a calling class from current stack
+     * according to the given depth parameter.
+     *
+     * @param callStackDepth The depth in which to look for the class.
+     *                       This is handled by the calling class, as they
+     *                       would know how deep they are and which class
+     *                       they need to retrieve.
+     *
+     * @return Returns a calling class from current stack.
+     */
+    public Class<?> getCallerClass(final int callStackDepth) {
+        final Class<?>[] c = this.getClassContext();
+        //noinspection ReturnOfNull
+        return c.length > callStackDepth ? c[callStackDepth] : null;
+    } // end method
+
 } // end class
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.martinambrus.adminAnything.listeners;
+
+import org.bukkit.block.Block;
+import org.bukkit.command.BlockCommandSender;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of final rule decisions for commands run by command blocks and command minecarts,
+ * keyed by the block location (or minecart) and the command line.
+ *
+ * Command blocks on redstone clocks can run the same command every tick, and since
+ * AA's rules only change on reload, the decision made for the first run of such a command
+ * stays valid for every following run. Every decision is stored with the rules version
+ * it was made for, so all of them become stale as soon as the rules change.
+ *
+ * Only decisions which can be replayed without side effects are cached, i.e. commands
+ * AA leaves alone and disabled commands. Redirected, muted, overridden and permission-checked
+ * commands are always evaluated in full.
+ *
+ * @author Martin Ambrus
+ */
+public final class CommandBlockDecisions {
+
+    /**
+     * A cached rule decision.
+     */
+    public enum Decision {
+
+        /**
+         * No rule applies to this command, AA leaves it alone.
+         */
+        PASS,
+
+        /**
+         * This command is disabled and needs to be cancelled.
+         */
+        DISABLED
+
+    } // end enum
+
+    /**
+     * A single cached decision, along with the rules version it was made for.
+     */
+    private static final class Entry {
+
+        /**
+         * The decision itself.
+         */
+        final Decision decision;
+
+        /**
+         * Version of the rules this decision was made for.
+         */
+        final long rulesVersion;
+
+        /**
+         * Constructor, stores the decision.
+         *
+         * @param decision The decision itself.
+         * @param rulesVersion Version of the rules this decision was made for.
+         */
+        Entry(final Decision decision, final long rulesVersion) {
+            this.decision = decision;
+            this.rulesVersion = rulesVersion;
+        } // end method
+
+    } // end class
+
+    /**
+     * Cached decisions, keyed by {@link #keyFor(CommandSender, String)}
+     * and evicting the least recently used ones once full.
+     */
+    private final Map<String, Entry> decisions;
+
+    /**
+     * Current version of the rules, increased whenever they change.
+     */
+    private volatile long rulesVersion = 0;
+
+    /**
+     * Constructor, creates an empty cache.
+     *
+     * @param maxSize Maximum number of decisions to keep.
+     */
+    public CommandBlockDecisions(final int maxSize) {
+        final int capacity = Math.max(1, maxSize);
+
+        decisions = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return capacity < size();
+            }
+
+        });
+    } // end method
+
+    /**
+     * Checks whether the given sender is a command block or a command minecart.
+     *
+     * @param sender The command sender to check.
+     *
+     * @return Returns true if the sender is a command block or a command minecart, false otherwise.
+     */
+    public static boolean isCommandBlock(final CommandSender sender) {
+        return sender instanceof BlockCommandSender
+            || (sender instanceof Entity && "MINECART_COMMAND".equals(((Entity) sender).getType().name())); //NON-NLS
+    } // end method
+
+    /**
+     * Builds a cache key for a command run by a command block or a command minecart.
+     * Command blocks are keyed by their location, command minecarts by their world and UUID,
+     * as they can move around.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final String key = CommandBlockDecisions.keyFor(e.getSender(), e.getCommand());
+     * if (null != key && Decision.PASS == decisions.get(key)) {
+     *     // nothing to do for this command
+     * }
+     * }
+     * </pre>
+     *
+     * @param sender The command sender.
+     * @param command The full command line.
+     *
+     * @return Returns the cache key or null if the sender is not a command block or a command minecart.
+     */
+    public static String keyFor(final CommandSender sender, final String command) {
+        if (sender instanceof BlockCommandSender) {
+            final Block block = ((BlockCommandSender) sender).getBlock();
+            return block.getWorld().getName() + ':' + block.getX() + ':' + block.getY() + ':' + block.getZ() + ' ' + command;
+        }
+
+        if (isCommandBlock(sender)) {
+            // world rules make the decision depend on the world the minecart is in right now
+            final Entity minecart = (Entity) sender;
+            return minecart.getWorld().getName() + ':' + minecart.getUniqueId() + ' ' + command;
+        }
+
+        return null;
+    } // end method
+
+    /**
+     * Gets the cached decision for the given key, if it was made for the current rules.
+     *
+     * @param key The cache key, see {@link #keyFor(CommandSender, String)}.
+     *
+     * @return Returns the cached decision or null if there is no valid decision cached.
+     */
+    public Decision get(final String key) {
+        final Entry entry = decisions.get(key);
+        return null != entry && entry.rulesVersion == rulesVersion ? entry.decision : null;
+    } // end method
+
+    /**
+     * Caches a decision for the given key, made for the current rules.
+     *
+     * @param key The cache key, see {@link #keyFor(CommandSender, String)}.
+     * @param decision The decision to cache.
+     */
+    public void put(final String key, final Decision decision) {
+        decisions.put(key, new Entry(decision, rulesVersion));
+    } // end method
+
+    /**
+     * Makes all cached decisions stale. Called whenever AA's rules change.
+     */
+    public void invalidate() {
+        rulesVersion++;
+    } // end method
+
+    /**
+     * Gets the number of cached decisions, including stale ones.
+     *
+     * @return Returns the number of cached decisions.
+     */
+    public int size() {
+        return decisions.size();
+    } // end method
+
+} // end class
@@ -0,0 +1,393 @@
+package com.martinambrus.adminAnything.listeners;
+
+import com.martinambrus.adminAnything.AA_API;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-player command rate limits and cooldowns, configured in the commandThrottling
+ * section of the config and implemented via token buckets keyed by player UUID and command name.
+ *
+ * Each limit is written as <i>[tokens] per [period]</i>, where period is a number
+ * followed by one of ms, s, m or h (for example "1 per 3s" or "20 per 10s").
+ * A global limit counts all commands of a player, while command limits only count that single command.
+ * Limits in a group section override the default ones for players whose primary permission group it is.
+ *
+ * <br><br><strong>Example:</strong>
+ * <pre>
+ * {@code
+ * commandThrottling:
+ *   global: "20 per 10s"
+ *   commands:
+ *     home: "1 per 3s"
+ *   groups:
+ *     vip:
+ *       commands:
+ *         home: "1 per 1s"
+ * }
+ * </pre>
+ *
+ * Buckets of a player are created on their first throttled command and dropped when they quit.
+ *
+ * @author Martin Ambrus
+ */
+public final class CommandThrottle {
+
+    /**
+     * Name of the configuration section holding all throttling rules.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final String CONFIG_SECTION = "commandThrottling";
+
+    /**
+     * Pattern to parse a single limit, such as "1 per 3s" or "20/10s".
+     */
+    private static final Pattern LIMIT = Pattern.compile("^\\s*(\\d+)\\s*(?:per|/)\\s*(\\d*)\\s*(ms|s|m|h)\\s*$",
+        Pattern.CASE_INSENSITIVE);
+
+    /**
+     * A single compiled limit.
+     */
+    private static final class Rule {
+
+        /**
+         * Number of commands allowed per period, which is also the bucket capacity.
+         */
+        final int tokens;
+
+        /**
+         * Length of the period, in nanoseconds.
+         */
+        final long periodNanos;
+
+        /**
+         * Constructor, stores the limit.
+         *
+         * @param ruleTokens Number of commands allowed per period.
+         * @param rulePeriodNanos Length of the period, in nanoseconds.
+         */
+        Rule(final int ruleTokens, final long rulePeriodNanos) {
+            tokens = ruleTokens;
+            periodNanos = rulePeriodNanos;
+        } // end method
+
+    } // end class
+
+    /**
+     * A token bucket for a single rule, starting full.
+     */
+    private static final class Bucket {
+
+        /**
+         * The rule this bucket is refilled by.
+         */
+        final Rule rule;
+
+        /**
+         * Tokens currently in this bucket.
+         */
+        double tokens;
+
+        /**
+         * Time (in nanoseconds) when tokens were last refilled.
+         */
+        long updated;
+
+        /**
+         * Constructor, creates a full bucket for the given rule.
+         *
+         * @param bucketRule The rule this bucket is refilled by.
+         * @param now Current time, in nanoseconds.
+         */
+        Bucket(final Rule bucketRule, final long now) {
+            rule = bucketRule;
+            tokens = bucketRule.tokens;
+            updated = now;
+        } // end method
+
+        /**
+         * Adds tokens accumulated since the last refill, up to this bucket's capacity.
+         *
+         * @param now Current time, in nanoseconds.
+         */
+        void refill(final long now) {
+            if (now > updated) {
+                tokens = Math.min(rule.tokens, tokens + (now - updated) * (double) rule.tokens / rule.periodNanos);
+                updated = now;
+            }
+        } // end method
+
+        /**
+         * Calculates how long until this bucket holds a whole token. Call {@link #refill(long)} first.
+         *
+         * @return Returns number of nanoseconds until a token is available, 0 if one is available right now.
+         */
+        long nanosUntilToken() {
+            return 1 <= tokens ? 0 : (long) Math.ceil((1 - tokens) * rule.periodNanos / rule.tokens);
+        } // end method
+
+    } // end class
+
+    /**
+     * All buckets of a single online player.
+     */
+    private static final class PlayerBuckets {
+
+        /**
+         * Primary permission group of this player at the time of their first throttled command.
+         */
+        final String group;
+
+        /**
+         * Bucket counting all commands of this player, null if there's no global limit for them.
+         */
+        Bucket global;
+
+        /**
+         * Buckets of all limited commands this player used, keyed by command name.
+         */
+        final Map<String, Bucket> commands = new HashMap<String, Bucket>();
+
+        /**
+         * Constructor, stores the player's group.
+         *
+         * @param playerGroup Primary permission group of this player.
+         */
+        PlayerBuckets(final String playerGroup) {
+            group = playerGroup;
+        } // end method
+
+    } // end class
+
+    /**
+     * Default global limit, null if there's none.
+     */
+    private final Rule globalRule;
+
+    /**
+     * Default command limits, keyed by lowercased command name.
+     */
+    private final Map<String, Rule> commandRules = new HashMap<String, Rule>();
+
+    /**
+     * Global limits of permission groups, keyed by group name.
+     */
+    private final Map<String, Rule> groupGlobalRules = new HashMap<String, Rule>();
+
+    /**
+     * Command limits of permission groups, keyed by group name and then by lowercased command name.
+     */
+    private final Map<String, Map<String, Rule>> groupCommandRules = new HashMap<String, Map<String, Rule>>();
+
+    /**
+     * Buckets of all online players who used a throttled command, keyed by their UUID.
+     */
+    private final Map<UUID, PlayerBuckets> players = new ConcurrentHashMap<UUID, PlayerBuckets>();
+
+    /**
+     * Constructor, compiles all rules from the config.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    public CommandThrottle() {
+        globalRule = parseRule(AA_API.getConfigString(CONFIG_SECTION + ".global"));
+        loadCommandRules(CONFIG_SECTION + ".commands", commandRules);
+
+        final Iterable<String> groups = AA_API.getConfigSectionKeys(CONFIG_SECTION + ".groups");
+        if (null != groups) {
+            for (final String group : groups) {
+                final String groupPath = CONFIG_SECTION + ".groups." + group;
+                final Rule groupGlobal = parseRule(AA_API.getConfigString(groupPath + ".global"));
+                if (null != groupGlobal) {
+                    groupGlobalRules.put(group, groupGlobal);
+                }
+
+                final Map<String, Rule> rules = new HashMap<String, Rule>();
+                loadCommandRules(groupPath + ".commands", rules);
+                if (!rules.isEmpty()) {
+                    groupCommandRules.put(group, rules);
+                }
+            }
+        }
+    } // end method
+
+    /**
+     * Loads all command limits from the given config section.
+     *
+     * @param path Path to the config section with command limits.
+     * @param rules Map to put compiled rules into.
+     */
+    private static void loadCommandRules(final String path, final Map<String, Rule> rules) {
+        final Iterable<String> commands = AA_API.getConfigSectionKeys(path);
+        if (null == commands) {
+            return;
+        }
+
+        for (final String command : commands) {
+            final Rule rule = parseRule(AA_API.getConfigString(path + '.' + command));
+            if (null != rule) {
+                rules.put(command.toLowerCase(), rule);
+            }
+        }
+    } // end method
+
+    /**
+     * Parses a single limit, such as "1 per 3s".
+     *
+     * @param limit The textual form of the limit.
+     *
+     * @return Returns the compiled rule or null if the limit is empty or invalid.
+     */
+    private static Rule parseRule(final String limit) {
+        if (null == limit || limit.trim().isEmpty()) {
+            return null;
+        }
+
+        final Matcher m = LIMIT.matcher(limit);
+        final int tokens = m.matches() ? Integer.parseInt(m.group(1)) : 0;
+        if (0 >= tokens) {
+            Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API.__("config.invalid-throttle-limit", limit));
+            return null;
+        }
+
+        final long amount = m.group(2).isEmpty() ? 1 : Long.parseLong(m.group(2));
+        final long periodNanos;
+
+        //noinspection HardCodedStringLiteral
+        switch (m.group(3).toLowerCase()) {
+            case "ms":
+                periodNanos = TimeUnit.MILLISECONDS.toNanos(amount);
+                break;
+
+            case "m":
+                periodNanos = TimeUnit.MINUTES.toNanos(amount);
+                break;
+
+            case "h":
+                periodNanos = TimeUnit.HOURS.toNanos(amount);
+                break;
+
+            default:
+                periodNanos = TimeUnit.SECONDS.toNanos(amount);
+        }
+
+        return 0 < periodNanos ? new Rule(tokens, periodNanos) : null;
+    } // end method
+
+    /**
+     * Checks whether there are any limits configured at all.
+     *
+     * @return Returns true if no limits are configured, false otherwise.
+     */
+    public boolean isEmpty() {
+        return null == globalRule && commandRules.isEmpty() && groupGlobalRules.isEmpty() && groupCommandRules
+            .isEmpty();
+    } // end method
+
+    /**
+     * Tries to take a token for the given command from the player's global and command buckets.
+     * Tokens are only taken when both of these buckets have one, so a rejected command
+     * doesn't count towards the player's global limit.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final long wait = throttle.tryAcquire(player, "home");
+     * if (0 < wait) {
+     *     player.sendMessage("Please wait " + TimeUnit.NANOSECONDS.toSeconds(wait) + " seconds.");
+     * }
+     * }
+     * </pre>
+     *
+     * @param player The player who's running the command.
+     * @param command Name of the command, without slash or parameters.
+     *
+     * @return Returns 0 if the command can run, otherwise number of nanoseconds
+     *         the player needs to wait before this command can run.
+     */
+    public long tryAcquire(final Player player, final String command) {
+        if (isEmpty()) {
+            return 0;
+        }
+
+        // commands called with a plugin prefix (i.e. /essentials:home) share limits with the plain ones
+        String commandName = command.toLowerCase();
+        if (commandName.contains(":")) {
+            commandName = commandName.substring(commandName.indexOf(':') + 1);
+        }
+
+        PlayerBuckets buckets = players.get(player.getUniqueId());
+        if (null == buckets) {
+            // no need to ask the permissions plugin for a group if we have no group limits
+            buckets = new PlayerBuckets(groupGlobalRules.isEmpty() && groupCommandRules.isEmpty() ? "" :
+                                        AA_API.getPlayerPrimaryPermGroup(player));
+            players.put(player.getUniqueId(), buckets);
+        }
+
+        final long now = System.nanoTime();
+
+        synchronized (buckets) {
+            final Rule groupGlobal = groupGlobalRules.get(buckets.group);
+            final Rule global = null != groupGlobal ? groupGlobal : globalRule;
+
+            final Map<String, Rule> groupCommands = groupCommandRules.get(buckets.group);
+            Rule commandRule = null != groupCommands ? groupCommands.get(commandName) : null;
+            if (null == commandRule) {
+                commandRule = commandRules.get(commandName);
+            }
+
+            if (null != global && null == buckets.global) {
+                buckets.global = new Bucket(global, now);
+            }
+
+            Bucket commandBucket = null;
+            if (null != commandRule) {
+                commandBucket = buckets.commands.get(commandName);
+                if (null == commandBucket) {
+                    commandBucket = new Bucket(commandRule, now);
+                    buckets.commands.put(commandName, commandBucket);
+                }
+            }
+
+            long wait = 0;
+            if (null != buckets.global) {
+                buckets.global.refill(now);
+                wait = buckets.global.nanosUntilToken();
+            }
+
+            if (null != commandBucket) {
+                commandBucket.refill(now);
+                wait = Math.max(wait, commandBucket.nanosUntilToken());
+            }
+
+            if (0 == wait) {
+                if (null != buckets.global) {
+                    buckets.global.tokens--;
+                }
+
+                if (null != commandBucket) {
+                    commandBucket.tokens--;
+                }
+            }
+
+            return wait;
+        }
+    } // end method
+
+    /**
+     * Drops all buckets of the given player, i.e. when they leave the server.
+     *
+     * @param uuid UUID of the player.
+     */
+    public void forget(final UUID uuid) {
+        players.remove(uuid);
+    } // end method
+
+} // end class
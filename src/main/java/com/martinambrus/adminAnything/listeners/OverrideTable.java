@@ -0,0 +1,228 @@
+package com.martinambrus.adminAnything.listeners;
+
+import com.martinambrus.adminAnything.AA_API;
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginIdentifiableCommand;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Resolution table for command overrides set up via /aa_fixcommand,
+ * mapping each overridden command directly to the {@link org.bukkit.command.Command Command}
+ * it should run instead.
+ *
+ * Resolving an override means looking up its plugin, the plugin's commands and possibly
+ * the JAR location of a command from the commandMap, none of which change until our config
+ * is reloaded or a plugin is enabled or disabled. The table is therefore rebuilt only then
+ * and running an overridden command costs a single map lookup.
+ *
+ * Overrides which cannot be resolved are left out of the table, so they go through
+ * the full lookup in {@link com.martinambrus.adminAnything.listeners.commandPreprocessor}
+ * which reports what's wrong with them.
+ *
+ * @author Martin Ambrus
+ */
+public final class OverrideTable {
+
+    /**
+     * A resolved command override.
+     */
+    public static final class Target {
+
+        /**
+         * The command to run instead of the overridden one.
+         */
+        private final Command command;
+
+        /**
+         * The override as set up in the config, i.e. plugin:command.
+         */
+        private final String override;
+
+        /**
+         * The command line to put into console command events instead of the overridden one.
+         */
+        private final String consoleCommand;
+
+        /**
+         * Constructor, stores the resolved override.
+         *
+         * @param command The command to run instead of the overridden one.
+         * @param override The override as set up in the config.
+         * @param consoleCommand The command line to put into console command events instead of the overridden one.
+         */
+        Target(final Command command, final String override, final String consoleCommand) {
+            this.command = command;
+            this.override = override;
+            this.consoleCommand = consoleCommand;
+        } // end method
+
+        /**
+         * Gets the command to run instead of the overridden one.
+         *
+         * @return Returns the command to run instead of the overridden one.
+         */
+        public Command getCommand() {
+            return command;
+        } // end method
+
+        /**
+         * Gets the override as set up in the config.
+         *
+         * @return Returns the override as set up in the config, i.e. plugin:command.
+         */
+        public String getOverride() {
+            return override;
+        } // end method
+
+        /**
+         * Gets the command line to put into console command events instead of the overridden one.
+         *
+         * @return Returns the command line to put into console command events instead of the overridden one.
+         */
+        public String getConsoleCommand() {
+            return consoleCommand;
+        } // end method
+
+    } // end class
+
+    /**
+     * Resolved overrides, mapped by the overridden command.
+     */
+    private volatile Map<String, Target> targets = Collections.emptyMap();
+
+    /**
+     * Resolves all of the given overrides, replacing the current table.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * // rebuild the table once our config is reloaded
+     * overrideTable.rebuild(AA_API.getCommandsConfigurationValues("overrides"));
+     * }
+     * </pre>
+     *
+     * @param overrides All command overrides from the config, mapped by the overridden command.
+     */
+    public void rebuild(final Map<String, Object> overrides) {
+        final Map<String, Target> newTargets = new HashMap<String, Target>();
+
+        for (final Map.Entry<String, Object> pair : overrides.entrySet()) {
+            if (null == pair.getValue()) {
+                continue;
+            }
+
+            final Target target = resolve(pair.getValue().toString());
+            if (null != target) {
+                newTargets.put(pair.getKey(), target);
+            }
+        }
+
+        targets = Collections.unmodifiableMap(newTargets);
+    } // end method
+
+    /**
+     * Resolves a single override the same way the full lookup in
+     * {@link com.martinambrus.adminAnything.listeners.commandPreprocessor} does.
+     *
+     * @param override The override as set up in the config, i.e. plugin:command.
+     *
+     * @return Returns the resolved override or null if it cannot be resolved right now.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static Target resolve(final String override) {
+        final String[] spl = override.split(Pattern.quote(":"));
+        if (2 > spl.length) {
+            return null;
+        }
+
+        final String lowerCasedOverride = override.toLowerCase();
+        final String lowerCasedCommand = spl[1].toLowerCase();
+
+        try {
+            // core commands have no plugin
+            if ("minecraft".equalsIgnoreCase(spl[0]) || "spigot".equalsIgnoreCase(spl[0])
+                || "bukkit".equalsIgnoreCase(spl[0])) {
+                return usable(AA_API.getCommandMapKey(spl[0].toLowerCase() + ':' + lowerCasedCommand),
+                    override, override);
+            }
+
+            final Plugin p = AA_API.getPluginIgnoreCase(spl[0]);
+            if (!(p instanceof JavaPlugin)) {
+                return null;
+            }
+
+            if (null != ((JavaPlugin) p).getCommand(spl[1])) {
+                return usable(((JavaPlugin) p).getCommand(lowerCasedCommand), override, override);
+            }
+
+            // getCommand() was not able to find the command, look into the commandMap ourselves
+            if (AA_API.commandMapContainsKey(lowerCasedOverride)) {
+                // exact match, for example essentials:ban
+                return usable(AA_API.getCommandMapKey(lowerCasedOverride), override, lowerCasedOverride);
+            }
+
+            if (AA_API.commandMapContainsKey(spl[1])) {
+                // prefix-less match, for example ban - make sure it comes from the correct plugin
+                final String commandLocationParsed = AA_API
+                    .parsePluginJARLocation(AA_API.getCommandMapKey(spl[1]).getClass());
+                final String pluginName = AA_API.classMapContainsKey(commandLocationParsed) ?
+                                          AA_API.getClassMapKey(commandLocationParsed) : lowerCasedOverride;
+
+                if (spl[0].equals(pluginName)) {
+                    return usable(AA_API.getCommandMapKey(lowerCasedCommand), override, lowerCasedCommand);
+                }
+            }
+        } catch (final Exception ex) {
+            // leave it to the full lookup, which reports any problems
+            return null;
+        }
+
+        return null;
+    } // end method
+
+    /**
+     * Creates a resolved override for the given command, unless it cannot be run.
+     *
+     * @param command The command to run instead of the overridden one.
+     * @param override The override as set up in the config.
+     * @param consoleCommand The command line to put into console command events instead of the overridden one.
+     *
+     * @return Returns the resolved override or null if the command is missing or its plugin is disabled.
+     */
+    private static Target usable(final Command command, final String override, final String consoleCommand) {
+        if (null == command || (command instanceof PluginIdentifiableCommand
+            && !((PluginIdentifiableCommand) command).getPlugin().isEnabled())) {
+            return null;
+        }
+
+        return new Target(command, override, consoleCommand);
+    } // end method
+
+    /**
+     * Gets the resolved override for the given command.
+     *
+     * @param command The overridden command, as typed by the player or console.
+     *
+     * @return Returns the resolved override or null if this command is not overridden
+     *         or its override could not be resolved.
+     */
+    public Target get(final String command) {
+        return targets.get(command);
+    } // end method
+
+    /**
+     * Gets the number of resolved overrides.
+     *
+     * @return Returns the number of resolved overrides.
+     */
+    public int size() {
+        return targets.size();
+    } // end method
+
+} // end class
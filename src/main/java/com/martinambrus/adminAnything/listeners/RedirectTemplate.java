@@ -0,0 +1,376 @@
+package com.martinambrus.adminAnything.listeners;
+
+import com.martinambrus.adminAnything.AA_API;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.BlockCommandSender;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.regex.Pattern;
+
+/**
+ * A command redirect, pre-compiled from its textual form in the redirects config
+ * into a list of slots, so it doesn't need to be parsed again every time it's used.
+ *
+ * Supported placeholders:
+ * <ul>
+ *     <li><strong>%player%</strong> - name of the player (or other sender) who sent the original command</li>
+ *     <li><strong>%world%</strong> - name of the world this sender is in (main world for console)</li>
+ *     <li><strong>$1..$n</strong> - the n-th argument of the original command (empty when not given)</li>
+ *     <li><strong>$*</strong> - all arguments of the original command</li>
+ * </ul>
+ *
+ * When a redirect uses none of the argument placeholders, all arguments of the original
+ * command are appended to it, just like with redirects that existed before placeholders.
+ *
+ * Redirects are chained when the target of one redirect is itself a redirected command.
+ * Cycles in such chains are detected at compile time and those redirects are not chained further.
+ *
+ * @author Martin Ambrus
+ */
+public final class RedirectTemplate {
+
+    /**
+     * Pattern used to split a rendered command line into its parts.
+     */
+    private static final Pattern SPACE = Pattern.compile(Pattern.quote(" "));
+
+    /**
+     * Types of slots a template consists of.
+     */
+    private enum SlotType {
+        LITERAL, PLAYER, WORLD, ARGUMENT, ALL_ARGUMENTS
+    }
+
+    /**
+     * A single slot of the template - either a literal text or a placeholder.
+     */
+    private static final class Slot {
+
+        /**
+         * Type of this slot.
+         */
+        final SlotType type;
+
+        /**
+         * Literal text for LITERAL slots.
+         */
+        final String literal;
+
+        /**
+         * Zero-based index of the argument for ARGUMENT slots.
+         */
+        final int argumentIndex;
+
+        /**
+         * Constructor, stores all slot properties.
+         *
+         * @param slotType Type of this slot.
+         * @param text Literal text for LITERAL slots.
+         * @param index Zero-based index of the argument for ARGUMENT slots.
+         */
+        Slot(final SlotType slotType, final String text, final int index) {
+            type = slotType;
+            literal = text;
+            argumentIndex = index;
+        } // end method
+
+    } // end class
+
+    /**
+     * The redirected command (lowercased, without slash).
+     */
+    private final String command;
+
+    /**
+     * The command this redirect calls (lowercased, without slash).
+     */
+    private final String target;
+
+    /**
+     * All slots of this template, in order.
+     */
+    private final Slot[] slots;
+
+    /**
+     * Whether original command arguments should be appended
+     * to the result, since no argument placeholders are used.
+     */
+    private final boolean appendArguments;
+
+    /**
+     * Next redirect in the chain, if the target of this one is also redirected.
+     */
+    private RedirectTemplate next;
+
+    /**
+     * Constructor, stores the parsed template.
+     *
+     * @param commandName The redirected command.
+     * @param targetName The command this redirect calls.
+     * @param templateSlots All slots of this template.
+     * @param append Whether original command arguments should be appended to the result.
+     */
+    private RedirectTemplate(final String commandName, final String targetName, final Slot[] templateSlots,
+        final boolean append) {
+        command = commandName;
+        target = targetName;
+        slots = templateSlots;
+        appendArguments = append;
+    } // end method
+
+    /**
+     * Parses a single redirect into its template form.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final RedirectTemplate tpl = RedirectTemplate.compile("arm", "house addfriend %player% $1");
+     * Bukkit.dispatchCommand(sender, tpl.resolve(sender, new String[] { "Steve" }));
+     * }
+     * </pre>
+     *
+     * @param commandName The redirected command.
+     * @param template The command line this command should be redirected to.
+     *
+     * @return Returns the compiled template.
+     */
+    public static RedirectTemplate compile(final String commandName, String template) {
+        template = template.trim();
+        if (template.startsWith("/")) {
+            template = template.substring(1);
+        }
+
+        final List<Slot> slots = new ArrayList<Slot>();
+        final StringBuilder literal = new StringBuilder();
+        boolean usesArguments = false;
+        int i = 0;
+
+        while (i < template.length()) {
+            final char c = template.charAt(i);
+            SlotType placeholder = null;
+            int argumentIndex = -1;
+            int placeholderLength = 0;
+
+            //noinspection HardCodedStringLiteral
+            if ('%' == c && template.regionMatches(true, i, "%player%", 0, 8)) {
+                placeholder = SlotType.PLAYER;
+                placeholderLength = 8;
+            } else if ('%' == c && template.regionMatches(true, i, "%world%", 0, 7)) {
+                placeholder = SlotType.WORLD;
+                placeholderLength = 7;
+            } else if ('$' == c && i + 1 < template.length()) {
+                if ('*' == template.charAt(i + 1)) {
+                    placeholder = SlotType.ALL_ARGUMENTS;
+                    placeholderLength = 2;
+                } else {
+                    // up to 3 digits, as no command will ever have more arguments than that
+                    int end = i + 1;
+                    while (end < template.length() && end - i <= 3 && Character.isDigit(template.charAt(end))) {
+                        end++;
+                    }
+
+                    // $0 makes no sense, as arguments are numbered from 1
+                    if (end > i + 1) {
+                        final int number = Integer.parseInt(template.substring(i + 1, end));
+                        if (0 < number) {
+                            placeholder = SlotType.ARGUMENT;
+                            argumentIndex = number - 1;
+                            placeholderLength = end - i;
+                        }
+                    }
+                }
+            }
+
+            if (null == placeholder) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            if (0 < literal.length()) {
+                slots.add(new Slot(SlotType.LITERAL, literal.toString(), -1));
+                literal.setLength(0);
+            }
+
+            slots.add(new Slot(placeholder, null, argumentIndex));
+            usesArguments |= (SlotType.ARGUMENT == placeholder || SlotType.ALL_ARGUMENTS == placeholder);
+            i += placeholderLength;
+        }
+
+        if (0 < literal.length()) {
+            slots.add(new Slot(SlotType.LITERAL, literal.toString(), -1));
+        }
+
+        final String targetName = (template.contains(" ") ? template.substring(0, template.indexOf(' ')) : template)
+            .toLowerCase();
+
+        return new RedirectTemplate(commandName.toLowerCase(), targetName, slots.toArray(new Slot[0]),
+            !usesArguments);
+    } // end method
+
+    /**
+     * Compiles all redirects from the redirects config and links chained redirects together,
+     * while making sure that there are no cycles in such chains.
+     *
+     * @param redirects All redirects from the config, command to redirect being the key
+     *                  and command line to redirect it to being the value.
+     *
+     * @return Returns a map of all compiled redirects, keyed by the lowercased redirected command.
+     */
+    public static Map<String, RedirectTemplate> compileAll(final Map<String, Object> redirects) {
+        final Map<String, RedirectTemplate> templates = new HashMap<String, RedirectTemplate>();
+        for (final Entry<String, Object> pair : redirects.entrySet()) {
+            if (pair.getValue() instanceof String) {
+                templates.put(pair.getKey().toLowerCase(), compile(pair.getKey(), (String) pair.getValue()));
+            }
+        }
+
+        // a redirect to itself (i.e. to add default parameters) is not a chain, as it calls the original command
+        final Set<String> resolved = new HashSet<String>();
+        for (final RedirectTemplate start : templates.values()) {
+            final LinkedHashSet<String> path = new LinkedHashSet<String>();
+            RedirectTemplate current = start;
+
+            while (null != current && !resolved.contains(current.command) && path.add(current.command)) {
+                final RedirectTemplate following = current.target.equals(current.command) ? null :
+                                                   templates.get(current.target);
+
+                if (null != following && path.contains(following.command)) {
+                    // found a cycle, report it and don't chain any of the redirects in it
+                    final List<String> cycle = new ArrayList<String>();
+                    boolean inCycle = false;
+                    for (final String name : path) {
+                        inCycle |= name.equals(following.command);
+                        if (inCycle) {
+                            cycle.add(name);
+                            templates.get(name).next = null;
+                        }
+                    }
+                    cycle.add(following.command);
+
+                    Bukkit.getLogger().warning('[' + AA_API.getAaName() + "] " + AA_API.__("commands.redirect-cycle-detected",
+                        String.join(" -> ", cycle))); //NON-NLS
+                    break;
+                }
+
+                current.next = following;
+                current = following;
+            }
+
+            resolved.addAll(path);
+        }
+
+        return templates;
+    } // end method
+
+    /**
+     * Renders this redirect for the given sender and arguments, following the chain
+     * of redirects if the target of this one is redirected as well.
+     *
+     * @param sender The sender of the original command.
+     * @param arguments Arguments of the original command.
+     *
+     * @return Returns the command line (without slash) which should be dispatched instead of the original command.
+     */
+    public String resolve(final CommandSender sender, String[] arguments) {
+        RedirectTemplate current = this;
+
+        while (true) {
+            final String commandLine = current.render(sender, arguments);
+            if (null == current.next) {
+                return commandLine;
+            }
+
+            final String[] parts = SPACE.split(commandLine);
+            arguments = Arrays.copyOfRange(parts, 1, parts.length);
+            current = current.next;
+        }
+    } // end method
+
+    /**
+     * Renders this single redirect for the given sender and arguments.
+     *
+     * @param sender The sender of the original command.
+     * @param arguments Arguments of the original command.
+     *
+     * @return Returns the rendered command line.
+     */
+    private String render(final CommandSender sender, final String[] arguments) {
+        final StringBuilder out = new StringBuilder();
+
+        for (final Slot slot : slots) {
+            switch (slot.type) {
+                case LITERAL:
+                    out.append(slot.literal);
+                    break;
+
+                case PLAYER:
+                    out.append(sender.getName());
+                    break;
+
+                case WORLD:
+                    out.append(getWorldName(sender));
+                    break;
+
+                case ARGUMENT:
+                    if (slot.argumentIndex < arguments.length) {
+                        out.append(arguments[slot.argumentIndex]);
+                    }
+                    break;
+
+                case ALL_ARGUMENTS:
+                    out.append(String.join(" ", arguments));
+                    break;
+            }
+        }
+
+        if (appendArguments && 0 < arguments.length) {
+            out.append(' ').append(String.join(" ", arguments));
+        }
+
+        return out.toString().trim();
+    } // end method
+
+    /**
+     * Determines the world the given sender is in.
+     *
+     * @param sender The sender to determine the world for.
+     *
+     * @return Returns name of the sender's world, or the main world when the sender has no location.
+     */
+    private static String getWorldName(final CommandSender sender) {
+        if (sender instanceof Entity) {
+            return ((Entity) sender).getWorld().getName();
+        }
+
+        if (sender instanceof BlockCommandSender) {
+            return ((BlockCommandSender) sender).getBlock().getWorld().getName();
+        }
+
+        final List<World> worlds = Bukkit.getWorlds();
+        return worlds.isEmpty() ? "" : worlds.get(0).getName();
+    } // end method
+
+    /**
+     * Gets the redirected command.
+     *
+     * @return Returns the lowercased redirected command.
+     */
+    public String getCommand() {
+        return command;
+    } // end method
+
+    /**
+     * Gets the command this redirect calls.
+     *
+     * @return Returns the lowercased name of the command this redirect calls.
+     */
+    public String getTarget() {
+        return target;
+    } // end method
+
+} // end class
@@ -1,5 +1,7 @@
 package com.martinambrus.adminAnything.listeners;
 
+import com.martinambrus.adminAnything.MuteSessions;
+import com.martinambrus.adminAnything.MutedOutputLog;
 import org.bukkit.Bukkit;
 import org.bukkit.Server;
 import org.bukkit.permissions.Permission;
@@ -149,6 +151,7 @@ final class VirtualCommandSender implements SpigotCommandSender {
         }
 
         lastMessages.add(arg0);
+        captureMuted(arg0);
     } // end method
 
     @Override
@@ -158,6 +161,7 @@ final class VirtualCommandSender implements SpigotCommandSender {
         }
 
         Collections.addAll(lastMessages, arg0);
+        captureMuted(arg0);
     } // end method
 
     /**
@@ -173,6 +177,7 @@ final class VirtualCommandSender implements SpigotCommandSender {
         }
 
         lastMessages.add(message);
+        captureMuted(message);
     }
 
     /**
@@ -188,8 +193,24 @@ final class VirtualCommandSender implements SpigotCommandSender {
         }
 
         Collections.addAll(lastMessages, messages);
+        captureMuted(messages);
     }
 
+    /**
+     * Keeps messages sent to this sender while it's dispatching a muted command
+     * in the {@link com.martinambrus.adminAnything.MutedOutputLog}, if that command is being captured.
+     *
+     * @param messages The messages sent to this sender.
+     */
+    private static void captureMuted(final String... messages) {
+        final String mutedCommand = MuteSessions.getThreadMute();
+        if (null != mutedCommand) {
+            for (final String message : messages) {
+                MutedOutputLog.capture(mutedCommand, message);
+            }
+        }
+    } // end method
+
     public List<String> getLastMessage() {
         return null == lastMessages ? new ArrayList<String>() : lastMessages;
     } // end method
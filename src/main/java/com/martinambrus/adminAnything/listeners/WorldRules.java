@@ -0,0 +1,385 @@
+package com.martinambrus.adminAnything.listeners;
+
+import com.martinambrus.adminAnything.AA_API;
+import org.bukkit.World;
+import org.bukkit.command.BlockCommandSender;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Command removals, mutes, redirects, overrides and virtual permissions which only apply
+ * in selected worlds, configured in the worldRules section of the config.
+ *
+ * Rules of each configured world are compiled into their own index when the config is loaded
+ * and worlds are given numeric ids, so finding rules for a command block is a world id lookup
+ * followed by an array access. Every online player holds a reference to the index of the world
+ * they're in, which is simply swapped when they change worlds. Scoped rules apply on top of the global
+ * ones, while worlds without any scoped rules (and console or RCON commands) only use the global rules.
+ *
+ * <br><br><strong>Example:</strong>
+ * <pre>
+ * {@code
+ * worldRules:
+ *   pvp_arena:
+ *     removals:
+ *       - fly
+ *     mutes:
+ *       - spawn
+ *     redirects:
+ *       home: spawn
+ *     overrides:
+ *       tp: essentials:tp
+ *     virtualperms:
+ *       kit vip: arena.kit.vip
+ * }
+ * </pre>
+ *
+ * @author Martin Ambrus
+ */
+public final class WorldRules {
+
+    /**
+     * Name of the configuration section holding all world-scoped rules.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final String CONFIG_SECTION = "worldRules";
+
+    /**
+     * All rules of a single world, compiled for quick lookups.
+     */
+    public static final class WorldIndex {
+
+        /**
+         * Lower-cased commands removed in this world.
+         */
+        private final Set<String> removals;
+
+        /**
+         * Command lines muted in this world.
+         */
+        private final Set<String> mutes;
+
+        /**
+         * Global redirects together with redirects of this world, which take precedence,
+         * compiled together so chains can go through both of them.
+         */
+        private final Map<String, RedirectTemplate> redirects;
+
+        /**
+         * Command overrides of this world.
+         */
+        private final Map<String, Object> overrides;
+
+        /**
+         * Command overrides of this world, resolved to the actual commands they should run.
+         */
+        private final OverrideTable overrideTable = new OverrideTable();
+
+        /**
+         * Virtual permissions needed to run command lines in this world, mapped by the command line.
+         */
+        private final Map<String, String[]> virtualPerms;
+
+        /**
+         * Constructor, stores all rules of a world.
+         *
+         * @param worldRemovals Lower-cased commands removed in this world.
+         * @param worldMutes Command lines muted in this world.
+         * @param worldRedirects Global redirects together with redirects of this world, compiled.
+         * @param worldOverrides Command overrides of this world.
+         * @param worldVirtualPerms Virtual permissions needed to run command lines in this world.
+         */
+        WorldIndex(final Set<String> worldRemovals, final Set<String> worldMutes,
+            final Map<String, RedirectTemplate> worldRedirects, final Map<String, Object> worldOverrides,
+            final Map<String, String[]> worldVirtualPerms) {
+            removals = worldRemovals;
+            mutes = worldMutes;
+            redirects = worldRedirects;
+            overrides = worldOverrides;
+            virtualPerms = worldVirtualPerms;
+        } // end method
+
+        /**
+         * Checks whether the given command is removed in this world.
+         *
+         * @param command The command to check, lower-cased and without parameters.
+         *
+         * @return Returns true if this command is removed in this world, false otherwise.
+         */
+        public boolean isRemoved(final String command) {
+            return removals.contains(command);
+        } // end method
+
+        /**
+         * Checks whether the given command line is muted in this world.
+         *
+         * @param commandLine The command line to check.
+         *
+         * @return Returns true if this command line is muted in this world, false otherwise.
+         */
+        public boolean isMuted(final String commandLine) {
+            return mutes.contains(commandLine);
+        } // end method
+
+        /**
+         * Gets all redirects which apply in this world, including the global ones.
+         *
+         * @return Returns compiled redirects, mapped by the lower-cased redirected command.
+         */
+        public Map<String, RedirectTemplate> getRedirects() {
+            return redirects;
+        } // end method
+
+        /**
+         * Gets the resolved override of the given command in this world.
+         *
+         * @param command The overridden command, as typed by the player or console.
+         *
+         * @return Returns the resolved override or null if this command is not overridden in this world.
+         */
+        public OverrideTable.Target getOverride(final String command) {
+            return overrideTable.get(command);
+        } // end method
+
+        /**
+         * Gets virtual permissions needed to run the given command line in this world.
+         *
+         * @param commandLine The command line (without slash) to get virtual permissions for.
+         *
+         * @return Returns all virtual permissions for this command line or null if there are none.
+         */
+        public String[] getVirtualPermissions(final String commandLine) {
+            return virtualPerms.get(commandLine);
+        } // end method
+
+    } // end class
+
+    /**
+     * Placeholder index of players in worlds without any scoped rules.
+     */
+    private static final WorldIndex NO_RULES = new WorldIndex(Collections.<String>emptySet(),
+        Collections.<String>emptySet(), Collections.<String, RedirectTemplate>emptyMap(),
+        Collections.<String, Object>emptyMap(), Collections.<String, String[]>emptyMap());
+
+    /**
+     * Ids of all worlds with scoped rules, mapped by the world name.
+     */
+    private final Map<String, Integer> worldIds = new HashMap<String, Integer>();
+
+    /**
+     * Rule indices of all worlds with scoped rules, by their world id.
+     */
+    private final WorldIndex[] indices;
+
+    /**
+     * Rule index of the world each online player is in, keyed by their UUID.
+     */
+    private final Map<UUID, WorldIndex> players = new ConcurrentHashMap<UUID, WorldIndex>();
+
+    /**
+     * Constructor, compiles all world-scoped rules from the config.
+     *
+     * @param globalRedirects Global redirects from the redirects config, which scoped redirects are compiled with.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    public WorldRules(final Map<String, Object> globalRedirects) {
+        final List<WorldIndex> compiled = new ArrayList<WorldIndex>();
+        final Iterable<String> worlds = AA_API.getConfigSectionKeys(CONFIG_SECTION);
+
+        if (null != worlds) {
+            for (final String world : worlds) {
+                final String path = CONFIG_SECTION + '.' + world;
+
+                final Set<String> removals = new HashSet<String>();
+                for (final String command : AA_API.getConfigStringList(path + ".removals")) {
+                    removals.add(command.toLowerCase());
+                }
+
+                final Map<String, Object> redirects = new LinkedHashMap<String, Object>(globalRedirects);
+                redirects.putAll(loadSection(path + ".redirects"));
+
+                final Map<String, String[]> virtualPerms = new HashMap<String, String[]>();
+                final Iterable<String> commandLines = AA_API.getConfigSectionKeys(path + ".virtualperms");
+                if (null != commandLines) {
+                    for (final String commandLine : commandLines) {
+                        final List<String> perms = AA_API.getConfigStringList(path + ".virtualperms." + commandLine);
+                        final String perm = AA_API.getConfigString(path + ".virtualperms." + commandLine);
+                        if (!perms.isEmpty()) {
+                            virtualPerms.put(commandLine, perms.toArray(new String[0]));
+                        } else if (null != perm && !perm.isEmpty()) {
+                            virtualPerms.put(commandLine, new String[] { perm });
+                        }
+                    }
+                }
+
+                worldIds.put(world, compiled.size());
+                compiled.add(new WorldIndex(removals, new HashSet<String>(AA_API.getConfigStringList(path + ".mutes")),
+                    RedirectTemplate.compileAll(redirects), loadSection(path + ".overrides"), virtualPerms));
+            }
+        }
+
+        indices = compiled.toArray(new WorldIndex[0]);
+        rebuildOverrides();
+    } // end method
+
+    /**
+     * Loads all key-value pairs from the given config section.
+     *
+     * @param path Path to the config section.
+     *
+     * @return Returns all values from this config section, mapped by their keys.
+     */
+    private static Map<String, Object> loadSection(final String path) {
+        final Map<String, Object> values = new LinkedHashMap<String, Object>();
+        final Iterable<String> keys = AA_API.getConfigSectionKeys(path);
+
+        if (null != keys) {
+            for (final String key : keys) {
+                final String value = AA_API.getConfigString(path + '.' + key);
+                if (null != value) {
+                    values.put(key, value);
+                }
+            }
+        }
+
+        return values;
+    } // end method
+
+    /**
+     * Checks whether any world has muted commands configured, so server classes
+     * get instrumented for /aa_mutecommand even when no command is muted globally.
+     *
+     * @return Returns true if at least one world has a muted command, false otherwise.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    public static boolean hasMutes() {
+        final Iterable<String> worlds = AA_API.getConfigSectionKeys(CONFIG_SECTION);
+        if (null != worlds) {
+            for (final String world : worlds) {
+                if (!AA_API.getConfigStringList(CONFIG_SECTION + '.' + world + ".mutes").isEmpty()) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    } // end method
+
+    /**
+     * Checks whether there are any world-scoped rules configured at all.
+     *
+     * @return Returns true if no world has any scoped rules, false otherwise.
+     */
+    public boolean isEmpty() {
+        return 0 == indices.length;
+    } // end method
+
+    /**
+     * Resolves command overrides of all worlds again. Called whenever a plugin
+     * is enabled or disabled, as it may add or take away commands our overrides point to.
+     */
+    public void rebuildOverrides() {
+        for (final WorldIndex index : indices) {
+            if (!index.overrides.isEmpty()) {
+                index.overrideTable.rebuild(index.overrides);
+            }
+        }
+    } // end method
+
+    /**
+     * Gets the rules of the given world.
+     *
+     * @param world The world to get rules for.
+     *
+     * @return Returns the rules of this world or null if it has no scoped rules.
+     */
+    public WorldIndex forWorld(final World world) {
+        final Integer id = null == world ? null : worldIds.get(world.getName());
+        return null == id ? null : indices[id];
+    } // end method
+
+    /**
+     * Gets the rules of the world a command sender is in.
+     *
+     * <br><br><strong>Example:</strong>
+     * <pre>
+     * {@code
+     * final WorldRules.WorldIndex scope = worldRules.forSender(player);
+     * if (null != scope && scope.isRemoved("fly")) {
+     *     // fly is disabled in the world this player is in
+     * }
+     * }
+     * </pre>
+     *
+     * @param sender The command sender to get rules for.
+     *
+     * @return Returns the rules of the sender's world or null if there are no scoped rules
+     *         for it or the sender (such as console) isn't in any world.
+     */
+    public WorldIndex forSender(final CommandSender sender) {
+        if (isEmpty()) {
+            return null;
+        }
+
+        if (sender instanceof Player) {
+            WorldIndex index = players.get(((Player) sender).getUniqueId());
+            if (null == index) {
+                index = updatePlayer((Player) sender);
+            }
+
+            return NO_RULES == index ? null : index;
+        }
+
+        if (sender instanceof BlockCommandSender) {
+            return forWorld(((BlockCommandSender) sender).getBlock().getWorld());
+        }
+
+        if (sender instanceof Entity) {
+            return forWorld(((Entity) sender).getWorld());
+        }
+
+        return null;
+    } // end method
+
+    /**
+     * Swaps the rules used for a player to the rules of the world they're in now.
+     * Called when a player joins or changes worlds.
+     *
+     * @param player The player who joined or changed worlds.
+     *
+     * @return Returns the rules now used for this player.
+     */
+    public WorldIndex updatePlayer(final Player player) {
+        if (isEmpty()) {
+            return NO_RULES;
+        }
+
+        final WorldIndex index = forWorld(player.getWorld());
+        final WorldIndex active = null == index ? NO_RULES : index;
+
+        players.put(player.getUniqueId(), active);
+        return active;
+    } // end method
+
+    /**
+     * Drops the rules reference of a player when they leave the server.
+     *
+     * @param player UUID of the player who left.
+     */
+    public void forget(final UUID player) {
+        players.remove(player);
+    } // end method
+
+} // end class
@@ -1,6 +1,7 @@
 package com.martinambrus.adminAnything.listeners;
 
 import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.StatsSubsystem;
 import mkremins.fanciful.FancyMessage;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -100,6 +101,21 @@ public class chatNickClicks implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void replaceChatNick(final AsyncPlayerChatEvent e) {
+        final long start = System.nanoTime();
+        try {
+            decorateChatNick(e);
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.CHAT, start);
+        }
+    } // end method
+
+    /***
+     * Does the actual work for {@link #replaceChatNick(AsyncPlayerChatEvent) replaceChatNick()},
+     * which only measures how long the chat decoration takes.
+     *
+     * @param e The actual player chat event to work with.
+     */
+    private void decorateChatNick(final AsyncPlayerChatEvent e) {
         if ( e.isCancelled() ) {
             return;
         }
@@ -8,7 +8,7 @@ import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.wrappers.WrappedChatComponent;
 import com.martinambrus.adminAnything.AA_API;
-import com.martinambrus.adminAnything.Reflections;
+import com.martinambrus.adminAnything.ReflectionRegistry;
 import com.martinambrus.adminAnything.events.AAReloadEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -16,8 +16,6 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.plugin.Plugin;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,22 +43,6 @@ final class chatNickGUIRunnable implements Runnable {
      */
     Object gson;
 
-    /**
-     * Since reflections are being used to fetch
-     * all the GSON-related objects from their correct
-     * locations, this method will hold the fromJson method
-     * reference from the GSON object.
-     */
-    Method fromJson;
-
-    /**
-     * Since reflections are being used to fetch
-     * all the GSON-related objects from their correct
-     * locations, this method will hold the toJson method
-     * reference from the GSON object.
-     */
-    Method toJson;
-
     /**
      * Since reflections are being used to fetch
      * all the GSON-related objects from their correct
@@ -104,32 +86,10 @@ final class chatNickGUIRunnable implements Runnable {
     @SuppressWarnings({"OverlyComplexAnonymousInnerClass", "HardCodedStringLiteral"})
     @Override
     public void run() {
-        // find the GSON object
-        gson = Reflections.getSimpleClass(new String[]{
-                // mc 1.8+
-                "com.google.gson.Gson",
-                // mc 1.7
-                "net.minecraft.util.com.google.gson.Gson"
-        }, null);
-
-        // load fromJson from the GSON dynamically-loaded class
-        try {
-            fromJson = gson.getClass().getMethod("fromJson",
-                    String.class, Class.class);
-        } catch (SecurityException | NoSuchMethodException e) {
-            e.printStackTrace();
-            Bukkit.getLogger().severe(
-                ChatColor.RED + AA_API.__("error.general-for-chat"));
-
-            return;
-        }
-
-        // load toJson from the GSON dynamically-loaded class
-        try {
-            toJson = gson.getClass().getMethod("toJson",
-                    Object.class);
-        } catch (SecurityException | NoSuchMethodException e) {
-            e.printStackTrace();
+        // find the GSON object, along with its fromJson and toJson methods
+        gson = ReflectionRegistry.getGson();
+        if (null == gson || !ReflectionRegistry.isAvailable(ReflectionRegistry.GSON_FROM_JSON)
+            || !ReflectionRegistry.isAvailable(ReflectionRegistry.GSON_TO_JSON)) {
             Bukkit.getLogger().severe(ChatColor.RED + AA_API.__("error.general-for-chat"));
             return;
         }
@@ -156,10 +116,10 @@ final class chatNickGUIRunnable implements Runnable {
 
                         // load the JSON object from GSON
                         try {
-                            javaRootMapObject = (Map<String, Object>) fromJson
-                                .invoke(gson, chat.getJson(), Map.class);
+                            javaRootMapObject = (Map<String, Object>) ReflectionRegistry
+                                .fromJson(gson, chat.getJson(), Map.class);
                         } catch (IllegalArgumentException | IllegalAccessException
-                            | InvocationTargetException e) {
+                            | IllegalStateException e) {
                             e.printStackTrace();
                             Bukkit.getLogger().severe(ChatColor.RED
                                 + AA_API.__("error.general-for-chat"));
@@ -223,11 +183,9 @@ final class chatNickGUIRunnable implements Runnable {
                         // store the updated chat message as JSON again
                         String updatedJSON;
                         try {
-                            updatedJSON = (String) toJson.invoke(
-                                gson,
-                                javaRootMapObject);
+                            updatedJSON = ReflectionRegistry.toJson(gson, javaRootMapObject);
                         } catch (IllegalArgumentException | IllegalAccessException
-                            | InvocationTargetException e) {
+                            | IllegalStateException e) {
                             e.printStackTrace();
                             Bukkit.getLogger().severe(ChatColor.RED
                                 + AA_API.__("error.general-for-chat"));
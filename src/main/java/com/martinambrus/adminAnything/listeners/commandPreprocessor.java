@@ -1,17 +1,26 @@
 package com.martinambrus.adminAnything.listeners;
 
 import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.AuditAction;
+import com.martinambrus.adminAnything.MuteSessions;
+import com.martinambrus.adminAnything.StatsSubsystem;
 import com.martinambrus.adminAnything.Utils;
 import com.martinambrus.adminAnything.commands.Aa_mutecommand;
 import com.martinambrus.adminAnything.events.AAAdjustListenerPrioritiesEvent;
 import com.martinambrus.adminAnything.events.AAReloadEvent;
+import com.martinambrus.adminAnything.events.AAServerLoadedEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandException;
 import org.bukkit.command.CommandSender;
 import org.bukkit.event.*;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.RemoteServerCommandEvent;
 import org.bukkit.event.server.ServerCommandEvent;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.plugin.Plugin;
@@ -25,8 +34,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -80,11 +89,49 @@ public class commandPreprocessor implements Listener {
     @SuppressWarnings("HardCodedStringLiteral")
     private List<String> commandRedirectsList = Utils.makeListMutable(AA_API.getCommandsList("redirects"));
 
+    /**
+     * Command redirects, pre-compiled into templates when the redirects config is loaded.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private Map<String, RedirectTemplate> commandRedirectTemplates = RedirectTemplate
+        .compileAll(AA_API.getCommandsConfigurationValues("redirects"));
+
     /**
      * A map of command mutes, so we can perform quick lookups.
      */
     private Map<String, Boolean> commandMutesMap = AA_API.getMutesMap();
 
+    /**
+     * Per-player command rate limits and cooldowns.
+     */
+    private CommandThrottle commandThrottle = new CommandThrottle();
+
+    /**
+     * Whether commands run by command blocks and command minecarts go through our rules at all.
+     */
+    private final boolean processCommandBlocks = AA_API.getConfigBoolean("commandBlocks.process"); //NON-NLS
+
+    /**
+     * Whether commands coming in via RCON go through our rules at all.
+     */
+    private final boolean processRemoteConsole = AA_API.getConfigBoolean("remoteConsole.process"); //NON-NLS
+
+    /**
+     * Cached rule decisions for commands run by command blocks and command minecarts.
+     */
+    private final CommandBlockDecisions commandBlockDecisions = new CommandBlockDecisions(readCommandBlockCacheSize());
+
+    /**
+     * Command overrides, resolved to the actual commands they should run.
+     */
+    private final OverrideTable overrideTable = new OverrideTable();
+
+    /**
+     * Command rules which only apply in selected worlds.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private WorldRules worldRules = new WorldRules(AA_API.getCommandsConfigurationValues("redirects"));
+
     /**
      * Constructor, stores instance of AdminAnything for further use.
      *
@@ -93,29 +140,56 @@ public class commandPreprocessor implements Listener {
     public commandPreprocessor(final Plugin aa) {
         plugin = aa;
         // load commands and adjust listener priorities for all of our lists
-        // but do this only after the server finishes loading and then after
-        // a couple of more seconds to make sure we catch all loaded plugins
+        // once the server finishes loading (see onServerLoaded() below)... but if we've been
+        // started on demand after AA became fully active, the server is already loaded and we need
+        // to load them ourselves
         Bukkit.getScheduler().scheduleSyncDelayedTask(aa, new Runnable() {
 
             @Override
             public void run() {
-                Bukkit.getScheduler().scheduleSyncDelayedTask(aa, new Runnable() {
-
-                    @Override
-                    public void run() {
-                        for (final List<String> listReference : Arrays.asList(
-                            commandOverridesList, virtualPermsList, commandRemovalsList,
-                            commandMutesList, commandRedirectsList)) {
-                            loadCommandsList(listReference);
-                        }
-                    }
-
-                }, 20 * 5); // wait a couple of seconds before we load...
+                if (!AA_API.isWarmingUp()) {
+                    loadAllCommandsLists();
+                }
             }
 
         }, 0); // 0 = will be run as soon as the server finished loading
     } // end method
 
+    /**
+     * Reads the maximum number of cached command block decisions from the config.
+     *
+     * @return Returns the configured cache size or the default one if it's invalid.
+     */
+    private static int readCommandBlockCacheSize() {
+        try {
+            return Integer.parseInt(AA_API.getConfigString("commandBlocks.cacheSize", "4096")); //NON-NLS
+        } catch (final NumberFormatException ex) {
+            return 4096;
+        }
+    } // end method
+
+    /**
+     * Loads all of our commands lists, adjusting listener priorities for them.
+     */
+    private void loadAllCommandsLists() {
+        for (final List<String> listReference : Arrays.asList(
+            commandOverridesList, virtualPermsList, commandRemovalsList,
+            commandMutesList, commandRedirectsList)) {
+            loadCommandsList(listReference);
+        }
+
+        rebuildOverrideTable();
+    } // end method
+
+    /**
+     * Resolves all command overrides to the actual commands they should run.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private void rebuildOverrideTable() {
+        overrideTable.rebuild(AA_API.getCommandsConfigurationValues("overrides"));
+        worldRules.rebuildOverrides();
+    } // end method
+
     /**
      * Reloads lists of commands once our config changes.
      */
@@ -126,7 +200,38 @@ public class commandPreprocessor implements Listener {
         commandRemovalsList = Utils.makeListMutable(AA_API.getCommandsList("removals"));
         commandMutesList = Utils.makeListMutable(AA_API.getCommandsList("mutes"));
         commandRedirectsList = Utils.makeListMutable(AA_API.getCommandsList("redirects"));
+        commandRedirectTemplates = RedirectTemplate.compileAll(AA_API.getCommandsConfigurationValues("redirects"));
         commandMutesMap = AA_API.getMutesMap();
+        commandThrottle = new CommandThrottle();
+        worldRules = new WorldRules(AA_API.getCommandsConfigurationValues("redirects"));
+        commandBlockDecisions.invalidate();
+        rebuildOverrideTable();
+    } // end method
+
+    /**
+     * Dispatches a redirected command. When we're already on the main thread,
+     * this is done right away, otherwise the command is dispatched via a synchronous task.
+     *
+     * @param sender The sender of the original command.
+     * @param command The original command which was redirected.
+     * @param commandLine The command line to dispatch instead of the original command.
+     */
+    private void dispatchRedirect(final CommandSender sender, final String command, final String commandLine) {
+        AA_API.audit(AuditAction.REDIRECTED, sender, command, commandLine);
+
+        if (Bukkit.isPrimaryThread()) {
+            Bukkit.dispatchCommand(sender, commandLine);
+            return;
+        }
+
+        Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                return Bukkit.dispatchCommand(sender, commandLine);
+            }
+
+        });
     } // end method
 
     /**
@@ -228,6 +333,32 @@ public class commandPreprocessor implements Listener {
         return isConsole ? ((ServerCommandEvent) e).getSender() : ((PlayerEvent) e).getPlayer();
     } // end method
 
+    /**
+     * Gets the world-scoped rules for the sender of the given command event.
+     *
+     * @param e Either console or player command event.
+     *
+     * @return Returns rules of the world the command sender is in
+     *         or null if only the global rules apply.
+     */
+    private WorldRules.WorldIndex getWorldScope(final Event e) {
+        return worldRules.forSender(getCommandSender(e));
+    } // end method
+
+    /**
+     * Gets the redirect for the given command, including redirects
+     * which only apply in the world of the command sender.
+     *
+     * @param cmd The command to get redirect for, without parameters.
+     * @param e Either console or player command event.
+     *
+     * @return Returns the redirect for this command or null if it's not redirected.
+     */
+    private RedirectTemplate getRedirect(final String cmd, final Event e) {
+        final WorldRules.WorldIndex scope = getWorldScope(e);
+        return (null == scope ? commandRedirectTemplates : scope.getRedirects()).get(cmd.toLowerCase());
+    } // end method
+
     /**
      * Checks whether the given command is not disabled
      * and cancels it out if it is.
@@ -241,12 +372,16 @@ public class commandPreprocessor implements Listener {
         // check if we come from the console
         final boolean       isConsole = isConsoleEvent(e);
         final CommandSender csender   = getCommandSender(e);
+        final WorldRules.WorldIndex scope = getWorldScope(e);
 
         if (
             AA_API.isFeatureEnabled("disablecommand") && //NON-NLS
-            commandRemovalsList.contains(cmd.toLowerCase()) &&
+            (commandRemovalsList.contains(cmd.toLowerCase()) || (null != scope && scope.isRemoved(cmd.toLowerCase()))) &&
             !AA_API.checkPerms(csender, "aa.bypassdeletecommand OR aa.bypassdeletecommand.all OR aa.bypassdeletecommand." + cmd.toLowerCase(), false) //NON-NLS
         ) {
+            //noinspection HardCodedStringLiteral
+            AA_API.audit(AuditAction.BLOCKED, csender, cmd, "removals");
+
             // console command sender
             if (isConsole) {
                 cancelConsoleEvent((ServerCommandEvent) e);
@@ -266,6 +401,38 @@ public class commandPreprocessor implements Listener {
         }
     } // end method
 
+    /**
+     * Checks whether the player ran out of their command rate limit
+     * or whether this command is still on a cooldown for them.
+     * If so, the command is cancelled and the player is told how long to wait.
+     *
+     * @param commandName Name of the command, without slash or parameters.
+     * @param e The player pre-process event for this command.
+     *
+     * @return Returns true if the command was throttled and cancelled, false otherwise.
+     */
+    private boolean isThrottled(final String commandName, final PlayerCommandPreprocessEvent e) {
+        //noinspection HardCodedStringLiteral
+        if (!AA_API.isFeatureEnabled("throttle")) {
+            return false;
+        }
+
+        final long wait = commandThrottle.tryAcquire(e.getPlayer(), commandName);
+
+        // bypass permissions are only checked once a player gets throttled, as most commands never will be
+        //noinspection HardCodedStringLiteral
+        if (0 == wait || AA_API.checkPerms(e.getPlayer(),
+            "aa.bypassthrottle OR aa.bypassthrottle." + commandName.toLowerCase(), false)) {
+            return false;
+        }
+
+        e.setCancelled(true);
+        AA_API.audit(AuditAction.THROTTLED, e.getPlayer(), commandName, null);
+        e.getPlayer().sendMessage(ChatColor.RED + AA_API.__("listeners.preprocessor-throttled",
+            String.valueOf((long) Math.ceil(wait / (double) TimeUnit.SECONDS.toNanos(1)))));
+        return true;
+    } // end method
+
     /**
      * Checks whether a custom permission is not set for this command
      * and whether the command sender needed it to execute.
@@ -277,33 +444,55 @@ public class commandPreprocessor implements Listener {
      *         but does not have it, false otherwise.
      */
     private boolean needsCustomPermission(final String cmd, final Event e) {
+        //noinspection HardCodedStringLiteral
+        if (AA_API.isFeatureEnabled("addperm")) {
+            // virtual permissions of the sender's world are needed on top of the global ones
+            final WorldRules.WorldIndex scope = getWorldScope(e);
+            return isMissingVirtualPermission(AA_API.getVirtualPermissionsForCommand(cmd), cmd, e)
+                || (null != scope && isMissingVirtualPermission(scope.getVirtualPermissions(cmd), cmd, e));
+        }
+
+        // no custom permission needed
+        return false;
+    } // end method
+
+    /**
+     * Checks whether the command sender has all of the given virtual permissions
+     * and cancels the command if they don't.
+     *
+     * @param virtualPerms Virtual permissions needed for the command line, can be null.
+     * @param cmd The command line to check custom permission for.
+     * @param e Command event used for various checks.
+     *
+     * @return Returns true if the command sender is missing any of the given permissions, false otherwise.
+     */
+    private boolean isMissingVirtualPermission(final String[] virtualPerms, final String cmd, final Event e) {
+        if (null == virtualPerms) {
+            return false;
+        }
+
         // check if we come from the console
         final boolean       isConsole = isConsoleEvent(e);
         final CommandSender csender   = getCommandSender(e);
 
-        //noinspection HardCodedStringLiteral
-        if (AA_API.isFeatureEnabled("addperm")) {
-            //noinspection HardCodedStringLiteral
-            for (final Entry<String, Object> permCmdLine : AA_API.getCommandsConfigurationValues("virtualperms").entrySet()) {
-                if (permCmdLine.getValue().equals(cmd)) {
-                    // check the permission
-                    if (!AA_API.checkPerms(csender, permCmdLine.getKey(), false)) {
-                        if (isConsole) {
-                            //noinspection HardCodedStringLiteral
-                            cancelConsoleEvent((ServerCommandEvent) e, "list");
-                        } else {
-                            ((Cancellable) e).setCancelled(true);
-                        }
+        for (final String perm : virtualPerms) {
+            // check the permission
+            if (!AA_API.hasVirtualPermission(csender, perm)) {
+                AA_API.audit(AuditAction.DENIED, csender, cmd, perm);
 
-                        // show the message
-                        csender.sendMessage(ChatColor.RED + AA_API.__("listeners.preprocessor-no-permisison"));
-                        return true;
-                    }
+                if (isConsole) {
+                    //noinspection HardCodedStringLiteral
+                    cancelConsoleEvent((ServerCommandEvent) e, "list");
+                } else {
+                    ((Cancellable) e).setCancelled(true);
                 }
+
+                // show the message
+                csender.sendMessage(ChatColor.RED + AA_API.__("listeners.preprocessor-no-permisison"));
+                return true;
             }
         }
 
-        // no custom permission needed
         return false;
     } // end method
 
@@ -321,10 +510,15 @@ public class commandPreprocessor implements Listener {
      *                     False means we'll actually mute the command itself
      *                     by instrumenting server classes and dispatching it
      *                     as a Virtual CommandSender.
+     *
+     * @return Returns true if the command is muted, false otherwise.
      */
     @SuppressWarnings({"NonConstantStringShouldBeStringBuffer", "ConstantConditions", "HardCodedStringLiteral"})
-    private void checkMutedCommand(final String cmdOriginal, CommandSender csender, final Event e, final boolean updateSender) {
+    private boolean checkMutedCommand(final String cmdOriginal, CommandSender csender, final Event e, final boolean updateSender) {
+        boolean muted = false;
+
         if (AA_API.isFeatureEnabled("mutecommand")) {
+            final WorldRules.WorldIndex scope   = getWorldScope(e);
             final String[]      cmdParams       = cmdOriginal.split(Pattern.quote(" "));
             final int           cmdParamsLength = cmdParams.length;
 
@@ -336,10 +530,13 @@ public class commandPreprocessor implements Listener {
                 String cmdLine = cmdLineBuilder.toString();
                 cmdLine = cmdLine.trim();
 
-                if (commandMutesMap.containsKey(cmdLine)) {
+                if (commandMutesMap.containsKey(cmdLine) || (null != scope && scope.isMuted(cmdLine))) {
+                    muted = true;
+
                     // update sender only
                     if (updateSender) {
-                        Aa_mutecommand.captureNextCommandSender = true;
+                        // the server dispatches this command once our handler returns
+                        endMuteSessionOnNextTick(MuteSessions.start(cmdLine, true));
                         if (!Aa_mutecommand.retransformed) {
                             // replace sender with VirtualCommandSender if we couldn't transform
                             csender = getVirtualSenderFor(csender);
@@ -348,6 +545,8 @@ public class commandPreprocessor implements Listener {
                             final CommandSender finalCsender = csender;
                         }
                     } else{
+                        AA_API.audit(AuditAction.MUTED, csender, cmdOriginal, cmdLine);
+
                         // this one is used for a Callable routine below
                         final CommandSender finalCsender = csender;
 
@@ -355,38 +554,70 @@ public class commandPreprocessor implements Listener {
                         // as a Virtual Command Sender
                         if (!Aa_mutecommand.retransformed) {
                             // dispatch this command via VirtualCommandSender if we couldn't transform
-                            Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
                             if (isConsoleEvent(e)) {
                                 cancelConsoleEvent((ServerCommandEvent) e, "list");
-
-                                Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Boolean>() {
-
-                                    @Override
-                                    public Boolean call() {
-                                        return Bukkit.dispatchCommand(finalCsender, cmdOriginal);
-                                    }
-
-                                });
+                                dispatchMuted(finalCsender, cmdOriginal, cmdLine, true);
                             } else {
                                 ((Cancellable) e).setCancelled(true);
-
-                                Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Boolean>() {
-
-                                    @Override
-                                    public Boolean call() {
-                                        return Bukkit.dispatchCommand(finalCsender, ((PlayerCommandPreprocessEvent) e).getMessage().substring(1));
-                                    }
-
-                                });
+                                dispatchMuted(finalCsender, ((PlayerCommandPreprocessEvent) e).getMessage().substring(1), cmdLine, true);
                             }
                         } else {
                             // transformed class will capture command sender of this one for us
-                            Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
+                            // once the server dispatches this command after our handler returns
+                            endMuteSessionOnNextTick(MuteSessions.start(cmdLine, true));
                         }
                     }
                 }
             }
         }
+
+        return muted;
+    } // end method
+
+    /**
+     * Dispatches a muted command via a synchronous task, muting only
+     * for as long as the dispatch itself runs.
+     *
+     * @param sender The sender to dispatch the command as.
+     * @param commandLine The command line to dispatch.
+     * @param mutedCommand The muted command (or override) the session is for.
+     * @param captureSender Whether the first class sending a message should be captured
+     *                      as this command's output class.
+     */
+    private static void dispatchMuted(final CommandSender sender, final String commandLine, final String mutedCommand,
+        final boolean captureSender) {
+        Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                MuteSessions.start(mutedCommand, captureSender);
+                try {
+                    return Bukkit.dispatchCommand(sender, commandLine);
+                } finally {
+                    MuteSessions.end();
+                }
+            }
+
+        });
+    } // end method
+
+    /**
+     * Ends a mute session of the main thread on the next tick. Used for muted commands
+     * which the server itself dispatches once our event handler returns, so the session
+     * covers that dispatch but nothing that runs after it. Sessions started for other
+     * muted commands in the meantime are left running.
+     *
+     * @param session The session to end.
+     */
+    private static void endMuteSessionOnNextTick(final MuteSessions.Session session) {
+        Bukkit.getScheduler().runTask(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+                MuteSessions.end(session);
+            }
+
+        });
     } // end method
 
     /**
@@ -403,16 +634,7 @@ public class commandPreprocessor implements Listener {
         try {
             if (csender instanceof VirtualCommandSender) {
                 cancelConsoleEvent((ServerCommandEvent) e, "list");
-                Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
-
-                Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Boolean>() {
-
-                    @Override
-                    public Boolean call() {
-                        return Bukkit.dispatchCommand(csender, originalOverride);
-                    }
-
-                });
+                dispatchMuted(csender, originalOverride, originalOverride, false);
             } else {
                 ((ServerCommandEvent) e).setCommand(originalOverride);
             }
@@ -422,6 +644,44 @@ public class commandPreprocessor implements Listener {
         }
     } // end method
 
+    /**
+     * Runs a resolved command override in place, without looking up its plugin
+     * or going through the scheduler, as we're already on the main thread.
+     *
+     * @param target The resolved command override.
+     * @param csender The originator for this command. Could be VirtualCommandSender or console.
+     * @param e The actual command event.
+     * @param args Arguments for the command to run.
+     */
+    private void runOverride(final OverrideTable.Target target, final CommandSender csender, final Event e,
+        final String[] args) {
+        if (isConsoleEvent(e) && !(csender instanceof VirtualCommandSender)) {
+            // console commands are overridden simply by changing the command in their event
+            ((ServerCommandEvent) e).setCommand(target.getConsoleCommand());
+            return;
+        }
+
+        if (isConsoleEvent(e)) {
+            //noinspection HardCodedStringLiteral
+            cancelConsoleEvent((ServerCommandEvent) e, "list");
+        } else {
+            ((Cancellable) e).setCancelled(true);
+        }
+
+        MuteSessions.start(target.getOverride(), false);
+
+        try {
+            target.getCommand().execute(csender, target.getOverride().toLowerCase(), args);
+        } catch (final CommandException ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new CommandException("Unhandled exception executing '" + target.getOverride() //NON-NLS
+                + "' in " + target.getCommand(), ex); //NON-NLS
+        } finally {
+            MuteSessions.end();
+        }
+    } // end method
+
     /**
      * Checks for command overrides for the given command.
      *
@@ -458,6 +718,18 @@ public class commandPreprocessor implements Listener {
             clearCommandName = cmd;
         }
 
+        // resolved overrides run straight away when we're on the main thread,
+        // overrides of the sender's world take precedence over the global ones
+        final WorldRules.WorldIndex scope = getWorldScope(e);
+        final OverrideTable.Target scopedTarget = null == scope ? null : scope.getOverride(clearCommandName);
+        final OverrideTable.Target target = null != scopedTarget ? scopedTarget : overrideTable.get(clearCommandName);
+        if (null != target && Bukkit.isPrimaryThread() && AA_API.isFeatureEnabled("fixcommand")) {
+            AA_API.audit(AuditAction.OVERRIDDEN, csender, clearCommandName, target.getOverride());
+            runOverride(target, csender, e, isConsole || null == commandSplitted ? new String[0]
+                                                      : Arrays.copyOfRange(commandSplitted, 1, commandSplitted.length));
+            return true;
+        }
+
         if (AA_API.isFeatureEnabled("fixcommand") && AA_API.getCommandsList("overrides").contains(clearCommandName)) {
             // command arguments array
             String[] args = null;
@@ -488,6 +760,7 @@ public class commandPreprocessor implements Listener {
 
             // prepare the override
             final String originalOverride = AA_API.getCommandsConfigurationValue("overrides", cmd);
+            AA_API.audit(AuditAction.OVERRIDDEN, csender, clearCommandName, originalOverride);
             final String[] spl = originalOverride.split(Pattern.quote(":"));
             Plugin p = null;
             boolean overrideGoesToCoreCommand = false;
@@ -507,14 +780,17 @@ public class commandPreprocessor implements Listener {
 
                     // player command event
                     if (!isConsole) {
-                        if (overrideGoesToCoreCommand) {
-                            Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
-                            AA_API.getCommandMapKey(spl[0].toLowerCase() + ':' + spl[1].toLowerCase()).execute(csender,
-                                    originalOverride.toLowerCase(), args);
-                        } else {
-                            Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
-                            ((JavaPlugin) p).getCommand(spl[1].toLowerCase()).execute(csender,
-                                    originalOverride.toLowerCase(), args);
+                        MuteSessions.start(originalOverride, false);
+                        try {
+                            if (overrideGoesToCoreCommand) {
+                                AA_API.getCommandMapKey(spl[0].toLowerCase() + ':' + spl[1].toLowerCase()).execute(csender,
+                                        originalOverride.toLowerCase(), args);
+                            } else {
+                                ((JavaPlugin) p).getCommand(spl[1].toLowerCase()).execute(csender,
+                                        originalOverride.toLowerCase(), args);
+                            }
+                        } finally {
+                            MuteSessions.end();
                         }
                     } else {
                         cancelAndOverride(csender, e, originalOverride);
@@ -532,9 +808,13 @@ public class commandPreprocessor implements Listener {
                         // we can bail out here, since it's natural that this is the exact command to execute
                         if (!isConsole) {
                             // player command event
-                            Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
-                            AA_API.getCommandMapKey(spl[0].toLowerCase() + ':' + spl[1].toLowerCase()).execute(csender,
-                                    originalOverride.toLowerCase(), args);
+                            MuteSessions.start(originalOverride, false);
+                            try {
+                                AA_API.getCommandMapKey(spl[0].toLowerCase() + ':' + spl[1].toLowerCase()).execute(csender,
+                                        originalOverride.toLowerCase(), args);
+                            } finally {
+                                MuteSessions.end();
+                            }
                             return true;
                         } else {
                             cancelAndOverride(csender, e, lowerCasedCommand);
@@ -558,23 +838,18 @@ public class commandPreprocessor implements Listener {
                     if ((null != pluginName) && pluginName.equals(spl[0])) {
                         if (!isConsole) {
                             // player command sender
-                            Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
-                            AA_API.getCommandMapKey(spl[1].toLowerCase()).execute(csender, originalOverride.toLowerCase(), args);
+                            MuteSessions.start(originalOverride, false);
+                            try {
+                                AA_API.getCommandMapKey(spl[1].toLowerCase()).execute(csender, originalOverride.toLowerCase(), args);
+                            } finally {
+                                MuteSessions.end();
+                            }
                         } else {
                             // console command sender
                             try {
                                 if (csender instanceof VirtualCommandSender) {
                                     cancelConsoleEvent((ServerCommandEvent) e, "list");
-                                    Aa_mutecommand.lastMuteTimestamp = Utils.getUnixTimestamp(0L);
-
-                                    Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Boolean>() {
-
-                                        @Override
-                                        public Boolean call() {
-                                            return Bukkit.dispatchCommand(csender, spl[1].toLowerCase());
-                                        }
-
-                                    });
+                                    dispatchMuted(csender, spl[1].toLowerCase(), originalOverride, false);
                                 } else {
                                     ((ServerCommandEvent) e).setCommand(spl[1].toLowerCase());
                                 }
@@ -622,6 +897,24 @@ public class commandPreprocessor implements Listener {
      */
     @EventHandler(priority = EventPriority.LOWEST)
     public void redirectPlayerCommand(final PlayerCommandPreprocessEvent e) throws InvalidClassException {
+        final long start = System.nanoTime();
+        try {
+            AA_API.traceCommand(e.getPlayer(), e.getMessage().substring(1));
+            preprocessPlayerCommand(e);
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.PREPROCESSOR, start);
+        }
+    } // end method
+
+    /***
+     * Does the actual work for {@link #redirectPlayerCommand(PlayerCommandPreprocessEvent) redirectPlayerCommand()},
+     * which only measures how long the pre-processing takes.
+     *
+     * @param e The player pre-process event to work with.
+     *
+     * @throws InvalidClassException When we couldn't determine this command's plugin.
+     */
+    private void preprocessPlayerCommand(final PlayerCommandPreprocessEvent e) throws InvalidClassException {
         final String cmd = e.getMessage().substring(1);
         final String clearCommandName;
         final String[] commandParameters;
@@ -636,7 +929,7 @@ public class commandPreprocessor implements Listener {
             commandParameters = list.toArray(new String[0]);
         } else {
             clearCommandName = cmd;
-            commandParameters = new String[]{ cmd };
+            commandParameters = new String[0];
         }
 
         // check for fake commands, like "/" or "/ "
@@ -644,6 +937,11 @@ public class commandPreprocessor implements Listener {
             return;
         }
 
+        // stop command spam before it reaches any of the checks below or the target plugin
+        if (isThrottled(clearCommandName, e)) {
+            return;
+        }
+
         // this command should not be allowed to run and this player does not have a permission to override
         final CommandSender csender = e.getPlayer();
         if (checkDisabledCommand(clearCommandName, e)) {
@@ -657,17 +955,10 @@ public class commandPreprocessor implements Listener {
 
         // check if this command is not redirected
         //noinspection HardCodedStringLiteral
-        if (AA_API.isFeatureEnabled("redirectcommand") && commandRedirectsList.contains(clearCommandName)) {
+        final RedirectTemplate redirect = getRedirect(clearCommandName, e);
+        if (null != redirect && AA_API.isFeatureEnabled("redirectcommand")) {
             e.setCancelled(true);
-            //noinspection HardCodedStringLiteral
-            Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Boolean>() {
-
-                @Override
-                public Boolean call() {
-                    return Bukkit.dispatchCommand(csender, AA_API.getCommandsConfigurationValue("redirects", clearCommandName) + " " + String.join(" ", commandParameters));
-                }
-
-            });
+            dispatchRedirect(csender, redirect.getCommand(), redirect.resolve(csender, commandParameters));
             return;
         }
 
@@ -697,16 +988,15 @@ public class commandPreprocessor implements Listener {
      * @param replacementCommand A replacement command to execute instead.
      */
     private void cancelConsoleEvent(final ServerCommandEvent e, final String... replacementCommand) {
-        try {
-            e.getClass().getDeclaredMethod("setCancelled", boolean.class).invoke(e, true);
-        } catch (NoSuchMethodException | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException ex) {
+        // a plain type check instead of looking up setCancelled() via reflection,
+        // as command blocks can send us these events every tick
+        if (e instanceof Cancellable) {
+            ((Cancellable) e).setCancelled(true);
+        } else if (0 < replacementCommand.length) {
             // Bukkit < 1.8 does not support cancelling of console commands
-            if (0 < replacementCommand.length) {
-                e.setCommand(replacementCommand[0]);
-            } else {
-                e.setCommand("IShallNotExist"); //NON-NLS
-            }
+            e.setCommand(replacementCommand[0]);
+        } else {
+            e.setCommand("IShallNotExist"); //NON-NLS
         }
     } // end method
 
@@ -723,7 +1013,99 @@ public class commandPreprocessor implements Listener {
      */
     @EventHandler(priority = EventPriority.LOWEST)
     public void redirectConsoleCommand(final ServerCommandEvent e) throws InvalidClassException {
+        final long start = System.nanoTime();
+        try {
+            // command blocks can run the same command every tick, so they get their own fast path
+            if (CommandBlockDecisions.isCommandBlock(e.getSender())) {
+                if (processCommandBlocks) {
+                    preprocessCommandBlockCommand(e);
+                }
+                return;
+            }
+
+            AA_API.traceCommand(e.getSender(), e.getCommand());
+            preprocessConsoleCommand(e);
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.PREPROCESSOR, start);
+        }
+    } // end method
+
+    /***
+     * Redirects command from the old one (via fixCommand) to a new one that should replace it.
+     *
+     * If a command is in the list of removed commands instead, this will prevent it from running.
+     *
+     * This is for commands coming in via RCON, which Bukkit sends out as their own event
+     * that listeners of regular console commands never receive.
+     *
+     * @param e The remote server command event to work with.
+     *
+     * @throws InvalidClassException When we couldn't determine this command's plugin.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void redirectRemoteConsoleCommand(final RemoteServerCommandEvent e) throws InvalidClassException {
+        if (!processRemoteConsole) {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            AA_API.traceCommand(e.getSender(), e.getCommand());
+            preprocessConsoleCommand(e);
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.PREPROCESSOR, start);
+        }
+    } // end method
+
+    /***
+     * Pre-processes a command run by a command block or a command minecart. The final rule decision
+     * for each block (or minecart) and command line is cached until our rules change, so repeated runs
+     * of commands we either leave alone or cancel don't go through all of our checks again.
+     *
+     * @param e The server command event to work with.
+     *
+     * @throws InvalidClassException When we couldn't determine this command's plugin.
+     */
+    private void preprocessCommandBlockCommand(final ServerCommandEvent e) throws InvalidClassException {
+        final String key = CommandBlockDecisions.keyFor(e.getSender(), e.getCommand());
+        final CommandBlockDecisions.Decision cached = commandBlockDecisions.get(key);
+
+        if (CommandBlockDecisions.Decision.PASS == cached) {
+            return;
+        }
+
+        if (CommandBlockDecisions.Decision.DISABLED == cached) {
+            // replay what checkDisabledCommand() did the first time around
+            final String cmd = e.getCommand().split(Pattern.quote(" "))[0];
+            //noinspection HardCodedStringLiteral
+            AA_API.audit(AuditAction.BLOCKED, e.getSender(), cmd, "removals");
+            cancelConsoleEvent(e);
+            e.getSender().sendMessage(AA_API.__("listeners.preprocessor-command-disabled", AA_API.getAaName()));
+            return;
+        }
+
+        AA_API.traceCommand(e.getSender(), e.getCommand());
+        final CommandBlockDecisions.Decision decision = preprocessConsoleCommand(e);
+        if (null != decision) {
+            commandBlockDecisions.put(key, decision);
+        }
+    } // end method
+
+    /***
+     * Does the actual work for {@link #redirectConsoleCommand(ServerCommandEvent) redirectConsoleCommand()},
+     * which only measures how long the pre-processing takes.
+     *
+     * @param e The server command event to work with.
+     *
+     * @return Returns the final rule decision for this command if it can be cached
+     *         for command blocks, null if the command was redirected, muted, overridden
+     *         or needed a virtual permission.
+     *
+     * @throws InvalidClassException When we couldn't determine this command's plugin.
+     */
+    private CommandBlockDecisions.Decision preprocessConsoleCommand(final ServerCommandEvent e) throws InvalidClassException {
         final String cmd;
+        final String[] commandParameters;
         final String cmdOriginal = e.getCommand();
 
         if (cmdOriginal.contains(" ")) {
@@ -731,46 +1113,41 @@ public class commandPreprocessor implements Listener {
 
             if (null != spl[0] && spl[0].isEmpty()) {
                 // this is not a real command, bail out
-                return;
+                return CommandBlockDecisions.Decision.PASS;
             }
 
             cmd = spl[0];
+            commandParameters = Arrays.copyOfRange(spl, 1, spl.length);
         } else {
             cmd = cmdOriginal;
+            commandParameters = new String[0];
         }
 
         // this command should not be allowed to run
         final CommandSender csender = e.getSender();
         if (null != cmd && checkDisabledCommand(cmd, e)) {
-            return;
+            return CommandBlockDecisions.Decision.DISABLED;
         }
 
         // verify that we don't have a virtual permission for this command line to check
         if (needsCustomPermission(cmdOriginal, e)) {
-            return;
+            return null;
         }
 
         // check if this command is not redirected
         //noinspection HardCodedStringLiteral
-        if (AA_API.isFeatureEnabled("redirectcommand") && commandRedirectsList.contains(cmd)) {
-            //noinspection HardCodedStringLiteral
-            Bukkit.getScheduler().callSyncMethod(plugin, new Callable<Boolean>() {
-
-                    @Override
-                    public Boolean call() {
-                        return Bukkit.dispatchCommand(csender, AA_API.getCommandsConfigurationValue("redirects", cmd));
-                    }
-
-            });
+        final RedirectTemplate redirect = getRedirect(cmd, e);
+        if (null != redirect && AA_API.isFeatureEnabled("redirectcommand")) {
+            dispatchRedirect(csender, redirect.getCommand(), redirect.resolve(csender, commandParameters));
 
             //noinspection HardCodedStringLiteral
             cancelConsoleEvent(e, "list");
-            return;
+            return null;
         }
 
         // if this command is muted, it needs to be sent out via a virtual command sender
         // in order to prevent chat messages be sent back to this player
-        checkMutedCommand(cmdOriginal, csender, e, true);
+        final boolean muted = checkMutedCommand(cmdOriginal, csender, e, true);
 
         // check whether we don't need to override this command
         // and call it from a specific plugin
@@ -783,7 +1160,11 @@ public class commandPreprocessor implements Listener {
                 InvocationTargetException | CommandException | ClassNotFoundException e1) {
             Bukkit.getLogger().severe(e1.getMessage());
             e1.printStackTrace();
+            return null;
         }
+
+        // overrides replace the command in this event
+        return muted || !cmdOriginal.equals(e.getCommand()) ? null : CommandBlockDecisions.Decision.PASS;
     } // end method
 
     /***
@@ -802,4 +1183,65 @@ public class commandPreprocessor implements Listener {
         }
     } // end method
 
+    /**
+     * Drops all command throttling and world rules state of a player when they leave the server.
+     *
+     * @param e The actual player quit event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final PlayerQuitEvent e) {
+        commandThrottle.forget(e.getPlayer().getUniqueId());
+        worldRules.forget(e.getPlayer().getUniqueId());
+    } // end method
+
+    /**
+     * Swaps world-scoped rules of a player for the rules of their new world.
+     *
+     * @param e The actual player changed world event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(final PlayerChangedWorldEvent e) {
+        worldRules.updatePlayer(e.getPlayer());
+    } // end method
+
+    /**
+     * Loads all command lists and adjusts listener priorities for them
+     * as soon as the server finishes loading all of its plugins.
+     *
+     * @param e The actual server loaded event.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onServerLoaded(final AAServerLoadedEvent e) {
+        loadAllCommandsLists();
+    } // end method
+
+    /**
+     * Resolves command overrides again once a plugin is enabled,
+     * as it may bring commands our overrides point to.
+     *
+     * @param e The actual plugin enable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(final PluginEnableEvent e) {
+        // all overrides get resolved once the server finishes loading
+        if (!AA_API.isWarmingUp()) {
+            commandBlockDecisions.invalidate();
+            rebuildOverrideTable();
+        }
+    } // end method
+
+    /**
+     * Resolves command overrides again once a plugin is disabled,
+     * so we don't run commands of plugins which are no longer running.
+     *
+     * @param e The actual plugin disable event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(final PluginDisableEvent e) {
+        if (!AA_API.isWarmingUp()) {
+            commandBlockDecisions.invalidate();
+            rebuildOverrideTable();
+        }
+    } // end method
+
 } // end class
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.martinambrus.adminAnything.listeners;
 
 import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.StatsSubsystem;
 import com.martinambrus.easyChat.events.ECChatEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -61,6 +62,21 @@ public class easyChatNickClicks implements Listener {
      */
     @EventHandler(priority = EventPriority.NORMAL)
     public void updateEasyChatMessage(final ECChatEvent e) {
+        final long start = System.nanoTime();
+        try {
+            decorateEasyChatMessage(e);
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.CHAT, start);
+        }
+    } // end method
+
+    /***
+     * Does the actual work for {@link #updateEasyChatMessage(ECChatEvent) updateEasyChatMessage()},
+     * which only measures how long the chat decoration takes.
+     *
+     * @param e The actual player chat event to work with.
+     */
+    private void decorateEasyChatMessage(final ECChatEvent e) {
         Map<String, Map<String, String>> clickCommands;
         Map<String, Map<String, String>> chestCommands;
 
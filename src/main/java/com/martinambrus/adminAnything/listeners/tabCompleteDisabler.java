@@ -1,6 +1,7 @@
 package com.martinambrus.adminAnything.listeners;
 
 import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.StatsSubsystem;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -45,28 +46,33 @@ final public class tabCompleteDisabler implements Listener {
             return;
         }
 
-        // if this player has the permission to bypass tab completion disable, we're good
-        if (AA_API.checkPerms(e.getPlayer(), "aa.fulltabcomplete", false)){
-            return;
-        }
+        final long start = System.nanoTime();
+        try {
+            // if this player has the permission to bypass tab completion disable, we're good
+            if (AA_API.checkPerms(e.getPlayer(), "aa.fulltabcomplete", false)){
+                return;
+            }
 
-        // get commands available to this player and remove all completions
-        // that the player shouldn't see
-        Collection<String> completions = e.getCommands();
-        List<String> cmdsAvailable  = AA_API.getPlayerAvailableCommands( e.getPlayer() );
-        List<String> disabledCommands = AA_API.getCommandsList("removals");
-        List<String> removeCompletions = new ArrayList<String>();
-        for (String cmd : completions) {
-            String completion_clear = ( cmd.contains(":") ? cmd.split(":")[1] : cmd );
-            if (disabledCommands.contains(cmd) || disabledCommands.contains(completion_clear) || ( !cmdsAvailable.contains(cmd) && !cmdsAvailable.contains(completion_clear) ) )  {
-                removeCompletions.add(cmd);
+            // get commands available to this player and remove all completions
+            // that the player shouldn't see
+            Collection<String> completions = e.getCommands();
+            List<String> cmdsAvailable  = AA_API.getPlayerAvailableCommands( e.getPlayer() );
+            List<String> disabledCommands = AA_API.getCommandsList("removals");
+            List<String> removeCompletions = new ArrayList<String>();
+            for (String cmd : completions) {
+                String completion_clear = ( cmd.contains(":") ? cmd.split(":")[1] : cmd );
+                if (disabledCommands.contains(cmd) || disabledCommands.contains(completion_clear) || ( !cmdsAvailable.contains(cmd) && !cmdsAvailable.contains(completion_clear) ) )  {
+                    removeCompletions.add(cmd);
+                }
             }
-        }
 
-        // now remove all completions that we found out should not be included for this player
-        // from the original commands collection
-        for (String cmd : removeCompletions) {
-            completions.remove(cmd);
+            // now remove all completions that we found out should not be included for this player
+            // from the original commands collection
+            for (String cmd : removeCompletions) {
+                completions.remove(cmd);
+            }
+        } finally {
+            AA_API.recordLatency(StatsSubsystem.TABCOMPLETE, start);
         }
 
         // NOTE: we cannot add into the completions list due to this event's specification,
@@ -8,6 +8,7 @@ import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.StatsSubsystem;
 import com.martinambrus.adminAnything.events.AAReloadEvent;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -87,43 +88,48 @@ final public class tabCompleteDisablerProtocolLib implements Listener {
             @Override
             public void onPacketSending(PacketEvent e){
                 if (e.getPacketType() == PacketType.Play.Server.TAB_COMPLETE){
-                    // if this player has the permission to bypass tab completion disable, we're good
-                    if (AA_API.checkPerms(e.getPlayer(), "aa.fulltabcomplete", false)){
-                        return;
-                    }
+                    final long start = System.nanoTime();
+                    try {
+                        // if this player has the permission to bypass tab completion disable, we're good
+                        if (AA_API.checkPerms(e.getPlayer(), "aa.fulltabcomplete", false)){
+                            return;
+                        }
 
-                    String[] completions = e.getPacket().getStringArrays().read(0);
-
-                    // get commands available to this player and remove all completions
-                    // that the player shouldn't see
-                    List<String> cmdsAvailable = AA_API.getPlayerAvailableCommands( e.getPlayer() );
-                    List<String> newCompletions = new ArrayList<String>();
-                    List<String> disabledCommands = AA_API.getCommandsList("removals");
-                    for (String cmd : completions) {
-                        String commandToCheck = cmd.startsWith("/") ? cmd.substring(1) : cmd;
-                        if (!disabledCommands.contains(commandToCheck) && cmdsAvailable.contains(commandToCheck)) {
-                            newCompletions.add(cmd);
+                        String[] completions = e.getPacket().getStringArrays().read(0);
+
+                        // get commands available to this player and remove all completions
+                        // that the player shouldn't see
+                        List<String> cmdsAvailable = AA_API.getPlayerAvailableCommands( e.getPlayer() );
+                        List<String> newCompletions = new ArrayList<String>();
+                        List<String> disabledCommands = AA_API.getCommandsList("removals");
+                        for (String cmd : completions) {
+                            String commandToCheck = cmd.startsWith("/") ? cmd.substring(1) : cmd;
+                            if (!disabledCommands.contains(commandToCheck) && cmdsAvailable.contains(commandToCheck)) {
+                                newCompletions.add(cmd);
+                            }
                         }
-                    }
 
-                    // add commands that are added via our permdescriptions.yml file only,
-                    // as they would not be present in the original completions array and tab-complete
-                    // would then be inconsistent with /aa_playercommands
-                    List<String> manualCompletions = new ArrayList<String>();
-                    for (String cmd : cmdsAvailable) {
-                        if (!disabledCommands.contains(cmd) && !newCompletions.contains("/" + cmd)) {
-                            manualCompletions.add("/" + cmd);
+                        // add commands that are added via our permdescriptions.yml file only,
+                        // as they would not be present in the original completions array and tab-complete
+                        // would then be inconsistent with /aa_playercommands
+                        List<String> manualCompletions = new ArrayList<String>();
+                        for (String cmd : cmdsAvailable) {
+                            if (!disabledCommands.contains(cmd) && !newCompletions.contains("/" + cmd)) {
+                                manualCompletions.add("/" + cmd);
+                            }
                         }
-                    }
 
-                    // only copy manual completions that actually match the requested tab-complete text
-                    StringUtil.copyPartialMatches(
-                        tabCompleteDisablerProtocolLib.this.playerTabCompleteTextRequest.get(e.getPlayer().getName()),
-                        manualCompletions,
-                        newCompletions
-                    );
+                        // only copy manual completions that actually match the requested tab-complete text
+                        StringUtil.copyPartialMatches(
+                            tabCompleteDisablerProtocolLib.this.playerTabCompleteTextRequest.get(e.getPlayer().getName()),
+                            manualCompletions,
+                            newCompletions
+                        );
 
-                    e.getPacket().getStringArrays().write(0, newCompletions.toArray( new String[newCompletions.size()] ));
+                        e.getPacket().getStringArrays().write(0, newCompletions.toArray( new String[newCompletions.size()] ));
+                    } finally {
+                        AA_API.recordLatency(StatsSubsystem.TABCOMPLETE, start);
+                    }
                 }
             }
         };
@@ -0,0 +1,57 @@
+package com.martinambrus.adminAnything.tabcomplete;
+
+import com.martinambrus.adminAnything.AuditAction;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.Player;
+import org.bukkit.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tab completion for the /aa_audit command.
+ * This will only work on Minecraft servers 1.6+
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_audit implements TabCompleter {
+
+    /**
+     * Rule types which can be used in the type filter, alongside audit actions.
+     */
+    @SuppressWarnings("HardCodedStringLiteral")
+    private static final List<String> RULE_TYPES = Arrays.asList(
+        "removals", "mutes", "redirects", "overrides", "virtualperms", "ignores", "helpDisables");
+
+    @SuppressWarnings("HardCodedStringLiteral")
+    @Override
+    public List<String> onTabComplete(CommandSender commandSender, Command command, String alias, String[] args) {
+        final String arg = args[args.length - 1];
+        final List<String> options = new ArrayList<String>();
+
+        if (arg.toLowerCase().startsWith("player:")) {
+            for (final Player p : commandSender.getServer().getOnlinePlayers()) {
+                options.add("player:" + p.getName());
+            }
+        } else if (arg.toLowerCase().startsWith("type:")) {
+            for (final AuditAction action : AuditAction.values()) {
+                options.add("type:" + action);
+            }
+
+            for (final String ruleType : RULE_TYPES) {
+                options.add("type:" + ruleType);
+            }
+        } else {
+            options.addAll(Arrays.asList("player:", "command:", "type:"));
+        }
+
+        final List<String> completions = new ArrayList<String>();
+        StringUtil.copyPartialMatches(arg, options, completions);
+
+        return completions;
+    } // end method
+
+} // end class
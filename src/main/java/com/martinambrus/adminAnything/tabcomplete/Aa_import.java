@@ -0,0 +1,48 @@
+package com.martinambrus.adminAnything.tabcomplete;
+
+import com.martinambrus.adminAnything.AA_API;
+import com.martinambrus.adminAnything.RuleSnapshot;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.util.StringUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tab completion for the /aa_import command.
+ * This will only work on Minecraft servers 1.6+
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_import implements TabCompleter {
+
+    @SuppressWarnings("HardCodedStringLiteral")
+    @Override
+    public List<String> onTabComplete(CommandSender commandSender, Command command, String alias, String[] args) {
+        final List<String> completions = new ArrayList<String>();
+
+        if (1 != args.length) {
+            return completions;
+        }
+
+        // offer names of all snapshots in the snapshots folder
+        final List<String> options = new ArrayList<String>();
+        final File[] files = new File(AA_API.getAaDataDir(), RuleSnapshot.FOLDER_NAME).listFiles();
+
+        if (null != files) {
+            for (final File file : files) {
+                if (file.isFile() && file.getName().toLowerCase().endsWith(RuleSnapshot.FILE_EXTENSION)) {
+                    options.add(file.getName().substring(0, file.getName().length() - RuleSnapshot.FILE_EXTENSION.length()));
+                }
+            }
+        }
+
+        StringUtil.copyPartialMatches(args[0], options, completions);
+
+        return completions;
+    } // end method
+
+} // end class
@@ -0,0 +1,35 @@
+package com.martinambrus.adminAnything.tabcomplete;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.bukkit.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tab completion for the /aa_stats command.
+ * This will only work on Minecraft servers 1.6+
+ *
+ * @author Martin Ambrus
+ */
+public class Aa_stats implements TabCompleter {
+
+    @Override
+    public List<String> onTabComplete(CommandSender commandSender, Command command, String alias, String[] args) {
+        // no completion if we have none or too many arguments
+        if (args.length != 1) {
+            //noinspection ReturnOfNull
+            return null;
+        }
+
+        // the only argument we understand is "reset"
+        List<String> completions = new ArrayList<String>();
+        StringUtil.copyPartialMatches(args[0], Collections.singletonList("reset"), completions); //NON-NLS
+
+        return completions;
+    } // end method
+
+} // end class
@@ -0,0 +1,141 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for adding, removing and persisting rules via {@link com.martinambrus.adminAnything.CommandListeners}.
+ * Rules are changed via the actual AdminAnything commands, as CommandListeners
+ * only accept changes coming from these.
+ *
+ * @author Martin Ambrus
+ */
+public class CommandListenersTest {
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness()
+        .withConfigFile("command_removals.yml", "commands: [spawn, setspawn]"); //NON-NLS
+
+    private static final FakePlugin spawns;
+
+    static {
+        spawns = harness.addPlugin("Spawns", "spawn", "setspawn", "tpa", "tpahere", "warp"); //NON-NLS
+        harness.addPlugin("Kits", "kit", "kits", "kitlist", "givekit"); //NON-NLS
+    }
+
+    @Test
+    public void rulesAreLoadedFromConfig() {
+        // setspawn is not checked here, as it gets enabled in another test
+        assertTrue(AA_API.getCommandsList("removals").contains("spawn")); //NON-NLS
+        assertTrue(harness.playerCommand(harness.addPlayer("Carol"), "/spawn").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void enabledCommandIsSavedAndRunsAgain() {
+        harness.consoleCommand("aa_enablecommand setspawn"); //NON-NLS
+        harness.tick(20);
+
+        assertFalse(AA_API.getCommandsList("removals").contains("setspawn")); //NON-NLS
+        assertFalse(YamlConfiguration.loadConfiguration(new File(harness.getDataFolder(), "command_removals.yml")) //NON-NLS
+                                     .getStringList("commands").contains("setspawn")); //NON-NLS
+
+        final Player player = harness.addPlayer("Alice"); //NON-NLS
+        assertFalse(harness.playerCommand(player, "/setspawn").isCancelled()); //NON-NLS
+        assertTrue(spawns.getExecutedCommands().contains("setspawn")); //NON-NLS
+    } // end method
+
+    @Test
+    public void addedRedirectIsSavedAndApplied() {
+        harness.consoleCommand("aa_addredirect tpahere tpa"); //NON-NLS
+        harness.tick(20);
+
+        assertTrue(AA_API.getCommandsList("redirects").contains("tpahere")); //NON-NLS
+        assertEquals("tpa", YamlConfiguration.loadConfiguration( //NON-NLS
+            new File(harness.getDataFolder(), "command_redirects.yml")).getString("tpahere")); //NON-NLS
+
+        final Player player = harness.addPlayer("Bob"); //NON-NLS
+        assertTrue(harness.playerCommand(player, "/tpahere Alice").isCancelled()); //NON-NLS
+        harness.tick(1);
+        assertTrue(spawns.getExecutedCommands().contains("tpa Alice")); //NON-NLS
+    } // end method
+
+    @Test
+    public void externallyChangedConfigFileIsReloaded() throws IOException {
+        final List<String> removals = new ArrayList<String>(AA_API.getCommandsList("removals")); //NON-NLS
+        removals.add("warp"); //NON-NLS
+
+        final YamlConfiguration changed = new YamlConfiguration();
+        changed.set("commands", removals); //NON-NLS
+        changed.save(new File(harness.getDataFolder(), "command_removals.yml")); //NON-NLS
+
+        new ConfigFileWatcher(harness.getPlugin(), harness.getPlugin().getCommandListenersUtils())
+            .reloadFile("command_removals.yml"); //NON-NLS
+        harness.tick(1);
+
+        assertTrue(AA_API.getCommandsList("removals").contains("warp")); //NON-NLS
+        assertTrue(harness.playerCommand(harness.addPlayer("Dave"), "/warp").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void invalidConfigFileKeepsCurrentRules() throws IOException {
+        final File mutesFile = new File(harness.getDataFolder(), "command_mutes.yml"); //NON-NLS
+        Files.write(mutesFile.toPath(), "commands: spawn".getBytes(StandardCharsets.UTF_8)); //NON-NLS
+
+        final List<String> mutes = AA_API.getCommandsList("mutes"); //NON-NLS
+        new ConfigFileWatcher(harness.getPlugin(), harness.getPlugin().getCommandListenersUtils())
+            .reloadFile("command_mutes.yml"); //NON-NLS
+        harness.tick(1);
+
+        assertEquals(mutes, AA_API.getCommandsList("mutes")); //NON-NLS
+    } // end method
+
+    @Test
+    public void invalidBatchChangesNothing() throws IOException {
+        writeBatch("broken", "add:\n  removals: [kit]\n  mutes: [nosuchcommand]\n"); //NON-NLS
+        harness.consoleCommand("aa_batch broken"); //NON-NLS
+        harness.tick(1);
+
+        assertFalse(AA_API.getCommandsList("removals").contains("kit")); //NON-NLS
+        assertFalse(AA_API.getCommandsList("mutes").contains("nosuchcommand")); //NON-NLS
+    } // end method
+
+    @Test
+    public void batchIsAppliedAndSavedAtOnce() throws IOException {
+        writeBatch("template", "add:\n  removals: [/givekit]\n  mutes: [kits]\n  redirects:\n    kitlist: kits\n"); //NON-NLS
+        harness.consoleCommand("aa_batch template"); //NON-NLS
+        harness.tick(20);
+
+        assertTrue(AA_API.getCommandsList("removals").contains("givekit")); //NON-NLS
+        assertTrue(YamlConfiguration.loadConfiguration(new File(harness.getDataFolder(), "command_removals.yml")) //NON-NLS
+                                    .getStringList("commands").contains("givekit")); //NON-NLS
+        assertTrue(AA_API.getMutesMap().containsKey("kits")); //NON-NLS
+        assertEquals("kits", YamlConfiguration.loadConfiguration( //NON-NLS
+            new File(harness.getDataFolder(), "command_redirects.yml")).getString("kitlist")); //NON-NLS
+
+        assertTrue(harness.playerCommand(harness.addPlayer("Erin"), "/givekit").isCancelled()); //NON-NLS
+    } // end method
+
+    /**
+     * Writes a rule template for /aa_batch into the batches folder.
+     *
+     * @param name Name of the rule template, without the .yml extension.
+     * @param yaml Contents of the rule template.
+     */
+    private static void writeBatch(final String name, final String yaml) throws IOException {
+        final File folder = new File(harness.getDataFolder(), "batches"); //NON-NLS
+        folder.mkdirs();
+        Files.write(new File(folder, name + ".yml").toPath(), yaml.getBytes(StandardCharsets.UTF_8)); //NON-NLS
+    } // end method
+
+} // end class
@@ -0,0 +1,389 @@
+package com.martinambrus.adminAnything;
+
+import com.martinambrus.adminAnything.listeners.RedirectTemplate;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.command.BlockCommandSender;
+import org.bukkit.command.RemoteConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.RemoteServerCommandEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Behavioural and performance tests for the
+ * {@link com.martinambrus.adminAnything.listeners.commandPreprocessor commandPreprocessor} listener.
+ *
+ * @author Martin Ambrus
+ */
+public class CommandPreprocessorTest {
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness()
+        .withConfigFile("command_removals.yml", "commands: [blocked]") //NON-NLS
+        .withConfigFile("virtual_permissions.yml", "homes:\n  vip: home vip") //NON-NLS
+        .withConfigValue("virtualPermissionsAsNodes", true) //NON-NLS
+        .withConfigFile("command_overrides.yml", "spawn: Homes:home\nlobby: Homes:home\nsummon: Late:late") //NON-NLS
+        .withConfigFile("command_mutes.yml", "commands: [lobby]") //NON-NLS
+        .withConfigValue("commandThrottling.commands.sethome", "1 per 1h") //NON-NLS
+        .withConfigValue("worldRules.pvp_arena.removals", Arrays.asList("home")) //NON-NLS
+        .withConfigValue("worldRules.pvp_arena.redirects.warp", "sethome") //NON-NLS
+        .withConfigFile("command_redirects.yml", "warp: home\n" //NON-NLS
+            + "visit: home %player% $2 in %world%\n" //NON-NLS
+            + "jump: warp\n" //NON-NLS
+            + "ping: pong\n" //NON-NLS
+            + "pong: ping $*"); //NON-NLS
+
+    private static final FakePlugin homes;
+    private static final FakePlugin lobby;
+
+    static {
+        homes = harness.addPlugin("Homes", "home", "sethome", "blocked"); //NON-NLS
+        harness.addPlugin("Warps", "warp"); //NON-NLS
+        harness.addPlugin("Travel", "visit", "jump", "ping", "pong"); //NON-NLS
+        lobby = harness.addPlugin("Lobby", "lobby"); //NON-NLS
+        harness.addSyntheticPlugins(100, 20);
+    }
+
+    @Test
+    public void disabledCommandIsCancelled() {
+        final Player player = harness.addPlayer("Alice"); //NON-NLS
+        final int executed = homes.getExecutedCommands().size();
+
+        assertTrue(harness.playerCommand(player, "/blocked").isCancelled()); //NON-NLS
+        assertEquals(executed, homes.getExecutedCommands().size());
+    } // end method
+
+    @Test
+    public void blockedCommandIsAudited() throws Exception {
+        final Player player = harness.addPlayer("Leo"); //NON-NLS
+        harness.playerCommand(player, "/blocked"); //NON-NLS
+
+        final AuditRecord newest = AA_API.getAuditRecords().get(0);
+        assertEquals(AuditAction.BLOCKED, newest.getAction());
+        assertEquals("Leo", newest.getActor()); //NON-NLS
+        assertEquals("blocked", newest.getCommand()); //NON-NLS
+        assertEquals("removals", newest.getDetail()); //NON-NLS
+
+        // the background writer appends new records to the audit log file every second
+        harness.tick(20);
+        final File logFile = new File(new File(AA_API.getAaDataDir(), "audit"), "audit.log"); //NON-NLS
+        assertTrue(new String(Files.readAllBytes(logFile.toPath()), StandardCharsets.UTF_8)
+            .contains("blocked\tLeo\tblocked\tremovals")); //NON-NLS
+    } // end method
+
+    @Test
+    public void disabledCommandRunsWithBypassPermission() {
+        final Player player = harness.addPlayer("Bob"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Bob", "aa.bypassdeletecommand"); //NON-NLS
+
+        assertFalse(harness.playerCommand(player, "/blocked now").isCancelled()); //NON-NLS
+        assertTrue(homes.getExecutedCommands().contains("blocked now")); //NON-NLS
+    } // end method
+
+    @Test
+    public void redirectedCommandReachesItsTarget() {
+        final Player player = harness.addPlayer("Carol"); //NON-NLS
+
+        final PlayerCommandPreprocessEvent e = harness.playerCommand(player, "/warp spawn"); //NON-NLS
+        harness.tick(1);
+
+        assertTrue(e.isCancelled());
+        assertTrue(homes.getExecutedCommands().contains("home spawn")); //NON-NLS
+    } // end method
+
+    @Test
+    public void redirectTemplatePlaceholdersAreFilled() {
+        final Player player = harness.addPlayer("Frank"); //NON-NLS
+
+        assertTrue(harness.playerCommand(player, "/visit first second third").isCancelled()); //NON-NLS
+        assertTrue(homes.getExecutedCommands().contains("home Frank second in world")); //NON-NLS
+    } // end method
+
+    @Test
+    public void chainedRedirectsAreFollowed() {
+        final Player player = harness.addPlayer("Grace"); //NON-NLS
+
+        assertTrue(harness.playerCommand(player, "/jump market").isCancelled()); //NON-NLS
+        assertTrue(homes.getExecutedCommands().contains("home market")); //NON-NLS
+    } // end method
+
+    @Test
+    public void cyclicRedirectsAreNotChained() {
+        final RedirectTemplate ping = RedirectTemplate.compileAll(
+            AA_API.getCommandsConfigurationValues("redirects")).get("ping"); //NON-NLS
+
+        assertEquals("pong", ping.getTarget()); //NON-NLS
+        assertEquals("pong now", ping.resolve(harness.getServer().getConsoleSender(), new String[] { "now" })); //NON-NLS
+    } // end method
+
+    @Test
+    public void virtualPermissionIsRegisteredAsBukkitNode() {
+        final Permission node = harness.getServer().getPluginManager()
+            .getPermission("homes.vip"); //NON-NLS
+
+        assertNotNull(node);
+        assertEquals(PermissionDefault.OP, node.getDefault());
+        assertTrue(harness.getServer().getPluginManager().getPermission(Permissions.VIRTUAL_PERMISSIONS_PARENT)
+            .getChildren().containsKey("homes.vip")); //NON-NLS
+        assertArrayEquals(new String[] { "homes.vip" }, AA_API.getVirtualPermissionsForCommand("home vip")); //NON-NLS
+    } // end method
+
+    @Test
+    public void virtualPermissionGuardsItsCommandLine() {
+        final Player denied = harness.addPlayer("Heidi"); //NON-NLS
+        final Player allowed = harness.addPlayer("Ivan"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Ivan", "homes.vip"); //NON-NLS
+
+        assertTrue(harness.playerCommand(denied, "/home vip").isCancelled()); //NON-NLS
+        assertFalse(harness.playerCommand(allowed, "/home vip").isCancelled()); //NON-NLS
+        assertFalse(harness.playerCommand(denied, "/home garden").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void throttledCommandIsCancelledUntilPlayerRejoins() {
+        Player player = harness.addPlayer("Judy"); //NON-NLS
+
+        assertFalse(harness.playerCommand(player, "/sethome garden").isCancelled()); //NON-NLS
+        assertTrue(harness.playerCommand(player, "/sethome pond").isCancelled()); //NON-NLS
+        assertFalse(homes.getExecutedCommands().contains("sethome pond")); //NON-NLS
+
+        // other commands are not limited by this rule
+        assertFalse(harness.playerCommand(player, "/home garden").isCancelled()); //NON-NLS
+
+        harness.removePlayer(player);
+        player = harness.addPlayer("Judy"); //NON-NLS
+        assertFalse(harness.playerCommand(player, "/sethome pond").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void throttledCommandRunsWithBypassPermission() {
+        final Player player = harness.addPlayer("Ken"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Ken", "aa.bypassthrottle.sethome"); //NON-NLS
+
+        assertFalse(harness.playerCommand(player, "/sethome garden").isCancelled()); //NON-NLS
+        assertFalse(harness.playerCommand(player, "/sethome pond").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void overriddenCommandRunsInPlace() {
+        final Player player = harness.addPlayer("Heidi"); //NON-NLS
+
+        // no ticks needed, the resolved override runs without a scheduler round-trip
+        assertTrue(harness.playerCommand(player, "/spawn lobby").isCancelled()); //NON-NLS
+        assertTrue(homes.getExecutedCommands().contains("home lobby")); //NON-NLS
+
+        final AuditRecord newest = AA_API.getAuditRecords().get(0);
+        assertEquals(AuditAction.OVERRIDDEN, newest.getAction());
+        assertEquals("spawn", newest.getCommand()); //NON-NLS
+    } // end method
+
+    @Test
+    public void mutedOverrideRunsOnlyOnce() {
+        final Player player = harness.addPlayer("Ivan"); //NON-NLS
+        final int executed = homes.getExecutedCommands().size();
+
+        assertTrue(harness.playerCommand(player, "/lobby now").isCancelled()); //NON-NLS
+        harness.tick(2);
+
+        // the override ran in place, nothing may dispatch the muted original afterwards
+        assertEquals(executed + 1, homes.getExecutedCommands().size());
+        assertTrue(homes.getExecutedCommands().contains("home now")); //NON-NLS
+        assertTrue(lobby.getExecutedCommands().isEmpty());
+    } // end method
+
+    @Test
+    public void worldRulesOnlyApplyInTheirWorld() {
+        final Player player = harness.addPlayer("Ivan"); //NON-NLS
+        final World lobby = player.getWorld();
+        final World arena = harness.addWorld("pvp_arena"); //NON-NLS
+
+        assertFalse(harness.playerCommand(player, "/home lobby").isCancelled()); //NON-NLS
+
+        FakePlayer.of(player).setWorld(arena);
+        harness.getServer().getPluginManager().callEvent(new PlayerChangedWorldEvent(player, lobby));
+
+        final int executed = homes.getExecutedCommands().size();
+        assertTrue(harness.playerCommand(player, "/home arena").isCancelled()); //NON-NLS
+        assertEquals(executed, homes.getExecutedCommands().size());
+
+        // redirects of the arena take precedence over the global ones
+        assertTrue(harness.playerCommand(player, "/warp arena").isCancelled()); //NON-NLS
+        assertTrue(homes.getExecutedCommands().contains("sethome arena")); //NON-NLS
+
+        FakePlayer.of(player).setWorld(lobby);
+        harness.getServer().getPluginManager().callEvent(new PlayerChangedWorldEvent(player, arena));
+        assertFalse(harness.playerCommand(player, "/home again").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void commandsPassThroughUntouched() {
+        final Player player = harness.addPlayer("Dave"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Dave", "synthetic7.c3"); //NON-NLS
+
+        assertFalse(harness.playerCommand(player, "/s7c3 some arguments").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void commandBlockDecisionsAreReplayed() {
+        final BlockCommandSender block = commandBlock(harness.addWorld("adventure"), 10, 64, -3); //NON-NLS
+        final int executed = homes.getExecutedCommands().size();
+
+        // the first run of each command is evaluated in full, the rest come from the cache
+        for (int i = 0; i < 3; i++) {
+            assertTrue(harness.consoleCommand(block, "blocked").isCancelled()); //NON-NLS
+            assertFalse(harness.consoleCommand(block, "home arena").isCancelled()); //NON-NLS
+        }
+
+        assertEquals(executed + 3, homes.getExecutedCommands().size());
+        assertFalse(homes.getExecutedCommands().contains("blocked")); //NON-NLS
+
+        final ServerCommandEvent e = new ServerCommandEvent(block, "home arena"); //NON-NLS
+        ServerHarness.assertAverageBelow("command block preprocessing", 20000, 20, new Runnable() { //NON-NLS
+            @Override
+            public void run() {
+                harness.getServer().getPluginManager().callEvent(e);
+            }
+        });
+    } // end method
+
+    @Test
+    public void commandBlockDecisionsFollowPluginChanges() {
+        final BlockCommandSender block = commandBlock(harness.addWorld("quarry"), 4, 70, 12); //NON-NLS
+
+        // the override for this command points to a plugin which is not installed yet
+        for (int i = 0; i < 2; i++) {
+            assertEquals("summon zombie", harness.consoleCommand(block, "summon zombie").getCommand()); //NON-NLS
+        }
+
+        final FakePlugin late = harness.addPlugin("Late", "late"); //NON-NLS
+        harness.getServer().getPluginManager().callEvent(new PluginEnableEvent(late));
+
+        assertNotEquals("summon zombie", harness.consoleCommand(block, "summon zombie").getCommand()); //NON-NLS
+        assertFalse(late.getExecutedCommands().isEmpty());
+    } // end method
+
+    @Test
+    public void remoteConsoleCommandsFollowTheSameRules() {
+        final RemoteConsoleCommandSender rcon = (RemoteConsoleCommandSender) Proxy.newProxyInstance(
+            RemoteConsoleCommandSender.class.getClassLoader(), new Class<?>[] { RemoteConsoleCommandSender.class },
+            new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                    return "getName".equals(method.getName()) ? "Rcon" : FakeServer.defaultValue(method.getReturnType()); //NON-NLS
+                }
+            });
+
+        final RemoteServerCommandEvent blocked = new RemoteServerCommandEvent(rcon, "blocked"); //NON-NLS
+        harness.getServer().getPluginManager().callEvent(blocked);
+        assertTrue(blocked.isCancelled());
+        assertFalse(homes.getExecutedCommands().contains("blocked")); //NON-NLS
+
+        final RemoteServerCommandEvent redirected = new RemoteServerCommandEvent(rcon, "warp rcon"); //NON-NLS
+        harness.getServer().getPluginManager().callEvent(redirected);
+        assertTrue(redirected.isCancelled());
+        assertTrue(homes.getExecutedCommands().contains("home rcon")); //NON-NLS
+
+        final RemoteServerCommandEvent untouched = new RemoteServerCommandEvent(rcon, "home rcon"); //NON-NLS
+        ServerHarness.assertAverageBelow("remote console preprocessing", 20000, 20, new Runnable() { //NON-NLS
+            @Override
+            public void run() {
+                harness.getServer().getPluginManager().callEvent(untouched);
+            }
+        });
+        assertFalse(untouched.isCancelled());
+    } // end method
+
+    @Test
+    public void preprocessingIsFastWithManyPlugins() {
+        final Player player = harness.addPlayer("Eve"); //NON-NLS
+        final int[] counter = { 0 };
+
+        // only the preprocessor is measured here, no command gets actually dispatched
+        ServerHarness.assertAverageBelow("player command preprocessing", 20000, 250, new Runnable() { //NON-NLS
+            @Override
+            public void run() {
+                final int i = counter[0]++;
+                harness.getServer().getPluginManager().callEvent(
+                    new PlayerCommandPreprocessEvent(player, "/s" + (i % 100) + 'c' + (i % 20) + " argument", //NON-NLS
+                        Collections.<Player>emptySet()));
+            }
+        });
+    } // end method
+
+    /**
+     * Creates a command block at the given location.
+     *
+     * @param world The world of the command block.
+     * @param x X coordinate of the command block.
+     * @param y Y coordinate of the command block.
+     * @param z Z coordinate of the command block.
+     *
+     * @return Returns the command block as a command sender.
+     */
+    private static BlockCommandSender commandBlock(final World world, final int x, final int y, final int z) {
+        final Block block = (Block) Proxy.newProxyInstance(
+            Block.class.getClassLoader(), new Class<?>[] { Block.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                    switch (method.getName()) {
+                        case "getWorld":
+                            return world;
+
+                        case "getX":
+                            return x;
+
+                        case "getY":
+                            return y;
+
+                        case "getZ":
+                            return z;
+
+                        default:
+                            return FakeServer.defaultValue(method.getReturnType());
+                    }
+                }
+            });
+
+        return (BlockCommandSender) Proxy.newProxyInstance(
+            BlockCommandSender.class.getClassLoader(), new Class<?>[] { BlockCommandSender.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                    switch (method.getName()) {
+                        case "getBlock":
+                            return block;
+
+                        case "getName":
+                            return "@"; //NON-NLS
+
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+
+                        case "equals":
+                            return proxy == args[0];
+
+                        default:
+                            return FakeServer.defaultValue(method.getReturnType());
+                    }
+                }
+            });
+    } // end method
+
+} // end class
@@ -0,0 +1,52 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.entity.Player;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for capturing command traces via {@link com.martinambrus.adminAnything.CommandTrace}
+ * and reading them back via {@link com.martinambrus.adminAnything.TraceReplay}.
+ *
+ * @author Martin Ambrus
+ */
+public class CommandTraceTest {
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness()
+        .withFeature("commandtrace", true); //NON-NLS
+
+    static {
+        harness.addPlugin("Homes", "home", "msg"); //NON-NLS
+    }
+
+    @Test
+    public void capturedCommandsAreAnonymized() throws Exception {
+        final Player mallory = harness.addPlayer("Mallory"); //NON-NLS
+        harness.addPlayer("Nina"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Mallory", "homes.use"); //NON-NLS
+
+        harness.playerCommand(mallory, "/msg Nina hello"); //NON-NLS
+        harness.consoleCommand("home 10.0.0.1"); //NON-NLS
+
+        final CommandTrace commandTrace = harness.getPlugin().getCommandTrace();
+        commandTrace.stop();
+        final TraceReplay.Trace trace = TraceReplay.read(commandTrace.getTraceFile());
+
+        assertEquals(2, trace.records.size());
+
+        final TraceReplay.Record playerRecord = trace.records.get(0);
+        assertEquals(CommandTrace.SENDER_PLAYER, playerRecord.senderType);
+        assertEquals("world", playerRecord.world); //NON-NLS
+        assertEquals("msg " + CommandTrace.MASKED_PLAYER + " hello", playerRecord.commandLine); //NON-NLS
+        assertTrue(trace.profiles.get(playerRecord.profile).permissions.contains("homes.use")); //NON-NLS
+
+        final TraceReplay.Record consoleRecord = trace.records.get(1);
+        assertEquals(CommandTrace.SENDER_CONSOLE, consoleRecord.senderType);
+        assertEquals(CommandTrace.NONE, consoleRecord.profile);
+        assertEquals("home " + CommandTrace.MASKED_IP, consoleRecord.commandLine); //NON-NLS
+    } // end method
+
+} // end class
@@ -0,0 +1,92 @@
+package com.martinambrus.adminAnything;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the command map utilities in {@link com.martinambrus.adminAnything.Commands}.
+ *
+ * @author Martin Ambrus
+ */
+public class CommandsTest {
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness();
+
+    static {
+        harness.addPlugin("Kits", "kit"); //NON-NLS
+        harness.addPlugin("Essentials", "kit", "heal"); //NON-NLS
+        harness.addSyntheticPlugins(100, 20);
+    }
+
+    @Test
+    public void commandMapContainsPluginCommands() throws Exception {
+        assertTrue(AA_API.commandMapContainsKey("s42c7")); //NON-NLS
+        assertTrue(AA_API.commandMapContainsKey("synthetic42:s42c7")); //NON-NLS
+        assertTrue(AA_API.commandMapContainsKey("aa_version")); //NON-NLS
+    } // end method
+
+    @Test
+    public void pluginForCommandIsResolved() throws Exception {
+        assertEquals("Synthetic42", AA_API.getPluginForCommand("s42c7", AA_API.getCommandMapKey("s42c7"))); //NON-NLS
+        assertEquals("Essentials", AA_API.getPluginForCommand("essentials:kit", //NON-NLS
+            AA_API.getCommandMapKey("essentials:kit"))); //NON-NLS
+    } // end method
+
+    @Test
+    public void sharedClassLoaderDoesNotResolveToAnyPlugin() {
+        // all fake plugins come from the test class loader, so it cannot tell them apart
+        assertNull(harness.getPlugin().getPluginUtils().getPluginByClassLoader(FakePlugin.class));
+        assertNull(harness.getPlugin().getPluginUtils().getPluginByClassLoader(String.class));
+    } // end method
+
+    @Test
+    public void conflictingCommandListsAllPlugins() throws Exception {
+        final List<String> plugins = AA_API.getCommandContainingPlugins("kit"); //NON-NLS
+
+        assertTrue(plugins.contains("Kits")); //NON-NLS
+        assertTrue(plugins.contains("Essentials")); //NON-NLS
+        assertEquals(2, plugins.size());
+    } // end method
+
+    @Test
+    public void primedContainingPluginsMatchLazyLookup() throws Exception {
+        final Commands commands = harness.getPlugin().getCommandsUtils();
+
+        commands.clearContainingPluginsCache();
+        final List<String> lazyKit = commands.getCommandContainingPlugins("kit"); //NON-NLS
+        commands.clearContainingPluginsCache();
+        final List<String> lazySynthetic = commands.getCommandContainingPlugins("s42c7"); //NON-NLS
+
+        commands.clearContainingPluginsCache();
+        assertTrue(0 < commands.primeContainingPluginsCache(AA_API.getCommandMapCopy()));
+
+        assertEquals(lazyKit, commands.getCommandContainingPlugins("kit")); //NON-NLS
+        assertEquals(lazySynthetic, commands.getCommandContainingPlugins("s42c7")); //NON-NLS
+    } // end method
+
+    @Test
+    public void containingPluginsLookupIsFastWithManyPlugins() {
+        final Commands commands = harness.getPlugin().getCommandsUtils();
+        final int[] counter = { 0 };
+
+        // clear the cache before each lookup, so we're measuring the actual command map scan
+        ServerHarness.assertAverageBelow("uncached containing plugins lookup", 500, 20000, new Runnable() { //NON-NLS
+            @Override
+            public void run() {
+                final int i = counter[0]++;
+                commands.clearContainingPluginsCache();
+                try {
+                    assertEquals(1, commands.getCommandContainingPlugins("s" + (i % 100) + 'c' + (i % 20)).size()); //NON-NLS
+                } catch (final Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+    } // end method
+
+} // end class
@@ -0,0 +1,200 @@
+package com.martinambrus.adminAnything;
+
+import net.milkbowl.vault.permission.Permission;
+
+import java.util.*;
+
+/**
+ * In-memory Vault permission provider with group support.
+ *
+ * Permissions are world-agnostic here, i.e. a permission given
+ * to a player or a group is valid in all worlds. Player permissions
+ * are the union of their own permissions and permissions of all their groups.
+ * As with most permission plugins, a permission ending with .* grants
+ * every permission under it, so warps.* grants warps.use.
+ *
+ * @author Martin Ambrus
+ */
+final class FakePermission extends Permission {
+
+    /**
+     * Permissions given directly to players, keyed by lower-cased player name.
+     */
+    private final Map<String, Set<String>> playerPerms = new HashMap<String, Set<String>>();
+
+    /**
+     * Permissions given to groups, keyed by group name.
+     * Uses a LinkedHashMap, so groups are listed in the order they were created in.
+     */
+    private final Map<String, Set<String>> groupPerms = new LinkedHashMap<String, Set<String>>();
+
+    /**
+     * Groups of each player, keyed by lower-cased player name.
+     * The first group is the primary one.
+     */
+    private final Map<String, List<String>> playerGroups = new HashMap<String, List<String>>();
+
+    /**
+     * Creates a group (if it doesn't exist yet) and gives it the given permissions.
+     *
+     * @param group Name of the group.
+     * @param perms Permissions to give to the group.
+     *
+     * @return Returns this instance, for chaining.
+     */
+    FakePermission group(final String group, final String... perms) {
+        if (!groupPerms.containsKey(group)) {
+            groupPerms.put(group, new HashSet<String>());
+        }
+
+        groupPerms.get(group).addAll(Arrays.asList(perms));
+        return this;
+    } // end method
+
+    /**
+     * Returns all permission for the given player, including the ones from their groups.
+     *
+     * @param player Name of the player.
+     *
+     * @return Returns all permission for the given player.
+     */
+    Set<String> getAllPlayerPerms(final String player) {
+        final Set<String> perms = new HashSet<String>();
+        final String key = player.toLowerCase();
+
+        if (playerPerms.containsKey(key)) {
+            perms.addAll(playerPerms.get(key));
+        }
+
+        if (playerGroups.containsKey(key)) {
+            for (final String group : playerGroups.get(key)) {
+                if (groupPerms.containsKey(group)) {
+                    perms.addAll(groupPerms.get(group));
+                }
+            }
+        }
+
+        return perms;
+    } // end method
+
+    @Override
+    public String getName() {
+        return "FakePermission"; //NON-NLS
+    } // end method
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    } // end method
+
+    @Override
+    public boolean hasSuperPermsCompat() {
+        return true;
+    } // end method
+
+    @Override
+    public boolean hasGroupSupport() {
+        return true;
+    } // end method
+
+    @Override
+    public boolean playerHas(final String world, final String player, final String permission) {
+        final Set<String> perms = getAllPlayerPerms(player);
+        if (perms.contains(permission)) {
+            return true;
+        }
+
+        // warps.admin is granted by warps.* and *
+        String node = permission;
+        while (true) {
+            final int dotPos = node.lastIndexOf('.');
+            if (perms.contains(0 > dotPos ? "*" : node.substring(0, dotPos) + ".*")) { //NON-NLS
+                return true;
+            }
+
+            if (0 > dotPos) {
+                return false;
+            }
+
+            node = node.substring(0, dotPos);
+        }
+    } // end method
+
+    @Override
+    public boolean playerAdd(final String world, final String player, final String permission) {
+        final String key = player.toLowerCase();
+        if (!playerPerms.containsKey(key)) {
+            playerPerms.put(key, new HashSet<String>());
+        }
+
+        return playerPerms.get(key).add(permission);
+    } // end method
+
+    @Override
+    public boolean playerRemove(final String world, final String player, final String permission) {
+        final String key = player.toLowerCase();
+        return playerPerms.containsKey(key) && playerPerms.get(key).remove(permission);
+    } // end method
+
+    @Override
+    public boolean groupHas(final String world, final String group, final String permission) {
+        return groupPerms.containsKey(group) && groupPerms.get(group).contains(permission);
+    } // end method
+
+    @Override
+    public boolean groupAdd(final String world, final String group, final String permission) {
+        group(group, permission);
+        return true;
+    } // end method
+
+    @Override
+    public boolean groupRemove(final String world, final String group, final String permission) {
+        return groupPerms.containsKey(group) && groupPerms.get(group).remove(permission);
+    } // end method
+
+    @Override
+    public boolean playerInGroup(final String world, final String player, final String group) {
+        final String key = player.toLowerCase();
+        return playerGroups.containsKey(key) && playerGroups.get(key).contains(group);
+    } // end method
+
+    @Override
+    public boolean playerAddGroup(final String world, final String player, final String group) {
+        final String key = player.toLowerCase();
+        if (!playerGroups.containsKey(key)) {
+            playerGroups.put(key, new ArrayList<String>());
+        }
+
+        group(group);
+
+        if (playerGroups.get(key).contains(group)) {
+            return false;
+        }
+
+        return playerGroups.get(key).add(group);
+    } // end method
+
+    @Override
+    public boolean playerRemoveGroup(final String world, final String player, final String group) {
+        final String key = player.toLowerCase();
+        return playerGroups.containsKey(key) && playerGroups.get(key).remove(group);
+    } // end method
+
+    @Override
+    public String[] getPlayerGroups(final String world, final String player) {
+        final String key = player.toLowerCase();
+        return playerGroups.containsKey(key) ? playerGroups.get(key).toArray(new String[0]) : new String[0];
+    } // end method
+
+    @Override
+    public String getPrimaryGroup(final String world, final String player) {
+        final String[] groups = getPlayerGroups(world, player);
+        return 0 < groups.length ? groups[0] : null;
+    } // end method
+
+    @Override
+    public String[] getGroups() {
+        return groupPerms.keySet().toArray(new String[0]);
+    } // end method
+
+} // end class
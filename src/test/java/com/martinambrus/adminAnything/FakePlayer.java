@@ -0,0 +1,184 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Backing state of a fake online player.
+ *
+ * The {@link org.bukkit.entity.Player Player} interface is way too large to implement
+ * by hand, so players are dynamic proxies and this class answers the calls
+ * AdminAnything makes on them. Permissions are resolved through our
+ * {@link com.martinambrus.adminAnything.FakePermission} Vault provider,
+ * so Vault and native permission checks always agree.
+ *
+ * @author Martin Ambrus
+ */
+final class FakePlayer implements InvocationHandler {
+
+    /**
+     * Name of the player.
+     */
+    private final String name;
+
+    /**
+     * Unique ID of the player, derived from their name.
+     */
+    private final UUID uuid;
+
+    /**
+     * Vault permission provider to resolve permissions from.
+     */
+    private final FakePermission permissions;
+
+    /**
+     * The world this player is currently in.
+     */
+    private World world;
+
+    /**
+     * Whether this player is an operator.
+     */
+    private boolean op = false;
+
+    /**
+     * All messages sent to this player.
+     */
+    private final List<String> messages = new ArrayList<String>();
+
+    /**
+     * Constructor, used via {@link #create(String, World, FakePermission)} only.
+     */
+    private FakePlayer(final String name, final World world, final FakePermission permissions) {
+        this.name = name;
+        this.world = world;
+        this.permissions = permissions;
+        uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes()); //NON-NLS
+    } // end method
+
+    /**
+     * Creates a new player.
+     *
+     * @param name Name of the player.
+     * @param world The world this player is in.
+     * @param permissions Vault permission provider to resolve permissions from.
+     *
+     * @return Returns a new player instance.
+     */
+    static Player create(final String name, final World world, final FakePermission permissions) {
+        return (Player) Proxy.newProxyInstance(
+            Player.class.getClassLoader(), new Class<?>[] { Player.class }, new FakePlayer(name, world, permissions));
+    } // end method
+
+    /**
+     * Retrieves state of the given player.
+     *
+     * @param player A player created via {@link #create(String, World, FakePermission)}.
+     *
+     * @return Returns backing state of the given player.
+     */
+    static FakePlayer of(final Player player) {
+        return (FakePlayer) Proxy.getInvocationHandler(player);
+    } // end method
+
+    /**
+     * Returns all messages sent to this player so far.
+     *
+     * @return Returns all messages sent to this player so far.
+     */
+    List<String> getMessages() {
+        return Collections.unmodifiableList(messages);
+    } // end method
+
+    /**
+     * Moves this player into another world.
+     *
+     * @param world The world to move this player to.
+     */
+    void setWorld(final World world) {
+        this.world = world;
+    } // end method
+
+    /**
+     * Checks whether this player has the given permission.
+     *
+     * @param perm The permission to check.
+     *
+     * @return Returns true if this player is an operator or has the given permission.
+     */
+    private boolean hasPermission(final String perm) {
+        return op || permissions.playerHas(world.getName(), name, perm);
+    } // end method
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+            case "getDisplayName":
+            case "getPlayerListName":
+                return name;
+
+            case "getUniqueId":
+                return uuid;
+
+            case "getWorld":
+                return world;
+
+            case "getServer":
+                return Bukkit.getServer();
+
+            case "isOnline":
+                return true;
+
+            case "isOp":
+                return op;
+
+            case "setOp":
+                op = (Boolean) args[0];
+                return null;
+
+            case "hasPermission":
+            case "isPermissionSet":
+                return hasPermission(args[0] instanceof String ? (String) args[0]
+                                     : ((org.bukkit.permissions.Permission) args[0]).getName());
+
+            case "getEffectivePermissions":
+                final Set<PermissionAttachmentInfo> effective = new HashSet<PermissionAttachmentInfo>();
+                for (final String perm : permissions.getAllPlayerPerms(name)) {
+                    effective.add(new PermissionAttachmentInfo((Player) proxy, perm, null, true));
+                }
+                return effective;
+
+            case "sendMessage":
+            case "sendRawMessage":
+                // the message itself is always the last argument, optionally preceded by the sender's UUID
+                final Object message = args[args.length - 1];
+                if (message instanceof String[]) {
+                    messages.addAll(Arrays.asList((String[]) message));
+                } else {
+                    messages.add(String.valueOf(message));
+                }
+                return null;
+
+            case "hashCode":
+                return uuid.hashCode();
+
+            case "equals":
+                return proxy == args[0];
+
+            case "toString":
+                return "FakePlayer{name=" + name + '}'; //NON-NLS
+
+            default:
+                return FakeServer.defaultValue(method.getReturnType());
+        }
+    } // end method
+
+} // end class
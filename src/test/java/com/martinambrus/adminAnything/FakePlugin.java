@@ -0,0 +1,182 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.plugin.PluginBase;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginLoader;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A plugin which only registers commands and records their executions.
+ * Used to fill the fake server with other plugins' commands,
+ * so AdminAnything has something to fix, redirect, disable etc.
+ *
+ * @author Martin Ambrus
+ */
+final class FakePlugin extends PluginBase {
+
+    /**
+     * Description of this plugin, containing its name.
+     */
+    private final PluginDescriptionFile description;
+
+    /**
+     * Every command line executed by this plugin, as "label arg1 arg2 ...".
+     */
+    private final List<String> executedCommands = new ArrayList<String>();
+
+    /**
+     * Empty configuration of this plugin.
+     */
+    private final FileConfiguration config = new YamlConfiguration();
+
+    /**
+     * Whether this plugin is enabled.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Whether this plugin can be nagged.
+     */
+    private boolean naggable = true;
+
+    /**
+     * Constructor, creates a new enabled plugin with the given name.
+     *
+     * @param name Name of the new plugin.
+     */
+    FakePlugin(final String name) {
+        description = new PluginDescriptionFile(name, "1.0", "fake." + name); //NON-NLS
+    } // end method
+
+    /**
+     * Returns all command lines executed by this plugin so far.
+     *
+     * @return Returns all command lines executed by this plugin so far.
+     */
+    List<String> getExecutedCommands() {
+        return Collections.unmodifiableList(executedCommands);
+    } // end method
+
+    /**
+     * Enables or disables this plugin.
+     *
+     * @param enabled Whether this plugin should be enabled.
+     */
+    void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    } // end method
+
+    @Override
+    public boolean onCommand(final CommandSender sender, final Command command, final String label, final String[] args) {
+        final StringBuilder line = new StringBuilder(command.getName());
+        for (final String arg : args) {
+            line.append(' ').append(arg);
+        }
+
+        executedCommands.add(line.toString());
+        return true;
+    } // end method
+
+    @Override
+    public List<String> onTabComplete(final CommandSender sender, final Command command, final String alias,
+                                      final String[] args) {
+        return new ArrayList<String>();
+    } // end method
+
+    @Override
+    public File getDataFolder() {
+        return new File("plugins", getName()); //NON-NLS
+    } // end method
+
+    @Override
+    public PluginDescriptionFile getDescription() {
+        return description;
+    } // end method
+
+    @Override
+    public FileConfiguration getConfig() {
+        return config;
+    } // end method
+
+    @Override
+    public InputStream getResource(final String filename) {
+        return null;
+    } // end method
+
+    @Override
+    public void saveConfig() {
+    } // end method
+
+    @Override
+    public void saveDefaultConfig() {
+    } // end method
+
+    @Override
+    public void saveResource(final String resourcePath, final boolean replace) {
+    } // end method
+
+    @Override
+    public void reloadConfig() {
+    } // end method
+
+    @Override
+    public PluginLoader getPluginLoader() {
+        return null;
+    } // end method
+
+    @Override
+    public Server getServer() {
+        return Bukkit.getServer();
+    } // end method
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    } // end method
+
+    @Override
+    public void onDisable() {
+    } // end method
+
+    @Override
+    public void onLoad() {
+    } // end method
+
+    @Override
+    public void onEnable() {
+    } // end method
+
+    @Override
+    public boolean isNaggable() {
+        return naggable;
+    } // end method
+
+    @Override
+    public void setNaggable(final boolean canNag) {
+        naggable = canNag;
+    } // end method
+
+    @Override
+    public ChunkGenerator getDefaultWorldGenerator(final String worldName, final String id) {
+        return null;
+    } // end method
+
+    @Override
+    public Logger getLogger() {
+        return Bukkit.getLogger();
+    } // end method
+
+} // end class
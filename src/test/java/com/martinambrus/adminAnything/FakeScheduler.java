@@ -0,0 +1,299 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Tick-driven stand-in for the Bukkit scheduler.
+ *
+ * Nothing runs on its own here. Tests advance server time via {@link #tick(long)}
+ * and all tasks that became due are then run on the calling thread, including
+ * asynchronous ones. This keeps everything deterministic, while delays
+ * (such as the 10 seconds AA waits after the server has loaded) still hold.
+ *
+ * @author Martin Ambrus
+ */
+final class FakeScheduler implements InvocationHandler {
+
+    /**
+     * All tasks which are still waiting to be run, keyed by their ID.
+     */
+    private final Map<Integer, Task> tasks = new TreeMap<Integer, Task>();
+
+    /**
+     * Current server tick.
+     */
+    private long currentTick = 0;
+
+    /**
+     * ID of the next task to be scheduled.
+     */
+    private int nextTaskId = 1;
+
+    /**
+     * Returns the current server tick.
+     *
+     * @return Returns the current server tick.
+     */
+    long getCurrentTick() {
+        return currentTick;
+    } // end method
+
+    /**
+     * Returns number of tasks which are still waiting to be run.
+     *
+     * @return Returns number of tasks which are still waiting to be run.
+     */
+    int getPendingTasksCount() {
+        return tasks.size();
+    } // end method
+
+    /**
+     * Advances the server time by the given number of ticks,
+     * running all tasks that become due along the way.
+     *
+     * @param ticks Number of ticks to advance the server by.
+     */
+    void tick(final long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            currentTick++;
+
+            // take a snapshot, since tasks can schedule new tasks
+            final List<Task> due = new ArrayList<Task>();
+            for (final Task task : tasks.values()) {
+                if (task.dueTick <= currentTick) {
+                    due.add(task);
+                }
+            }
+
+            for (final Task task : due) {
+                if (task.cancelled) {
+                    continue;
+                }
+
+                if (0 < task.period) {
+                    task.dueTick = currentTick + task.period;
+                } else {
+                    tasks.remove(task.id);
+                }
+
+                task.run();
+            }
+        }
+    } // end method
+
+    /**
+     * Handles all BukkitScheduler methods. All variants of runTask*() and schedule*()
+     * follow the same (plugin, task, [delay, [period]]) signature, so we can treat
+     * all of them the same way.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+        final String name = method.getName();
+
+        switch (name) {
+            case "callSyncMethod":
+                final FutureTask<?> future = new FutureTask<Object>((Callable<Object>) args[1]);
+                schedule((Plugin) args[0], future, 0, -1, true);
+                return future;
+
+            case "cancelTask":
+                final Task cancelled = tasks.remove((Integer) args[0]);
+                if (null != cancelled) {
+                    cancelled.cancelled = true;
+                }
+                return null;
+
+            case "cancelTasks":
+                final Iterator<Task> it = tasks.values().iterator();
+                while (it.hasNext()) {
+                    final Task queued = it.next();
+                    if (queued.owner == args[0]) {
+                        queued.cancelled = true;
+                        it.remove();
+                    }
+                }
+                return null;
+
+            case "isCurrentlyRunning":
+                return false;
+
+            case "isQueued":
+                return tasks.containsKey((Integer) args[0]);
+
+            case "getActiveWorkers":
+            case "getPendingTasks":
+                return new ArrayList<Object>();
+
+            case "hashCode":
+                return System.identityHashCode(proxy);
+
+            case "equals":
+                return proxy == args[0];
+
+            case "toString":
+                return "FakeScheduler"; //NON-NLS
+
+            default:
+                final long delay  = (2 < args.length) ? (Long) args[2] : 0;
+                final long period = (3 < args.length) ? (Long) args[3] : -1;
+                final Task task   = schedule((Plugin) args[0], args[1], delay, period, !name.contains("Async"));
+
+                if (int.class == method.getReturnType()) {
+                    return task.id;
+                } else if (BukkitTask.class == method.getReturnType()) {
+                    return task.asBukkitTask();
+                }
+
+                return null;
+        }
+    } // end method
+
+    /**
+     * Adds a new task to the queue.
+     *
+     * @param owner Plugin which scheduled this task.
+     * @param body A Runnable or a Consumer to run.
+     * @param delay Number of ticks to wait before running the task.
+     * @param period Number of ticks between repeated runs, -1 for a one-off task.
+     * @param sync Whether this was scheduled as a synchronous task.
+     *
+     * @return Returns the newly scheduled task.
+     */
+    private Task schedule(final Plugin owner, final Object body, final long delay, final long period, final boolean sync) {
+        final Task task = new Task(nextTaskId++, owner, body, currentTick + Math.max(1, delay), period, sync);
+        tasks.put(task.id, task);
+        return task;
+    } // end method
+
+    /**
+     * A single scheduled task.
+     */
+    private final class Task {
+
+        /**
+         * ID of this task.
+         */
+        private final int id;
+
+        /**
+         * Plugin which scheduled this task.
+         */
+        private final Plugin owner;
+
+        /**
+         * A Runnable or a Consumer&lt;BukkitTask&gt; to run.
+         */
+        private final Object body;
+
+        /**
+         * Number of ticks between repeated runs, -1 for a one-off task.
+         */
+        private final long period;
+
+        /**
+         * Whether this was scheduled as a synchronous task.
+         */
+        private final boolean sync;
+
+        /**
+         * Tick on which this task should run next.
+         */
+        private long dueTick;
+
+        /**
+         * Whether this task has been cancelled.
+         */
+        private boolean cancelled = false;
+
+        /**
+         * Proxy of the BukkitTask interface for this task, created lazily.
+         */
+        private BukkitTask bukkitTask = null;
+
+        private Task(final int id, final Plugin owner, final Object body, final long dueTick, final long period,
+                     final boolean sync) {
+            this.id = id;
+            this.owner = owner;
+            this.body = body;
+            this.dueTick = dueTick;
+            this.period = period;
+            this.sync = sync;
+        } // end method
+
+        /**
+         * Runs the task, logging any exception it might throw, just like the real scheduler would.
+         */
+        @SuppressWarnings("unchecked")
+        private void run() {
+            try {
+                if (body instanceof Runnable) {
+                    ((Runnable) body).run();
+                } else if (body instanceof Consumer) {
+                    ((Consumer<BukkitTask>) body).accept(asBukkitTask());
+                }
+            } catch (final Throwable e) {
+                Bukkit.getLogger().log(Level.WARNING,
+                    "Task #" + id + " for " + (null != owner ? owner.getName() : "?") + " generated an exception", e); //NON-NLS
+            }
+        } // end method
+
+        /**
+         * Returns this task as a BukkitTask.
+         *
+         * @return Returns this task as a BukkitTask.
+         */
+        private BukkitTask asBukkitTask() {
+            if (null == bukkitTask) {
+                bukkitTask = (BukkitTask) Proxy.newProxyInstance(
+                    BukkitTask.class.getClassLoader(), new Class<?>[] { BukkitTask.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                            switch (method.getName()) {
+                                case "getTaskId":
+                                    return id;
+
+                                case "getOwner":
+                                    return owner;
+
+                                case "isSync":
+                                    return sync;
+
+                                case "isCancelled":
+                                    return cancelled;
+
+                                case "cancel":
+                                    cancelled = true;
+                                    tasks.remove(id);
+                                    return null;
+
+                                case "hashCode":
+                                    return id;
+
+                                case "equals":
+                                    return proxy == args[0];
+
+                                default:
+                                    return FakeServer.defaultValue(method.getReturnType());
+                            }
+                        }
+                    });
+            }
+
+            return bukkitTask;
+        } // end method
+
+    } // end class
+
+} // end class
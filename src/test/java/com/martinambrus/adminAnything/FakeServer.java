@@ -0,0 +1,358 @@
+package com.martinambrus.adminAnything;
+
+import javassist.util.proxy.MethodFilter;
+import javassist.util.proxy.MethodHandler;
+import javassist.util.proxy.ProxyFactory;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandException;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.plugin.SimplePluginManager;
+import org.bukkit.plugin.SimpleServicesManager;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * In-process stand-in for the CraftBukkit server.
+ *
+ * Only the parts of the {@link org.bukkit.Server Server} interface
+ * AdminAnything actually talks to are implemented here, backed by real Bukkit
+ * API classes wherever possible ({@link org.bukkit.command.SimpleCommandMap SimpleCommandMap},
+ * {@link org.bukkit.plugin.SimplePluginManager SimplePluginManager} and
+ * {@link org.bukkit.plugin.SimpleServicesManager SimpleServicesManager}).
+ * Every other method returns an empty default value.
+ *
+ * The class is abstract and instantiated via javassist, so we don't need
+ * to keep up with each and every method added to the Server interface.
+ * Just like CraftServer, it keeps its command map in a field called
+ * <i>commandMap</i>, which is where {@link com.martinambrus.adminAnything.Commands}
+ * is pointed to by the {@link com.martinambrus.adminAnything.ServerHarness}.
+ *
+ * @author Martin Ambrus
+ */
+public abstract class FakeServer implements Server {
+
+    /**
+     * Server-wide command map, the same as in CraftServer.
+     */
+    private final SimpleCommandMap commandMap;
+
+    /**
+     * Plugin manager which registers listeners and calls events.
+     */
+    private final SimplePluginManager pluginManager;
+
+    /**
+     * Services manager, used to register our fake Vault permission provider.
+     */
+    private final SimpleServicesManager servicesManager = new SimpleServicesManager();
+
+    /**
+     * Tick-driven scheduler, advanced manually from tests.
+     */
+    private final FakeScheduler scheduler = new FakeScheduler();
+
+    /**
+     * Proxy of {@link org.bukkit.scheduler.BukkitScheduler BukkitScheduler}
+     * which delegates to our {@link com.martinambrus.adminAnything.FakeScheduler}.
+     */
+    private final BukkitScheduler schedulerProxy = (BukkitScheduler) Proxy.newProxyInstance(
+        BukkitScheduler.class.getClassLoader(), new Class<?>[] { BukkitScheduler.class }, scheduler);
+
+    /**
+     * All players currently "online", keyed by their lower-cased name.
+     */
+    private final Map<String, Player> onlinePlayers = new LinkedHashMap<String, Player>();
+
+    /**
+     * All loaded worlds, keyed by their name.
+     */
+    private final Map<String, World> worlds = new LinkedHashMap<String, World>();
+
+    /**
+     * The server console.
+     */
+    private final ConsoleCommandSender console;
+
+    /**
+     * Thread which created this server and which acts as the main server thread.
+     */
+    private final Thread primaryThread = Thread.currentThread();
+
+    /**
+     * Logger for the whole server, returned via Bukkit.getLogger().
+     */
+    private final Logger logger = Logger.getLogger("AdminAnythingTestServer"); //NON-NLS
+
+    /**
+     * Constructor, creates the command map and plugin manager.
+     * Instances are created via the {@link #create()} method only.
+     */
+    protected FakeServer() {
+        commandMap = new SimpleCommandMap(this);
+        pluginManager = new SimplePluginManager(this, commandMap);
+        console = (ConsoleCommandSender) Proxy.newProxyInstance(
+            ConsoleCommandSender.class.getClassLoader(),
+            new Class<?>[] { ConsoleCommandSender.class },
+            new ConsoleHandler());
+    } // end method
+
+    /**
+     * Creates a new fake server instance with all methods
+     * not implemented in this class returning default values.
+     *
+     * @return Returns a new fake server.
+     */
+    static FakeServer create() {
+        final ProxyFactory factory = new ProxyFactory();
+        factory.setSuperclass(FakeServer.class);
+        factory.setFilter(new MethodFilter() {
+            @Override
+            public boolean isHandled(final Method m) {
+                return Modifier.isAbstract(m.getModifiers());
+            }
+        });
+
+        try {
+            return (FakeServer) factory.create(new Class<?>[0], new Object[0], new MethodHandler() {
+                @Override
+                public Object invoke(final Object self, final Method thisMethod, final Method proceed, final Object[] args) {
+                    return defaultValue(thisMethod.getReturnType());
+                }
+            });
+        } catch (final Exception e) {
+            throw new IllegalStateException("Unable to create the fake server", e); //NON-NLS
+        }
+    } // end method
+
+    /**
+     * Returns an empty default value for the given return type.
+     *
+     * @param type The return type of a method we don't implement.
+     *
+     * @return Returns an empty default value for the given return type.
+     */
+    static Object defaultValue(final Class<?> type) {
+        if (boolean.class == type) {
+            return false;
+        } else if (int.class == type || short.class == type || byte.class == type) {
+            return 0;
+        } else if (long.class == type) {
+            return 0L;
+        } else if (double.class == type) {
+            return 0D;
+        } else if (float.class == type) {
+            return 0F;
+        } else if (char.class == type) {
+            return '\0';
+        } else if (List.class == type || Collection.class == type || Iterable.class == type) {
+            return new ArrayList<Object>();
+        } else if (Set.class == type) {
+            return new HashSet<Object>();
+        } else if (Map.class == type) {
+            return new HashMap<Object, Object>();
+        } else if (String.class == type) {
+            return "";
+        }
+
+        return null;
+    } // end method
+
+    /**
+     * Gives access to the scheduler implementation, so tests can advance time.
+     *
+     * @return Returns our tick-driven scheduler.
+     */
+    FakeScheduler getFakeScheduler() {
+        return scheduler;
+    } // end method
+
+    /**
+     * Gives access to the command map, so plugins can register their commands.
+     *
+     * @return Returns the server-wide command map.
+     */
+    SimpleCommandMap getFakeCommandMap() {
+        return commandMap;
+    } // end method
+
+    /**
+     * Puts a player online.
+     *
+     * @param player The player to put online.
+     */
+    void addOnlinePlayer(final Player player) {
+        onlinePlayers.put(player.getName().toLowerCase(), player);
+    } // end method
+
+    /**
+     * Takes a player offline.
+     *
+     * @param player The player to take offline.
+     */
+    void removeOnlinePlayer(final Player player) {
+        onlinePlayers.remove(player.getName().toLowerCase());
+    } // end method
+
+    /**
+     * Adds a world to the server.
+     *
+     * @param world The world to add.
+     */
+    void addWorld(final World world) {
+        worlds.put(world.getName(), world);
+    } // end method
+
+    @Override
+    public String getName() {
+        return "AdminAnythingTestServer"; //NON-NLS
+    } // end method
+
+    @Override
+    public String getVersion() {
+        return "harness (MC: 1.16.5)"; //NON-NLS
+    } // end method
+
+    @Override
+    public String getBukkitVersion() {
+        return "1.16.5-R0.1-SNAPSHOT"; //NON-NLS
+    } // end method
+
+    @Override
+    public Logger getLogger() {
+        return logger;
+    } // end method
+
+    @Override
+    public PluginManager getPluginManager() {
+        return pluginManager;
+    } // end method
+
+    @Override
+    public ServicesManager getServicesManager() {
+        return servicesManager;
+    } // end method
+
+    @Override
+    public BukkitScheduler getScheduler() {
+        return schedulerProxy;
+    } // end method
+
+    @Override
+    public boolean isPrimaryThread() {
+        return Thread.currentThread() == primaryThread;
+    } // end method
+
+    @Override
+    public ConsoleCommandSender getConsoleSender() {
+        return console;
+    } // end method
+
+    @Override
+    public PluginCommand getPluginCommand(final String name) {
+        final Command command = commandMap.getCommand(name);
+        return command instanceof PluginCommand ? (PluginCommand) command : null;
+    } // end method
+
+    @Override
+    public boolean dispatchCommand(final CommandSender sender, final String commandLine) throws CommandException {
+        return commandMap.dispatch(sender, commandLine);
+    } // end method
+
+    @Override
+    public Collection<? extends Player> getOnlinePlayers() {
+        return Collections.unmodifiableCollection(new ArrayList<Player>(onlinePlayers.values()));
+    } // end method
+
+    @Override
+    public Player getPlayer(final String name) {
+        return onlinePlayers.get(name.toLowerCase());
+    } // end method
+
+    @Override
+    public Player getPlayerExact(final String name) {
+        return onlinePlayers.get(name.toLowerCase());
+    } // end method
+
+    @Override
+    public Player getPlayer(final UUID id) {
+        for (final Player p : onlinePlayers.values()) {
+            if (p.getUniqueId().equals(id)) {
+                return p;
+            }
+        }
+
+        return null;
+    } // end method
+
+    @Override
+    public List<World> getWorlds() {
+        return new ArrayList<World>(worlds.values());
+    } // end method
+
+    @Override
+    public World getWorld(final String name) {
+        return worlds.get(name);
+    } // end method
+
+    /**
+     * Handles calls to the server console, which has all permissions
+     * and logs all messages sent to it.
+     */
+    private final class ConsoleHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            switch (method.getName()) {
+                case "getName":
+                    return "CONSOLE"; //NON-NLS
+
+                case "getServer":
+                    return FakeServer.this;
+
+                case "isOp":
+                case "hasPermission":
+                case "isPermissionSet":
+                    return true;
+
+                case "sendMessage":
+                case "sendRawMessage":
+                    if (args[args.length - 1] instanceof String[]) {
+                        for (final String line : (String[]) args[args.length - 1]) {
+                            logger.info(line);
+                        }
+                    } else {
+                        logger.info(String.valueOf(args[args.length - 1]));
+                    }
+                    return null;
+
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+
+                case "equals":
+                    return proxy == args[0];
+
+                case "toString":
+                    return "FakeConsole"; //NON-NLS
+
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        } // end method
+
+    } // end class
+
+} // end class
@@ -0,0 +1,73 @@
+package com.martinambrus.adminAnything;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the lock-free {@link com.martinambrus.adminAnything.LatencyHistogram} used by /aa_stats.
+ *
+ * @author Martin Ambrus
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverValuesWithinPrecision() {
+        for (long value = 0; value < TimeUnit.SECONDS.toNanos(10); value = value * 3 + 1) {
+            final long upperBound = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketFor(value));
+            assertTrue(upperBound >= value);
+            assertTrue("bucket for " + value + " is too wide", upperBound - value <= value / 8); //NON-NLS
+        }
+    } // end method
+
+    @Test
+    public void percentilesAreCalculated() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), histogram.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500), histogram.getPercentileNanos(50), 500 * 1000 / 8);
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(990), histogram.getPercentileNanos(99), 990 * 1000 / 8);
+        assertEquals(histogram.getMaxNanos(), histogram.getPercentileNanos(100));
+    } // end method
+
+    @Test
+    public void emptyHistogramReportsZeroes() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getAverageNanos());
+    } // end method
+
+    @Test
+    public void concurrentRecordingLosesNoSamples() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, histogram.getCount());
+        assertEquals(99999, histogram.getMaxNanos());
+    } // end method
+
+} // end class
@@ -0,0 +1,83 @@
+package com.martinambrus.adminAnything;
+
+import com.martinambrus.adminAnything.instrumentation.LibraryResolver;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for verification of the javassist library by
+ * {@link com.martinambrus.adminAnything.instrumentation.LibraryResolver}.
+ *
+ * @author Martin Ambrus
+ */
+public class LibraryResolverTest {
+
+    private static final byte[] LIBRARY = "not really javassist".getBytes(StandardCharsets.UTF_8); //NON-NLS
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness();
+
+    private static String pinned;
+
+    private File javassist;
+
+    @Before
+    public void placeLibrary() throws IOException {
+        if (null == pinned) {
+            pinned = AA_API.getConfigString("libraries.javassistSha256"); //NON-NLS
+        }
+
+        final File folder = new LibraryResolver(harness.getPlugin()).getLibraryFolder();
+        assertTrue(folder.isDirectory() || folder.mkdirs());
+
+        javassist = new File(folder, "javassist.jar"); //NON-NLS
+        Files.write(javassist.toPath(), LIBRARY);
+    } // end method
+
+    @Test
+    public void libraryNotMatchingTheShippedChecksumIsRejected() {
+        assertFalse(new LibraryResolver(harness.getPlugin()).isJavassistAvailable());
+        assertNull(new LibraryResolver(harness.getPlugin()).resolveJavassist());
+
+        // nothing gets trusted on first use
+        assertArrayEquals(new String[] { "javassist.jar" }, javassist.getParentFile().list()); //NON-NLS
+        assertNull(new LibraryResolver(harness.getPlugin()).resolveJavassist());
+    } // end method
+
+    @Test
+    public void libraryMatchingItsPinnedChecksumIsUsed() throws NoSuchAlgorithmException {
+        final StringBuilder hash = new StringBuilder();
+        for (final byte b : MessageDigest.getInstance("SHA-256").digest(LIBRARY)) { //NON-NLS
+            hash.append(String.format("%02x", b)); //NON-NLS
+        }
+
+        harness.getPlugin().getExternalConf().set("libraries.javassistSha256", hash.toString()); //NON-NLS
+        try {
+            assertTrue(new LibraryResolver(harness.getPlugin()).isJavassistAvailable());
+            assertEquals(javassist, new LibraryResolver(harness.getPlugin()).resolveJavassist());
+        } finally {
+            harness.getPlugin().getExternalConf().set("libraries.javassistSha256", pinned); //NON-NLS
+        }
+    } // end method
+
+    @Test
+    public void libraryWithoutPinnedChecksumIsRejected() {
+        harness.getPlugin().getExternalConf().set("libraries.javassistSha256", ""); //NON-NLS
+        try {
+            assertNull(new LibraryResolver(harness.getPlugin()).resolveJavassist());
+        } finally {
+            harness.getPlugin().getExternalConf().set("libraries.javassistSha256", pinned); //NON-NLS
+        }
+    } // end method
+
+} // end class
@@ -0,0 +1,73 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the compiled permdescriptions.yml representation
+ * in {@link com.martinambrus.adminAnything.ManualPermDescriptions}.
+ *
+ * @author Martin Ambrus
+ */
+public class ManualPermDescriptionsTest {
+
+    private static final String YAML = "manualPermissions:\n" //NON-NLS
+        + "  essentials:\n" //NON-NLS
+        + "    afk:\n" //NON-NLS
+        + "    - essentials.afk=Allow access to the /afk command.\n" //NON-NLS
+        + "    - essentials.afk.others\n" //NON-NLS
+        + "  plugman:\n" //NON-NLS
+        + "    plugman help:\n" //NON-NLS
+        + "    - $Shows PlugMan help.\n" //NON-NLS
+        + "    - plugman.help=Allows to view help.\n"; //NON-NLS
+
+    private static ManualPermDescriptions compile() throws Exception {
+        final YamlConfiguration conf = new YamlConfiguration();
+        conf.loadFromString(YAML);
+        return ManualPermDescriptions.compile(conf.getConfigurationSection("manualPermissions")); //NON-NLS
+    } // end method
+
+    @Test
+    public void commandsAndPermissionsAreCompiled() throws Exception {
+        final ManualPermDescriptions descriptions = compile();
+
+        final int afk = descriptions.findCommand("essentials", "afk"); //NON-NLS
+        assertEquals(2, descriptions.getPermissionCount(afk));
+        assertEquals("essentials.afk", descriptions.getPermission(afk, 0)); //NON-NLS
+        assertEquals("Allow access to the /afk command.", descriptions.getPermissionDescription(afk, 0)); //NON-NLS
+        assertEquals("essentials.afk.others", descriptions.getPermission(afk, 1)); //NON-NLS
+        assertNull(descriptions.getPermissionDescription(afk, 1));
+        assertNull(descriptions.getCommandDescription(afk));
+
+        final int help = descriptions.findCommand("plugman", "plugman help"); //NON-NLS
+        assertEquals("Shows PlugMan help.", descriptions.getCommandDescription(help)); //NON-NLS
+        assertEquals(1, descriptions.getPermissionCount(help));
+
+        assertEquals(-1, descriptions.findCommand("essentials", "nope")); //NON-NLS
+        assertEquals(0, descriptions.getPermissionCount(-1));
+        assertEquals(2, descriptions.getPluginNames().size());
+    } // end method
+
+    @Test
+    public void cacheIsOnlyUsedForTheSameSources() throws Exception {
+        final File cacheFile = File.createTempFile("permdescriptions", ".cache"); //NON-NLS
+        cacheFile.deleteOnExit();
+
+        final byte[] hash = ManualPermDescriptions.hashSources(YAML.getBytes(StandardCharsets.UTF_8), null);
+        compile().writeCache(cacheFile, hash);
+
+        final ManualPermDescriptions cached = ManualPermDescriptions.readCache(cacheFile, hash);
+        assertNotNull(cached);
+        assertEquals("plugman.help", cached.getPermission(cached.findCommand("plugman", "plugman help"), 0)); //NON-NLS
+        assertEquals(compile().getCommandNames("essentials"), cached.getCommandNames("essentials")); //NON-NLS
+
+        final byte[] changedHash = ManualPermDescriptions.hashSources((YAML + "#").getBytes(StandardCharsets.UTF_8), null);
+        assertNull(ManualPermDescriptions.readCache(cacheFile, changedHash));
+    } // end method
+
+} // end class
@@ -0,0 +1,225 @@
+package com.martinambrus.adminAnything;
+
+import com.martinambrus.adminAnything.commands.Aa_mutecommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for transforming and restoring server classes by {@link com.martinambrus.adminAnything.commands.Aa_mutecommand}
+ * as mutes get added and removed at runtime.
+ *
+ * The harness has no real server classes and we cannot attach an agent here, so an attached agent
+ * is simulated by publishing a fake {@link java.lang.instrument.Instrumentation} instance
+ * the same way our agent does.
+ *
+ * @author Martin Ambrus
+ */
+public class MuteInstrumentationTest {
+
+    /**
+     * System property under which our attached agent publishes its instrumentation instance.
+     */
+    private static final String INSTRUMENTATION_PROPERTY = "com.martinambrus.adminAnything.instrumentation"; //NON-NLS
+
+    /**
+     * A sender type no server class belongs to, so nothing needs to be redefined
+     * and the transformation succeeds without any server classes present.
+     */
+    private static final List<String> NO_SERVER_CLASSES = Arrays.asList("nobody"); //NON-NLS
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness();
+
+    private static final FakePlugin spawns;
+
+    private static final FakeInstrumentation instrumentation = new FakeInstrumentation();
+
+    private static List<String> defaultSenderTypes;
+
+    static {
+        spawns = harness.addPlugin("Spawns", "spawn", "hub"); //NON-NLS
+    }
+
+    @Before
+    public void attachAgent() throws IOException {
+        if (null == defaultSenderTypes) {
+            defaultSenderTypes = new ArrayList<String>(AA_API.getConfigStringList("mutecommandSenderTypes")); //NON-NLS
+        }
+
+        // start every test with original server classes and nothing muted
+        instrumentation.failing = false;
+        System.getProperties().put(INSTRUMENTATION_PROPERTY, instrumentation.proxy);
+        Aa_mutecommand.restoreCBMC();
+        setMutes("");
+        Aa_mutecommand.retransformationTried = false;
+
+        instrumentation.transformations = 0;
+        instrumentation.redefinitions = 0;
+    } // end method
+
+    @After
+    public void restoreSenderTypes() {
+        harness.getPlugin().getExternalConf().set("mutecommandSenderTypes", defaultSenderTypes); //NON-NLS
+    } // end method
+
+    @Test
+    public void mutedCommandTransformsClassesAtRuntime() throws IOException {
+        harness.getPlugin().getExternalConf().set("mutecommandSenderTypes", NO_SERVER_CLASSES); //NON-NLS
+        setMutes("spawn"); //NON-NLS
+
+        assertEquals(1, instrumentation.transformations);
+        assertTrue(Aa_mutecommand.retransformed);
+
+        // transformed classes mute the output, so the server can run the command itself
+        final Player player = harness.addPlayer("Alice"); //NON-NLS
+        assertFalse(harness.playerCommand(player, "/spawn").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void failedTransformationKeepsTheVirtualSenderFallback() throws IOException {
+        // none of the server classes exist in the harness, so they cannot be redefined
+        setMutes("spawn"); //NON-NLS
+
+        assertEquals(1, instrumentation.transformations);
+        assertFalse(Aa_mutecommand.retransformed);
+
+        final Player player = harness.addPlayer("Bob"); //NON-NLS
+        final int executed = spawns.getExecutedCommands().size();
+        final PlayerCommandPreprocessEvent e = harness.playerCommand(player, "/spawn"); //NON-NLS
+        harness.tick(1);
+
+        assertTrue(e.isCancelled());
+        assertEquals(executed + 1, spawns.getExecutedCommands().size());
+    } // end method
+
+    @Test
+    public void missingLibraryKeepsTheVirtualSenderFallback() throws IOException {
+        // no agent attached and no javassist library to attach it with
+        System.getProperties().remove(INSTRUMENTATION_PROPERTY);
+        harness.getPlugin().getExternalConf().set("mutecommandSenderTypes", NO_SERVER_CLASSES); //NON-NLS
+        setMutes("spawn"); //NON-NLS
+
+        assertEquals(0, instrumentation.transformations);
+        assertFalse(Aa_mutecommand.retransformed);
+        assertTrue(harness.playerCommand(harness.addPlayer("Carol"), "/spawn").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test
+    public void unmutingRestoresClassesAndMutingTransformsThemAgain() throws IOException {
+        harness.getPlugin().getExternalConf().set("mutecommandSenderTypes", NO_SERVER_CLASSES); //NON-NLS
+        setMutes("spawn"); //NON-NLS
+        assertTrue(Aa_mutecommand.retransformed);
+
+        setMutes("");
+        assertEquals(1, instrumentation.redefinitions);
+        assertFalse(Aa_mutecommand.retransformed);
+
+        // the agent stays attached, so classes get transformed again right away
+        setMutes("hub"); //NON-NLS
+        assertEquals(2, instrumentation.transformations);
+        assertTrue(Aa_mutecommand.retransformed);
+    } // end method
+
+    @Test
+    public void failedRestoreKeepsClassesTransformed() throws IOException {
+        harness.getPlugin().getExternalConf().set("mutecommandSenderTypes", NO_SERVER_CLASSES); //NON-NLS
+        setMutes("spawn"); //NON-NLS
+
+        instrumentation.failing = true;
+        setMutes("");
+
+        assertTrue(Aa_mutecommand.retransformed);
+    } // end method
+
+    /**
+     * Replaces all muted commands by editing their config file, the same way
+     * a server admin would do it while the server is running.
+     *
+     * @param mutes Comma-separated list of commands to mute.
+     *
+     * @throws IOException When the config file cannot be written.
+     */
+    private static void setMutes(final String mutes) throws IOException {
+        final File mutesFile = new File(harness.getDataFolder(), "command_mutes.yml"); //NON-NLS
+        Files.write(mutesFile.toPath(), ("commands: [" + mutes + ']').getBytes(StandardCharsets.UTF_8)); //NON-NLS
+
+        new ConfigFileWatcher(harness.getPlugin(), harness.getPlugin().getCommandListenersUtils())
+            .reloadFile("command_mutes.yml"); //NON-NLS
+        harness.tick(1);
+    } // end method
+
+    /**
+     * A fake {@link java.lang.instrument.Instrumentation} which only counts
+     * the transformations and class redefinitions done with it.
+     */
+    private static final class FakeInstrumentation implements InvocationHandler {
+
+        /**
+         * The actual instrumentation instance handled by this fake.
+         */
+        private final Instrumentation proxy = (Instrumentation) Proxy.newProxyInstance(
+            Instrumentation.class.getClassLoader(), new Class<?>[] { Instrumentation.class }, this);
+
+        /**
+         * Number of transformers added, i.e. transformations attempted.
+         */
+        private int transformations = 0;
+
+        /**
+         * Number of successful redefinitions of classes.
+         */
+        private int redefinitions = 0;
+
+        /**
+         * Whether redefining classes should fail.
+         */
+        private boolean failing = false;
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws UnmodifiableClassException {
+            switch (method.getName()) {
+                case "addTransformer": //NON-NLS
+                    transformations++;
+                    return null;
+
+                case "redefineClasses": //NON-NLS
+                    if (failing) {
+                        throw new UnmodifiableClassException();
+                    }
+
+                    redefinitions++;
+                    return null;
+
+                case "hashCode": //NON-NLS
+                    return System.identityHashCode(proxy);
+
+                case "equals": //NON-NLS
+                    return proxy == args[0];
+
+                default:
+                    return FakeServer.defaultValue(method.getReturnType());
+            }
+        } // end method
+
+    } // end class
+
+} // end class
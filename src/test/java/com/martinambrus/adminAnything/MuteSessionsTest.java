@@ -0,0 +1,99 @@
+package com.martinambrus.adminAnything;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link com.martinambrus.adminAnything.MuteSessions} registry used by /aa_mutecommand.
+ *
+ * @author Martin Ambrus
+ */
+public class MuteSessionsTest {
+
+    @After
+    public void clearSessions() {
+        MuteSessions.clear();
+    } // end method
+
+    @Test
+    public void nothingIsMutedWithoutSessions() {
+        MuteSessions.clear();
+
+        assertFalse(MuteSessions.isActive());
+        assertFalse(MuteSessions.shouldMuteMessage("org.example.Warps")); //NON-NLS
+        assertFalse(MuteSessions.shouldMuteLogRecord());
+    } // end method
+
+    @Test
+    public void firstSenderOfDispatchingThreadIsCaptured() {
+        MuteSessions.start("warp spawn", true); //NON-NLS
+
+        assertTrue(MuteSessions.isActive());
+        assertTrue(((AtomicBoolean) System.getProperties().get(MuteSessions.ACTIVE_PROPERTY)).get());
+        assertTrue(MuteSessions.shouldMuteLogRecord());
+
+        // inner classes are muted together with their main class
+        assertTrue(MuteSessions.shouldMuteMessage("org.example.Warps$1")); //NON-NLS
+        assertTrue(MuteSessions.shouldMuteMessage("org.example.Warps")); //NON-NLS
+
+        // only the first class gets captured
+        assertFalse(MuteSessions.shouldMuteMessage("org.example.Chat")); //NON-NLS
+    } // end method
+
+    @Test
+    public void endedSessionStopsMutingItsThread() {
+        MuteSessions.start("warp spawn", false); //NON-NLS
+        assertTrue(MuteSessions.shouldMuteLogRecord());
+
+        MuteSessions.end();
+
+        // unrelated output logged after the dispatch finished is left alone
+        assertFalse(MuteSessions.shouldMuteLogRecord());
+        assertFalse(MuteSessions.isActive());
+    } // end method
+
+    @Test
+    public void endingAnOlderSessionKeepsTheNewerOneRunning() {
+        // two muted commands dispatched by the server within the same tick,
+        // both having their sessions ended on the next tick
+        final MuteSessions.Session warp = MuteSessions.start("warp spawn", true); //NON-NLS
+        final MuteSessions.Session home = MuteSessions.start("home", true); //NON-NLS
+
+        MuteSessions.end(warp);
+        assertEquals("home", MuteSessions.getThreadMute()); //NON-NLS
+        assertTrue(MuteSessions.isActive());
+
+        MuteSessions.end(home);
+        assertNull(MuteSessions.getThreadMute());
+        assertFalse(MuteSessions.isActive());
+    } // end method
+
+    @Test
+    public void sessionsAreScopedToTheirThread() throws InterruptedException {
+        final boolean[] muted = new boolean[2];
+        final Thread dispatcher = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                MuteSessions.start("warp spawn", false); //NON-NLS
+                muted[0] = MuteSessions.shouldMuteLogRecord();
+            }
+
+        });
+
+        dispatcher.start();
+        dispatcher.join();
+
+        assertTrue(muted[0]);
+        assertTrue(MuteSessions.isActive());
+
+        // log records of other threads are left alone and override sessions don't capture anything
+        assertFalse(MuteSessions.shouldMuteLogRecord());
+        assertFalse(MuteSessions.shouldMuteMessage("org.example.Warps")); //NON-NLS
+    } // end method
+
+} // end class
@@ -0,0 +1,66 @@
+package com.martinambrus.adminAnything;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link com.martinambrus.adminAnything.MutedOutputLog} ring buffers used by /aa_mutelog.
+ *
+ * @author Martin Ambrus
+ */
+public class MutedOutputLogTest {
+
+    @After
+    public void clearLog() {
+        MutedOutputLog.clear();
+    } // end method
+
+    @Test
+    public void onlyConfiguredCommandsAreCaptured() {
+        MutedOutputLog.load(Arrays.asList("/Warp", "vote"), 10); //NON-NLS
+
+        MutedOutputLog.capture("warp", "Teleporting to spawn..."); //NON-NLS
+        MutedOutputLog.capture("home", "Teleporting home..."); //NON-NLS
+        MutedOutputLog.capture(null, "Nobody muted this"); //NON-NLS
+
+        assertTrue(MutedOutputLog.isCaptured("WARP")); //NON-NLS
+        assertFalse(MutedOutputLog.isCaptured("home")); //NON-NLS
+        assertEquals(1, MutedOutputLog.getEntries("/warp").size()); //NON-NLS
+        assertEquals("Teleporting to spawn...", MutedOutputLog.getEntries("warp").get(0).getLine()); //NON-NLS
+        assertTrue(MutedOutputLog.getEntries("home").isEmpty()); //NON-NLS
+        assertEquals(Collections.singletonList("warp"), MutedOutputLog.getCapturedCommands()); //NON-NLS
+    } // end method
+
+    @Test
+    public void oldestLinesAreDroppedWhenFull() {
+        MutedOutputLog.load(Collections.singletonList("*"), 3);
+
+        for (int i = 1; i <= 5; i++) {
+            MutedOutputLog.capture("vote", "line " + i); //NON-NLS
+        }
+
+        final List<MutedOutputLog.Entry> entries = MutedOutputLog.getEntries("vote"); //NON-NLS
+        assertEquals(3, entries.size());
+        assertEquals("line 3", entries.get(0).getLine()); //NON-NLS
+        assertEquals("line 5", entries.get(2).getLine()); //NON-NLS
+        assertEquals(2L, MutedOutputLog.getDropped("vote")); //NON-NLS
+    } // end method
+
+    @Test
+    public void multiLineMessagesAreCapturedLineByLine() {
+        MutedOutputLog.load(Collections.singletonList("warp"), 10); //NON-NLS
+
+        MutedOutputLog.capture("warp", new Object[] { new String[] { "first", "second" } }); //NON-NLS
+        MutedOutputLog.capture("warp", new Object[] { 42 }); //NON-NLS
+
+        assertEquals(2, MutedOutputLog.getEntries("warp").size()); //NON-NLS
+        assertEquals("second", MutedOutputLog.getEntries("warp").get(1).getLine()); //NON-NLS
+    } // end method
+
+} // end class
@@ -0,0 +1,80 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.ChatColor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Aho-Corasick based {@link com.martinambrus.adminAnything.OutputPatternMatcher}
+ * used to mute plugin output lines.
+ *
+ * @author Martin Ambrus
+ */
+public class OutputPatternMatcherTest {
+
+    @Test
+    public void literalPatternsMatchAnywhereIgnoringCaseAndColors() {
+        final OutputPatternMatcher matcher = new OutputPatternMatcher(Arrays.asList("[AutoMessage]", "voted")); //NON-NLS
+
+        assertTrue(matcher.matches("[automessage] Visit our website!")); //NON-NLS
+        assertTrue(matcher.matches(ChatColor.GOLD + "Bob has " + ChatColor.RED + "VOTED" + ChatColor.RESET + " for us")); //NON-NLS
+        assertFalse(matcher.matches("Bob has joined the game")); //NON-NLS
+        assertFalse(matcher.matches("")); //NON-NLS
+        assertFalse(matcher.matches(null));
+    } // end method
+
+    @Test
+    public void wildcardPartsMustMatchInOrderWithoutOverlapping() {
+        final OutputPatternMatcher matcher = new OutputPatternMatcher(Arrays.asList("joined the * arena", "ab*ab")); //NON-NLS
+
+        assertTrue(matcher.matches("Bob joined the PvP arena!")); //NON-NLS
+        assertTrue(matcher.matches("Bob joined the  arena")); //NON-NLS
+        assertFalse(matcher.matches("arena joined the party")); //NON-NLS
+
+        assertTrue(matcher.matches("xxabyyab")); //NON-NLS
+        assertTrue(matcher.matches("abab")); //NON-NLS
+        assertFalse(matcher.matches("aab")); //NON-NLS
+        assertFalse(matcher.matches("aba")); //NON-NLS
+    } // end method
+
+    @Test
+    public void patternsSharingPrefixesAndSuffixesAreAllFound() {
+        final OutputPatternMatcher matcher = new OutputPatternMatcher(Arrays.asList("he", "she", "his", "hers")); //NON-NLS
+
+        assertTrue(matcher.matches("ushers")); //NON-NLS
+        assertTrue(matcher.matches("this")); //NON-NLS
+        assertFalse(matcher.matches("hxs")); //NON-NLS
+    } // end method
+
+    @Test
+    public void wildcardOnlyPatternsAreIgnored() {
+        assertFalse(OutputPatternMatcher.isValidPattern("**")); //NON-NLS
+        assertFalse(OutputPatternMatcher.isValidPattern("")); //NON-NLS
+        assertFalse(OutputPatternMatcher.isValidPattern(null));
+
+        final OutputPatternMatcher matcher = new OutputPatternMatcher(Arrays.asList("*", "lag*")); //NON-NLS
+        assertEquals(Collections.singletonList("lag*"), matcher.getPatterns()); //NON-NLS
+        assertFalse(matcher.matches("anything at all")); //NON-NLS
+        assertTrue(matcher.matches("Server lag detected")); //NON-NLS
+    } // end method
+
+    @Test
+    public void manyPatternsAreMatchedInOnePass() {
+        final List<String> patterns = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            patterns.add("[Broadcast " + i + "]*tip"); //NON-NLS
+        }
+
+        final OutputPatternMatcher matcher = new OutputPatternMatcher(patterns);
+        assertTrue(matcher.matches("[Broadcast 4999] Here is a tip!")); //NON-NLS
+        assertFalse(matcher.matches("[Broadcast 5000] Here is a tip!")); //NON-NLS
+        assertFalse(matcher.matches("[Broadcast 42] Here is some news!")); //NON-NLS
+    } // end method
+
+} // end class
@@ -0,0 +1,62 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the plugin and player permission lookups of {@link com.martinambrus.adminAnything.PermissionIndex}.
+ *
+ * @author Martin Ambrus
+ */
+public class PermissionIndexTest {
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness();
+
+    private static final FakePlugin warps;
+
+    static {
+        warps = harness.addPlugin("Warps"); //NON-NLS
+        harness.addCommand(warps, "warp", "warps.use", "warps"); //NON-NLS
+        harness.addCommand(warps, "setwarp", "warps.admin"); //NON-NLS
+    }
+
+    @Test
+    public void pluginPermissionsAreIndexedWithTheirCommands() throws Exception {
+        final PermissionIndex index = harness.getPlugin().getPermissionIndex();
+
+        assertEquals(Arrays.asList("warps.admin", "warps.use"), index.findPluginPermissions(warps, "")); //NON-NLS
+        assertEquals(Collections.singletonList("warps.admin"), index.findPluginPermissions(warps, "admin")); //NON-NLS
+        assertTrue(index.getPermissionCommands(warps, "warps.use").contains("warp")); //NON-NLS
+        assertFalse(index.getPermissionCommands(warps, "warps.use").contains("setwarp")); //NON-NLS
+
+        // commands added by a plugin which got enabled are picked up
+        harness.addCommand(warps, "delwarp", "warps.delete"); //NON-NLS
+        Bukkit.getPluginManager().callEvent(new PluginEnableEvent(warps));
+
+        assertTrue(index.findPluginPermissions(warps, "").contains("warps.delete")); //NON-NLS
+        assertTrue(index.getPermissionCommands(warps, "warps.delete").contains("delwarp")); //NON-NLS
+    } // end method
+
+    @Test
+    public void playerPermissionsAreRecomputedWhenTheyChange() {
+        final PermissionIndex index = harness.getPlugin().getPermissionIndex();
+        final Player quinn = harness.addPlayer("Quinn"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Quinn", "warps.use"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Quinn", "Homes.home"); //NON-NLS
+
+        assertEquals(Arrays.asList("Homes.home", "warps.use"), index.getPlayerPermissions(quinn)); //NON-NLS
+
+        harness.getPermissions().playerAdd((String) null, "Quinn", "warps.admin"); //NON-NLS
+        assertEquals(Arrays.asList("Homes.home", "warps.admin", "warps.use"), index.getPlayerPermissions(quinn)); //NON-NLS
+    } // end method
+
+} // end class
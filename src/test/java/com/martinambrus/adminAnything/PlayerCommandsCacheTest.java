@@ -0,0 +1,102 @@
+package com.martinambrus.adminAnything;
+
+import com.martinambrus.adminAnything.commands.PlayerCommandsCache;
+import com.martinambrus.adminAnything.events.AAReloadEvent;
+import com.martinambrus.adminAnything.events.AASaveCommandHelpDisablesEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the cached command views of {@link com.martinambrus.adminAnything.commands.PlayerCommandsCache}
+ * used by /aa_playercommands.
+ *
+ * @author Martin Ambrus
+ */
+public class PlayerCommandsCacheTest {
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness()
+        .withConfigFile("command_removals.yml", "commands: [delwarp]") //NON-NLS
+        .withConfigFile("command_help_disabled.yml", "commands: [global.setwarp]"); //NON-NLS
+
+    private static PlayerCommandsCache cache;
+
+    static {
+        final FakePlugin warps = harness.addPlugin("Warps"); //NON-NLS
+        harness.addCommand(warps, "warp", "warps.use"); //NON-NLS
+        harness.addCommand(warps, "setwarp", "warps.admin"); //NON-NLS
+        harness.addCommand(warps, "delwarp", "warps.admin"); //NON-NLS
+
+        harness.getPermissions()
+               .group("default") //NON-NLS
+               .group("helpers", "warps.use"); //NON-NLS
+    }
+
+    @BeforeClass
+    public static void registerCache() {
+        cache = new PlayerCommandsCache();
+        Bukkit.getPluginManager().registerEvents(cache, harness.getPlugin());
+    } // end method
+
+    @Test
+    public void playerPermissionsCombineGroupViewAndOwnPermissions() throws Exception {
+        final Player olivia = harness.addPlayer("Olivia", "helpers"); //NON-NLS
+        final Player peter = harness.addPlayer("Peter", "default"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Olivia", "warps.admin"); //NON-NLS
+
+        final List<String> commandNames = new ArrayList<String>();
+        for (final PlayerCommandsCache.CommandEntry command : cache.getCommands()) {
+            commandNames.add(command.getClearCommandName());
+        }
+
+        assertTrue(commandNames.contains("warp")); //NON-NLS
+        assertTrue(commandNames.contains("setwarp")); //NON-NLS
+        assertFalse(commandNames.contains("delwarp")); //NON-NLS
+
+        final Set<String> oliviaPerms = cache.getPlayerPermissions(olivia);
+        assertTrue(oliviaPerms.contains("warps.use")); //NON-NLS
+        assertTrue(oliviaPerms.contains("warps.admin")); //NON-NLS
+
+        final Set<String> peterPerms = cache.getPlayerPermissions(peter);
+        assertFalse(peterPerms.contains("warps.use")); //NON-NLS
+        assertFalse(peterPerms.contains("warps.admin")); //NON-NLS
+    } // end method
+
+    @Test
+    public void wildcardAndSecondaryGroupGrantsAreHonoured() throws Exception {
+        harness.getPermissions().group("warpers", "warps.*"); //NON-NLS
+        final Player rachel = harness.addPlayer("Rachel", "default", "warpers"); //NON-NLS
+        cache.getCommands();
+
+        final Set<String> rachelPerms = cache.getPlayerPermissions(rachel);
+        assertTrue(rachelPerms.contains("warps.use")); //NON-NLS
+        assertTrue(rachelPerms.contains("warps.admin")); //NON-NLS
+    } // end method
+
+    @Test
+    public void commandsAreRebuiltOnlyWhenRulesChange() throws Exception {
+        final List<PlayerCommandsCache.CommandEntry> commands = cache.getCommands();
+        assertSame(commands, cache.getCommands());
+
+        Bukkit.getPluginManager().callEvent(new AAReloadEvent("checkcommandconflicts")); //NON-NLS
+        assertNotSame(commands, cache.getCommands());
+    } // end method
+
+    @Test
+    public void hiddenCommandsDoNotGrowOnRepeatedSaves() {
+        for (int i = 0; i < 3; i++) {
+            Bukkit.getPluginManager().callEvent(new AASaveCommandHelpDisablesEvent(Bukkit.getConsoleSender()));
+            assertEquals(1, cache.getHiddenCommands().get("global").size()); //NON-NLS
+        }
+    } // end method
+
+} // end class
@@ -0,0 +1,100 @@
+package com.martinambrus.adminAnything;
+
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for resolving members via {@link com.martinambrus.adminAnything.ReflectionRegistry},
+ * using stub classes in place of the server internals.
+ *
+ * @author Martin Ambrus
+ */
+public class ReflectionRegistryTest {
+
+    /**
+     * Stands in for a server class with private and final fields, such as RegisteredListener.
+     */
+    public static class Stub {
+
+        private final CharSequence name;
+
+        private final boolean flag;
+
+        Stub(final CharSequence name) {
+            this.name = name;
+            flag = name.length() > 100;
+        }
+
+        boolean isFlag() {
+            return flag;
+        }
+
+        public String describe(final Object suffix) {
+            return name + " " + suffix; //NON-NLS
+        }
+
+    } // end class
+
+    /**
+     * Stands in for a server fork subclassing a server class.
+     */
+    private static final class SubStub extends Stub {
+
+        SubStub(final CharSequence name) {
+            super(name);
+        }
+
+    } // end class
+
+    @Test
+    public void getterIsCalledWithItsCallSiteType() throws Throwable {
+        final MethodHandle getter = ReflectionRegistry.getter("Stub.name", Stub.class, "name", //NON-NLS
+            MethodType.methodType(String.class, Object.class));
+
+        assertEquals("stub", (String) getter.invokeExact((Object) new Stub("stub"))); //NON-NLS
+    } // end method
+
+    @Test
+    public void getterFindsFieldsOfSuperclasses() throws Throwable {
+        final MethodHandle getter = ReflectionRegistry.getter("SubStub.name", SubStub.class, "name", //NON-NLS
+            MethodType.methodType(CharSequence.class, SubStub.class));
+
+        assertEquals("fork", (CharSequence) getter.invokeExact(new SubStub("fork"))); //NON-NLS
+    } // end method
+
+    @Test
+    public void setterChangesFinalFields() throws Throwable {
+        final MethodHandle setter = ReflectionRegistry.setter("Stub.flag", Stub.class, "flag", //NON-NLS
+            MethodType.methodType(void.class, Stub.class, boolean.class));
+        final Stub stub = new Stub("stub"); //NON-NLS
+
+        setter.invokeExact(stub, true);
+        assertTrue(stub.isFlag());
+    } // end method
+
+    @Test
+    public void methodIsCalledWithItsCallSiteType() throws Throwable {
+        final MethodHandle method = ReflectionRegistry.method("Stub.describe", Stub.class, "describe", //NON-NLS
+            MethodType.methodType(String.class, Object.class),
+            MethodType.methodType(String.class, Object.class, Object.class));
+
+        assertEquals("stub 42", (String) method.invokeExact((Object) new Stub("stub"), (Object) 42)); //NON-NLS
+    } // end method
+
+    @Test
+    public void missingMembersAreReported() {
+        assertNull(ReflectionRegistry.getter("Stub.missing", Stub.class, "missing", //NON-NLS
+            MethodType.methodType(Object.class, Stub.class)));
+        assertNull(ReflectionRegistry.method("Stub.missingMethod", Stub.class, "missingMethod", //NON-NLS
+            MethodType.methodType(void.class), MethodType.methodType(void.class, Stub.class)));
+
+        assertTrue(ReflectionRegistry.getFailures().containsKey("Stub.missing")); //NON-NLS
+        assertTrue(ReflectionRegistry.getFailures().containsKey("Stub.missingMethod")); //NON-NLS
+        assertFalse(ReflectionRegistry.isAvailable("Stub.missing")); //NON-NLS
+    } // end method
+
+} // end class
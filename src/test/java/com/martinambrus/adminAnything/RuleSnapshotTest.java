@@ -0,0 +1,86 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for exporting and importing all rules via {@link com.martinambrus.adminAnything.RuleSnapshot},
+ * /aa_export and /aa_import.
+ *
+ * @author Martin Ambrus
+ */
+public class RuleSnapshotTest {
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness()
+        .withConfigFile("command_removals.yml", "commands: [spawn]") //NON-NLS
+        .withConfigFile("command_redirects.yml", "tpahere: tpa") //NON-NLS
+        .withConfigFile("virtual_permissions.yml", "myserver:\n  warp: warp") //NON-NLS
+        .withConfigFile("command_help_disabled.yml", "commands: [global.setspawn]"); //NON-NLS
+
+    static {
+        harness.addPlugin("Spawns", "spawn", "setspawn", "tpa", "tpahere", "warp"); //NON-NLS
+    }
+
+    @Test
+    public void exportedRulesAreImportedBack() throws IOException {
+        harness.consoleCommand("aa_export backup"); //NON-NLS
+        harness.tick(1);
+
+        final File snapshotFile = new File(new File(harness.getDataFolder(), RuleSnapshot.FOLDER_NAME),
+            "backup" + RuleSnapshot.FILE_EXTENSION); //NON-NLS
+        assertTrue(snapshotFile.isFile());
+
+        final RuleSnapshot snapshot = RuleSnapshot.read(snapshotFile);
+        assertTrue(snapshot.getRules("removals").containsKey("spawn")); //NON-NLS
+        assertEquals("tpa", snapshot.getRules("redirects").get("tpahere")); //NON-NLS
+        assertEquals("warp", snapshot.getRules("virtualperms").get("myserver.warp")); //NON-NLS
+        assertTrue(snapshot.getRules("helpDisables").containsKey("global.setspawn")); //NON-NLS
+
+        // change the rules, so we can see them replaced by the snapshot
+        harness.consoleCommand("aa_enablecommand spawn"); //NON-NLS
+        harness.consoleCommand("aa_disablecommand setspawn"); //NON-NLS
+        harness.tick(20);
+        assertFalse(AA_API.getCommandsList("removals").contains("spawn")); //NON-NLS
+
+        harness.consoleCommand("aa_import backup"); //NON-NLS
+        harness.tick(5);
+
+        assertTrue(AA_API.getCommandsList("removals").contains("spawn")); //NON-NLS
+        assertFalse(AA_API.getCommandsList("removals").contains("setspawn")); //NON-NLS
+        assertEquals("tpa", AA_API.getCommandsConfigurationValue("redirects", "tpahere")); //NON-NLS
+        assertEquals("warp", AA_API.getCommandsConfigurationValue("virtualperms", "myserver.warp")); //NON-NLS
+        assertTrue(YamlConfiguration.loadConfiguration(new File(harness.getDataFolder(), "command_removals.yml")) //NON-NLS
+                                    .getStringList("commands").contains("spawn")); //NON-NLS
+        assertTrue(harness.playerCommand(harness.addPlayer("Alice"), "/spawn").isCancelled()); //NON-NLS
+    } // end method
+
+    @Test(expected = IOException.class)
+    public void damagedSnapshotIsRejected() throws IOException {
+        final File snapshotFile = new File(harness.getDataFolder(), "damaged" + RuleSnapshot.FILE_EXTENSION); //NON-NLS
+        AA_API.captureRuleSnapshot().write(snapshotFile);
+
+        // flip a byte somewhere in the middle of the compressed data
+        final RandomAccessFile raf = new RandomAccessFile(snapshotFile, "rw"); //NON-NLS
+        try {
+            final long position = Files.size(snapshotFile.toPath()) / 2;
+            raf.seek(position);
+            final int original = raf.read();
+            raf.seek(position);
+            raf.write(original ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        RuleSnapshot.read(snapshotFile);
+    } // end method
+
+} // end class
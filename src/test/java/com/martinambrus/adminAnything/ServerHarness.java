@@ -0,0 +1,657 @@
+package com.martinambrus.adminAnything;
+
+import net.milkbowl.vault.permission.Permission;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.command.PluginCommandYamlParser;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+import org.bukkit.event.server.ServerLoadEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.ServicePriority;
+import org.bukkit.plugin.SimplePluginManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.junit.rules.ExternalResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * In-process server harness for behavioural and performance tests.
+ *
+ * Boots the real AdminAnything plugin on top of a {@link com.martinambrus.adminAnything.FakeServer},
+ * with a {@link com.martinambrus.adminAnything.FakePermission} Vault provider and any number
+ * of {@link com.martinambrus.adminAnything.FakePlugin}s registering their own commands.
+ * No network and no Minecraft server is needed for any of this.
+ *
+ * The harness is a JUnit class rule, which starts AdminAnything before the first test
+ * of a class runs and stops it after the last one. Plugins, commands and permissions
+ * are set up in a static initializer of the test class, which runs before that.
+ *
+ * <br><br><strong>Example:</strong>
+ * <pre>
+ * {@code
+ * @ClassRule
+ * public static final ServerHarness harness = new ServerHarness()
+ *     .withConfigFile("command_removals.yml", "commands: [spawn]");
+ *
+ * static {
+ *     harness.addPlugin("Essentials", "spawn", "home");
+ * }
+ *
+ * @Test
+ * public void removedCommandIsCancelled() {
+ *     Player p = harness.addPlayer("Alice", "default");
+ *     assertTrue(harness.playerCommand(p, "/spawn").isCancelled());
+ * }
+ * }
+ * </pre>
+ *
+ * Since Bukkit only allows for a single server per JVM, only a single harness
+ * can be created per test class. Gradle forks a new JVM for each test class.
+ *
+ * @author Martin Ambrus
+ */
+final class ServerHarness extends ExternalResource {
+
+    /**
+     * Maximum number of ticks AdminAnything's startup pipeline may take
+     * after ServerLoadEvent before it must be fully warmed up.
+     */
+    static final int MAX_WARM_UP_TICKS = 20;
+
+    /**
+     * Multiplier for all timing assertions. Can be raised for slow CI machines
+     * via the aa.harness.timingScale system property.
+     */
+    private static final double TIMING_SCALE = Double.parseDouble(System.getProperty("aa.harness.timingScale", "1")); //NON-NLS
+
+    /**
+     * The one and only server for this JVM.
+     */
+    private static FakeServer server = null;
+
+    /**
+     * Temporary folder acting as the server's plugins folder.
+     */
+    private final File pluginsFolder;
+
+    /**
+     * Data folder of AdminAnything.
+     */
+    private final File dataFolder;
+
+    /**
+     * Our Vault permission provider.
+     */
+    private final FakePermission permissions = new FakePermission();
+
+    /**
+     * Features to enable or disable in AdminAnything's config before we start it.
+     */
+    private final Map<String, Boolean> features = new LinkedHashMap<String, Boolean>();
+
+    /**
+     * Other values to set in AdminAnything's config before we start it, keyed by their path.
+     */
+    private final Map<String, Object> configValues = new LinkedHashMap<String, Object>();
+
+    /**
+     * Contents of additional config files to write into AdminAnything's data folder
+     * before we start it, keyed by file name.
+     */
+    private final Map<String, String> configFiles = new LinkedHashMap<String, String>();
+
+    /**
+     * The running AdminAnything instance.
+     */
+    private AdminAnything aa = null;
+
+    /**
+     * Constructor, creates the fake server, a default world and the Vault plugin
+     * with our fake permission provider.
+     *
+     * @throws UncheckedIOException When the temporary plugins folder cannot be created.
+     */
+    ServerHarness() {
+        if (null != server) {
+            throw new IllegalStateException("Only a single harness can be created per JVM."); //NON-NLS
+        }
+
+        server = FakeServer.create();
+        Bukkit.setServer(server);
+
+        try {
+            pluginsFolder = Files.createTempDirectory("aa-harness").toFile(); //NON-NLS
+
+            // bStats would otherwise start reporting to the outside world
+            final File bStatsFolder = new File(pluginsFolder, "bStats"); //NON-NLS
+            final YamlConfiguration bStatsConfig = new YamlConfiguration();
+            bStatsConfig.set("enabled", false); //NON-NLS
+            bStatsConfig.save(new File(bStatsFolder, "config.yml")); //NON-NLS
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        dataFolder = new File(pluginsFolder, "AdminAnything"); //NON-NLS
+
+        // update checks go to the network and chat features need
+        // client-side interaction, none of which we can do here
+        withFeature("autoupdate", false); //NON-NLS
+        withFeature("chatnicklinks", false); //NON-NLS
+        withFeature("chatnickgui", false); //NON-NLS
+        withFeature("chatnickguicommand", false); //NON-NLS
+        withFeature("chatjoinleaveclicks", false); //NON-NLS
+
+        // the config watcher reloads on its own thread, tests drive it directly instead
+        withFeature("configwatch", false); //NON-NLS
+
+        // javassist must not be downloaded while tests mute commands
+        withConfigValue("libraries.download", false); //NON-NLS
+
+        addWorld("world"); //NON-NLS
+
+        final Plugin vault = addPlugin("Vault"); //NON-NLS
+        server.getServicesManager().register(Permission.class, permissions, vault, ServicePriority.Normal);
+    } // end method
+
+    /**
+     * Enables or disables an AdminAnything feature from config-file.yml.
+     * Must be called before {@link #start()}.
+     *
+     * @param feature Name of the feature, as found in the features section of the config.
+     * @param enabled Whether the feature should be enabled.
+     *
+     * @return Returns this instance, for chaining.
+     */
+    ServerHarness withFeature(final String feature, final boolean enabled) {
+        features.put(feature, enabled);
+        return this;
+    } // end method
+
+    /**
+     * Sets a value in config-file.yml.
+     * Must be called before {@link #start()}.
+     *
+     * @param path Path to the config value, such as commandThrottling.global.
+     * @param value The value to set.
+     *
+     * @return Returns this instance, for chaining.
+     */
+    ServerHarness withConfigValue(final String path, final Object value) {
+        configValues.put(path, value);
+        return this;
+    } // end method
+
+    /**
+     * Writes a config file into AdminAnything's data folder.
+     * Must be called before {@link #start()}.
+     *
+     * @param fileName Name of the file, such as command_removals.yml.
+     * @param yaml Contents of the file.
+     *
+     * @return Returns this instance, for chaining.
+     */
+    ServerHarness withConfigFile(final String fileName, final String yaml) {
+        configFiles.put(fileName, yaml);
+        return this;
+    } // end method
+
+    /**
+     * Returns the fake server.
+     *
+     * @return Returns the fake server.
+     */
+    FakeServer getServer() {
+        return server;
+    } // end method
+
+    /**
+     * Returns our Vault permission provider, so tests can set up groups and permissions.
+     *
+     * @return Returns our Vault permission provider.
+     */
+    FakePermission getPermissions() {
+        return permissions;
+    } // end method
+
+    /**
+     * Returns the running AdminAnything instance.
+     *
+     * @return Returns the running AdminAnything instance.
+     */
+    AdminAnything getPlugin() {
+        return aa;
+    } // end method
+
+    /**
+     * Returns AdminAnything's data folder.
+     *
+     * @return Returns AdminAnything's data folder.
+     */
+    File getDataFolder() {
+        return dataFolder;
+    } // end method
+
+    /**
+     * Adds a world to the server.
+     *
+     * @param name Name of the new world.
+     *
+     * @return Returns the new world.
+     */
+    World addWorld(final String name) {
+        final UUID uid = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+        final World world = (World) Proxy.newProxyInstance(
+            World.class.getClassLoader(), new Class<?>[] { World.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                    switch (method.getName()) {
+                        case "getName":
+                            return name;
+
+                        case "getUID":
+                            return uid;
+
+                        case "hashCode":
+                            return uid.hashCode();
+
+                        case "equals":
+                            return proxy == args[0];
+
+                        case "toString":
+                            return "FakeWorld{name=" + name + '}'; //NON-NLS
+
+                        default:
+                            return FakeServer.defaultValue(method.getReturnType());
+                    }
+                }
+            });
+
+        server.addWorld(world);
+        return world;
+    } // end method
+
+    /**
+     * Adds a new plugin with commands that require no permissions.
+     *
+     * @param name Name of the new plugin.
+     * @param commands Names of commands this plugin registers.
+     *
+     * @return Returns the new plugin.
+     */
+    FakePlugin addPlugin(final String name, final String... commands) {
+        final FakePlugin plugin = new FakePlugin(name);
+        registerPlugin(plugin);
+
+        for (final String command : commands) {
+            addCommand(plugin, command, null);
+        }
+
+        return plugin;
+    } // end method
+
+    /**
+     * Registers a command for the given plugin, the same way the server
+     * would do it for commands in a plugin.yml file.
+     *
+     * @param plugin The plugin to register this command for.
+     * @param name Name of the command.
+     * @param permission Permission needed to run this command, can be null.
+     * @param aliases Any aliases for this command.
+     *
+     * @return Returns the new command.
+     */
+    PluginCommand addCommand(final Plugin plugin, final String name, final String permission, final String... aliases) {
+        final PluginCommand command;
+        try {
+            final Constructor<PluginCommand> cons = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+            cons.setAccessible(true);
+            command = cons.newInstance(name, plugin);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+        command.setPermission(permission);
+        command.setAliases(Arrays.asList(aliases));
+        command.setDescription(name + " command of " + plugin.getName()); //NON-NLS
+        server.getFakeCommandMap().register(plugin.getName().toLowerCase(), command);
+
+        return command;
+    } // end method
+
+    /**
+     * Adds a large set of plugins with commands, all of which need a permission.
+     * Plugins are named Synthetic0..SyntheticN, their commands are s0c0..sNcM
+     * and permissions for these are synthetic0.c0..syntheticN.cM
+     *
+     * @param pluginCount Number of plugins to add.
+     * @param commandsPerPlugin Number of commands to add for each of the plugins.
+     *
+     * @return Returns all of the new plugins.
+     */
+    List<FakePlugin> addSyntheticPlugins(final int pluginCount, final int commandsPerPlugin) {
+        final List<FakePlugin> plugins = new ArrayList<FakePlugin>();
+
+        for (int i = 0; i < pluginCount; i++) {
+            final FakePlugin plugin = addPlugin("Synthetic" + i); //NON-NLS
+            for (int j = 0; j < commandsPerPlugin; j++) {
+                addCommand(plugin, "s" + i + 'c' + j, "synthetic" + i + ".c" + j); //NON-NLS
+            }
+
+            plugins.add(plugin);
+        }
+
+        return plugins;
+    } // end method
+
+    /**
+     * Enables AdminAnything, signals that the server has finished loading
+     * and waits until AdminAnything has warmed up.
+     *
+     * @return Returns the running AdminAnything instance.
+     *
+     * @throws Exception When AdminAnything could not be loaded.
+     */
+    AdminAnything start() throws Exception {
+        writeConfigFiles();
+
+        final PluginDescriptionFile description;
+        try (final InputStream yml = AdminAnything.class.getClassLoader().getResourceAsStream("plugin.yml")) { //NON-NLS
+            description = new PluginDescriptionFile(yml);
+        }
+
+        aa = new AdminAnything(new JavaPluginLoader(server), description, dataFolder,
+            new File(pluginsFolder, "AdminAnything.jar")); //NON-NLS
+        registerPlugin(aa);
+        server.getFakeCommandMap().registerAll(description.getName().toLowerCase(), PluginCommandYamlParser.parse(aa));
+
+        setEnabled(aa, true);
+        server.getPluginManager().callEvent(new ServerLoadEvent(ServerLoadEvent.LoadType.STARTUP));
+        assertTrue("AdminAnything did not enable", aa.isEnabled()); //NON-NLS
+
+        int warmUpTicks = 0;
+        while (aa.isWarmingUp() && warmUpTicks < MAX_WARM_UP_TICKS) {
+            tick(1);
+            warmUpTicks++;
+        }
+
+        assertFalse("AdminAnything did not activate within " + MAX_WARM_UP_TICKS + " ticks", aa.isWarmingUp()); //NON-NLS
+
+        return aa;
+    } // end method
+
+    /**
+     * Starts AdminAnything before the first test of a class using this harness as its class rule.
+     *
+     * @throws Exception When AdminAnything could not be loaded.
+     */
+    @Override
+    protected void before() throws Exception {
+        start();
+    } // end method
+
+    /**
+     * Stops AdminAnything after the last test of a class using this harness as its class rule.
+     */
+    @Override
+    protected void after() {
+        stop();
+    } // end method
+
+    /**
+     * Disables AdminAnything and removes all of its files.
+     */
+    void stop() {
+        if (null != aa && aa.isEnabled()) {
+            setEnabled(aa, false);
+        }
+
+        deleteRecursively(pluginsFolder);
+    } // end method
+
+    /**
+     * Advances server time by the given number of ticks.
+     *
+     * @param ticks Number of ticks to advance the server by.
+     */
+    void tick(final long ticks) {
+        server.getFakeScheduler().tick(ticks);
+    } // end method
+
+    /**
+     * Puts a new player online in the default world, fires the join event
+     * and lets the server run for a tick, so async join handlers can finish.
+     *
+     * @param name Name of the player.
+     * @param groups Permission groups for this player, the first one being the primary group.
+     *
+     * @return Returns the new player.
+     */
+    Player addPlayer(final String name, final String... groups) {
+        final Player player = FakePlayer.create(name, server.getWorlds().get(0), permissions);
+
+        for (final String group : groups) {
+            permissions.playerAddGroup((String) null, name, group);
+        }
+
+        server.addOnlinePlayer(player);
+        server.getPluginManager().callEvent(new PlayerJoinEvent(player, name + " joined the game")); //NON-NLS
+        tick(1);
+
+        return player;
+    } // end method
+
+    /**
+     * Takes a player offline, firing the quit event.
+     *
+     * @param player The player to take offline.
+     */
+    void removePlayer(final Player player) {
+        server.getPluginManager().callEvent(new PlayerQuitEvent(player, player.getName() + " left the game")); //NON-NLS
+        server.removeOnlinePlayer(player);
+    } // end method
+
+    /**
+     * Runs a command as the given player, the way CraftBukkit does it:
+     * a preprocess event is fired first and the command is only dispatched
+     * if the event has not been cancelled.
+     *
+     * @param player The player to run the command as.
+     * @param line The full command line, including the leading slash.
+     *
+     * @return Returns the fired preprocess event.
+     */
+    PlayerCommandPreprocessEvent playerCommand(final Player player, final String line) {
+        final PlayerCommandPreprocessEvent e = new PlayerCommandPreprocessEvent(player, line);
+        server.getPluginManager().callEvent(e);
+
+        if (!e.isCancelled()) {
+            server.dispatchCommand(e.getPlayer(), e.getMessage().substring(1));
+        }
+
+        return e;
+    } // end method
+
+    /**
+     * Runs a command from the server console, the way CraftBukkit does it:
+     * a server command event is fired first and the command is only dispatched
+     * if the event has not been cancelled.
+     *
+     * @param line The full command line, without a leading slash.
+     *
+     * @return Returns the fired server command event.
+     */
+    ServerCommandEvent consoleCommand(final String line) {
+        return consoleCommand(server.getConsoleSender(), line);
+    } // end method
+
+    /**
+     * Runs a command from a non-player sender, such as a command block,
+     * the same way {@link #consoleCommand(String)} does.
+     *
+     * @param sender The sender to run the command as.
+     * @param line The full command line, without a leading slash.
+     *
+     * @return Returns the fired server command event.
+     */
+    ServerCommandEvent consoleCommand(final CommandSender sender, final String line) {
+        final ServerCommandEvent e = new ServerCommandEvent(sender, line);
+        server.getPluginManager().callEvent(e);
+
+        if (!e.isCancelled()) {
+            server.dispatchCommand(e.getSender(), e.getCommand());
+        }
+
+        return e;
+    } // end method
+
+    /**
+     * Measures an average run time of the given code in nanoseconds.
+     * The code is run a couple of times before measuring to let the JIT kick in.
+     *
+     * @param iterations Number of times to run the code.
+     * @param body The code to measure.
+     *
+     * @return Returns an average run time of the given code in nanoseconds.
+     */
+    static long averageNanos(final int iterations, final Runnable body) {
+        for (int i = 0; i < Math.min(iterations, 1000); i++) {
+            body.run();
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            body.run();
+        }
+
+        return (System.nanoTime() - start) / iterations;
+    } // end method
+
+    /**
+     * Asserts that an average run time of the given code stays below the given limit.
+     * The limit is multiplied by the aa.harness.timingScale system property.
+     *
+     * @param what Description of what is being measured, used in the output.
+     * @param iterations Number of times to run the code.
+     * @param maxMicros Maximum allowed average run time in microseconds.
+     * @param body The code to measure.
+     */
+    static void assertAverageBelow(final String what, final int iterations, final long maxMicros, final Runnable body) {
+        final long avg = averageNanos(iterations, body);
+        final long limit = (long) (maxMicros * 1000 * TIMING_SCALE);
+
+        System.out.println("[timing] " + what + ": " + (avg / 1000.0) + "us avg over " + iterations + " runs"); //NON-NLS
+        assertTrue(what + " took " + (avg / 1000.0) + "us on average, limit is " + (limit / 1000.0) + "us", //NON-NLS
+            avg <= limit);
+    } // end method
+
+    /**
+     * Writes config-file.yml with our feature and value overrides as well as
+     * any additional config files into AdminAnything's data folder.
+     *
+     * @throws Exception When any of the files cannot be written.
+     */
+    private void writeConfigFiles() throws Exception {
+        final YamlConfiguration config;
+        try (final InputStream defaults = AdminAnything.class.getClassLoader()
+                                                             .getResourceAsStream("config-file.yml")) { //NON-NLS
+            config = YamlConfiguration.loadConfiguration(new InputStreamReader(defaults, StandardCharsets.UTF_8));
+        }
+
+        for (final Map.Entry<String, Boolean> feature : features.entrySet()) {
+            config.set("features." + feature.getKey() + ".enabled", feature.getValue()); //NON-NLS
+        }
+
+        for (final Map.Entry<String, Object> value : configValues.entrySet()) {
+            config.set(value.getKey(), value.getValue());
+        }
+
+        config.set("firstRun", false); //NON-NLS
+        config.save(new File(dataFolder, "config-file.yml")); //NON-NLS
+
+        for (final Map.Entry<String, String> file : configFiles.entrySet()) {
+            final YamlConfiguration yml = new YamlConfiguration();
+            yml.loadFromString(file.getValue());
+            yml.save(new File(dataFolder, file.getKey()));
+        }
+    } // end method
+
+    /**
+     * Adds a plugin into the plugin manager's list of loaded plugins,
+     * as if it was loaded from a JAR file.
+     *
+     * @param plugin The plugin to add.
+     */
+    @SuppressWarnings("unchecked")
+    private static void registerPlugin(final Plugin plugin) {
+        try {
+            final Field plugins = SimplePluginManager.class.getDeclaredField("plugins"); //NON-NLS
+            plugins.setAccessible(true);
+            ((List<Plugin>) plugins.get(server.getPluginManager())).add(plugin);
+
+            final Field lookupNames = SimplePluginManager.class.getDeclaredField("lookupNames"); //NON-NLS
+            lookupNames.setAccessible(true);
+            ((Map<String, Plugin>) lookupNames.get(server.getPluginManager())).put(plugin.getName(), plugin);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    } // end method
+
+    /**
+     * Enables or disables a JavaPlugin, since JavaPluginLoader would refuse
+     * to do that for a plugin not loaded through its own class loader.
+     *
+     * @param plugin The plugin to enable or disable.
+     * @param enabled Whether to enable or disable the plugin.
+     */
+    private static void setEnabled(final JavaPlugin plugin, final boolean enabled) {
+        try {
+            final Method setEnabled = JavaPlugin.class.getDeclaredMethod("setEnabled", boolean.class); //NON-NLS
+            setEnabled.setAccessible(true);
+            setEnabled.invoke(plugin, enabled);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    } // end method
+
+    /**
+     * Deletes a folder with all of its contents.
+     *
+     * @param file The file or folder to delete.
+     */
+    private static void deleteRecursively(final File file) {
+        final File[] children = file.listFiles();
+        if (null != children) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    } // end method
+
+} // end class
@@ -0,0 +1,81 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.entity.Player;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the per-group and per-player command caches of {@link com.martinambrus.adminAnything.TabComplete}.
+ *
+ * @author Martin Ambrus
+ */
+public class TabCompleteTest {
+
+    @ClassRule
+    public static final ServerHarness harness = new ServerHarness();
+
+    static {
+        harness.addWorld("world_nether"); //NON-NLS
+
+        final FakePlugin homes = harness.addPlugin("Homes"); //NON-NLS
+        harness.addCommand(homes, "home", "homes.home"); //NON-NLS
+        harness.addCommand(homes, "sethome", "homes.sethome"); //NON-NLS
+
+        final FakePlugin builder = harness.addPlugin("Builder"); //NON-NLS
+        harness.addCommand(builder, "build", "builder.build"); //NON-NLS
+
+        harness.addSyntheticPlugins(100, 20);
+
+        harness.getPermissions()
+               .group("default", "homes.home", "homes.sethome") //NON-NLS
+               .group("builders", "homes.home", "homes.sethome", "builder.build", "synthetic1.c1"); //NON-NLS
+    }
+
+    @Test
+    public void groupCommandsAreAvailable() {
+        final Player alice = harness.addPlayer("Alice", "default"); //NON-NLS
+        final Player bob = harness.addPlayer("Bob", "builders"); //NON-NLS
+        harness.getPlugin().getTabCompletUtils().init(null);
+
+        final List<String> aliceCommands = AA_API.getPlayerAvailableCommands(alice);
+        assertTrue(aliceCommands.contains("home")); //NON-NLS
+        assertFalse(aliceCommands.contains("build")); //NON-NLS
+        assertFalse(aliceCommands.contains("s1c1")); //NON-NLS
+
+        final List<String> bobCommands = AA_API.getPlayerAvailableCommands(bob);
+        assertTrue(bobCommands.contains("home")); //NON-NLS
+        assertTrue(bobCommands.contains("build")); //NON-NLS
+        assertTrue(bobCommands.contains("s1c1")); //NON-NLS
+    } // end method
+
+    @Test
+    public void playerCommandsAreAvailable() {
+        final Player carol = harness.addPlayer("Carol", "default"); //NON-NLS
+        harness.getPermissions().playerAdd((String) null, "Carol", "synthetic5.c5"); //NON-NLS
+        harness.getPlugin().getTabCompletUtils().init(carol);
+
+        final List<String> carolCommands = AA_API.getPlayerAvailableCommands(carol);
+        assertTrue(carolCommands.contains("s5c5")); //NON-NLS
+        assertFalse(carolCommands.contains("s5c6")); //NON-NLS
+    } // end method
+
+    @Test
+    public void fullReloadIsFastWithManyPlayersAndPlugins() {
+        for (int i = 0; i < 50; i++) {
+            harness.addPlayer("Player" + i, 0 == i % 2 ? "default" : "builders"); //NON-NLS
+        }
+
+        final TabComplete tabComplete = harness.getPlugin().getTabCompletUtils();
+        ServerHarness.assertAverageBelow("full tab-complete cache reload", 5, 2000000, new Runnable() { //NON-NLS
+            @Override
+            public void run() {
+                tabComplete.init(null);
+            }
+        });
+    } // end method
+
+} // end class
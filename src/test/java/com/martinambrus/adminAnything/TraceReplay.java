@@ -0,0 +1,452 @@
+package com.martinambrus.adminAnything;
+
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays a command trace captured by {@link com.martinambrus.adminAnything.CommandTrace}
+ * through AdminAnything's rules on top of the in-process {@link com.martinambrus.adminAnything.ServerHarness},
+ * then reports how many times each rule was hit and how long AdminAnything took to process the commands.
+ *
+ * Rules are taken from a snapshot of AdminAnything's data folder (command_removals.yml, command_mutes.yml etc.
+ * and throttling settings from config-file.yml). Every traced command is registered by a fake plugin,
+ * or by the plugin from its prefix (such as essentials:home), so the fake command map contains
+ * the same commands the traced server had. Command blocks and other non-player senders are replayed as the console.
+ *
+ * <br><br><strong>Example:</strong>
+ * <pre>
+ * {@code
+ * gradle replayTrace -Ptrace=plugins/AdminAnything/traces/commands-20260101-120000.trace.gz -Prules=plugins/AdminAnything
+ * }
+ * </pre>
+ *
+ * @author Martin Ambrus
+ */
+final class TraceReplay {
+
+    /**
+     * Name of the fake plugin registering all traced commands without a plugin prefix.
+     */
+    private static final String TRACED_PLUGIN = "Traced"; //NON-NLS
+
+    /**
+     * Commands config files copied over from the rules snapshot.
+     */
+    private static final String[] RULE_FILES = {
+        "command_ignores.yml", "command_overrides.yml", "virtual_permissions.yml", "command_removals.yml", //NON-NLS
+        "command_mutes.yml", "command_redirects.yml", "command_help_disabled.yml" //NON-NLS
+    };
+
+    /**
+     * Features affecting how rules are applied, copied over from the rules snapshot.
+     */
+    private static final String[] RULE_FEATURES = {
+        "addperm", "disablecommand", "fixcommand", "mutecommand", "playerpermscaseinsensitive", //NON-NLS
+        "redirectcommand", "throttle" //NON-NLS
+    };
+
+    /**
+     * Maximum number of ticks we let the server run between two commands,
+     * so long pauses in the trace don't make the replay crawl.
+     */
+    private static final long MAX_TICKS_BETWEEN_COMMANDS = 20;
+
+    /**
+     * A permission profile of traced players.
+     */
+    static final class Profile {
+
+        /**
+         * Whether players of this profile are server operators.
+         */
+        final boolean op;
+
+        /**
+         * All permissions of players of this profile.
+         */
+        final List<String> permissions;
+
+        /**
+         * Constructor.
+         *
+         * @param profileOp Whether players of this profile are server operators.
+         * @param profilePermissions All permissions of players of this profile.
+         */
+        Profile(final boolean profileOp, final List<String> profilePermissions) {
+            op = profileOp;
+            permissions = profilePermissions;
+        } // end method
+
+    } // end class
+
+    /**
+     * A single traced command.
+     */
+    static final class Record {
+
+        /**
+         * Time (in milliseconds since the capture started) when this command was run.
+         */
+        final long time;
+
+        /**
+         * Type of the sender, one of the CommandTrace.SENDER_* constants.
+         */
+        final char senderType;
+
+        /**
+         * ID of the sender's permission profile, or CommandTrace.NONE for non-players.
+         */
+        final String profile;
+
+        /**
+         * Name of the sender's world, or CommandTrace.NONE if there is none.
+         */
+        final String world;
+
+        /**
+         * The anonymized command line, without a leading slash.
+         */
+        final String commandLine;
+
+        /**
+         * Constructor.
+         *
+         * @param recordTime Time (in milliseconds since the capture started) when this command was run.
+         * @param recordSenderType Type of the sender.
+         * @param recordProfile ID of the sender's permission profile.
+         * @param recordWorld Name of the sender's world.
+         * @param recordCommandLine The anonymized command line, without a leading slash.
+         */
+        Record(final long recordTime, final char recordSenderType, final String recordProfile, final String recordWorld,
+               final String recordCommandLine) {
+            time = recordTime;
+            senderType = recordSenderType;
+            profile = recordProfile;
+            world = recordWorld;
+            commandLine = recordCommandLine;
+        } // end method
+
+    } // end class
+
+    /**
+     * Contents of a whole trace file.
+     */
+    static final class Trace {
+
+        /**
+         * All permission profiles, keyed by their ID.
+         */
+        final Map<String, Profile> profiles = new LinkedHashMap<String, Profile>();
+
+        /**
+         * All traced commands, in the order they were run.
+         */
+        final List<Record> records = new ArrayList<Record>();
+
+    } // end class
+
+    /**
+     * Utility class, not to be instantiated.
+     */
+    private TraceReplay() {
+    } // end method
+
+    /**
+     * Reads a trace file written by {@link com.martinambrus.adminAnything.CommandTrace}.
+     * A trace which is still being captured can be read as well, up to its last complete line.
+     *
+     * @param file The gzipped trace file.
+     *
+     * @return Returns all profiles and commands from the trace.
+     * @throws IOException When the file cannot be read or is not a command trace.
+     */
+    static Trace read(final File file) throws IOException {
+        final Trace trace = new Trace();
+
+        try (final BufferedReader in = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+
+            if (!CommandTrace.HEADER.equals(in.readLine())) {
+                throw new IOException(file + " is not an AdminAnything command trace"); //NON-NLS
+            }
+
+            String line;
+            try {
+                while (null != (line = in.readLine())) {
+                    final String[] parts = line.split("\t", -1);
+
+                    if ("P".equals(parts[0]) && 4 == parts.length) { //NON-NLS
+                        trace.profiles.put(parts[1], new Profile("1".equals(parts[2]), parts[3].isEmpty() ?
+                            Collections.<String>emptyList() : Arrays.asList(parts[3].split(","))));
+                    } else if ("C".equals(parts[0]) && 6 == parts.length) { //NON-NLS
+                        trace.records.add(new Record(Long.parseLong(parts[1]), parts[2].charAt(0), parts[3], parts[4],
+                            parts[5]));
+                    }
+                }
+            } catch (final java.io.EOFException ex) {
+                // the trace is still being captured and ends mid-stream, we've read all complete lines
+            }
+        }
+
+        return trace;
+    } // end method
+
+    /**
+     * Replays the given trace and prints a report into the standard output.
+     *
+     * @param args Path to the trace file and (optionally) to the AdminAnything data folder to take rules from.
+     *
+     * @throws Exception When the trace cannot be read or the harness cannot be started.
+     */
+    public static void main(final String[] args) throws Exception {
+        if (1 > args.length) {
+            System.err.println("Usage: TraceReplay <trace file> [AdminAnything data folder with rules]"); //NON-NLS
+            System.exit(1);
+        }
+
+        final Trace trace = read(new File(args[0]));
+        final File rules = 1 < args.length ? new File(args[1]) : null;
+
+        final ServerHarness harness = new ServerHarness()
+            .withFeature("commandtrace", false) //NON-NLS
+            .withConfigValue("auditLog.bufferSize", Math.max(4096, trace.records.size() * 2)); //NON-NLS
+
+        // the fake command map, keyed by plugin name
+        final Map<String, Set<String>> pluginCommands = new TreeMap<String, Set<String>>();
+        if (null != rules) {
+            loadRules(harness, rules, pluginCommands);
+        }
+
+        final Set<String> worlds = new TreeSet<String>();
+        for (final Record record : trace.records) {
+            final String command = getCommandName(record.commandLine);
+
+            if (!CommandTrace.NONE.equals(record.world)) {
+                worlds.add(record.world);
+            }
+
+            if (command.contains(":")) {
+                addPluginCommand(pluginCommands, command.substring(0, command.indexOf(':')),
+                    command.substring(command.indexOf(':') + 1));
+            } else if (!command.isEmpty()) {
+                addPluginCommand(pluginCommands, TRACED_PLUGIN, command);
+            }
+        }
+
+        for (final Map.Entry<String, Set<String>> plugin : pluginCommands.entrySet()) {
+            harness.addPlugin(plugin.getKey(), plugin.getValue().toArray(new String[0]));
+        }
+
+        final Map<String, World> worldsByName = new HashMap<String, World>();
+        worldsByName.put("world", harness.getServer().getWorlds().get(0)); //NON-NLS
+        for (final String world : worlds) {
+            if (!worldsByName.containsKey(world)) {
+                worldsByName.put(world, harness.addWorld(world));
+            }
+        }
+
+        harness.start();
+
+        // a single fake player for each permission profile
+        final Map<String, Player> players = new HashMap<String, Player>();
+        for (final Map.Entry<String, Profile> profile : trace.profiles.entrySet()) {
+            final String name = "profile" + profile.getKey(); //NON-NLS
+            final Player player = harness.addPlayer(name);
+            player.setOp(profile.getValue().op);
+
+            for (final String perm : profile.getValue().permissions) {
+                harness.getPermissions().playerAdd((String) null, name, perm);
+            }
+
+            players.put(profile.getKey(), player);
+        }
+
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long lastTime = 0;
+        int skipped = 0;
+
+        for (final Record record : trace.records) {
+            final Player player = players.get(record.profile);
+            if (CommandTrace.SENDER_PLAYER == record.senderType && null == player) {
+                skipped++;
+                continue;
+            }
+
+            // let scheduled tasks (redirects, muted commands...) run as they would have on the traced server
+            final long ticks = Math.min(MAX_TICKS_BETWEEN_COMMANDS, (record.time - lastTime) / 50);
+            if (0 < ticks) {
+                harness.tick(ticks);
+            }
+            lastTime = record.time;
+
+            final long start = System.nanoTime();
+            if (CommandTrace.SENDER_PLAYER == record.senderType) {
+                if (worldsByName.containsKey(record.world)) {
+                    FakePlayer.of(player).setWorld(worldsByName.get(record.world));
+                }
+
+                harness.playerCommand(player, '/' + record.commandLine);
+            } else {
+                harness.consoleCommand(record.commandLine);
+            }
+            latencies.record(System.nanoTime() - start);
+        }
+
+        harness.tick(MAX_TICKS_BETWEEN_COMMANDS);
+        printReport(trace, skipped, latencies);
+        harness.stop();
+    } // end method
+
+    /**
+     * Copies rules from a snapshot of AdminAnything's data folder into the harness,
+     * adding plugins of all fixed commands into the fake command map.
+     *
+     * @param harness The harness to copy the rules into.
+     * @param rules AdminAnything's data folder to copy rules from.
+     * @param pluginCommands The fake command map to add commands of fixed plugins to.
+     *
+     * @throws IOException When one of the rule files cannot be read.
+     */
+    private static void loadRules(final ServerHarness harness, final File rules,
+        final Map<String, Set<String>> pluginCommands) throws IOException {
+        for (final String fileName : RULE_FILES) {
+            final File file = new File(rules, fileName);
+            if (file.isFile()) {
+                harness.withConfigFile(fileName, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            }
+        }
+
+        // commands can only be fixed to plugins which actually have them
+        final YamlConfiguration overrides = YamlConfiguration.loadConfiguration(new File(rules, "command_overrides.yml")); //NON-NLS
+        for (final String command : overrides.getKeys(false)) {
+            final String plugin = overrides.getString(command);
+            if (null != plugin) {
+                addPluginCommand(pluginCommands, plugin, command);
+            }
+        }
+
+        final File configFile = new File(rules, "config-file.yml"); //NON-NLS
+        if (!configFile.isFile()) {
+            return;
+        }
+
+        final YamlConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        for (final String feature : RULE_FEATURES) {
+            if (config.isSet("features." + feature + ".enabled")) { //NON-NLS
+                harness.withFeature(feature, config.getBoolean("features." + feature + ".enabled")); //NON-NLS
+            }
+        }
+
+        if (config.isConfigurationSection("commandThrottling")) { //NON-NLS
+            for (final String key : config.getConfigurationSection("commandThrottling").getKeys(true)) { //NON-NLS
+                final String path = "commandThrottling." + key; //NON-NLS
+                if (!config.isConfigurationSection(path)) {
+                    harness.withConfigValue(path, config.get(path));
+                }
+            }
+        }
+
+        if (config.isSet("virtualPermissionsAsNodes")) { //NON-NLS
+            harness.withConfigValue("virtualPermissionsAsNodes", config.getBoolean("virtualPermissionsAsNodes")); //NON-NLS
+        }
+    } // end method
+
+    /**
+     * Adds a command to the fake command map, unless it's one of AdminAnything's own commands.
+     *
+     * @param pluginCommands The fake command map.
+     * @param plugin Name of the plugin registering the command.
+     * @param command Name of the command.
+     */
+    private static void addPluginCommand(final Map<String, Set<String>> pluginCommands, final String plugin,
+        final String command) {
+        if (command.startsWith("aa_") || "adminanything".equalsIgnoreCase(plugin)) { //NON-NLS
+            return;
+        }
+
+        Set<String> commands = pluginCommands.get(plugin);
+        if (null == commands) {
+            commands = new TreeSet<String>();
+            pluginCommands.put(plugin, commands);
+        }
+
+        commands.add(command);
+    } // end method
+
+    /**
+     * Gets the lowercased command name from a command line.
+     *
+     * @param commandLine The command line, without a leading slash.
+     *
+     * @return Returns the lowercased command name.
+     */
+    private static String getCommandName(final String commandLine) {
+        final int space = commandLine.indexOf(' ');
+        return (-1 < space ? commandLine.substring(0, space) : commandLine).toLowerCase();
+    } // end method
+
+    /**
+     * Prints hit counts of all rules and latency percentiles into the standard output.
+     *
+     * @param trace The replayed trace.
+     * @param skipped Number of commands which could not be replayed.
+     * @param latencies Latencies of all replayed commands.
+     */
+    @SuppressWarnings("UseOfSystemOutOrSystemErr")
+    private static void printReport(final Trace trace, final int skipped, final LatencyHistogram latencies) {
+        // every intervention of AA is in the audit log, so we count rule hits from there
+        final Map<String, Integer> hits = new TreeMap<String, Integer>();
+        for (final AuditRecord record : AA_API.getAuditRecords()) {
+            if (AuditAction.RULE_ADDED == record.getAction() || AuditAction.RULE_REMOVED == record.getAction()) {
+                continue;
+            }
+
+            final String rule = record.getAction() + " /" + getCommandName(record.getCommand());
+            final Integer count = hits.get(rule);
+            hits.put(rule, null == count ? 1 : count + 1);
+        }
+
+        final List<Map.Entry<String, Integer>> sortedHits = new ArrayList<Map.Entry<String, Integer>>(hits.entrySet());
+        Collections.sort(sortedHits, new Comparator<Map.Entry<String, Integer>>() {
+
+            @Override
+            public int compare(final Map.Entry<String, Integer> a, final Map.Entry<String, Integer> b) {
+                return b.getValue().compareTo(a.getValue());
+            }
+
+        });
+
+        System.out.println();
+        System.out.println("Replayed " + (trace.records.size() - skipped) + " commands of " //NON-NLS
+            + trace.profiles.size() + " permission profiles, " + skipped + " skipped."); //NON-NLS
+
+        System.out.println();
+        System.out.println("Rule hits:"); //NON-NLS
+        if (sortedHits.isEmpty()) {
+            System.out.println("  none"); //NON-NLS
+        }
+        for (final Map.Entry<String, Integer> hit : sortedHits) {
+            System.out.println(String.format("  %8d  %s", hit.getValue(), hit.getKey())); //NON-NLS
+        }
+
+        System.out.println();
+        System.out.println("Command processing latency:"); //NON-NLS
+        System.out.println("  p50  " + AA_API.formatNanos(latencies.getPercentileNanos(50))); //NON-NLS
+        System.out.println("  p90  " + AA_API.formatNanos(latencies.getPercentileNanos(90))); //NON-NLS
+        System.out.println("  p99  " + AA_API.formatNanos(latencies.getPercentileNanos(99))); //NON-NLS
+        System.out.println("  max  " + AA_API.formatNanos(latencies.getMaxNanos())); //NON-NLS
+    } // end method
+
+} // end class
@@ -144,6 +144,12 @@ assert_output_contains "aa_version shows version" "version"
 send_cmd "aa_clearchat" 3
 # No assertion needed, just verify no crash
 
+send_cmd "aa_stats" 5
+assert_output_contains "aa_stats shows statistics" "statistics"
+
+send_cmd "aa_stats reset" 3
+assert_output_contains "aa_stats reset clears statistics" "have been reset"
+
 echo ""
 
 # =====================================================================
@@ -1046,9 +1052,9 @@ send_cmd "aa_reload" 10
 assert_output_contains "aa_reload initiates" "Initializing reload"
 assert_output_contains "aa_reload completes" "Reload.*complete"
 
-# Wait for AA's 10-second warmup after reload
+# AA activates as soon as its startup pipeline finishes after reload
 echo "  Waiting for AA warmup after reload..."
-sleep 12
+sleep 2
 
 # --- 17C: Verify state survived reload ---
 # Reported: v1.34 - disabled commands lost on reload